@@ -12,6 +12,7 @@ import org.bukkit.inventory.meta.FireworkMeta;
 
 import com.hm.achievement.particle.PacketSender;
 import com.hm.achievement.particle.ParticleEffect;
+import com.hm.achievement.utils.YamlManager;
 
 public class AchievementDisplay {
 
@@ -21,13 +22,13 @@ public class AchievementDisplay {
 	private boolean chatNotify;
 	private boolean titleScreen;
 
-	public AchievementDisplay(AdvancedAchievements achievement) {
+	public AchievementDisplay(AdvancedAchievements achievement, YamlManager config) {
 
 		this.plugin = achievement;
-		fireworkStyle = plugin.getPluginConfig().getString("FireworkStyle", "BALL_LARGE");
-		firework = plugin.getPluginConfig().getBoolean("Firework", true);
-		chatNotify = plugin.getPluginConfig().getBoolean("ChatNotify", false);
-		titleScreen = plugin.getPluginConfig().getBoolean("TitleScreen", true);
+		fireworkStyle = config.getString("FireworkStyle", "BALL_LARGE");
+		firework = config.getBoolean("Firework", true);
+		chatNotify = config.getBoolean("ChatNotify", false);
+		titleScreen = config.getBoolean("TitleScreen", true);
 	}
 
 	/**
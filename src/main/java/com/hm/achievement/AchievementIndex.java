@@ -0,0 +1,566 @@
+package com.hm.achievement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.EntityType;
+
+import com.hm.achievement.category.MultipleAchievements;
+import com.hm.achievement.category.NormalAchievements;
+import com.hm.achievement.utils.YamlManager;
+
+/**
+ * Immutable index of the achievements defined in the configuration file, built
+ * each time the configuration is loaded. Event handlers look achievements up
+ * by category, sub-category and statistic value instead of building
+ * configuration paths and querying the YAML tree on every event, and rewards
+ * are read once rather than each time an achievement is awarded; a new index
+ * replaces the previous one on /aach reload.
+ *
+ * Each category and sub-category is given a compact identifier, used to index
+ * per-player data such as cached permissions. The sub-categories of blocks,
+ * items and entities are also indexed by material or entity type and data
+ * value, so that listeners find them without building their names.
+ */
+public class AchievementIndex {
+
+	private static final Thresholds NO_THRESHOLDS = new Thresholds(-1, null, null, new ArrayList<Achievement>());
+	private static final MultipleAchievements[] MATERIAL_CATEGORIES = { MultipleAchievements.PLACES,
+			MultipleAchievements.BREAKS, MultipleAchievements.CRAFTS };
+
+	private final Map<NormalAchievements, Thresholds> normalAchievements;
+	private final Map<MultipleAchievements, Map<String, Thresholds>> multipleAchievements;
+	private final Thresholds connectionAchievements;
+	private final Thresholds playedTimeAchievements;
+	// Sub-categories by material ordinal, then by data value plus one; the
+	// sub-category without data value comes first.
+	private final Map<MultipleAchievements, Thresholds[][]> materialAchievements;
+	// Kills sub-categories by entity type ordinal.
+	private final Thresholds[] entityAchievements;
+	private int categoryCount;
+
+	public AchievementIndex(AdvancedAchievements plugin, YamlManager config) {
+
+		this(extractAchievements(plugin, config));
+	}
+
+	/**
+	 * Build an index from the achievements of each category and sub-category,
+	 * given by path, for instance Arrows or Breaks.stone.
+	 */
+	AchievementIndex(Map<String, List<Achievement>> achievements) {
+
+		normalAchievements = new EnumMap<NormalAchievements, Thresholds>(NormalAchievements.class);
+		for (NormalAchievements category : NormalAchievements.values())
+			normalAchievements.put(category, createThresholds(null, null, achievements.get(category.toString())));
+
+		multipleAchievements = new EnumMap<MultipleAchievements, Map<String, Thresholds>>(
+				MultipleAchievements.class);
+		for (MultipleAchievements category : MultipleAchievements.values()) {
+			String prefix = category.toString() + '.';
+			Map<String, Thresholds> subcategories = new HashMap<String, Thresholds>();
+			for (Entry<String, List<Achievement>> entry : achievements.entrySet()) {
+				if (!entry.getKey().startsWith(prefix))
+					continue;
+				String subcategory = entry.getKey().substring(prefix.length());
+				String permission = "achievement.count." + category.toString().toLowerCase() + '.' + subcategory;
+				subcategories.put(subcategory, createThresholds(subcategory, permission, entry.getValue()));
+			}
+			multipleAchievements.put(category, subcategories);
+		}
+
+		connectionAchievements = createThresholds(null, null, achievements.get("Connections"));
+		playedTimeAchievements = createThresholds(null, null, achievements.get("PlayedTime"));
+		materialAchievements = indexMaterials();
+		entityAchievements = indexEntities();
+	}
+
+	/**
+	 * Return the achievement of a normal category whose threshold is exactly
+	 * the given statistic value, or null if there is none.
+	 */
+	public Achievement getAchievement(NormalAchievements category, int value) {
+
+		return normalAchievements.get(category).getAchievement(value);
+	}
+
+	/**
+	 * Return the achievement of a sub-category of a multiple category whose
+	 * threshold is exactly the given statistic value, or null if there is none.
+	 */
+	public Achievement getAchievement(MultipleAchievements category, String subcategory, int value) {
+
+		return getThresholds(category, subcategory).getAchievement(value);
+	}
+
+	/**
+	 * Return the Connections achievement whose threshold is exactly the given
+	 * number of connections, or null if there is none.
+	 */
+	public Achievement getConnectionAchievement(int connections) {
+
+		return connectionAchievements.getAchievement(connections);
+	}
+
+	/**
+	 * Return the PlayedTime achievements, whose thresholds are in hours, sorted
+	 * by threshold.
+	 */
+	public Thresholds getPlayedTimeThresholds() {
+
+		return playedTimeAchievements;
+	}
+
+	/**
+	 * Return the achievements of a normal category, sorted by threshold.
+	 */
+	public Thresholds getThresholds(NormalAchievements category) {
+
+		return normalAchievements.get(category);
+	}
+
+	/**
+	 * Return the achievements of a sub-category of a multiple category, sorted
+	 * by threshold. The result is empty if the sub-category is not defined.
+	 */
+	public Thresholds getThresholds(MultipleAchievements category, String subcategory) {
+
+		Thresholds thresholds = multipleAchievements.get(category).get(subcategory);
+		return thresholds == null ? NO_THRESHOLDS : thresholds;
+	}
+
+	/**
+	 * Return the achievements of the sub-category of a block or item with a
+	 * given data value, for instance Breaks.stone:1, in the Places, Breaks or
+	 * Crafts categories. The result is empty if the sub-category is not defined.
+	 */
+	public Thresholds getThresholds(MultipleAchievements category, Material material, int data) {
+
+		Thresholds[] thresholds = materialAchievements.get(category)[material.ordinal()];
+		if (thresholds == null || data < 0 || data + 1 >= thresholds.length || thresholds[data + 1] == null)
+			return NO_THRESHOLDS;
+		return thresholds[data + 1];
+	}
+
+	/**
+	 * Return the achievements of the sub-category of a block or item regardless
+	 * of its data value, for instance Breaks.stone, in the Places, Breaks or
+	 * Crafts categories. The result is empty if the sub-category is not defined.
+	 */
+	public Thresholds getThresholds(MultipleAchievements category, Material material) {
+
+		Thresholds[] thresholds = materialAchievements.get(category)[material.ordinal()];
+		return thresholds == null || thresholds[0] == null ? NO_THRESHOLDS : thresholds[0];
+	}
+
+	/**
+	 * Return the Kills achievements of an entity type. The result is empty if
+	 * the sub-category is not defined.
+	 */
+	public Thresholds getKillThresholds(EntityType entityType) {
+
+		Thresholds thresholds = entityAchievements[entityType.ordinal()];
+		return thresholds == null ? NO_THRESHOLDS : thresholds;
+	}
+
+	/**
+	 * Check whether a sub-category of a multiple category is defined in the
+	 * configuration file.
+	 */
+	public boolean hasSubcategory(MultipleAchievements category, String subcategory) {
+
+		return multipleAchievements.get(category).containsKey(subcategory);
+	}
+
+	/**
+	 * Return the number of category and sub-category identifiers.
+	 */
+	public int getCategoryCount() {
+
+		return categoryCount;
+	}
+
+	/**
+	 * Extract the achievements of the categories and sub-categories defined in
+	 * the configuration file, by path.
+	 */
+	private static Map<String, List<Achievement>> extractAchievements(AdvancedAchievements plugin,
+			YamlManager config) {
+
+		Map<String, List<Achievement>> achievements = new HashMap<String, List<Achievement>>();
+		for (NormalAchievements category : NormalAchievements.values())
+			achievements.put(category.toString(), extractAchievements(plugin, config, category.toString()));
+		for (MultipleAchievements category : MultipleAchievements.values()) {
+			if (!config.isConfigurationSection(category.toString()))
+				continue;
+			for (String subcategory : config.getConfigurationSection(category.toString()).getKeys(false)) {
+				String path = category.toString() + '.' + subcategory;
+				achievements.put(path, extractAchievements(plugin, config, path));
+			}
+		}
+		achievements.put("Connections", extractAchievements(plugin, config, "Connections"));
+		achievements.put("PlayedTime", extractAchievements(plugin, config, "PlayedTime"));
+		return achievements;
+	}
+
+	/**
+	 * Extract the achievements of a configuration section whose keys are
+	 * thresholds, along with their rewards. Entries without a message are
+	 * ignored, as they are not considered valid achievements.
+	 */
+	private static List<Achievement> extractAchievements(AdvancedAchievements plugin, YamlManager config,
+			String path) {
+
+		List<Achievement> achievements = new ArrayList<Achievement>();
+		if (!config.isConfigurationSection(path))
+			return achievements;
+
+		ConfigurationSection section = config.getConfigurationSection(path);
+		for (String threshold : section.getKeys(false)) {
+			String message = section.getString(threshold + ".Message");
+			if (message == null)
+				continue;
+			try {
+				achievements.add(new Achievement(path + '.' + threshold, Integer.parseInt(threshold),
+						section.getString(threshold + ".Name"), message,
+						Reward.extract(plugin, config, path + '.' + threshold)));
+			} catch (NumberFormatException e) {
+				plugin.getLogger().warning("Invalid threshold \"" + threshold + "\" in the " + path
+						+ " category of the configuration. Please specify a valid number.");
+			}
+		}
+		return achievements;
+	}
+
+	/**
+	 * Give the next identifier to the achievements of a category or
+	 * sub-category.
+	 */
+	private Thresholds createThresholds(String subcategory, String permission, List<Achievement> achievements) {
+
+		if (achievements == null)
+			achievements = new ArrayList<Achievement>();
+		return new Thresholds(categoryCount++, subcategory, permission, achievements);
+	}
+
+	/**
+	 * Index the sub-categories of the Places, Breaks and Crafts categories by
+	 * material and data value. Sub-categories that do not name a material are
+	 * left out, as no event can match them.
+	 */
+	private Map<MultipleAchievements, Thresholds[][]> indexMaterials() {
+
+		Map<MultipleAchievements, Thresholds[][]> materials = new EnumMap<MultipleAchievements, Thresholds[][]>(
+				MultipleAchievements.class);
+		for (MultipleAchievements category : MATERIAL_CATEGORIES) {
+			Thresholds[][] table = new Thresholds[Material.values().length][];
+			for (Entry<String, Thresholds> entry : multipleAchievements.get(category).entrySet()) {
+				String subcategory = entry.getKey();
+				int separator = subcategory.indexOf(':');
+				Material material = Material
+						.getMaterial((separator < 0 ? subcategory : subcategory.substring(0, separator)).toUpperCase());
+				if (material == null)
+					continue;
+				int slot = 0;
+				if (separator >= 0) {
+					try {
+						slot = Integer.parseInt(subcategory.substring(separator + 1)) + 1;
+					} catch (NumberFormatException e) {
+						continue;
+					}
+					if (slot <= 0)
+						continue;
+				}
+				Thresholds[] materialThresholds = table[material.ordinal()];
+				if (materialThresholds == null)
+					materialThresholds = new Thresholds[slot + 1];
+				else if (materialThresholds.length <= slot)
+					materialThresholds = Arrays.copyOf(materialThresholds, slot + 1);
+				materialThresholds[slot] = entry.getValue();
+				table[material.ordinal()] = materialThresholds;
+			}
+			materials.put(category, table);
+		}
+		return materials;
+	}
+
+	/**
+	 * Index the sub-categories of the Kills category by entity type.
+	 */
+	private Thresholds[] indexEntities() {
+
+		Thresholds[] entities = new Thresholds[EntityType.values().length];
+		for (EntityType entityType : EntityType.values())
+			entities[entityType.ordinal()] = multipleAchievements.get(MultipleAchievements.KILLS)
+					.get(entityType.name().toLowerCase());
+		return entities;
+	}
+
+	/**
+	 * Achievements of a category or sub-category, sorted by threshold.
+	 */
+	public static final class Thresholds {
+
+		private final int id;
+		private final String subcategory;
+		private final String permission;
+		private final int[] thresholds;
+		private final Achievement[] achievements;
+
+		private Thresholds(int id, String subcategory, String permission, List<Achievement> achievementList) {
+
+			this.id = id;
+			this.subcategory = subcategory;
+			this.permission = permission;
+			Collections.sort(achievementList, new Comparator<Achievement>() {
+
+				@Override
+				public int compare(Achievement achievement1, Achievement achievement2) {
+
+					return achievement1.threshold < achievement2.threshold ? -1
+							: achievement1.threshold == achievement2.threshold ? 0 : 1;
+				}
+			});
+			achievements = achievementList.toArray(new Achievement[achievementList.size()]);
+			thresholds = new int[achievements.length];
+			for (int i = 0; i < achievements.length; ++i)
+				thresholds[i] = achievements[i].threshold;
+		}
+
+		/**
+		 * Return the achievement whose threshold is exactly the given value, or
+		 * null if there is none.
+		 */
+		public Achievement getAchievement(int value) {
+
+			int index = Arrays.binarySearch(thresholds, value);
+			return index < 0 ? null : achievements[index];
+		}
+
+		/**
+		 * Return the smallest threshold strictly larger than the given value, or
+		 * Integer.MAX_VALUE if there is none.
+		 */
+		public int getNextThreshold(int value) {
+
+			int index = Arrays.binarySearch(thresholds, value);
+			int next = index >= 0 ? index + 1 : -index - 1;
+			return next < thresholds.length ? thresholds[next] : Integer.MAX_VALUE;
+		}
+
+		/**
+		 * Return the achievement with the largest threshold in the range
+		 * (previousValue, value], or null if there is none.
+		 */
+		public Achievement getReachedAchievement(int previousValue, int value) {
+
+			int index = Arrays.binarySearch(thresholds, value);
+			if (index < 0)
+				index = -index - 2;
+			return index >= 0 && thresholds[index] > previousValue ? achievements[index] : null;
+		}
+
+		/**
+		 * Return the identifier of the category or sub-category, or -1 if it is
+		 * not defined in the configuration file.
+		 */
+		public int getId() {
+
+			return id;
+		}
+
+		/**
+		 * Return the name of a sub-category as written in the configuration
+		 * file, or null for a normal category.
+		 */
+		public String getSubcategory() {
+
+			return subcategory;
+		}
+
+		/**
+		 * Return the achievement.count permission of a sub-category, or null for
+		 * a normal category.
+		 */
+		public String getPermission() {
+
+			return permission;
+		}
+
+		public Achievement get(int index) {
+
+			return achievements[index];
+		}
+
+		/**
+		 * Return the position of an achievement with the same threshold and
+		 * name as the given one, or -1 if there is none.
+		 */
+		public int indexOf(Achievement achievement) {
+
+			int index = Arrays.binarySearch(thresholds, achievement.threshold);
+			if (index < 0)
+				return -1;
+			String name = achievements[index].name;
+			boolean sameName = name == null ? achievement.name == null : name.equals(achievement.name);
+			return sameName ? index : -1;
+		}
+
+		public int size() {
+
+			return achievements.length;
+		}
+	}
+
+	/**
+	 * Achievement definition extracted from the configuration file.
+	 */
+	public static final class Achievement {
+
+		private final String path;
+		private final int threshold;
+		private final String name;
+		private final String message;
+		private final Reward reward;
+
+		Achievement(String path, int threshold, String name, String message, Reward reward) {
+
+			this.path = path;
+			this.threshold = threshold;
+			this.name = name;
+			this.message = message;
+			this.reward = reward;
+		}
+
+		/**
+		 * Return the path of the achievement in the configuration file, for
+		 * instance Breaks.stone.100.
+		 */
+		public String getPath() {
+
+			return path;
+		}
+
+		public int getThreshold() {
+
+			return threshold;
+		}
+
+		public String getName() {
+
+			return name;
+		}
+
+		public String getMessage() {
+
+			return message;
+		}
+
+		public Reward getReward() {
+
+			return reward;
+		}
+	}
+
+	/**
+	 * Reward of an achievement, resolved from the configuration file so that
+	 * awarding an achievement does not query the YAML tree.
+	 */
+	public static final class Reward {
+
+		static final Reward NONE = new Reward(0, null, 0, "");
+
+		private final int money;
+		private final Material itemType;
+		private final int itemAmount;
+		private final String command;
+
+		private Reward(int money, Material itemType, int itemAmount, String command) {
+
+			this.money = money;
+			this.itemType = itemType;
+			this.itemAmount = itemAmount;
+			this.command = command;
+		}
+
+		/**
+		 * Read the reward of the achievement at the given path of the
+		 * configuration file, for instance Breaks.stone.100. Both the old and
+		 * the new syntax of the plugin are supported. Invalid item rewards are
+		 * reported and ignored.
+		 */
+		static Reward extract(AdvancedAchievements plugin, YamlManager config, String path) {
+
+			int money = Math.max(config.getInt(path + ".Reward.Money", 0),
+					config.getInt(path + ".Reward.Money.Amount", 0));
+
+			Material itemType = null;
+			int itemAmount = 0;
+			try {
+				if (config.contains(path + ".Reward.Item.Amount")) {
+					// Old config syntax.
+					itemAmount = config.getInt(path + ".Reward.Item.Amount", 0);
+					itemType = Material
+							.getMaterial(config.getString(path + ".Reward.Item.Type", "stone").toUpperCase());
+				} else if (config.contains(path + ".Reward.Item")) {
+					// New config syntax, the material is followed by the amount.
+					String item = config.getString(path + ".Reward.Item", "");
+					int indexOfAmount = item.indexOf(' ');
+					if (indexOfAmount != -1) {
+						itemAmount = Integer.parseInt(item.substring(indexOfAmount + 1));
+						itemType = Material.getMaterial(item.substring(0, indexOfAmount).toUpperCase());
+					}
+				}
+			} catch (NumberFormatException e) {
+				plugin.getLogger().warning("Invalid item reward for achievement \"" + config.getString(path + ".Name")
+						+ "\". Please specify a valid amount.");
+			}
+			if (itemAmount != 0 && itemType == null) {
+				plugin.getLogger().warning("Invalid item reward for achievement \"" + config.getString(path + ".Name")
+						+ "\". Please specify a valid Material name.");
+				itemAmount = 0;
+			}
+
+			String command = config.getString(path + ".Reward.Command", "");
+			if (money == 0 && itemAmount == 0 && command.isEmpty())
+				return NONE;
+			return new Reward(money, itemType, itemAmount, command);
+		}
+
+		public int getMoney() {
+
+			return money;
+		}
+
+		/**
+		 * Return the material of the item reward, or null if there is none.
+		 */
+		public Material getItemType() {
+
+			return itemType;
+		}
+
+		public int getItemAmount() {
+
+			return itemAmount;
+		}
+
+		/**
+		 * Return the reward commands, separated by a semicolon and space, or an
+		 * empty string if there are none.
+		 */
+		public String getCommand() {
+
+			return command;
+		}
+	}
+}
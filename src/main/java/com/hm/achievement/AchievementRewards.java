@@ -5,21 +5,23 @@ import net.milkbowl.vault.item.Items;
 import java.util.ArrayList;
 
 import org.bukkit.ChatColor;
-import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import com.hm.achievement.AchievementIndex.Reward;
+import com.hm.achievement.utils.YamlManager;
+
 public class AchievementRewards {
 
 	private AdvancedAchievements plugin;
 	private boolean rewardCommandNotif;
 
-	public AchievementRewards(AdvancedAchievements achievement) {
+	public AchievementRewards(AdvancedAchievements achievement, YamlManager config) {
 
 		this.plugin = achievement;
 		// No longer available in default config, kept for compatibility with
 		// versions prior to 2.1.
-		rewardCommandNotif = plugin.getPluginConfig().getBoolean("RewardCommandNotif", true);
+		rewardCommandNotif = config.getBoolean("RewardCommandNotif", true);
 	}
 
 	/**
@@ -38,28 +40,9 @@ public class AchievementRewards {
 	/**
 	 * Get item reward to a player (specified in configuration file).
 	 */
-	public ItemStack getItemReward(Player player, String ach, int amount) {
-
-		ItemStack item;
-		try {
-			// Old config syntax.
-			if (plugin.getPluginConfig().getKeys(true).contains(ach + ".Reward.Item.Type"))
-				item = new ItemStack(
-						Material.getMaterial(
-								plugin.getPluginConfig().getString(ach + ".Reward.Item.Type", "stone").toUpperCase()),
-						amount);
-			// New config syntax.
-			else
-				item = new ItemStack(
-						Material.getMaterial(plugin.getPluginConfig()
-								.getString(ach + ".Reward.Item", "stone").toUpperCase().substring(0, plugin
-										.getPluginConfig().getString(ach + ".Reward.Item", "stone").indexOf(" "))),
-						amount);
-		} catch (NullPointerException e) {
-			plugin.getLogger().warning("Invalid item reward for achievement \""
-					+ plugin.getPluginConfig().getString(ach + ".Name") + "\". Please specify a valid Material name.");
-			return null;
-		}
+	public ItemStack getItemReward(Player player, Reward reward) {
+
+		ItemStack item = new ItemStack(reward.getItemType(), reward.getItemAmount());
 
 		// Display Vault name of object if available.
 		if (plugin.setUpEconomy(false))
@@ -126,43 +109,33 @@ public class AchievementRewards {
 	}
 
 	/**
-	 * Main reward manager (deals with configuration).
+	 * Give the reward of an achievement read from the configuration file, for
+	 * achievements that are not indexed.
 	 */
 	public void checkConfig(Player player, String configAchievement) {
 
-		// Supports both old and new plugin syntax.
-		int money = Math.max(plugin.getPluginConfig().getInt(configAchievement + ".Reward.Money", 0),
-				plugin.getPluginConfig().getInt(configAchievement + ".Reward.Money.Amount", 0));
-
-		int itemAmount = 0;
-		// Old config syntax.
-		if (plugin.getPluginConfig().getKeys(true).contains(configAchievement + ".Reward.Item.Amount")) {
-			itemAmount = plugin.getPluginConfig().getInt(configAchievement + ".Reward.Item.Amount", 0);
-		} else if (plugin.getPluginConfig().getKeys(true).contains(configAchievement + ".Reward.Item")) { // New
-			// config
-			// syntax.
-			int indexOfAmount = 0;
-			indexOfAmount = plugin.getPluginConfig().getString(configAchievement + ".Reward.Item", "").indexOf(" ");
-			if (indexOfAmount != -1)
-				itemAmount = Integer.valueOf(plugin.getPluginConfig().getString(configAchievement + ".Reward.Item", "")
-						.substring(indexOfAmount + 1));
-		}
+		giveReward(player, Reward.extract(plugin, plugin.getPluginConfig(), configAchievement));
+	}
 
-		String commandReward = plugin.getPluginConfig().getString(configAchievement + ".Reward.Command", "");
+	/**
+	 * Main reward manager, rewards are resolved when the configuration is
+	 * loaded.
+	 */
+	public void giveReward(Player player, Reward reward) {
 
-		if (money != 0) {
-			rewardMoney(player, money);
+		if (reward.getMoney() != 0) {
+			rewardMoney(player, reward.getMoney());
 		}
-		if (itemAmount != 0) {
-			ItemStack item = this.getItemReward(player, configAchievement, itemAmount);
-			if (player.getInventory().firstEmpty() != -1 && item != null)
+		if (reward.getItemAmount() != 0) {
+			ItemStack item = this.getItemReward(player, reward);
+			if (player.getInventory().firstEmpty() != -1)
 				player.getInventory().addItem(item);
-			else if (item != null)
+			else
 				player.getWorld().dropItem(player.getLocation(), item);
 		}
-		if (commandReward.length() != 0) {
+		if (reward.getCommand().length() != 0) {
 
-			commandReward = commandReward.replace("PLAYER", player.getName());
+			String commandReward = reward.getCommand().replace("PLAYER", player.getName());
 			// Multiple reward command can be set, separated by a semicolon and
 			// space.
 			String[] commands = commandReward.split("; ");
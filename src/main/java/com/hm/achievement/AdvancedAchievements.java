@@ -2,15 +2,12 @@ package com.hm.achievement;
 
 import java.io.File;
 import java.io.IOException;
-import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.Set;
 
-import org.apache.commons.lang.StringEscapeUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
@@ -18,7 +15,6 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.entity.Player;
 import org.bukkit.permissions.Permission;
-import org.bukkit.permissions.PermissionDefault;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.RegisteredServiceProvider;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -30,6 +26,7 @@ import net.milkbowl.vault.economy.Economy;
 
 import com.hm.achievement.command.*;
 import com.hm.achievement.db.*;
+import com.hm.achievement.handoff.PlayerHandoff;
 import com.hm.achievement.listener.*;
 import com.hm.achievement.runnable.*;
 import com.hm.achievement.utils.*;
@@ -85,45 +82,31 @@ public class AdvancedAchievements extends JavaPlugin {
 	private AchieveCraftListener craftListener;
 	private AchieveQuitListener quitListener;
 	private AchieveTeleportRespawnListener teleportRespawnListener;
+	private AchieveMoveListener moveListener;
 
 	private ListGUIListener listGUIListener;
 
-	// Additional classes related to plugin modules and commands.
-	private AchievementRewards reward;
-	private AchievementDisplay achievementDisplay;
-	private GiveCommand giveCommand;
-	private BookCommand bookCommand;
-	private TopCommand topCommand;
-	private ListCommand listCommand;
-	private StatsCommand statsCommand;
-	private InfoCommand infoCommand;
-	private HelpCommand helpCommand;
-	private CheckCommand checkCommand;
-	private DeleteCommand deleteCommand;
+	// Additional classes related to plugin modules; the command modules are
+	// part of the configuration snapshot.
+	private AwardedThresholds awardedThresholds;
 	private UpdateChecker updateChecker;
 
-	private YamlManager config;
-	private YamlManager lang;
+	// Replaced as a whole on /aach reload.
+	private volatile ConfigurationSnapshot configuration;
+	private boolean reloading;
 	private FileManager fileManager;
 
 	// Database related.
 	private SQLDatabaseManager db;
 	private DatabasePoolsManager poolsManager;
-	private int pooledRequestsTaskInterval;
-	private boolean databaseBackup;
-	private boolean asyncPooledRequestsSender;
-
-	// Plugin options and various parameters.
-	private String icon;
-	private ChatColor color;
-	private String chatHeader;
-	private boolean restrictCreative;
-	private Set<String> excludedWorldSet;
-	private Set<String> disabledCategorySet;
-	private boolean successfulLoad;
+	private PlayerHandoff playerHandoff;
+	private StatisticsJournal statisticsJournal;
+	private PooledRequestsScheduler pooledRequestsScheduler;
+
+	// Plugin options and various parameters; loads are reported by the
+	// asynchronous reload task.
+	private volatile boolean successfulLoad;
 	private boolean overrideDisable;
-	private int playtimeTaskInterval;
-	private int distanceTaskInterval;
 
 	// Achievement types string arrays; constants.
 	public static final String[] NORMAL_ACHIEVEMENTS = { "Connections", "Deaths", "Arrows", "Snowballs", "Eggs", "Fish",
@@ -141,6 +124,8 @@ public class AdvancedAchievements extends JavaPlugin {
 	private BukkitTask pooledRequestsSenderTask;
 	private BukkitTask playedTimeTask;
 	private BukkitTask distanceTask;
+	private ShardedPlayerScheduler playedTimeScheduler;
+	private ShardedPlayerScheduler distanceScheduler;
 
 	/**
 	 * Constructor.
@@ -148,8 +133,6 @@ public class AdvancedAchievements extends JavaPlugin {
 	public AdvancedAchievements() {
 
 		overrideDisable = false;
-		excludedWorldSet = new HashSet<String>();
-		disabledCategorySet = new HashSet<String>();
 		fileManager = new FileManager(this);
 		db = new SQLDatabaseManager(this);
 		poolsManager = new DatabasePoolsManager(this);
@@ -178,6 +161,7 @@ public class AdvancedAchievements extends JavaPlugin {
 		// Register listeners so they can monitor server events; if there are no
 		// config related achievements, listeners aren't registered.
 		PluginManager pm = getServer().getPluginManager();
+		Set<String> disabledCategorySet = configuration.getDisabledCategorySet();
 		if (!disabledCategorySet.contains("Places")) {
 			blockPlaceListener = new AchieveBlockPlaceListener(this);
 			pm.registerEvents(blockPlaceListener, this);
@@ -238,11 +222,9 @@ public class AdvancedAchievements extends JavaPlugin {
 			pm.registerEvents(milkListener, this);
 		}
 
-		if (config.getBoolean("CheckForUpdate", true) || !disabledCategorySet.contains("Connections")
-				|| !disabledCategorySet.contains("PlayedTime")) {
-			connectionListener = new AchieveConnectionListener(this);
-			pm.registerEvents(connectionListener, this);
-		}
+		// Always registered, used to load and evict cached achievements.
+		connectionListener = new AchieveConnectionListener(this);
+		pm.registerEvents(connectionListener, this);
 
 		if (!disabledCategorySet.contains("Trades") || !disabledCategorySet.contains("AnvilsUsed")
 				|| !disabledCategorySet.contains("Brewing")) {
@@ -281,13 +263,9 @@ public class AdvancedAchievements extends JavaPlugin {
 			pm.registerEvents(hoeFertiliseFireworkMusicListener, this);
 		}
 
-		if (!disabledCategorySet.contains("MaxLevel") || !disabledCategorySet.contains("PlayedTime")
-				|| !disabledCategorySet.contains("DistanceFoot") || !disabledCategorySet.contains("DistancePig")
-				|| !disabledCategorySet.contains("DistanceHorse") || !disabledCategorySet.contains("DistanceMinecart")
-				|| !disabledCategorySet.contains("DistanceBoat") || !disabledCategorySet.contains("DistanceGliding")) {
-			quitListener = new AchieveQuitListener(this);
-			pm.registerEvents(quitListener, this);
-		}
+		// Always registered, used to evict cached achievements.
+		quitListener = new AchieveQuitListener(this);
+		pm.registerEvents(quitListener, this);
 
 		if (!disabledCategorySet.contains("DistanceFoot") || !disabledCategorySet.contains("DistancePig")
 				|| !disabledCategorySet.contains("DistanceHorse") || !disabledCategorySet.contains("DistanceMinecart")
@@ -303,7 +281,7 @@ public class AdvancedAchievements extends JavaPlugin {
 		this.getLogger().info("Initialising database and launching scheduled tasks...");
 
 		// Initialise the SQLite/MySQL database.
-		db.initialise();
+		db.connect();
 
 		// Error while loading database do not do any further work.
 		if (overrideDisable) {
@@ -311,26 +289,63 @@ public class AdvancedAchievements extends JavaPlugin {
 			return;
 		}
 
+		// Backed up before its tables are updated from previous versions.
+		backupDatabase(getPluginConfig());
+		db.initialise();
+
+		// Write the changes left in the journal if the server was killed, and
+		// journal the new ones.
+		if (getPluginConfig().getBoolean("StatisticsJournal", true)) {
+			statisticsJournal = new StatisticsJournal(this);
+			if (!statisticsJournal.open())
+				statisticsJournal = null;
+		} else {
+			// Changes may have been spilled to the journal at the last shutdown.
+			StatisticsJournal spilledJournal = new StatisticsJournal(this);
+			if (spilledJournal.exists())
+				spilledJournal.replay();
+		}
+
+		// Start exchanging players with the other servers sharing the database.
+		playerHandoff = new PlayerHandoff(this);
+		playerHandoff.start();
+
+		// Load achievements and statistics of players already online (plugin
+		// reload).
+		for (Player player : Bukkit.getServer().getOnlinePlayers()) {
+			db.getAchievementCache().load(player.getUniqueId().toString());
+			poolsManager.loadPlayerStatistics(player);
+		}
+
 		// Schedule a repeating task to group database queries for some frequent
-		// events. Choose between asynchronous task and synchronous task.
-		if (asyncPooledRequestsSender)
+		// events. Choose between asynchronous task and synchronous task; the
+		// asynchronous task writes statistics depending on how many are dirty.
+		if (configuration.isAsyncPooledRequestsSender()) {
+			pooledRequestsScheduler = new PooledRequestsScheduler(this, new PooledRequestsSenderAsync(this));
 			pooledRequestsSenderTask = Bukkit.getServer().getScheduler().runTaskTimerAsynchronously(
-					Bukkit.getPluginManager().getPlugin("AdvancedAchievements"),
-					new PooledRequestsSenderAsync(this, true), pooledRequestsTaskInterval * 40,
-					pooledRequestsTaskInterval * 20);
-		else
+					Bukkit.getPluginManager().getPlugin("AdvancedAchievements"), pooledRequestsScheduler,
+					PooledRequestsScheduler.CHECK_INTERVAL_TICKS, PooledRequestsScheduler.CHECK_INTERVAL_TICKS);
+		} else
 			pooledRequestsSenderTask = Bukkit.getServer().getScheduler().runTaskTimer(
 					Bukkit.getPluginManager().getPlugin("AdvancedAchievements"),
-					new PooledRequestsSenderSync(this, true), pooledRequestsTaskInterval * 40,
-					pooledRequestsTaskInterval * 20);
+					new PooledRequestsSenderSync(this), configuration.getPooledRequestsTaskInterval() * 40,
+					configuration.getPooledRequestsTaskInterval() * 20);
 
 		// Schedule a repeating task to monitor played time for each player (not
 		// directly related to an event).
 		if (!disabledCategorySet.contains("PlayedTime")) {
+			int playtimeTaskInterval = configuration.getPlaytimeTaskInterval();
 			achievePlayTimeRunnable = new AchievePlayTimeRunnable(this);
-			playedTimeTask = Bukkit.getServer().getScheduler().runTaskTimer(
-					Bukkit.getPluginManager().getPlugin("AdvancedAchievements"), achievePlayTimeRunnable,
-					playtimeTaskInterval * 10, playtimeTaskInterval * 20);
+			if (configuration.isShardPlayerTasks()) {
+				// Spread the players over the ticks of the interval.
+				playedTimeScheduler = new ShardedPlayerScheduler("Played time", achievePlayTimeRunnable,
+						playtimeTaskInterval * 20);
+				playedTimeTask = Bukkit.getServer().getScheduler().runTaskTimer(
+						Bukkit.getPluginManager().getPlugin("AdvancedAchievements"), playedTimeScheduler, 1, 1);
+			} else
+				playedTimeTask = Bukkit.getServer().getScheduler().runTaskTimer(
+						Bukkit.getPluginManager().getPlugin("AdvancedAchievements"), achievePlayTimeRunnable,
+						playtimeTaskInterval * 10, playtimeTaskInterval * 20);
 		}
 
 		// Schedule a repeating task to monitor distances travelled by each
@@ -338,10 +353,23 @@ public class AdvancedAchievements extends JavaPlugin {
 		if (!disabledCategorySet.contains("DistanceFoot") || !disabledCategorySet.contains("DistancePig")
 				|| !disabledCategorySet.contains("DistanceHorse") || !disabledCategorySet.contains("DistanceMinecart")
 				|| !disabledCategorySet.contains("DistanceBoat") || !disabledCategorySet.contains("DistanceGliding")) {
+			int distanceTaskInterval = configuration.getDistanceTaskInterval();
 			achieveDistanceRunnable = new AchieveDistanceRunnable(this);
-			distanceTask = Bukkit.getServer().getScheduler().runTaskTimer(
-					Bukkit.getPluginManager().getPlugin("AdvancedAchievements"), achieveDistanceRunnable,
-					distanceTaskInterval * 40, distanceTaskInterval * 20);
+			if (configuration.isShardPlayerTasks()) {
+				distanceScheduler = new ShardedPlayerScheduler("Distances", achieveDistanceRunnable,
+						distanceTaskInterval * 20);
+				distanceTask = Bukkit.getServer().getScheduler().runTaskTimer(
+						Bukkit.getPluginManager().getPlugin("AdvancedAchievements"), distanceScheduler, 1, 1);
+			} else
+				distanceTask = Bukkit.getServer().getScheduler().runTaskTimer(
+						Bukkit.getPluginManager().getPlugin("AdvancedAchievements"), achieveDistanceRunnable,
+						distanceTaskInterval * 40, distanceTaskInterval * 20);
+			// Movements are then accumulated from events and the task only
+			// counts them.
+			if (achieveDistanceRunnable.isEventTracking()) {
+				moveListener = new AchieveMoveListener(this);
+				pm.registerEvents(moveListener, this);
+			}
 		}
 
 		if (successfulLoad)
@@ -353,48 +381,115 @@ public class AdvancedAchievements extends JavaPlugin {
 
 	/**
 	 * Load plugin configuration and set values to different parameters; load
-	 * language file and backup configuration and database files. Register
-	 * permissions. Initialise command modules.
+	 * language file and backup configuration files. Register permissions.
+	 * Initialise command modules.
 	 */
-	@SuppressWarnings("unchecked")
 	private void configurationLoad() {
 
 		successfulLoad = true;
 
+		ConfigurationSnapshot snapshot = loadConfiguration();
+		if (snapshot == null) {
+			this.getLogger().severe("Disabling plugin.");
+			successfulLoad = false;
+			overrideDisable = true;
+			this.getServer().getPluginManager().disablePlugin(this);
+			return;
+		}
+
+		applyConfiguration(snapshot);
+	}
+
+	/**
+	 * Reload the configuration files in an asynchronous task, so that the
+	 * server does not freeze while they are parsed and indexed, and apply them
+	 * on the main server thread. The previous configuration is kept if a file
+	 * could not be loaded.
+	 */
+	private void reloadConfiguration(final CommandSender sender) {
+
+		if (reloading) {
+			sender.sendMessage(getChatHeader() + getPluginLang().getString("configuration-reload-in-progress",
+					"Configuration is already being reloaded."));
+			return;
+		}
+		reloading = true;
+
+		Bukkit.getScheduler().runTaskAsynchronously(this, new Runnable() {
+
+			@Override
+			public void run() {
+
+				successfulLoad = true;
+				final ConfigurationSnapshot snapshot = loadConfiguration();
+				if (!isEnabled())
+					return;
+				if (snapshot != null)
+					backupDatabase(snapshot.getConfig());
+				Bukkit.getScheduler().runTask(AdvancedAchievements.this, new Runnable() {
+
+					@Override
+					public void run() {
+
+						reloading = false;
+						if (snapshot != null)
+							applyConfiguration(snapshot);
+						if (snapshot != null && successfulLoad) {
+							if (sender instanceof Player)
+								sender.sendMessage(getChatHeader() + getPluginLang().getString(
+										"configuration-successfully-reloaded", "Configuration successfully reloaded."));
+							getLogger().info("Configuration successfully reloaded.");
+						} else {
+							sender.sendMessage(getChatHeader() + getPluginLang().getString(
+									"configuration-reload-failed",
+									"Errors while reloading configuration. Please view logs for more details."));
+							getLogger().severe(
+									"Errors while reloading configuration. Please view logs for more details.");
+						}
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Load and backup the configuration and language files, update them from
+	 * previous versions of the plugin and index their achievements. Does not use
+	 * the Bukkit API, so that it can run in an asynchronous task. Returns null if
+	 * a file could not be loaded.
+	 */
+	private ConfigurationSnapshot loadConfiguration() {
+
 		this.getLogger().info("Backing up and loading configuration files...");
 
+		YamlManager config;
 		try {
 			config = fileManager.getNewConfig("config.yml");
 		} catch (IOException e) {
 			this.getLogger().severe("Error while loading configuration file.");
 			e.printStackTrace();
-			successfulLoad = false;
+			return null;
 		} catch (InvalidConfigurationException e) {
-			this.getLogger().severe("Error while loading configuration file, disabling plugin.");
+			this.getLogger().severe("Error while loading configuration file.");
 			this.getLogger().severe(
 					"Verify your syntax using the following logs and by visiting yaml-online-parser.appspot.com");
 			e.printStackTrace();
-			successfulLoad = false;
-			overrideDisable = true;
-			this.getServer().getPluginManager().disablePlugin(this);
-			return;
+			return null;
 		}
 
+		YamlManager lang;
 		try {
 			lang = fileManager.getNewConfig("lang.yml");
 		} catch (IOException e) {
 			this.getLogger().severe("Error while loading language file.");
 			e.printStackTrace();
-			successfulLoad = false;
+			return null;
 		} catch (InvalidConfigurationException e) {
-			this.getLogger().severe("Error while loading language file, disabling plugin.");
+			this.getLogger().severe("Error while loading language file.");
 			this.getLogger().severe(
 					"Verify your syntax using the following logs and by visiting yaml-online-parser.appspot.com");
 			e.printStackTrace();
-			successfulLoad = false;
-			overrideDisable = true;
-			this.getServer().getPluginManager().disablePlugin(this);
-			return;
+			return null;
 		}
 
 		try {
@@ -414,49 +509,60 @@ public class AdvancedAchievements extends JavaPlugin {
 		}
 
 		// Update configurations from previous versions of the plugin.
-		updateOldConfiguration();
-		updateOldLanguage();
-
-		this.getLogger().info("Loading configs, registering permissions and initialising command modules...");
-
-		// Load parameters.
-		icon = StringEscapeUtils.unescapeJava(config.getString("Icon", "\u2618"));
-		color = ChatColor.getByChar(config.getString("Color", "5").toCharArray()[0]);
-		chatHeader = ChatColor.GRAY + "[" + color + icon + ChatColor.GRAY + "] ";
-		restrictCreative = config.getBoolean("RestrictCreative", false);
-		databaseBackup = config.getBoolean("DatabaseBackup", true);
-		for (String world : (List<String>) config.getList("ExcludedWorlds"))
-			excludedWorldSet.add(world);
-		for (String category : (List<String>) config.getList("DisabledCategories"))
-			disabledCategorySet.add(category);
-		playtimeTaskInterval = config.getInt("PlaytimeTaskInterval", 150);
-		distanceTaskInterval = config.getInt("DistanceTaskInterval", 5);
-		pooledRequestsTaskInterval = config.getInt("PooledRequestsTaskInterval", 60);
-		asyncPooledRequestsSender = config.getBoolean("AsyncPooledRequestsSender", true);
-
-		registerPermissions();
-
-		// Initialise command modules.
-		reward = new AchievementRewards(this);
-		achievementDisplay = new AchievementDisplay(this);
-		giveCommand = new GiveCommand(this);
-		bookCommand = new BookCommand(this);
-		topCommand = new TopCommand(this);
-		statsCommand = new StatsCommand(this);
-		infoCommand = new InfoCommand(this);
-		listCommand = new ListCommand(this);
-		helpCommand = new HelpCommand(this);
-		checkCommand = new CheckCommand(this);
-		deleteCommand = new DeleteCommand(this);
-
-		// Reload achievements in distance, max level and play time runnables
-		// only on plugin reload.
+		updateOldConfiguration(config);
+		updateOldLanguage(lang);
+
+		return new ConfigurationSnapshot(this, config, lang, configuration);
+	}
+
+	/**
+	 * Backup the database file once a day if enabled in the given
+	 * configuration. The database must be connected, as its pending writes are
+	 * checkpointed into the file first.
+	 */
+	private void backupDatabase(YamlManager config) {
+
+		String databaseFile = db.getDialect().getDatabaseFile();
+		if (config.getBoolean("DatabaseBackup", true) && databaseFile != null) {
+			File backup = new File(this.getDataFolder(), databaseFile + ".bak");
+			// Only do a daily backup for the .db file.
+			if (System.currentTimeMillis() - backup.lastModified() > 86400000 || backup.length() == 0) {
+				this.getLogger().info("Backing up database file...");
+				db.checkpoint();
+				try {
+					fileManager.backupFile(databaseFile);
+				} catch (IOException e) {
+					this.getLogger().severe("Error while backing up database file.");
+					e.printStackTrace();
+					successfulLoad = false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Switch to a loaded configuration, along with its command modules, and
+	 * register its new permissions. Must be called on the main server thread.
+	 */
+	private void applyConfiguration(ConfigurationSnapshot snapshot) {
+
+		this.getLogger().info("Switching to loaded configs and registering permissions...");
+
+		AchievementIndex previousIndex = configuration == null ? null : configuration.getAchievementIndex();
+		// Events handled from now on see the new configuration as a whole.
+		configuration = snapshot;
+		YamlManager config = snapshot.getConfig();
+
+		registerPermissions(snapshot.getNewPermissions());
+
+		if (awardedThresholds == null)
+			awardedThresholds = new AwardedThresholds();
+		else
+			awardedThresholds.reindex(previousIndex, snapshot.getAchievementIndex());
+
+		// Reload the parameters of the distance runnable only on plugin reload.
 		if (achieveDistanceRunnable != null)
 			achieveDistanceRunnable.extractAchievementsFromConfig(this);
-		if (achievePlayTimeRunnable != null)
-			achievePlayTimeRunnable.extractAchievementsFromConfig(this);
-		if (xpListener != null)
-			xpListener.extractAchievementsFromConfig(this);
 
 		// Check for available plugin update.
 		if (config.getBoolean("CheckForUpdate", true)) {
@@ -471,21 +577,6 @@ public class AdvancedAchievements extends JavaPlugin {
 			this.getLogger().severe("Error while sending Metrics statistics.");
 			successfulLoad = false;
 		}
-
-		if (databaseBackup && !config.getString("DatabaseType", "sqlite").equalsIgnoreCase("mysql")) {
-			File backup = new File(this.getDataFolder(), "achievements.db.bak");
-			// Only do a daily backup for the .db file.
-			if (System.currentTimeMillis() - backup.lastModified() > 86400000 || backup.length() == 0) {
-				this.getLogger().info("Backing up database file...");
-				try {
-					fileManager.backupFile("achievements.db");
-				} catch (IOException e) {
-					this.getLogger().severe("Error while backing up database file.");
-					e.printStackTrace();
-					successfulLoad = false;
-				}
-			}
-		}
 	}
 
 	/**
@@ -493,7 +584,7 @@ public class AdvancedAchievements extends JavaPlugin {
 	 * parameters. Upgrades from versions prior to 2.0 are not supported.
 	 */
 	@SuppressWarnings("unchecked")
-	private void updateOldConfiguration() {
+	private void updateOldConfiguration(YamlManager config) {
 
 		boolean updateDone = false;
 
@@ -646,6 +737,111 @@ public class AdvancedAchievements extends JavaPlugin {
 			updateDone = true;
 		}
 
+		// Added in version 2.6:
+		if (!config.getKeys(false).contains("LogPooledRequests")) {
+			config.set("LogPooledRequests", false, new String[] {
+					"Log the number of rows written and the time taken to execute them for each table, along with the total time, when",
+					"pooled requests are written to the database." });
+			updateDone = true;
+		}
+
+		if (!config.getKeys(false).contains("AchievementWriterQueueSize")) {
+			config.set("AchievementWriterQueueSize", 1000,
+					"Maximum number of achievements waiting to be written to the database when AsyncPooledRequestsSender is true.");
+			updateDone = true;
+		}
+
+		if (!config.getKeys(false).contains("AchievementWriterBackpressure")) {
+			config.set("AchievementWriterBackpressure", "sync", new String[] {
+					"Behaviour when the achievement queue is full: sync writes the achievement on the server thread, block waits for the",
+					"writer to free some space in the queue." });
+			updateDone = true;
+		}
+
+		if (!config.getKeys(false).contains("PermissionCacheTime")) {
+			config.set("PermissionCacheTime", 60,
+					"Time in seconds during which the achievement.count permissions of players are cached. 0 disables the cache.");
+			updateDone = true;
+		}
+
+		if (!config.getKeys(false).contains("WideStatisticsTable")) {
+			config.set("WideStatisticsTable", false, new String[] {
+					"Store the statistics of all normal categories in a single table with one row per player instead of one table per",
+					"category. Existing statistics are moved to the chosen layout when the server starts." });
+			updateDone = true;
+		}
+
+		if (!config.getKeys(false).contains("SQLiteWriteAheadLogging")) {
+			config.set("SQLiteWriteAheadLogging", true, new String[] {
+					"Use write-ahead logging with SQLite, so that reads on the server thread never wait for statistics being written.",
+					"Adds achievements.db-wal and achievements.db-shm files next to the database." });
+			updateDone = true;
+		}
+
+		if (!config.getKeys(false).contains("IncrementalStatisticsWrites")) {
+			config.set("IncrementalStatisticsWrites", false, new String[] {
+					"Write the increases of statistics instead of their totals, so that several servers sharing a MySQL database do not",
+					"overwrite each other's statistics. Statistics changed by other servers are retrieved when players join." });
+			updateDone = true;
+		}
+
+		if (!config.getKeys(false).contains("PooledRequestsWatermark")) {
+			config.set("PooledRequestsWatermark", 1000, new String[] {
+					"Number of changed statistics from which they are written to the database without waiting for",
+					"PooledRequestsTaskInterval, when AsyncPooledRequestsSender is true." });
+			updateDone = true;
+		}
+
+		if (!config.getKeys(false).contains("StatisticsJournal")) {
+			config.set("StatisticsJournal", true, new String[] {
+					"Keep a journal of the statistics and achievements not yet written to the database in the journal folder,",
+					"written again when the plugin starts if the server was killed or crashed." });
+			updateDone = true;
+		}
+
+		if (!config.getKeys(false).contains("JournalSyncInterval")) {
+			config.set("JournalSyncInterval", 1000,
+					"Time in milliseconds between two writes of the journal to disk; more recent changes can be lost.");
+			updateDone = true;
+		}
+
+		if (!config.getKeys(false).contains("DistanceTracking")) {
+			config.set("DistanceTracking", "polling", new String[] {
+					"Track distances by polling player locations every DistanceTaskInterval (polling) or by accumulating",
+					"player and vehicle move events (events); with events, the task only counts the accumulated distances." });
+			updateDone = true;
+		}
+
+		if (!config.getKeys(false).contains("ShardPlayerTasks")) {
+			config.set("ShardPlayerTasks", true, new String[] {
+					"Spread the play time and distance checks of the players over the ticks of their intervals instead",
+					"of checking all players in the same tick." });
+			updateDone = true;
+		}
+
+		if (!config.getKeys(false).contains("ShutdownTimeout")) {
+			config.set("ShutdownTimeout", 10000, new String[] {
+					"Time in milliseconds the server waits for the remaining data to be written when the plugin is disabled.",
+					"Data not written in time is kept in the journal folder and written when the plugin is next enabled." });
+			updateDone = true;
+		}
+
+		if (!config.contains("Handoff.Transport")) {
+			config.set("Handoff.Transport", "none");
+			config.set("Handoff.BindAddress", "127.0.0.1");
+			config.set("Handoff.Port", 25590);
+			config.set("Handoff.Peers", new ArrayList<String>());
+			config.set("Handoff.Secret", "");
+			config.set("Handoff.Timeout", 3000);
+			updateDone = true;
+		}
+
+		if (!config.contains("MYSQL.PoolMinSize")) {
+			config.set("MYSQL.PoolMinSize", 1);
+			config.set("MYSQL.PoolMaxSize", 4);
+			updateDone = true;
+		}
+
 		if (updateDone) {
 			// Changes in the configuration: save and do a fresh load.
 			try {
@@ -663,7 +859,7 @@ public class AdvancedAchievements extends JavaPlugin {
 	 * Update language file from older plugin versions by adding missing
 	 * parameters. Upgrades from versions prior to 2.3 are not supported.
 	 */
-	private void updateOldLanguage() {
+	private void updateOldLanguage(YamlManager lang) {
 
 		boolean updateDone = false;
 
@@ -694,6 +890,12 @@ public class AdvancedAchievements extends JavaPlugin {
 			updateDone = true;
 		}
 
+		// Added in version 2.6:
+		if (!lang.getKeys(false).contains("configuration-reload-in-progress")) {
+			lang.set("configuration-reload-in-progress", "Configuration is already being reloaded.");
+			updateDone = true;
+		}
+
 		if (updateDone) {
 			// Changes in the language file: save and do a fresh load.
 			try {
@@ -708,23 +910,18 @@ public class AdvancedAchievements extends JavaPlugin {
 	}
 
 	/**
-	 * Register permissions that depend on the user's configuration file (based
-	 * on multiple type achievements; for instance for stone breaks,
-	 * achievement.count.breaks.stone will be registered).
+	 * Register permissions that depend on the user's configuration file and
+	 * were built with its snapshot.
 	 */
-	private void registerPermissions() {
-
-		for (int i = 0; i < MULTIPLE_ACHIEVEMENTS.length; i++)
-			for (String section : config.getConfigurationSection(MULTIPLE_ACHIEVEMENTS[i]).getKeys(false)) {
-				// Bukkit only allows permissions to be set once, so must do
-				// additional check for /aach reload correctness.
-				if (this.getServer().getPluginManager().getPermission(
-						"achievement.count." + MULTIPLE_ACHIEVEMENTS[i].toLowerCase() + "." + section) == null)
-					this.getServer().getPluginManager()
-							.addPermission(new Permission(
-									"achievement.count." + MULTIPLE_ACHIEVEMENTS[i].toLowerCase() + "." + section,
-									PermissionDefault.TRUE));
-			}
+	private void registerPermissions(List<Permission> permissions) {
+
+		PluginManager pm = this.getServer().getPluginManager();
+		for (Permission permission : permissions) {
+			// Bukkit only allows permissions to be set once, so must do
+			// additional check for server reload correctness.
+			if (pm.getPermission(permission.getName()) == null)
+				pm.addPermission(permission);
+		}
 	}
 
 	/**
@@ -746,44 +943,24 @@ public class AdvancedAchievements extends JavaPlugin {
 		if (distanceTask != null)
 			distanceTask.cancel();
 
-		// Send remaining stats for pooled events to the database.
-		new PooledRequestsSenderSync(this, false).sendRequests();
-
-		// Send played time stats to the database, forcing synchronous writes.
-		if (achievePlayTimeRunnable != null)
-			for (Entry<String, Long> entry : connectionListener.getPlayTime().entrySet())
-				this.getDb().updateAndGetPlaytime(entry.getKey(), entry.getValue() + System.currentTimeMillis()
-						- connectionListener.getJoinTime().get(entry.getKey()));
-
-		// Send traveled distance stats to the database, forcing synchronous
-		// writes.
-		if (achieveDistanceRunnable != null) {
-			for (Entry<String, Integer> entry : achieveDistanceRunnable.getAchievementDistancesFoot().entrySet())
-				this.getDb().updateAndGetDistance(entry.getKey(), entry.getValue(), "distancefoot");
+		if (pooledRequestsScheduler != null)
+			this.getLogger().info(pooledRequestsScheduler.getStatistics());
+		if (playedTimeScheduler != null)
+			this.getLogger().info(playedTimeScheduler.getStatistics());
+		if (distanceScheduler != null)
+			this.getLogger().info(distanceScheduler.getStatistics());
 
-			for (Entry<String, Integer> entry : achieveDistanceRunnable.getAchievementDistancesPig().entrySet())
-				this.getDb().updateAndGetDistance(entry.getKey(), entry.getValue(), "distancepig");
+		// Send remaining stats, distances, played time and achievements to the
+		// database in parallel; what cannot be written in time is kept in the
+		// journal for the next start.
+		new ShutdownFlusher(this).flush();
+		statisticsJournal = null;
 
-			for (Entry<String, Integer> entry : achieveDistanceRunnable.getAchievementDistancesHorse().entrySet())
-				this.getDb().updateAndGetDistance(entry.getKey(), entry.getValue(), "distancehorse");
+		this.getDb().shutdown();
 
-			for (Entry<String, Integer> entry : achieveDistanceRunnable.getAchievementDistancesBoat().entrySet())
-				this.getDb().updateAndGetDistance(entry.getKey(), entry.getValue(), "distanceboat");
-
-			for (Entry<String, Integer> entry : achieveDistanceRunnable.getAchievementDistancesMinecart().entrySet())
-				this.getDb().updateAndGetDistance(entry.getKey(), entry.getValue(), "distanceminecart");
-
-			for (Entry<String, Integer> entry : achieveDistanceRunnable.getAchievementDistancesGliding().entrySet())
-				this.getDb().updateAndGetDistance(entry.getKey(), entry.getValue(), "distancegliding");
-		}
-
-		try {
-			if (this.getDb().getSQLConnection() != null)
-				this.getDb().getSQLConnection().close();
-		} catch (SQLException e) {
-			this.getLogger().severe("Error while closing connection to database.");
-			e.printStackTrace();
-		}
+		// Tell the other servers that the remaining players' data is written.
+		if (playerHandoff != null)
+			playerHandoff.shutdown();
 
 		this.getLogger().info("Remaining requests sent to database, plugin disabled.");
 
@@ -794,6 +971,7 @@ public class AdvancedAchievements extends JavaPlugin {
 	 */
 	public boolean isInExludedWorld(Player player) {
 
+		Set<String> excludedWorldSet = configuration.getExcludedWorldSet();
 		if (excludedWorldSet.isEmpty())
 			return false;
 
@@ -833,30 +1011,22 @@ public class AdvancedAchievements extends JavaPlugin {
 		if (!cmd.getName().equalsIgnoreCase("aach"))
 			return false;
 
+		ConfigurationSnapshot snapshot = configuration;
+		String chatHeader = snapshot.getChatHeader();
+		YamlManager lang = snapshot.getLang();
+
 		if ((args.length == 1) && !args[0].equalsIgnoreCase("help")) {
 
 			if (args[0].equalsIgnoreCase("book") && sender.hasPermission("achievement.book")
 					&& sender instanceof Player) {
 
-				bookCommand.giveBook(((Player) sender));
+				snapshot.getBookCommand().giveBook(((Player) sender));
 
 			} else if (args[0].equalsIgnoreCase("reload")) {
 
 				if (sender.hasPermission("achievement.reload")) {
 
-					this.reloadConfig();
-					configurationLoad();
-					if (successfulLoad) {
-						if (sender instanceof Player)
-							sender.sendMessage(chatHeader + lang.getString("configuration-successfully-reloaded",
-									"Configuration successfully reloaded."));
-						this.getLogger().info("Configuration successfully reloaded.");
-					} else {
-						sender.sendMessage(chatHeader + lang.getString("configuration-reload-failed",
-								"Errors while reloading configuration. Please view logs for more details."));
-						this.getLogger()
-								.severe("Errors while reloading configuration. Please view logs for more details.");
-					}
+					reloadConfiguration(sender);
 
 				} else {
 
@@ -865,12 +1035,12 @@ public class AdvancedAchievements extends JavaPlugin {
 				}
 			} else if (args[0].equalsIgnoreCase("stats") && sender instanceof Player) {
 
-				statsCommand.getStats((Player) sender);
+				snapshot.getStatsCommand().getStats((Player) sender);
 
 			} else if (args[0].equalsIgnoreCase("list") && sender instanceof Player) {
 
 				if (sender.hasPermission("achievement.list")) {
-					listCommand.createMainGUI((Player) sender);
+					snapshot.getListCommand().createMainGUI((Player) sender);
 				} else {
 
 					sender.sendMessage(chatHeader
@@ -878,20 +1048,20 @@ public class AdvancedAchievements extends JavaPlugin {
 				}
 			} else if (args[0].equalsIgnoreCase("top")) {
 
-				topCommand.getTop(sender);
+				snapshot.getTopCommand().getTop(sender);
 
 			} else if (args[0].equalsIgnoreCase("info")) {
 
-				infoCommand.getInfo(sender);
+				snapshot.getInfoCommand().getInfo(sender);
 			} else {
 
-				helpCommand.getHelp(sender);
+				snapshot.getHelpCommand().getHelp(sender);
 			}
 		} else if ((args.length == 3) && args[0].equalsIgnoreCase("give")) {
 
 			if (sender.hasPermission("achievement.give")) {
 
-				giveCommand.achievementGive(sender, args);
+				snapshot.getGiveCommand().achievementGive(sender, args);
 
 			} else {
 
@@ -903,7 +1073,7 @@ public class AdvancedAchievements extends JavaPlugin {
 
 			if (sender.hasPermission("achievement.check")) {
 
-				checkCommand.achievementCheck(sender, args);
+				snapshot.getCheckCommand().achievementCheck(sender, args);
 
 			} else {
 
@@ -915,7 +1085,7 @@ public class AdvancedAchievements extends JavaPlugin {
 
 			if (sender.hasPermission("achievement.delete")) {
 
-				deleteCommand.achievementDelete(sender, args);
+				snapshot.getDeleteCommand().achievementDelete(sender, args);
 
 			} else {
 
@@ -924,7 +1094,7 @@ public class AdvancedAchievements extends JavaPlugin {
 			}
 		} else {
 
-			helpCommand.getHelp(sender);
+			snapshot.getHelpCommand().getHelp(sender);
 		}
 
 		return true;
@@ -943,19 +1113,85 @@ public class AdvancedAchievements extends JavaPlugin {
 		return db;
 	}
 
+	public StatisticsStore getStatisticsStore() {
+
+		return db;
+	}
+
+	public AchievementStore getAchievementStore() {
+
+		return db;
+	}
+
+	/**
+	 * Return the scheduler of the asynchronous pooled requests sender, or null
+	 * if pooled requests are sent synchronously.
+	 */
+	public PooledRequestsScheduler getPooledRequestsScheduler() {
+
+		return pooledRequestsScheduler;
+	}
+
+	/**
+	 * Return the scheduler spreading the played time checks over the ticks of
+	 * their interval, or null if they are not spread.
+	 */
+	public ShardedPlayerScheduler getPlayedTimeScheduler() {
+
+		return playedTimeScheduler;
+	}
+
+	/**
+	 * Return the scheduler spreading the distance checks over the ticks of
+	 * their interval, or null if they are not spread.
+	 */
+	public ShardedPlayerScheduler getDistanceScheduler() {
+
+		return distanceScheduler;
+	}
+
 	public DatabasePoolsManager getPoolsManager() {
 
 		return poolsManager;
 	}
 
+	/**
+	 * Return the journal of the changes not yet written to the database, or
+	 * null if it is disabled.
+	 */
+	public StatisticsJournal getStatisticsJournal() {
+
+		return statisticsJournal;
+	}
+
+	public PlayerHandoff getPlayerHandoff() {
+
+		return playerHandoff;
+	}
+
+	public AchievementIndex getAchievementIndex() {
+
+		return configuration.getAchievementIndex();
+	}
+
+	public PermissionCache getPermissionCache() {
+
+		return configuration.getPermissionCache();
+	}
+
+	public AwardedThresholds getAwardedThresholds() {
+
+		return awardedThresholds;
+	}
+
 	public AchievementRewards getReward() {
 
-		return reward;
+		return configuration.getReward();
 	}
 
 	public AchievementDisplay getAchievementDisplay() {
 
-		return achievementDisplay;
+		return configuration.getAchievementDisplay();
 	}
 
 	public UpdateChecker getUpdateChecker() {
@@ -965,12 +1201,12 @@ public class AdvancedAchievements extends JavaPlugin {
 
 	public String getChatHeader() {
 
-		return chatHeader;
+		return configuration.getChatHeader();
 	}
 
 	public boolean isRestrictCreative() {
 
-		return restrictCreative;
+		return configuration.isRestrictCreative();
 	}
 
 	public boolean isSuccessfulLoad() {
@@ -980,7 +1216,8 @@ public class AdvancedAchievements extends JavaPlugin {
 
 	public Set<String> getDisabledCategorySet() {
 
-		return disabledCategorySet;
+		// Asked by the configuration files while the first snapshot is built.
+		return configuration == null ? Collections.<String> emptySet() : configuration.getDisabledCategorySet();
 	}
 
 	public void setOverrideDisable(boolean overrideDisable) {
@@ -995,12 +1232,12 @@ public class AdvancedAchievements extends JavaPlugin {
 
 	public BookCommand getAchievementBookCommand() {
 
-		return bookCommand;
+		return configuration.getBookCommand();
 	}
 
 	public ListCommand getAchievementListCommand() {
 
-		return listCommand;
+		return configuration.getListCommand();
 	}
 
 	public AchieveDistanceRunnable getAchieveDistanceRunnable() {
@@ -1025,26 +1262,35 @@ public class AdvancedAchievements extends JavaPlugin {
 
 	public String getIcon() {
 
-		return icon;
+		return configuration.getIcon();
 	}
 
 	public ChatColor getColor() {
 
-		return color;
+		return configuration.getColor();
 	}
 
 	public boolean isAsyncPooledRequestsSender() {
 
-		return asyncPooledRequestsSender;
+		return configuration.isAsyncPooledRequestsSender();
 	}
 
 	public YamlManager getPluginConfig() {
 
-		return config;
+		return configuration.getConfig();
 	}
 
 	public YamlManager getPluginLang() {
 
-		return lang;
+		return configuration.getLang();
+	}
+
+	/**
+	 * Return the configuration in use, for handlers that need a consistent
+	 * view of it while it may be reloaded.
+	 */
+	public ConfigurationSnapshot getConfiguration() {
+
+		return configuration;
 	}
 }
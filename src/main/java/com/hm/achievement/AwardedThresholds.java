@@ -0,0 +1,130 @@
+package com.hm.achievement;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.entity.Player;
+
+import com.hm.achievement.AchievementIndex.Thresholds;
+import com.hm.achievement.category.NormalAchievements;
+
+/**
+ * Thresholds of the distance, played time and max level categories that online
+ * players are known to have reached, so that their achievements are only
+ * looked up once per session. Each player has a single record holding one bit
+ * set per category, indexed by the position of the threshold in the list of
+ * thresholds of the category; the record is removed when the player leaves.
+ * On /aach reload, the bits are moved to the positions of the same
+ * achievements in the new index. Only accessed from the main server thread.
+ */
+public class AwardedThresholds {
+
+	// Categories of thresholds.
+	public static final int DISTANCE_FOOT = 0;
+	public static final int DISTANCE_PIG = 1;
+	public static final int DISTANCE_HORSE = 2;
+	public static final int DISTANCE_MINECART = 3;
+	public static final int DISTANCE_BOAT = 4;
+	public static final int DISTANCE_GLIDING = 5;
+	public static final int PLAYED_TIME = 6;
+	public static final int MAX_LEVEL = 7;
+	private static final int CATEGORY_COUNT = 8;
+
+	private final Map<UUID, BitSet[]> playerThresholds;
+
+	public AwardedThresholds() {
+
+		playerThresholds = new HashMap<UUID, BitSet[]>();
+	}
+
+	/**
+	 * Check whether a player is known to have reached a threshold during this
+	 * session.
+	 */
+	public boolean isReached(Player player, int category, int index) {
+
+		BitSet[] thresholds = playerThresholds.get(player.getUniqueId());
+		if (thresholds == null)
+			return false;
+		BitSet categoryThresholds = thresholds[category];
+		return categoryThresholds != null && categoryThresholds.get(index);
+	}
+
+	/**
+	 * Record that a player has reached a threshold.
+	 */
+	public void setReached(Player player, int category, int index) {
+
+		BitSet[] thresholds = playerThresholds.get(player.getUniqueId());
+		if (thresholds == null) {
+			thresholds = new BitSet[CATEGORY_COUNT];
+			playerThresholds.put(player.getUniqueId(), thresholds);
+		}
+		BitSet categoryThresholds = thresholds[category];
+		if (categoryThresholds == null) {
+			categoryThresholds = new BitSet();
+			thresholds[category] = categoryThresholds;
+		}
+		categoryThresholds.set(index);
+	}
+
+	/**
+	 * Forget the thresholds reached by a player who has left.
+	 */
+	public void evict(Player player) {
+
+		playerThresholds.remove(player.getUniqueId());
+	}
+
+	/**
+	 * Move the thresholds reached by online players from their positions in
+	 * the previous index to those of the same achievements in a reloaded one.
+	 * Thresholds whose achievements have been removed or renamed are
+	 * forgotten, so that they are evaluated again.
+	 */
+	public void reindex(AchievementIndex previousIndex, AchievementIndex newIndex) {
+
+		for (BitSet[] thresholds : playerThresholds.values()) {
+			for (int category = 0; category < CATEGORY_COUNT; ++category) {
+				BitSet reached = thresholds[category];
+				if (reached == null)
+					continue;
+				Thresholds previousThresholds = getThresholds(previousIndex, category);
+				Thresholds newThresholds = getThresholds(newIndex, category);
+				BitSet reindexed = new BitSet();
+				int i = reached.nextSetBit(0);
+				while (i >= 0 && i < previousThresholds.size()) {
+					int index = newThresholds.indexOf(previousThresholds.get(i));
+					if (index >= 0)
+						reindexed.set(index);
+					i = reached.nextSetBit(i + 1);
+				}
+				thresholds[category] = reindexed;
+			}
+		}
+	}
+
+	private static Thresholds getThresholds(AchievementIndex index, int category) {
+
+		switch (category) {
+			case DISTANCE_FOOT:
+				return index.getThresholds(NormalAchievements.DISTANCEFOOT);
+			case DISTANCE_PIG:
+				return index.getThresholds(NormalAchievements.DISTANCEPIG);
+			case DISTANCE_HORSE:
+				return index.getThresholds(NormalAchievements.DISTANCEHORSE);
+			case DISTANCE_MINECART:
+				return index.getThresholds(NormalAchievements.DISTANCEMINECART);
+			case DISTANCE_BOAT:
+				return index.getThresholds(NormalAchievements.DISTANCEBOAT);
+			case DISTANCE_GLIDING:
+				return index.getThresholds(NormalAchievements.DISTANCEGLIDING);
+			case PLAYED_TIME:
+				return index.getPlayedTimeThresholds();
+			default:
+				return index.getThresholds(NormalAchievements.LEVELS);
+		}
+	}
+}
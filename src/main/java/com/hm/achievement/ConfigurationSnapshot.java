@@ -0,0 +1,269 @@
+package com.hm.achievement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.StringEscapeUtils;
+import org.bukkit.ChatColor;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionDefault;
+
+import com.hm.achievement.command.BookCommand;
+import com.hm.achievement.command.CheckCommand;
+import com.hm.achievement.command.DeleteCommand;
+import com.hm.achievement.command.GiveCommand;
+import com.hm.achievement.command.HelpCommand;
+import com.hm.achievement.command.InfoCommand;
+import com.hm.achievement.command.ListCommand;
+import com.hm.achievement.command.StatsCommand;
+import com.hm.achievement.command.TopCommand;
+import com.hm.achievement.utils.YamlManager;
+
+/**
+ * Configuration and language files loaded together, along with the index of
+ * the achievements they define, the parameters derived from them and the
+ * command modules initialised with them. A snapshot is built in full, in an
+ * asynchronous task on /aach reload, and then replaces the previous one with a
+ * single assignment on the main server thread; handlers holding a snapshot
+ * keep a consistent view of the configuration while it is reloaded. The files
+ * must not be changed once the snapshot is in use.
+ */
+public final class ConfigurationSnapshot {
+
+	private final YamlManager config;
+	private final YamlManager lang;
+	private final AchievementIndex achievementIndex;
+	private final String icon;
+	private final ChatColor color;
+	private final String chatHeader;
+	private final boolean restrictCreative;
+	private final Set<String> excludedWorldSet;
+	private final Set<String> disabledCategorySet;
+	private final int playtimeTaskInterval;
+	private final int distanceTaskInterval;
+	private final boolean shardPlayerTasks;
+	private final int pooledRequestsTaskInterval;
+	private final boolean asyncPooledRequestsSender;
+	// Names of the achievement.count permissions of the multiple categories.
+	private final Set<String> countPermissionNames;
+	// Permissions that were not defined by the previous snapshot.
+	private final List<Permission> newPermissions;
+
+	// Plugin modules and commands.
+	private final PermissionCache permissionCache;
+	private final AchievementRewards reward;
+	private final AchievementDisplay achievementDisplay;
+	private final GiveCommand giveCommand;
+	private final BookCommand bookCommand;
+	private final TopCommand topCommand;
+	private final ListCommand listCommand;
+	private final StatsCommand statsCommand;
+	private final InfoCommand infoCommand;
+	private final HelpCommand helpCommand;
+	private final CheckCommand checkCommand;
+	private final DeleteCommand deleteCommand;
+
+	/**
+	 * Build a snapshot from loaded files. The previous snapshot is null when
+	 * the plugin is enabled.
+	 */
+	@SuppressWarnings("unchecked")
+	public ConfigurationSnapshot(AdvancedAchievements plugin, YamlManager config, YamlManager lang,
+			ConfigurationSnapshot previous) {
+
+		this.config = config;
+		this.lang = lang;
+		// Listeners of categories disabled when the plugin was enabled are not registered, so these categories
+		// remain disabled until the next restart.
+		Set<String> disabledCategories = new HashSet<String>();
+		if (previous != null)
+			disabledCategories.addAll(previous.disabledCategorySet);
+		disabledCategories.addAll((List<String>) config.getList("DisabledCategories"));
+		disabledCategorySet = Collections.unmodifiableSet(disabledCategories);
+		playtimeTaskInterval = config.getInt("PlaytimeTaskInterval", 150);
+		distanceTaskInterval = config.getInt("DistanceTaskInterval", 5);
+		shardPlayerTasks = config.getBoolean("ShardPlayerTasks", true);
+		pooledRequestsTaskInterval = config.getInt("PooledRequestsTaskInterval", 60);
+		asyncPooledRequestsSender = config.getBoolean("AsyncPooledRequestsSender", true);
+		icon = StringEscapeUtils.unescapeJava(config.getString("Icon", "\u2618"));
+		color = ChatColor.getByChar(config.getString("Color", "5").toCharArray()[0]);
+		chatHeader = ChatColor.GRAY + "[" + color + icon + ChatColor.GRAY + "] ";
+		restrictCreative = config.getBoolean("RestrictCreative", false);
+		Set<String> excludedWorlds = new HashSet<String>();
+		for (String world : (List<String>) config.getList("ExcludedWorlds"))
+			excludedWorlds.add(world);
+		excludedWorldSet = Collections.unmodifiableSet(excludedWorlds);
+		// Index achievements to avoid configuration lookups when handling events.
+		achievementIndex = new AchievementIndex(plugin, config);
+
+		// Permissions that depend on the user's configuration file (based on multiple type achievements; for
+		// instance for stone breaks, achievement.count.breaks.stone).
+		Set<String> permissionNames = new HashSet<String>();
+		newPermissions = new ArrayList<Permission>();
+		for (String category : AdvancedAchievements.MULTIPLE_ACHIEVEMENTS) {
+			for (String section : config.getConfigurationSection(category).getKeys(false)) {
+				String permissionName = "achievement.count." + category.toLowerCase() + "." + section;
+				permissionNames.add(permissionName);
+				if (previous == null || !previous.countPermissionNames.contains(permissionName))
+					newPermissions.add(new Permission(permissionName, PermissionDefault.TRUE));
+			}
+		}
+		countPermissionNames = permissionNames;
+
+		// Initialise modules and commands.
+		permissionCache = new PermissionCache(plugin, config);
+		reward = new AchievementRewards(plugin, config);
+		achievementDisplay = new AchievementDisplay(plugin, config);
+		giveCommand = new GiveCommand(plugin, config);
+		bookCommand = new BookCommand(plugin, config);
+		topCommand = new TopCommand(plugin, config);
+		statsCommand = new StatsCommand(plugin, config, disabledCategorySet);
+		infoCommand = new InfoCommand(plugin);
+		listCommand = new ListCommand(plugin, config, lang);
+		helpCommand = new HelpCommand(plugin);
+		checkCommand = new CheckCommand(plugin);
+		deleteCommand = new DeleteCommand(plugin);
+	}
+
+	public YamlManager getConfig() {
+
+		return config;
+	}
+
+	public YamlManager getLang() {
+
+		return lang;
+	}
+
+	public AchievementIndex getAchievementIndex() {
+
+		return achievementIndex;
+	}
+
+	public String getIcon() {
+
+		return icon;
+	}
+
+	public ChatColor getColor() {
+
+		return color;
+	}
+
+	public String getChatHeader() {
+
+		return chatHeader;
+	}
+
+	public boolean isRestrictCreative() {
+
+		return restrictCreative;
+	}
+
+	public Set<String> getExcludedWorldSet() {
+
+		return excludedWorldSet;
+	}
+
+	public Set<String> getDisabledCategorySet() {
+
+		return disabledCategorySet;
+	}
+
+	public int getPlaytimeTaskInterval() {
+
+		return playtimeTaskInterval;
+	}
+
+	public int getDistanceTaskInterval() {
+
+		return distanceTaskInterval;
+	}
+
+	public boolean isShardPlayerTasks() {
+
+		return shardPlayerTasks;
+	}
+
+	public int getPooledRequestsTaskInterval() {
+
+		return pooledRequestsTaskInterval;
+	}
+
+	public boolean isAsyncPooledRequestsSender() {
+
+		return asyncPooledRequestsSender;
+	}
+
+	/**
+	 * Permissions to register with the server when switching to this
+	 * snapshot.
+	 */
+	public List<Permission> getNewPermissions() {
+
+		return newPermissions;
+	}
+
+	public PermissionCache getPermissionCache() {
+
+		return permissionCache;
+	}
+
+	public AchievementRewards getReward() {
+
+		return reward;
+	}
+
+	public AchievementDisplay getAchievementDisplay() {
+
+		return achievementDisplay;
+	}
+
+	public GiveCommand getGiveCommand() {
+
+		return giveCommand;
+	}
+
+	public BookCommand getBookCommand() {
+
+		return bookCommand;
+	}
+
+	public TopCommand getTopCommand() {
+
+		return topCommand;
+	}
+
+	public ListCommand getListCommand() {
+
+		return listCommand;
+	}
+
+	public StatsCommand getStatsCommand() {
+
+		return statsCommand;
+	}
+
+	public InfoCommand getInfoCommand() {
+
+		return infoCommand;
+	}
+
+	public HelpCommand getHelpCommand() {
+
+		return helpCommand;
+	}
+
+	public CheckCommand getCheckCommand() {
+
+		return checkCommand;
+	}
+
+	public DeleteCommand getDeleteCommand() {
+
+		return deleteCommand;
+	}
+}
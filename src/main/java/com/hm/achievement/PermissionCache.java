@@ -0,0 +1,103 @@
+package com.hm.achievement;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import com.hm.achievement.AchievementIndex.Thresholds;
+import com.hm.achievement.category.MultipleAchievements;
+import com.hm.achievement.utils.YamlManager;
+
+/**
+ * Cache of the achievement.count permissions registered for the sub-categories
+ * of multiple achievements, so that permission plugins are not queried on every
+ * event. Permissions are retrieved lazily and stored in bit sets indexed by the
+ * identifiers of the achievement index. The permissions of a player are
+ * forgotten once the configured time has elapsed or when the player changes
+ * world; a new cache is created on /aach reload. Only accessed from the main
+ * server thread.
+ */
+public class PermissionCache {
+
+	private final AdvancedAchievements plugin;
+	// Time to live of cached permissions in milliseconds, caching is disabled
+	// if not positive.
+	private final long timeToLive;
+	private final Map<UUID, PlayerPermissions> playerPermissions;
+
+	public PermissionCache(AdvancedAchievements plugin, YamlManager config) {
+
+		this.plugin = plugin;
+		timeToLive = config.getInt("PermissionCacheTime", 60) * 1000L;
+		playerPermissions = new HashMap<UUID, PlayerPermissions>();
+	}
+
+	/**
+	 * Check whether a sub-category is defined in the configuration file and
+	 * whether the player has the permission to receive its achievements.
+	 */
+	public boolean hasPermission(Player player, MultipleAchievements category, String subcategory) {
+
+		return hasPermission(player, plugin.getAchievementIndex().getThresholds(category, subcategory));
+	}
+
+	/**
+	 * Check whether a sub-category already looked up in the achievement index is
+	 * defined and whether the player has the permission to receive its
+	 * achievements.
+	 */
+	public boolean hasPermission(Player player, Thresholds thresholds) {
+
+		int id = thresholds.getId();
+		if (id < 0)
+			return false;
+		if (timeToLive <= 0)
+			return player.hasPermission(thresholds.getPermission());
+
+		PlayerPermissions permissions = playerPermissions.get(player.getUniqueId());
+		long now = System.currentTimeMillis();
+		if (permissions == null || permissions.expiryTime <= now || permissions.world != player.getWorld()) {
+			permissions = new PlayerPermissions(player.getWorld(), now + timeToLive,
+					plugin.getAchievementIndex().getCategoryCount());
+			playerPermissions.put(player.getUniqueId(), permissions);
+		}
+
+		if (!permissions.known.get(id)) {
+			permissions.known.set(id);
+			if (player.hasPermission(thresholds.getPermission()))
+				permissions.granted.set(id);
+		}
+		return permissions.granted.get(id);
+	}
+
+	/**
+	 * Forget the permissions of a player who has left.
+	 */
+	public void evict(Player player) {
+
+		playerPermissions.remove(player.getUniqueId());
+	}
+
+	/**
+	 * Permissions of a player, valid in a given world until a given time.
+	 */
+	private static class PlayerPermissions {
+
+		private final World world;
+		private final long expiryTime;
+		private final BitSet known;
+		private final BitSet granted;
+
+		private PlayerPermissions(World world, long expiryTime, int categoryCount) {
+
+			this.world = world;
+			this.expiryTime = expiryTime;
+			known = new BitSet(categoryCount);
+			granted = new BitSet(categoryCount);
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.hm.achievement.category;
+
+/**
+ * Categories whose statistics are stored per player and per block, entity or
+ * item identifier (sub-category).
+ */
+public enum MultipleAchievements {
+
+	PLACES("Places", "places", "blockid"),
+	BREAKS("Breaks", "breaks", "blockid"),
+	KILLS("Kills", "kills", "mobname"),
+	CRAFTS("Crafts", "crafts", "item");
+
+	private final String categoryName;
+	private final String dbName;
+	private final String subcategoryDBName;
+
+	private MultipleAchievements(String categoryName, String dbName, String subcategoryDBName) {
+
+		this.categoryName = categoryName;
+		this.dbName = dbName;
+		this.subcategoryDBName = subcategoryDBName;
+	}
+
+	/**
+	 * Return the name of the category in the configuration file.
+	 */
+	@Override
+	public String toString() {
+
+		return categoryName;
+	}
+
+	/**
+	 * Return the name of the database table and statistic column of the
+	 * category.
+	 */
+	public String toDBName() {
+
+		return dbName;
+	}
+
+	/**
+	 * Return the name of the database column storing sub-category identifiers.
+	 */
+	public String toSubcategoryDBName() {
+
+		return subcategoryDBName;
+	}
+
+	/**
+	 * Return the category corresponding to a database table, or null if no
+	 * category matches.
+	 */
+	public static MultipleAchievements fromDBName(String dbName) {
+
+		for (MultipleAchievements category : values())
+			if (category.dbName.equals(dbName))
+				return category;
+		return null;
+	}
+}
@@ -0,0 +1,90 @@
+package com.hm.achievement.category;
+
+/**
+ * Categories whose statistic is a single integer per player. Connections and
+ * PlayedTime are not part of this enumeration, as they respectively store a
+ * date and a long value alongside or instead of an integer counter.
+ *
+ * Ordinals are used to index per-player counters and as bit positions in
+ * 64-bit masks, this enumeration must therefore not grow beyond 64 constants.
+ */
+public enum NormalAchievements {
+
+	DEATHS("Deaths", "deaths"),
+	ARROWS("Arrows", "arrows"),
+	SNOWBALLS("Snowballs", "snowballs"),
+	EGGS("Eggs", "eggs"),
+	FISH("Fish", "fish"),
+	ITEMBREAKS("ItemBreaks", "itembreaks"),
+	EATENITEMS("EatenItems", "eatenitems"),
+	SHEARS("Shear", "shears"),
+	MILKS("Milk", "milks"),
+	TRADES("Trades", "trades"),
+	ANVILS("AnvilsUsed", "anvils"),
+	ENCHANTMENTS("Enchantments", "enchantments"),
+	BEDS("Beds", "beds"),
+	LEVELS("MaxLevel", "levels"),
+	CONSUMEDPOTIONS("ConsumedPotions", "consumedpotions"),
+	DROPS("ItemDrops", "drops"),
+	HOEPLOWING("HoePlowings", "hoeplowing"),
+	FERTILISING("Fertilising", "fertilising"),
+	TAMES("Taming", "tames"),
+	BREWING("Brewing", "brewing"),
+	FIREWORKS("Fireworks", "fireworks"),
+	MUSICDISCS("MusicDiscs", "musicdiscs"),
+	ENDERPEARLS("EnderPearls", "enderpearls"),
+	DISTANCEFOOT("DistanceFoot", "distancefoot"),
+	DISTANCEPIG("DistancePig", "distancepig"),
+	DISTANCEHORSE("DistanceHorse", "distancehorse"),
+	DISTANCEMINECART("DistanceMinecart", "distanceminecart"),
+	DISTANCEBOAT("DistanceBoat", "distanceboat"),
+	DISTANCEGLIDING("DistanceGliding", "distancegliding");
+
+	private final String categoryName;
+	private final String dbName;
+
+	private NormalAchievements(String categoryName, String dbName) {
+
+		this.categoryName = categoryName;
+		this.dbName = dbName;
+	}
+
+	/**
+	 * Return the name of the category in the configuration file.
+	 */
+	@Override
+	public String toString() {
+
+		return categoryName;
+	}
+
+	/**
+	 * Return the name of the database table and column storing the category's
+	 * statistics.
+	 */
+	public String toDBName() {
+
+		return dbName;
+	}
+
+	/**
+	 * Check whether the statistic counts events. MaxLevel is instead set to the
+	 * highest level reached.
+	 */
+	public boolean isCounter() {
+
+		return this != LEVELS;
+	}
+
+	/**
+	 * Return the category corresponding to a database table, or null if no
+	 * category matches.
+	 */
+	public static NormalAchievements fromDBName(String dbName) {
+
+		for (NormalAchievements category : values())
+			if (category.dbName.equals(dbName))
+				return category;
+		return null;
+	}
+}
@@ -13,6 +13,7 @@ import org.bukkit.inventory.meta.BookMeta;
 import com.hm.achievement.AdvancedAchievements;
 import com.hm.achievement.particle.ParticleEffect;
 import com.hm.achievement.particle.ReflectionUtils.PackageType;
+import com.hm.achievement.utils.YamlManager;
 
 public class BookCommand {
 
@@ -26,14 +27,14 @@ public class BookCommand {
 	// Corresponds to times at which players have received their books.
 	private HashMap<Player, Long> players;
 
-	public BookCommand(AdvancedAchievements plugin) {
+	public BookCommand(AdvancedAchievements plugin, YamlManager config) {
 
 		this.plugin = plugin;
 		players = new HashMap<Player, Long>();
-		bookTime = plugin.getPluginConfig().getInt("TimeBook", 0) * 1000;
-		bookSeparator = plugin.getPluginConfig().getString("BookSeparator", "");
-		additionalEffects = plugin.getPluginConfig().getBoolean("AdditionalEffects", true);
-		sound = plugin.getPluginConfig().getBoolean("Sound", true);
+		bookTime = config.getInt("TimeBook", 0) * 1000;
+		bookSeparator = config.getString("BookSeparator", "");
+		additionalEffects = config.getBoolean("AdditionalEffects", true);
+		sound = config.getBoolean("Sound", true);
 		// Simple and fast check to compare versions. Might need to
 		// be updated in the future depending on how the Minecraft
 		// versions change in the future.
@@ -84,7 +85,8 @@ public class BookCommand {
 					player.getWorld().playSound(player.getLocation(), Sound.ENTITY_PLAYER_LEVELUP, 1, 0);
 			}
 
-			ArrayList<String> achievements = plugin.getDb().getPlayerAchievementsList(player);
+			ArrayList<String> achievements = plugin.getAchievementStore()
+					.getPlayerAchievementsList(player.getUniqueId().toString());
 
 			int i = 0;
 			// Up to five achievement books can be generated (= 250
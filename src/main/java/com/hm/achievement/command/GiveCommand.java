@@ -6,16 +6,17 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.Listener;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.utils.YamlManager;
 
 public class GiveCommand implements Listener {
 
 	private AdvancedAchievements plugin;
 	private Boolean multiCommand;
 
-	public GiveCommand(AdvancedAchievements plugin) {
+	public GiveCommand(AdvancedAchievements plugin, YamlManager config) {
 
 		this.plugin = plugin;
-		multiCommand = plugin.getPluginConfig().getBoolean("MultiCommand", true);
+		multiCommand = config.getBoolean("MultiCommand", true);
 	}
 
 	/**
@@ -43,14 +43,9 @@ public class InfoCommand {
 			sender.sendMessage(plugin.getChatHeader() + plugin.getColor()
 					+ plugin.getPluginLang().getString("version-command-vault", "Vault integration:") + " "
 					+ ChatColor.GRAY + "NO");
-		if (plugin.getPluginConfig().getString("DatabaseType", "sqlite").equalsIgnoreCase("mysql"))
-			sender.sendMessage(plugin.getChatHeader() + plugin.getColor()
-					+ plugin.getPluginLang().getString("version-command-database", "Database type:") + " "
-					+ ChatColor.GRAY + "MySQL");
-		else
-			sender.sendMessage(plugin.getChatHeader() + plugin.getColor()
-					+ plugin.getPluginLang().getString("version-command-database", "Database type:") + " "
-					+ ChatColor.GRAY + "SQLite");
+		sender.sendMessage(plugin.getChatHeader() + plugin.getColor()
+				+ plugin.getPluginLang().getString("version-command-database", "Database type:") + " "
+				+ ChatColor.GRAY + plugin.getDb().getDialect().getName());
 
 	}
 }
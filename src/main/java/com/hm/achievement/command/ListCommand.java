@@ -15,6 +15,9 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.map.MinecraftFont;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.MultipleAchievements;
+import com.hm.achievement.category.NormalAchievements;
+import com.hm.achievement.utils.YamlManager;
 
 public class ListCommand {
 
@@ -43,54 +46,54 @@ public class ListCommand {
 	private MinecraftFont FONT = MinecraftFont.Font;
 	
 
-	public ListCommand(AdvancedAchievements plugin) {
+	public ListCommand(AdvancedAchievements plugin, YamlManager config, YamlManager lang) {
 
 		this.plugin = plugin;
 		players = new HashMap<Player, Long>();
-		hideNotReceivedCategories = plugin.getPluginConfig().getBoolean("HideNotReceivedCategories", false);
-		obfuscateNotReceived = plugin.getPluginConfig().getBoolean("ObfuscateNotReceived", true);
-		hideRewardDisplay = plugin.getPluginConfig().getBoolean("HideRewardDisplayInList", false);
-		listTime = plugin.getPluginConfig().getInt("TimeList", 0) * 1000;
+		hideNotReceivedCategories = config.getBoolean("HideNotReceivedCategories", false);
+		obfuscateNotReceived = config.getBoolean("ObfuscateNotReceived", true);
+		hideRewardDisplay = config.getBoolean("HideRewardDisplayInList", false);
+		listTime = config.getInt("TimeList", 0) * 1000;
 
 		normalAchievementTypesLanguage = new String[] {
-				plugin.getPluginLang().getString("list-connections", "Connections"),
-				plugin.getPluginLang().getString("list-deaths", "Number of Deaths"),
-				plugin.getPluginLang().getString("list-arrows", "Arrows Shot"),
-				plugin.getPluginLang().getString("list-snowballs", "Snowballs Thrown"),
-				plugin.getPluginLang().getString("list-eggs", "Eggs Thrown"),
-				plugin.getPluginLang().getString("list-fish", "Fish Caught"),
-				plugin.getPluginLang().getString("list-itembreaks", "Items Broken"),
-				plugin.getPluginLang().getString("list-eatenitems", "Items Eaten"),
-				plugin.getPluginLang().getString("list-shear", "Sheeps Sheared"),
-				plugin.getPluginLang().getString("list-milk", "Cows Milked"),
-				plugin.getPluginLang().getString("list-trades", "Number of Trades"),
-				plugin.getPluginLang().getString("list-anvils", "Anvils Used"),
-				plugin.getPluginLang().getString("list-enchantments", "Items Enchanted"),
-				plugin.getPluginLang().getString("list-beds", "Beds Entered"),
-				plugin.getPluginLang().getString("list-maxlevel", "Max Level Reached"),
-				plugin.getPluginLang().getString("list-potions", "Potions Consumed"),
-				plugin.getPluginLang().getString("list-playedtime", "Time Played"),
-				plugin.getPluginLang().getString("list-itemdrops", "Items Dropped"),
-				plugin.getPluginLang().getString("list-hoeplowings", "Surface Plowed"),
-				plugin.getPluginLang().getString("list-fertilising", "Plants Fertilised"),
-				plugin.getPluginLang().getString("list-taming", "Animals Tamed"),
-				plugin.getPluginLang().getString("list-brewing", "Potions Brewed"),
-				plugin.getPluginLang().getString("list-fireworks", "Fireworks Launched"),
-				plugin.getPluginLang().getString("list-musicdiscs", "Music Discs Played"),
-				plugin.getPluginLang().getString("list-enderpearls", "Teleportations with Ender Pearls"),
-				plugin.getPluginLang().getString("list-distance-foot", "Distance Travelled by Foot"),
-				plugin.getPluginLang().getString("list-distance-pig", "Distance Travelled on a Pig"),
-				plugin.getPluginLang().getString("list-distance-horse", "Distance Travelled on a Horse"),
-				plugin.getPluginLang().getString("list-distance-minecart", "Distance Travelled in a Minecart"),
-				plugin.getPluginLang().getString("list-distance-boat", "Distance Travelled in a Boat"),
-				plugin.getPluginLang().getString("list-distance-gliding", "Distance Travelled with Elytra"),
-				plugin.getPluginLang().getString("list-commands", "Other Achievements") };
+				lang.getString("list-connections", "Connections"),
+				lang.getString("list-deaths", "Number of Deaths"),
+				lang.getString("list-arrows", "Arrows Shot"),
+				lang.getString("list-snowballs", "Snowballs Thrown"),
+				lang.getString("list-eggs", "Eggs Thrown"),
+				lang.getString("list-fish", "Fish Caught"),
+				lang.getString("list-itembreaks", "Items Broken"),
+				lang.getString("list-eatenitems", "Items Eaten"),
+				lang.getString("list-shear", "Sheeps Sheared"),
+				lang.getString("list-milk", "Cows Milked"),
+				lang.getString("list-trades", "Number of Trades"),
+				lang.getString("list-anvils", "Anvils Used"),
+				lang.getString("list-enchantments", "Items Enchanted"),
+				lang.getString("list-beds", "Beds Entered"),
+				lang.getString("list-maxlevel", "Max Level Reached"),
+				lang.getString("list-potions", "Potions Consumed"),
+				lang.getString("list-playedtime", "Time Played"),
+				lang.getString("list-itemdrops", "Items Dropped"),
+				lang.getString("list-hoeplowings", "Surface Plowed"),
+				lang.getString("list-fertilising", "Plants Fertilised"),
+				lang.getString("list-taming", "Animals Tamed"),
+				lang.getString("list-brewing", "Potions Brewed"),
+				lang.getString("list-fireworks", "Fireworks Launched"),
+				lang.getString("list-musicdiscs", "Music Discs Played"),
+				lang.getString("list-enderpearls", "Teleportations with Ender Pearls"),
+				lang.getString("list-distance-foot", "Distance Travelled by Foot"),
+				lang.getString("list-distance-pig", "Distance Travelled on a Pig"),
+				lang.getString("list-distance-horse", "Distance Travelled on a Horse"),
+				lang.getString("list-distance-minecart", "Distance Travelled in a Minecart"),
+				lang.getString("list-distance-boat", "Distance Travelled in a Boat"),
+				lang.getString("list-distance-gliding", "Distance Travelled with Elytra"),
+				lang.getString("list-commands", "Other Achievements") };
 
 		multipleAchievementTypesLanguage = new String[] {
-				plugin.getPluginLang().getString("list-places", "Blocks Placed"),
-				plugin.getPluginLang().getString("list-breaks", "Blocks Broken"),
-				plugin.getPluginLang().getString("list-kills", "Entities Killed"),
-				plugin.getPluginLang().getString("list-crafts", "Items Crafted") };
+				lang.getString("list-places", "Blocks Placed"),
+				lang.getString("list-breaks", "Blocks Broken"),
+				lang.getString("list-kills", "Entities Killed"),
+				lang.getString("list-crafts", "Items Crafted") };
 
 		// Simple and fast check to retrieve Minecraft version. Might need to be updated depending on how the
 		// Minecraft versions change in the future.
@@ -320,127 +323,127 @@ public class ListCommand {
 		// Match the item the player clicked on with a category and its database statistic.
 		switch (clickedItem) {
 			case BOOK_AND_QUILL:
-				statistic = plugin.getDb().getConnectionsAmount(player);
+				statistic = plugin.getStatisticsStore().getConnections(player.getUniqueId().toString());
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[0];
 				break;
 			case SKULL_ITEM:
-				statistic = plugin.getPoolsManager().getPlayerDeathAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.DEATHS);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[1];
 				break;
 			case ARROW:
-				statistic = plugin.getPoolsManager().getPlayerArrowAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.ARROWS);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[2];
 				break;
 			case SNOW_BALL:
-				statistic = plugin.getPoolsManager().getPlayerSnowballAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.SNOWBALLS);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[3];
 				break;
 			case EGG:
-				statistic = plugin.getPoolsManager().getPlayerEggAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.EGGS);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[4];
 				break;
 			case RAW_FISH:
-				statistic = plugin.getPoolsManager().getPlayerFishAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.FISH);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[5];
 				break;
 			case FLINT:
-				statistic = plugin.getPoolsManager().getPlayerItemBreakAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.ITEMBREAKS);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[6];
 				break;
 			case MELON:
-				statistic = plugin.getPoolsManager().getPlayerEatenItemAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.EATENITEMS);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[7];
 				break;
 			case SHEARS:
-				statistic = plugin.getPoolsManager().getPlayerShearAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.SHEARS);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[8];
 				break;
 			case MILK_BUCKET:
-				statistic = plugin.getPoolsManager().getPlayerMilkAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.MILKS);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[9];
 				break;
 			case EMERALD:
-				statistic = plugin.getPoolsManager().getPlayerTradeAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.TRADES);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[10];
 				break;
 			case ANVIL:
-				statistic = plugin.getPoolsManager().getPlayerAnvilAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.ANVILS);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[11];
 				break;
 			case ENCHANTMENT_TABLE:
-				statistic = plugin.getPoolsManager().getPlayerEnchantmentAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.ENCHANTMENTS);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[12];
 				break;
 			case BED:
-				statistic = plugin.getPoolsManager().getPlayerBedAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.BEDS);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[13];
 				break;
 			case EXP_BOTTLE:
-				statistic = plugin.getPoolsManager().getPlayerXPAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.LEVELS);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[14];
 				break;
 			case GLASS_BOTTLE:
-				statistic = plugin.getPoolsManager().getPlayerConsumedPotionAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.CONSUMEDPOTIONS);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[15];
 				break;
 			case WATCH:
-				statistic = (int) plugin.getDb().updateAndGetPlaytime(player.getUniqueId().toString(), 0L);
+				statistic = (int) plugin.getPoolsManager().getPlayerPlayedTime(player);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[16];
 				break;
 			case HOPPER:
-				statistic = plugin.getPoolsManager().getPlayerDropAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.DROPS);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[17];
 				break;
 			case GRASS:
-				statistic = plugin.getPoolsManager().getPlayerHoePlowingAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.HOEPLOWING);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[18];
 				break;
 			case INK_SACK:
-				statistic = plugin.getPoolsManager().getPlayerFertiliseAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.FERTILISING);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[19];
 				break;
 			case LEASH:
-				statistic = plugin.getPoolsManager().getPlayerTameAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.TAMES);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[20];
 				break;
 			case BREWING_STAND_ITEM:
-				statistic = plugin.getPoolsManager().getPlayerBrewingAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.BREWING);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[21];
 				break;
 			case FIREWORK:
-				statistic = plugin.getPoolsManager().getPlayerFireworkAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.FIREWORKS);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[22];
 				break;
 			case JUKEBOX:
-				statistic = plugin.getPoolsManager().getPlayerMusicDiscAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.MUSICDISCS);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[23];
 				break;
 			case ENDER_PEARL:
-				statistic = plugin.getPoolsManager().getPlayerEnderPearlAmount(player);
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.ENDERPEARLS);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[24];
 				break;
 			case LEATHER_BOOTS:
-				statistic = plugin.getDb().updateAndGetDistance(player.getUniqueId().toString(), 0, "distancefoot");
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.DISTANCEFOOT);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[25];
 				break;
 			case CARROT_STICK:
-				statistic = plugin.getDb().updateAndGetDistance(player.getUniqueId().toString(), 0, "distancepig");
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.DISTANCEPIG);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[26];
 				break;
 			case SADDLE:
-				statistic = plugin.getDb().updateAndGetDistance(player.getUniqueId().toString(), 0, "distancehorse");
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.DISTANCEHORSE);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[27];
 				break;
 			case MINECART:
-				statistic = plugin.getDb().updateAndGetDistance(player.getUniqueId().toString(), 0, "distanceminecart");
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.DISTANCEMINECART);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[28];
 				break;
 			case BOAT:
-				statistic = plugin.getDb().updateAndGetDistance(player.getUniqueId().toString(), 0, "distanceboat");
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.DISTANCEBOAT);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[29];
 				break;
 			case BEDROCK:
-				statistic = plugin.getDb().updateAndGetDistance(player.getUniqueId().toString(), 0, "distancegliding");
+				statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.DISTANCEGLIDING);
 				category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[30];
 				break;
 			case BOOKSHELF:
@@ -457,12 +460,11 @@ public class ListCommand {
 		if (category.equals("") && version >= 9) {
 			switch (clickedItem) {
 				case ELYTRA:
-					statistic = plugin.getDb().updateAndGetDistance(player.getUniqueId().toString(), 0,
-							"distancegliding");
+					statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.DISTANCEGLIDING);
 					category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[30];
 					break;
 				case GRASS_PATH:
-					statistic = plugin.getPoolsManager().getPlayerHoePlowingAmount(player);
+					statistic = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.HOEPLOWING);
 					category = AdvancedAchievements.NORMAL_ACHIEVEMENTS[18];
 					break;
 				default:
@@ -487,7 +489,8 @@ public class ListCommand {
 			String achName = plugin.getPluginConfig().getString(category + '.' + ach + ".Name", "");
 			String achMessage = plugin.getPluginConfig().getString(category + '.' + ach + ".Message", "");
 			ArrayList<String> rewards = plugin.getReward().getRewardType(category + '.' + ach);
-			String date = plugin.getDb().getPlayerAchievementDate(player, achName);
+			String date = plugin.getAchievementStore().getPlayerAchievementDate(player.getUniqueId().toString(),
+					achName);
 
 			createGUIItem(inventory, positionInGUI, ach, statistic, achName, achMessage, rewards, date);
 			positionInGUI++;
@@ -548,16 +551,20 @@ public class ListCommand {
 			int statistic;
 			switch (item) {
 				case STONE:
-					statistic = plugin.getPoolsManager().getPlayerBlockPlaceAmount(player, section);
+					statistic = plugin.getPoolsManager().getStatisticAmount(player, MultipleAchievements.PLACES,
+							section);
 					break;
 				case SMOOTH_BRICK:
-					statistic = plugin.getPoolsManager().getPlayerBlockBreakAmount(player, section);
+					statistic = plugin.getPoolsManager().getStatisticAmount(player, MultipleAchievements.BREAKS,
+							section);
 					break;
 				case BONE:
-					statistic = plugin.getPoolsManager().getPlayerKillAmount(player, section);
+					statistic = plugin.getPoolsManager().getStatisticAmount(player, MultipleAchievements.KILLS,
+							section);
 					break;
 				case WORKBENCH:
-					statistic = plugin.getPoolsManager().getPlayerCraftAmount(player, section);
+					statistic = plugin.getPoolsManager().getStatisticAmount(player, MultipleAchievements.CRAFTS,
+							section);
 					break;
 				default:
 					statistic = -1;
@@ -573,7 +580,8 @@ public class ListCommand {
 				String achMessage = plugin.getPluginConfig()
 						.getString(category + '.' + section + '.' + level + ".Message", "");
 				ArrayList<String> rewards = plugin.getReward().getRewardType(category + '.' + section + '.' + level);
-				String date = plugin.getDb().getPlayerAchievementDate(player, achName);
+				String date = plugin.getAchievementStore().getPlayerAchievementDate(player.getUniqueId().toString(),
+						achName);
 
 				createGUIItem(inventory, positionInGUI, level, statistic, achName, achMessage, rewards, date);
 				positionInGUI++;
@@ -1,5 +1,7 @@
 package com.hm.achievement.command;
 
+import java.util.Set;
+
 import org.bukkit.ChatColor;
 import org.bukkit.Sound;
 import org.bukkit.entity.Player;
@@ -7,6 +9,7 @@ import org.bukkit.entity.Player;
 import com.hm.achievement.AdvancedAchievements;
 import com.hm.achievement.particle.ParticleEffect;
 import com.hm.achievement.particle.ReflectionUtils.PackageType;
+import com.hm.achievement.utils.YamlManager;
 
 public class StatsCommand {
 
@@ -16,26 +19,25 @@ public class StatsCommand {
 	private boolean sound;
 	private Integer version;
 
-	public StatsCommand(AdvancedAchievements plugin) {
+	public StatsCommand(AdvancedAchievements plugin, YamlManager config, Set<String> disabledCategorySet) {
 
 		this.plugin = plugin;
 
 		// Calculate the total number of achievements in the config file.
 		for (String type : AdvancedAchievements.NORMAL_ACHIEVEMENTS) {
-			if (plugin.getDisabledCategorySet().contains(type))
+			if (disabledCategorySet.contains(type))
 				continue; // ignore this type
-			totalAchievements += plugin.getPluginConfig().getConfigurationSection(type).getKeys(false).size();
+			totalAchievements += config.getConfigurationSection(type).getKeys(false).size();
 		}
 		for (String type : AdvancedAchievements.MULTIPLE_ACHIEVEMENTS) {
-			if (plugin.getDisabledCategorySet().contains(type))
+			if (disabledCategorySet.contains(type))
 				continue; // ignore this type
-			for (String item : plugin.getPluginConfig().getConfigurationSection(type).getKeys(false))
-				totalAchievements += plugin.getPluginConfig().getConfigurationSection(type + '.' + item).getKeys(false)
-						.size();
+			for (String item : config.getConfigurationSection(type).getKeys(false))
+				totalAchievements += config.getConfigurationSection(type + '.' + item).getKeys(false).size();
 		}
 
-		additionalEffects = plugin.getPluginConfig().getBoolean("AdditionalEffects", true);
-		sound = plugin.getPluginConfig().getBoolean("Sound", true);
+		additionalEffects = config.getBoolean("AdditionalEffects", true);
+		sound = config.getBoolean("Sound", true);
 		// Simple and fast check to compare versions. Might need to
 		// be updated in the future depending on how the Minecraft
 		// versions change in the future.
@@ -48,7 +50,7 @@ public class StatsCommand {
 	 */
 	public void getStats(Player player) {
 
-		int achievements = plugin.getDb().getPlayerAchievementsAmount(player);
+		int achievements = plugin.getAchievementStore().getPlayerAchievementsAmount(player.getUniqueId().toString());
 
 		// Display number of achievements received and total achievements.
 		player.sendMessage(plugin.getChatHeader()
@@ -12,6 +12,7 @@ import org.bukkit.entity.Player;
 import com.hm.achievement.AdvancedAchievements;
 import com.hm.achievement.particle.ParticleEffect;
 import com.hm.achievement.particle.ReflectionUtils.PackageType;
+import com.hm.achievement.utils.YamlManager;
 
 public class TopCommand {
 
@@ -23,13 +24,13 @@ public class TopCommand {
 	private boolean sound;
 	private int version;
 
-	public TopCommand(AdvancedAchievements plugin) {
+	public TopCommand(AdvancedAchievements plugin, YamlManager config) {
 
 		this.plugin = plugin;
 		lastTopTime = 0L;
-		topList = plugin.getPluginConfig().getInt("TopList", 5);
-		additionalEffects = plugin.getPluginConfig().getBoolean("AdditionalEffects", true);
-		sound = plugin.getPluginConfig().getBoolean("Sound", true);
+		topList = config.getInt("TopList", 5);
+		additionalEffects = config.getBoolean("AdditionalEffects", true);
+		sound = config.getBoolean("Sound", true);
 		// Simple and fast check to compare versions. Might need to
 		// be updated in the future depending on how the Minecraft
 		// versions change in the future.
@@ -44,10 +45,10 @@ public class TopCommand {
 		long currentTime = System.currentTimeMillis();
 		int rank = Integer.MAX_VALUE;
 		if (sender instanceof Player)
-			rank = plugin.getDb().getPlayerRank((Player) sender);
+			rank = plugin.getAchievementStore().getPlayerRank(((Player) sender).getUniqueId().toString());
 		if (currentTime - lastTopTime >= 60000) {
 
-			achievementsTop = plugin.getDb().getTopList(topList);
+			achievementsTop = plugin.getAchievementStore().getTopList(topList);
 			lastTopTime = System.currentTimeMillis();
 		}
 
@@ -93,7 +94,7 @@ public class TopCommand {
 				}
 			}
 
-			int totalPlayers = plugin.getDb().getTotalPlayers();
+			int totalPlayers = plugin.getAchievementStore().getTotalPlayers();
 			sender.sendMessage(plugin.getChatHeader() + plugin.getPluginLang().getString("player-rank", "Current rank:")
 					+ " " + plugin.getColor() + rank + ChatColor.GRAY + "/" + plugin.getColor() + totalPlayers);
 		}
@@ -0,0 +1,155 @@
+package com.hm.achievement.db;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.hm.achievement.AdvancedAchievements;
+
+/**
+ * In-memory sets of the achievements received by online players. A player's
+ * set is loaded asynchronously on join and is kept up to date when
+ * achievements are registered or deleted; it is evicted on quit. While
+ * a set is loading or if the player is not cached, lookups return null and
+ * callers must query the database instead.
+ */
+public class AchievementCache {
+
+	private AdvancedAchievements plugin;
+
+	// Keys are player UUIDs.
+	private final ConcurrentHashMap<String, PlayerAchievements> playerAchievements;
+
+	public AchievementCache(AdvancedAchievements plugin) {
+
+		this.plugin = plugin;
+		playerAchievements = new ConcurrentHashMap<String, PlayerAchievements>();
+	}
+
+	/**
+	 * Start loading the achievements of a player in an asynchronous task, once
+	 * the player has been released by any other server holding the player.
+	 */
+	public void load(final String uuid) {
+
+		final PlayerAchievements achievements = new PlayerAchievements();
+		playerAchievements.put(uuid, achievements);
+
+		plugin.getPlayerHandoff().runAsyncWhenReleased(uuid, new Runnable() {
+
+			@Override
+			public void run() {
+
+				// Achievements still queued by the writer are not yet visible in
+				// the database, retrieve them first so that none are missed when
+				// the writer commits in between.
+				Set<String> names = new HashSet<String>();
+				AchievementWriter writer = plugin.getDb().getAchievementWriter();
+				if (writer != null)
+					names.addAll(writer.getPendingAchievements(uuid));
+
+				Set<String> storedNames = plugin.getAchievementStore().getPlayerAchievementNames(uuid);
+				if (storedNames == null) {
+					// Database error: keep falling back to database queries.
+					playerAchievements.remove(uuid, achievements);
+					return;
+				}
+				names.addAll(storedNames);
+				achievements.complete(names);
+			}
+		});
+	}
+
+	/**
+	 * Remove a player's achievements from the cache.
+	 */
+	public void evict(String uuid) {
+
+		playerAchievements.remove(uuid);
+	}
+
+	/**
+	 * Check whether player has received a specific achievement. Returns null if
+	 * the player's achievements are not available in the cache.
+	 */
+	public Boolean hasAchievement(String uuid, String name) {
+
+		PlayerAchievements achievements = playerAchievements.get(uuid);
+		if (achievements == null)
+			return null;
+		return achievements.contains(name);
+	}
+
+	/**
+	 * Record a newly received achievement.
+	 */
+	public void add(String uuid, String name) {
+
+		PlayerAchievements achievements = playerAchievements.get(uuid);
+		if (achievements != null)
+			achievements.add(name);
+	}
+
+	/**
+	 * Record a deleted achievement.
+	 */
+	public void remove(String uuid, String name) {
+
+		PlayerAchievements achievements = playerAchievements.get(uuid);
+		if (achievements != null)
+			achievements.remove(name);
+	}
+
+	public int size() {
+
+		return playerAchievements.size();
+	}
+
+	/**
+	 * Achievement names of a single player. Changes made while the names are
+	 * being loaded from the database are merged with the loaded ones.
+	 */
+	private static class PlayerAchievements {
+
+		private final Set<String> names;
+		// Achievements deleted while loading, must not be re-added by the load.
+		private Set<String> removedWhileLoading;
+		private boolean loaded;
+
+		private PlayerAchievements() {
+
+			names = new HashSet<String>();
+			removedWhileLoading = new HashSet<String>();
+		}
+
+		private synchronized void complete(Set<String> loadedNames) {
+
+			loadedNames.removeAll(removedWhileLoading);
+			names.addAll(loadedNames);
+			removedWhileLoading = null;
+			loaded = true;
+		}
+
+		private synchronized Boolean contains(String name) {
+
+			if (names.contains(name))
+				return true;
+			// Not found, but may still be loading.
+			return loaded ? Boolean.FALSE : null;
+		}
+
+		private synchronized void add(String name) {
+
+			names.add(name);
+			if (!loaded)
+				removedWhileLoading.remove(name);
+		}
+
+		private synchronized void remove(String name) {
+
+			names.remove(name);
+			if (!loaded)
+				removedWhileLoading.add(name);
+		}
+	}
+}
@@ -0,0 +1,277 @@
+package com.hm.achievement.db;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.bukkit.Bukkit;
+
+import com.hm.achievement.AdvancedAchievements;
+
+/**
+ * In-memory ranking of the players by number of received achievements. It is
+ * built asynchronously at startup with a single aggregate query and then kept
+ * up to date when achievements are registered or deleted, so that ranks, top
+ * lists and the number of ranked players are retrieved without querying the
+ * database. While loading, or if loading failed, lookups return null and
+ * callers must query the database instead. The aggregate query may or may not
+ * include achievements changed while it runs, so the players concerned are
+ * counted again once their changes are committed.
+ *
+ * Players are kept in a tree sorted by number of achievements for top lists,
+ * and a Fenwick tree indexed by number of achievements counts the players
+ * having at most a given number of achievements, for ranks.
+ */
+public class AchievementLeaderboard {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private AdvancedAchievements plugin;
+
+	// Keys are player UUIDs; only players with at least one achievement.
+	private final Map<String, PlayerCount> players;
+	private final TreeSet<PlayerCount> sortedPlayers;
+	private int[] countTree;
+	// Players whose achievements changed while loading, counted again.
+	private Set<String> changedWhileLoading;
+	private boolean loaded;
+
+	public AchievementLeaderboard(AdvancedAchievements plugin) {
+
+		this.plugin = plugin;
+		players = new HashMap<String, PlayerCount>();
+		sortedPlayers = new TreeSet<PlayerCount>(new Comparator<PlayerCount>() {
+
+			@Override
+			public int compare(PlayerCount player1, PlayerCount player2) {
+
+				if (player1.count != player2.count)
+					return player1.count > player2.count ? -1 : 1;
+				return player1.uuid.compareTo(player2.uuid);
+			}
+		});
+		countTree = new int[INITIAL_CAPACITY];
+		changedWhileLoading = new HashSet<String>();
+	}
+
+	/**
+	 * Load the number of achievements of every player in an asynchronous task.
+	 */
+	public void load() {
+
+		Bukkit.getScheduler().runTaskAsynchronously(plugin, new Runnable() {
+
+			@Override
+			public void run() {
+
+				Map<String, Integer> counts = plugin.getAchievementStore().getPlayersAchievementsAmounts();
+				Set<String> changedPlayers;
+				while (counts != null && (changedPlayers = takeChangedPlayers(counts)) != null) {
+					waitForPendingAchievements(changedPlayers);
+					Map<String, Integer> changedCounts = plugin.getAchievementStore()
+							.getPlayersAchievementsAmounts(changedPlayers);
+					if (changedCounts == null)
+						counts = null;
+					else
+						counts.putAll(changedCounts);
+				}
+				if (counts == null)
+					fail();
+			}
+		});
+	}
+
+	/**
+	 * Return the players whose achievements changed since the previous call, or
+	 * complete the loading with the given counts if there are none.
+	 */
+	private synchronized Set<String> takeChangedPlayers(Map<String, Integer> counts) {
+
+		if (changedWhileLoading.isEmpty()) {
+			changedWhileLoading = null;
+			for (Entry<String, Integer> count : counts.entrySet())
+				setCount(count.getKey(), count.getValue());
+			loaded = true;
+			return null;
+		}
+		Set<String> changedPlayers = changedWhileLoading;
+		changedWhileLoading = new HashSet<String>();
+		return changedPlayers;
+	}
+
+	private synchronized void fail() {
+
+		// Database error: keep falling back to database queries.
+		changedWhileLoading = null;
+	}
+
+	/**
+	 * Wait until the achievements of the given players queued for writing are
+	 * committed, so that counting them again includes them.
+	 */
+	private void waitForPendingAchievements(Set<String> uuids) {
+
+		AchievementWriter writer = plugin.getDb().getAchievementWriter();
+		if (writer == null)
+			return;
+		for (String uuid : uuids) {
+			while (writer.hasPendingAchievements(uuid)) {
+				try {
+					Thread.sleep(50L);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Record a newly received achievement.
+	 */
+	public synchronized void add(String uuid) {
+
+		change(uuid, 1);
+	}
+
+	/**
+	 * Record a deleted achievement.
+	 */
+	public synchronized void remove(String uuid) {
+
+		change(uuid, -1);
+	}
+
+	/**
+	 * Return the number of achievements of a player, or null if the leaderboard
+	 * is not loaded.
+	 */
+	public synchronized Integer getAchievementsAmount(String uuid) {
+
+		if (!loaded)
+			return null;
+		PlayerCount player = players.get(uuid);
+		return player == null ? 0 : player.count;
+	}
+
+	/**
+	 * Return the rank of a player, one plus the number of players having more
+	 * achievements, or null if the leaderboard is not loaded.
+	 */
+	public synchronized Integer getRank(String uuid) {
+
+		if (!loaded)
+			return null;
+		PlayerCount player = players.get(uuid);
+		int count = player == null ? 0 : player.count;
+		return players.size() - countPlayersUpTo(count) + 1;
+	}
+
+	/**
+	 * Return the number of players who have received at least one achievement,
+	 * or null if the leaderboard is not loaded.
+	 */
+	public synchronized Integer getTotalPlayers() {
+
+		if (!loaded)
+			return null;
+		return players.size();
+	}
+
+	/**
+	 * Return the UUIDs and numbers of achievements of the players with the most
+	 * achievements, or null if the leaderboard is not loaded.
+	 */
+	public synchronized ArrayList<String> getTopList(int listLength) {
+
+		if (!loaded)
+			return null;
+		ArrayList<String> topList = new ArrayList<String>();
+		Iterator<PlayerCount> iterator = sortedPlayers.iterator();
+		for (int i = 0; i < listLength && iterator.hasNext(); ++i) {
+			PlayerCount player = iterator.next();
+			topList.add(player.uuid);
+			topList.add(Integer.toString(player.count));
+		}
+		return topList;
+	}
+
+	private void change(String uuid, int delta) {
+
+		if (!loaded) {
+			if (changedWhileLoading != null)
+				changedWhileLoading.add(uuid);
+			return;
+		}
+		PlayerCount player = players.get(uuid);
+		setCount(uuid, (player == null ? 0 : player.count) + delta);
+	}
+
+	private void setCount(String uuid, int count) {
+
+		ensureCapacity(count);
+		PlayerCount previous = players.remove(uuid);
+		if (previous != null) {
+			sortedPlayers.remove(previous);
+			updateCountTree(previous.count, -1);
+		}
+		if (count > 0) {
+			PlayerCount player = new PlayerCount(uuid, count);
+			players.put(uuid, player);
+			sortedPlayers.add(player);
+			updateCountTree(count, 1);
+		}
+	}
+
+	/**
+	 * Rebuild the Fenwick tree with a larger size if a number of achievements
+	 * does not fit in it.
+	 */
+	private void ensureCapacity(int count) {
+
+		if (count < countTree.length)
+			return;
+		countTree = new int[Math.max(count + 1, countTree.length * 2)];
+		for (PlayerCount player : players.values())
+			updateCountTree(player.count, 1);
+	}
+
+	private void updateCountTree(int count, int delta) {
+
+		for (int i = count; i < countTree.length; i += i & -i)
+			countTree[i] += delta;
+	}
+
+	/**
+	 * Return the number of players having between one and the given number of
+	 * achievements.
+	 */
+	private int countPlayersUpTo(int count) {
+
+		int playerCount = 0;
+		for (int i = Math.min(count, countTree.length - 1); i > 0; i -= i & -i)
+			playerCount += countTree[i];
+		return playerCount;
+	}
+
+	/**
+	 * Number of achievements of a player.
+	 */
+	private static class PlayerCount {
+
+		private final String uuid;
+		private final int count;
+
+		private PlayerCount(String uuid, int count) {
+
+			this.uuid = uuid;
+			this.count = count;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.hm.achievement.db;
+
+/**
+ * Achievement received by a player, as written to an achievement store.
+ * Records are compared by identity, so that the same achievement received
+ * twice is written twice.
+ */
+public class AchievementRecord {
+
+	private final String uuid;
+	private final String name;
+	private final String description;
+	private final String date;
+
+	public AchievementRecord(String uuid, String name, String description, String date) {
+
+		this.uuid = uuid;
+		this.name = name;
+		this.description = description;
+		this.date = date;
+	}
+
+	public String getUUID() {
+
+		return uuid;
+	}
+
+	public String getName() {
+
+		return name;
+	}
+
+	public String getDescription() {
+
+		return description;
+	}
+
+	/**
+	 * Return the date of reception, formatted as dd/MM/yyyy.
+	 */
+	public String getDate() {
+
+		return date;
+	}
+}
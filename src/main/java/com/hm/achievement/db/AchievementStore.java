@@ -0,0 +1,86 @@
+package com.hm.achievement.db;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Storage of the achievements received by the players, keyed by player UUID
+ * and achievement name. Descriptions are stored once per achievement name and
+ * follow the last written one. Read methods report storage errors themselves
+ * and return the documented default; writes throw so that callers can try
+ * again. Implementations must be thread-safe.
+ */
+public interface AchievementStore {
+
+	/**
+	 * Write received achievements atomically. An achievement received again
+	 * replaces the previous one.
+	 */
+	void writeAchievements(List<AchievementRecord> achievements) throws SQLException;
+
+	/**
+	 * Delete a specific achievement of a player. Returns true if it was stored.
+	 */
+	boolean deletePlayerAchievement(String uuid, String name);
+
+	/**
+	 * Check whether a player has received a specific achievement.
+	 */
+	boolean hasPlayerAchievement(String uuid, String name);
+
+	/**
+	 * Get the names of the achievements received by a player, or null if an
+	 * error occurred.
+	 */
+	Set<String> getPlayerAchievementNames(String uuid);
+
+	/**
+	 * Get the name, description and date of each achievement received by a
+	 * player, one after the other, or null if an error occurred.
+	 */
+	ArrayList<String> getPlayerAchievementsList(String uuid);
+
+	/**
+	 * Get the date of reception of a specific achievement, or null if the player
+	 * has not received it.
+	 */
+	String getPlayerAchievementDate(String uuid, String name);
+
+	/**
+	 * Get the number of achievements received by a player.
+	 */
+	int getPlayerAchievementsAmount(String uuid);
+
+	/**
+	 * Get the number of achievements received by each player who has received
+	 * at least one, or null if an error occurred.
+	 */
+	Map<String, Integer> getPlayersAchievementsAmounts();
+
+	/**
+	 * Get the number of achievements received by each of the given players,
+	 * including those who have none, or null if an error occurred.
+	 */
+	Map<String, Integer> getPlayersAchievementsAmounts(Collection<String> uuids);
+
+	/**
+	 * Get the rank of a player, one plus the number of players having more
+	 * achievements.
+	 */
+	int getPlayerRank(String uuid);
+
+	/**
+	 * Get the UUIDs and numbers of achievements of the players with the most
+	 * achievements, one after the other.
+	 */
+	ArrayList<String> getTopList(int listLength);
+
+	/**
+	 * Get the number of players who have received at least one achievement.
+	 */
+	int getTotalPlayers();
+}
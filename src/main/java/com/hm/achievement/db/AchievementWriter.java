@@ -0,0 +1,279 @@
+package com.hm.achievement.db;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.hm.achievement.AdvancedAchievements;
+
+/**
+ * Write-behind queue for achievement registrations. A single writer thread
+ * takes requests from a bounded queue and coalesces them into batched
+ * transactions. When the queue is full, requests are either written on the
+ * calling thread or the caller waits for space, depending on the configured
+ * backpressure mode.
+ */
+public class AchievementWriter implements Runnable {
+
+	// Maximum number of achievements written in a single transaction.
+	private static final int MAX_BATCH_SIZE = 500;
+	// Number of attempts for a batch before its achievements are dropped.
+	private static final int MAX_ATTEMPTS = 3;
+	private static final long RETRY_DELAY_MILLIS = 1000L;
+
+	private AdvancedAchievements plugin;
+	private final LinkedBlockingQueue<AchievementRecord> queue;
+	// Achievements queued or being written, until their transaction commits.
+	private final Set<AchievementRecord> pendingRecords;
+	private final int queueSize;
+	private final boolean blockWhenFull;
+	private final Thread writerThread;
+	private volatile boolean running;
+	// Set once achievements could not be written, which must be kept in the
+	// journal.
+	private boolean keepJournal;
+
+	// Metrics.
+	private final AtomicLong writtenCount;
+	private final AtomicLong batchCount;
+	private final AtomicLong backpressureCount;
+	private final AtomicLong droppedCount;
+
+	public AchievementWriter(AdvancedAchievements plugin) {
+
+		this.plugin = plugin;
+		queueSize = Math.max(1, plugin.getPluginConfig().getInt("AchievementWriterQueueSize", 1000));
+		blockWhenFull = "block"
+				.equalsIgnoreCase(plugin.getPluginConfig().getString("AchievementWriterBackpressure", "sync"));
+		queue = new LinkedBlockingQueue<AchievementRecord>(queueSize);
+		pendingRecords = Collections.newSetFromMap(new ConcurrentHashMap<AchievementRecord, Boolean>());
+		writtenCount = new AtomicLong();
+		batchCount = new AtomicLong();
+		backpressureCount = new AtomicLong();
+		droppedCount = new AtomicLong();
+		// Avoid using Bukkit API scheduler, as a reload/restart could kill the
+		// async task before write to database has occured.
+		writerThread = new Thread(this, "AdvancedAchievements achievement writer");
+	}
+
+	/**
+	 * Start the writer thread.
+	 */
+	public void start() {
+
+		running = true;
+		writerThread.start();
+	}
+
+	/**
+	 * Queue an achievement registration. If the queue is full, the achievement
+	 * is written synchronously or the caller waits, depending on configuration.
+	 */
+	public void submit(String name, String achievement, String desc, String date) {
+
+		AchievementRecord record = new AchievementRecord(name, achievement, desc, date);
+		pendingRecords.add(record);
+		// Journaled once pending, so that it is not cleared before being written.
+		StatisticsJournal journal = plugin.getStatisticsJournal();
+		if (journal != null)
+			journal.recordAchievement(name, achievement, desc, date);
+		if (running && queue.offer(record))
+			return;
+
+		backpressureCount.incrementAndGet();
+		if (running && blockWhenFull) {
+			try {
+				queue.put(record);
+				return;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		List<AchievementRecord> batch = new ArrayList<AchievementRecord>(1);
+		batch.add(record);
+		writeBatch(batch);
+	}
+
+	@Override
+	public void run() {
+
+		List<AchievementRecord> batch = new ArrayList<AchievementRecord>();
+		while (running) {
+			try {
+				AchievementRecord record = queue.poll(1, TimeUnit.SECONDS);
+				if (record == null)
+					continue;
+				batch.add(record);
+			} catch (InterruptedException e) {
+				continue;
+			}
+			queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+			writeBatchWithRetries(batch);
+			batch.clear();
+			clearJournal();
+		}
+	}
+
+	/**
+	 * Stop the writer thread and synchronously write all remaining queued
+	 * achievements.
+	 */
+	public void shutdown() {
+
+		running = false;
+		try {
+			writerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		List<AchievementRecord> batch = new ArrayList<AchievementRecord>();
+		while (queue.drainTo(batch, MAX_BATCH_SIZE) > 0) {
+			writeBatch(batch);
+			batch.clear();
+		}
+		clearJournal();
+	}
+
+	/**
+	 * Clear the journaled achievements if they have all been written.
+	 */
+	private void clearJournal() {
+
+		StatisticsJournal journal = plugin.getStatisticsJournal();
+		if (journal != null && !keepJournal && queue.isEmpty())
+			journal.clearAchievements(this);
+	}
+
+	private void writeBatchWithRetries(List<AchievementRecord> batch) {
+
+		for (int attempt = 1; attempt <= MAX_ATTEMPTS; ++attempt) {
+			if (writeBatch(batch))
+				return;
+			if (attempt < MAX_ATTEMPTS) {
+				try {
+					Thread.sleep(RETRY_DELAY_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		droppedCount.addAndGet(batch.size());
+		pendingRecords.removeAll(batch);
+		if (plugin.getStatisticsJournal() != null) {
+			// Dropped achievements stay in the journal and are written again
+			// when the plugin is next enabled.
+			keepJournal = true;
+			plugin.getLogger().severe("Could not register " + batch.size() + " achievements after " + MAX_ATTEMPTS
+					+ " attempts, they will be registered from the journal after the next restart.");
+			return;
+		}
+		plugin.getLogger().severe("Could not register " + batch.size() + " achievements after " + MAX_ATTEMPTS
+				+ " attempts, they will not be saved.");
+	}
+
+	/**
+	 * Write a batch of achievements in a single transaction.
+	 */
+	private boolean writeBatch(List<AchievementRecord> batch) {
+
+		try {
+			plugin.getAchievementStore().writeAchievements(batch);
+			pendingRecords.removeAll(batch);
+			writtenCount.addAndGet(batch.size());
+			batchCount.incrementAndGet();
+			return true;
+		} catch (SQLException e) {
+			plugin.getLogger().severe("SQL error while registering achievements: " + e);
+			return false;
+		}
+	}
+
+	/**
+	 * Append the achievements that have not yet been committed to a journal,
+	 * so that they are registered when the plugin is next enabled.
+	 */
+	void spillPendingAchievements(StatisticsJournal journal) {
+
+		for (AchievementRecord record : pendingRecords)
+			journal.recordAchievement(record.getUUID(), record.getName(), record.getDescription(), record.getDate());
+	}
+
+	/**
+	 * Return the names of a player's achievements that have not yet been
+	 * committed to the database.
+	 */
+	public Set<String> getPendingAchievements(String uuid) {
+
+		Set<String> achievements = new HashSet<String>();
+		for (AchievementRecord record : pendingRecords)
+			if (record.getUUID().equals(uuid))
+				achievements.add(record.getName());
+		return achievements;
+	}
+
+	/**
+	 * Check whether some achievements have not yet been committed to the
+	 * database.
+	 */
+	public boolean hasPendingAchievements() {
+
+		return !pendingRecords.isEmpty();
+	}
+
+	/**
+	 * Check whether some of a player's achievements have not yet been committed
+	 * to the database.
+	 */
+	public boolean hasPendingAchievements(String uuid) {
+
+		for (AchievementRecord record : pendingRecords)
+			if (record.getUUID().equals(uuid))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Return the number of achievements waiting to be written.
+	 */
+	public int getQueueDepth() {
+
+		return queue.size();
+	}
+
+	public int getQueueSize() {
+
+		return queueSize;
+	}
+
+	public long getWrittenCount() {
+
+		return writtenCount.get();
+	}
+
+	public long getBatchCount() {
+
+		return batchCount.get();
+	}
+
+	/**
+	 * Return the number of submissions that found the queue full.
+	 */
+	public long getBackpressureCount() {
+
+		return backpressureCount.get();
+	}
+
+	public long getDroppedCount() {
+
+		return droppedCount.get();
+	}
+}
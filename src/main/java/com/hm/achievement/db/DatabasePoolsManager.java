@@ -1,495 +1,469 @@
 package com.hm.achievement.db;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
+import com.hm.achievement.AchievementIndex.Achievement;
+import com.hm.achievement.AchievementIndex.Thresholds;
 import com.hm.achievement.AdvancedAchievements;
-
+import com.hm.achievement.category.MultipleAchievements;
+import com.hm.achievement.category.NormalAchievements;
+import com.hm.achievement.db.PlayerStatistics.DirtyStatistics;
+
+/**
+ * Statistics of the players, kept in memory and written to the database by
+ * the pooled requests senders. Each player has a single PlayerStatistics
+ * record, loaded asynchronously when the player joins and discarded once the
+ * player has left and all the changed statistics have been written.
+ */
 public class DatabasePoolsManager {
 
 	private AdvancedAchievements plugin;
 
-	// Statistics of the different players; keys correspond to UUIDs.
-	private Map<String, Integer> deathHashMap;
-	private Map<String, Integer> arrowHashMap;
-	private Map<String, Integer> snowballHashMap;
-	private Map<String, Integer> eggHashMap;
-	private Map<String, Integer> fishHashMap;
-	private Map<String, Integer> itemBreakHashMap;
-	private Map<String, Integer> eatenItemHashMap;
-	private Map<String, Integer> shearHashMap;
-	private Map<String, Integer> milkHashMap;
-	private Map<String, Integer> tradeHashMap;
-	private Map<String, Integer> anvilHashMap;
-	private Map<String, Integer> enchantmentHashMap;
-	private Map<String, Integer> bedHashMap;
-	private Map<String, Integer> xpHashMap;
-	private Map<String, Integer> consumedPotionHashMap;
-	private Map<String, Integer> dropHashMap;
-	private Map<String, Integer> hoePlowingHashMap;
-	private Map<String, Integer> fertiliseHashMap;
-	private Map<String, Integer> tameHashMap;
-	private Map<String, Integer> brewingHashMap;
-	private Map<String, Integer> fireworkHashMap;
-	private Map<String, Integer> musicDiscHashMap;
-	private Map<String, Integer> enderPearlHashMap;
-	// Statistics of the different players; keys correspond to UUIDs and
-	// block/entity identifiers.
-	private Map<String, Integer> blockPlaceHashMap;
-	private Map<String, Integer> blockBreakHashMap;
-	private Map<String, Integer> killHashMap;
-	private Map<String, Integer> craftHashMap;
+	// Written by the main server thread and read by asynchronous tasks,
+	// ConcurrentHashMap is always necessary.
+	private final ConcurrentHashMap<UUID, PlayerStatistics> playerStatistics;
 
 	public DatabasePoolsManager(AdvancedAchievements plugin) {
-		this.plugin = plugin;
-	}
 
-	public void databasePoolsInit(boolean isAsync) {
-
-		// If asynchronous task is used, ConcurrentHashMaps are necessary to
-		// guarantee thread safety. Otherwise normal HashMaps are enough.
-		if (isAsync) {
-			deathHashMap = new ConcurrentHashMap<String, Integer>();
-			arrowHashMap = new ConcurrentHashMap<String, Integer>();
-			snowballHashMap = new ConcurrentHashMap<String, Integer>();
-			eggHashMap = new ConcurrentHashMap<String, Integer>();
-			fishHashMap = new ConcurrentHashMap<String, Integer>();
-			itemBreakHashMap = new ConcurrentHashMap<String, Integer>();
-			eatenItemHashMap = new ConcurrentHashMap<String, Integer>();
-			shearHashMap = new ConcurrentHashMap<String, Integer>();
-			milkHashMap = new ConcurrentHashMap<String, Integer>();
-			tradeHashMap = new ConcurrentHashMap<String, Integer>();
-			anvilHashMap = new ConcurrentHashMap<String, Integer>();
-			enchantmentHashMap = new ConcurrentHashMap<String, Integer>();
-			bedHashMap = new ConcurrentHashMap<String, Integer>();
-			xpHashMap = new ConcurrentHashMap<String, Integer>();
-			consumedPotionHashMap = new ConcurrentHashMap<String, Integer>();
-			dropHashMap = new ConcurrentHashMap<String, Integer>();
-			hoePlowingHashMap = new ConcurrentHashMap<String, Integer>();
-			fertiliseHashMap = new ConcurrentHashMap<String, Integer>();
-			tameHashMap = new ConcurrentHashMap<String, Integer>();
-			brewingHashMap = new ConcurrentHashMap<String, Integer>();
-			fireworkHashMap = new ConcurrentHashMap<String, Integer>();
-			musicDiscHashMap = new ConcurrentHashMap<String, Integer>();
-			enderPearlHashMap = new ConcurrentHashMap<String, Integer>();
-			blockPlaceHashMap = new ConcurrentHashMap<String, Integer>();
-			blockBreakHashMap = new ConcurrentHashMap<String, Integer>();
-			killHashMap = new ConcurrentHashMap<String, Integer>();
-			craftHashMap = new ConcurrentHashMap<String, Integer>();
-		} else {
-			deathHashMap = new HashMap<String, Integer>();
-			arrowHashMap = new HashMap<String, Integer>();
-			snowballHashMap = new HashMap<String, Integer>();
-			eggHashMap = new HashMap<String, Integer>();
-			fishHashMap = new HashMap<String, Integer>();
-			itemBreakHashMap = new HashMap<String, Integer>();
-			eatenItemHashMap = new HashMap<String, Integer>();
-			shearHashMap = new HashMap<String, Integer>();
-			milkHashMap = new HashMap<String, Integer>();
-			tradeHashMap = new HashMap<String, Integer>();
-			anvilHashMap = new HashMap<String, Integer>();
-			enchantmentHashMap = new HashMap<String, Integer>();
-			bedHashMap = new HashMap<String, Integer>();
-			xpHashMap = new HashMap<String, Integer>();
-			consumedPotionHashMap = new HashMap<String, Integer>();
-			dropHashMap = new HashMap<String, Integer>();
-			hoePlowingHashMap = new HashMap<String, Integer>();
-			fertiliseHashMap = new HashMap<String, Integer>();
-			tameHashMap = new HashMap<String, Integer>();
-			brewingHashMap = new HashMap<String, Integer>();
-			fireworkHashMap = new HashMap<String, Integer>();
-			enderPearlHashMap = new HashMap<String, Integer>();
-			musicDiscHashMap = new HashMap<String, Integer>();
-			blockPlaceHashMap = new HashMap<String, Integer>();
-			blockBreakHashMap = new HashMap<String, Integer>();
-			killHashMap = new HashMap<String, Integer>();
-			craftHashMap = new HashMap<String, Integer>();
+		this.plugin = plugin;
+		playerStatistics = new ConcurrentHashMap<UUID, PlayerStatistics>();
+	}
+
+	/**
+	 * Load all the statistics of a player in an asynchronous task. Events
+	 * received in the meantime are queued with runWhenLoaded and handled once
+	 * the statistics are available. If the player reconnects before the
+	 * previous statistics have been written, they are kept and merged with the
+	 * loaded ones. Loading starts once the player has been released by any
+	 * other server holding the player.
+	 */
+	public void loadPlayerStatistics(Player player) {
+
+		final PlayerStatistics statistics = getPlayerStatistics(player);
+		statistics.setEvicted(false);
+		statistics.startLoading();
+
+		plugin.getPlayerHandoff().runAsyncWhenReleased(statistics.getUUID(), new Runnable() {
+
+			@Override
+			public void run() {
+
+				final PlayerStatistics loadedStatistics = plugin.getStatisticsStore()
+						.loadPlayerStatistics(statistics.getUUID());
+				if (!plugin.isEnabled())
+					return;
+				Bukkit.getScheduler().runTask(plugin, new Runnable() {
+
+					@Override
+					public void run() {
+
+						// Database error: statistics will be retrieved individually.
+						if (loadedStatistics != null)
+							statistics.merge(loadedStatistics);
+						for (Runnable event : statistics.completeLoading(loadedStatistics != null))
+							event.run();
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Flag the statistics of a player who has left. They are discarded by the
+	 * pooled requests sender once written. Events still waiting for the
+	 * statistics to be loaded are handled straight away.
+	 */
+	public void evictPlayerStatistics(Player player) {
+
+		PlayerStatistics statistics = playerStatistics.get(player.getUniqueId());
+		if (statistics == null)
+			return;
+		statistics.setEvicted(true);
+		if (statistics.isLoading())
+			for (Runnable event : statistics.completeLoading(false))
+				event.run();
+	}
+
+	/**
+	 * Write the changed statistics of a player straight away, without waiting
+	 * for the next run of the pooled requests sender. Statistics that could not
+	 * be written are flagged as dirty again. When changes are journaled, the
+	 * statistics of all players are written.
+	 */
+	public synchronized void writePlayerStatistics(String uuid) {
+
+		PlayerStatistics statistics = playerStatistics.get(UUID.fromString(uuid));
+		if (statistics == null)
+			return;
+		try {
+			// Journal segments are shared by all players, their statistics are
+			// written together.
+			if (plugin.getStatisticsJournal() != null) {
+				writeDirtyStatistics(new WrittenRows());
+				return;
+			}
+			DirtyStatistics dirtyStatistics = statistics.takeDirtyStatistics();
+			if (dirtyStatistics == null)
+				return;
+			try {
+				plugin.getStatisticsStore().writeStatistics(Collections.singletonList(dirtyStatistics),
+						new WrittenRows());
+			} catch (SQLException e) {
+				dirtyStatistics.restore();
+				throw e;
+			}
+		} catch (SQLException e) {
+			plugin.getLogger().severe("Error while writing statistics of player " + uuid + ": " + e);
 		}
 	}
 
-	public Map<String, Integer> getDeathHashMap() {
-
-		return deathHashMap;
-	}
-
-	public int getPlayerDeathAmount(Player player) {
-
-		Integer amount = deathHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "deaths");
-		else
-			return amount;
-	}
-
-	public Map<String, Integer> getArrowHashMap() {
-
-		return arrowHashMap;
-	}
-
-	public int getPlayerArrowAmount(Player player) {
-
-		Integer amount = arrowHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "arrows");
-		else
-			return amount;
-	}
-
-	public Map<String, Integer> getSnowballHashMap() {
-
-		return snowballHashMap;
-	}
-
-	public int getPlayerSnowballAmount(Player player) {
-
-		Integer amount = snowballHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "snowballs");
-		else
-			return amount;
-	}
-
-	public Map<String, Integer> getEggHashMap() {
-
-		return eggHashMap;
-	}
-
-	public int getPlayerEggAmount(Player player) {
-
-		Integer amount = eggHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "eggs");
-		else
-			return amount;
-	}
-
-	public Map<String, Integer> getFishHashMap() {
-
-		return fishHashMap;
-	}
-
-	public int getPlayerFishAmount(Player player) {
-
-		Integer amount = fishHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "fish");
-		else
-			return amount;
-	}
-
-	public Map<String, Integer> getItemBreakHashMap() {
-
-		return itemBreakHashMap;
-	}
-
-	public int getPlayerItemBreakAmount(Player player) {
-
-		Integer amount = itemBreakHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "itembreaks");
-		else
-			return amount;
-	}
-
-	public Map<String, Integer> getEatenItemsHashMap() {
-
-		return eatenItemHashMap;
-	}
-
-	public int getPlayerEatenItemAmount(Player player) {
-
-		Integer amount = eatenItemHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "eatenitems");
-		else
-			return amount;
-	}
-
-	public Map<String, Integer> getShearHashMap() {
-
-		return shearHashMap;
-	}
-
-	public int getPlayerShearAmount(Player player) {
-
-		Integer amount = shearHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "shears");
-		else
-			return amount;
-	}
-
-	public Map<String, Integer> getMilkHashMap() {
-
-		return milkHashMap;
-	}
-
-	public int getPlayerMilkAmount(Player player) {
-
-		Integer amount = milkHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "milks");
-		else
-			return amount;
-	}
-
-	public Map<String, Integer> getTradeHashMap() {
-
-		return tradeHashMap;
-	}
-
-	public int getPlayerTradeAmount(Player player) {
-
-		Integer amount = tradeHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "trades");
-		else
-			return amount;
-	}
-
-	public Map<String, Integer> getAnvilHashMap() {
-
-		return anvilHashMap;
-	}
-
-	public int getPlayerAnvilAmount(Player player) {
-
-		Integer amount = anvilHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "anvils");
-		else
-			return amount;
-	}
-
-	public Map<String, Integer> getEnchantmentHashMap() {
-
-		return enchantmentHashMap;
-	}
-
-	public int getPlayerEnchantmentAmount(Player player) {
-
-		Integer amount = enchantmentHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "enchantments");
-		else
-			return amount;
-	}
-
-	public Map<String, Integer> getBedHashMap() {
-
-		return bedHashMap;
-	}
-
-	public int getPlayerBedAmount(Player player) {
-
-		Integer amount = bedHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "beds");
-		else
-			return amount;
-	}
-
-	public Map<String, Integer> getXpHashMap() {
-
-		return xpHashMap;
-	}
-
-	public int getPlayerXPAmount(Player player) {
-
-		Integer amount = xpHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "levels");
-		else
-			return amount;
-	}
-
-	public Map<String, Integer> getConsumedPotionsHashMap() {
-
-		return consumedPotionHashMap;
-	}
-
-	public int getPlayerConsumedPotionAmount(Player player) {
-
-		Integer amount = consumedPotionHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "consumedpotions");
-		else
-			return amount;
-	}
-
-	public Map<String, Integer> getDropHashMap() {
-
-		return dropHashMap;
-	}
-
-	public int getPlayerDropAmount(Player player) {
-
-		Integer amount = dropHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "drops");
-		else
-			return amount;
-	}
-
-	public Map<String, Integer> getHoePlowingHashMap() {
-
-		return hoePlowingHashMap;
+	/**
+	 * Take the dirty statistics of all players and write them in a single
+	 * transaction, along with the last journal segment they cover. If the
+	 * transaction fails, the statistics are flagged as dirty again. Writes must
+	 * not overlap, otherwise older totals could be committed last. Returns the
+	 * number of players whose statistics were written.
+	 */
+	public synchronized int writeDirtyStatistics(WrittenRows writtenRows) throws SQLException {
+
+		StatisticsJournal journal = plugin.getStatisticsJournal();
+		List<DirtyStatistics> dirtyStatistics = new ArrayList<DirtyStatistics>();
+		long segment = takeDirtyStatistics(journal, dirtyStatistics);
+		writeDirtyStatistics(dirtyStatistics, writtenRows, journal, segment);
+		return dirtyStatistics.size();
+	}
+
+	/**
+	 * Take the dirty statistics of all players and start a new journal segment
+	 * if a journal is given. Returns the last journal segment covered by the
+	 * statistics taken. The journal is locked while statistics are taken, as it
+	 * is while they are changed and journaled, so that each segment only
+	 * contains changes covered by the statistics taken after it.
+	 */
+	synchronized long takeDirtyStatistics(StatisticsJournal journal, List<DirtyStatistics> dirtyStatistics) {
+
+		if (journal == null) {
+			takeDirtyStatistics(dirtyStatistics);
+			return 0L;
+		}
+		synchronized (journal) {
+			long segment = journal.startSegment();
+			takeDirtyStatistics(dirtyStatistics);
+			return segment;
+		}
 	}
 
-	public int getPlayerHoePlowingAmount(Player player) {
+	private void takeDirtyStatistics(List<DirtyStatistics> dirtyStatistics) {
 
-		Integer amount = hoePlowingHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "hoeplowing");
-		else
-			return amount;
+		for (PlayerStatistics statistics : playerStatistics.values()) {
+			DirtyStatistics playerDirtyStatistics = statistics.takeDirtyStatistics();
+			if (playerDirtyStatistics != null)
+				dirtyStatistics.add(playerDirtyStatistics);
+		}
 	}
 
-	public Map<String, Integer> getFertiliseHashMap() {
+	/**
+	 * Write statistics taken with takeDirtyStatistics and release the journal
+	 * segments they cover.
+	 */
+	synchronized void writeDirtyStatistics(List<DirtyStatistics> dirtyStatistics, WrittenRows writtenRows,
+			StatisticsJournal journal, long segment) throws SQLException {
+
+		if (!dirtyStatistics.isEmpty()) {
+			try {
+				plugin.getStatisticsStore().writeStatistics(dirtyStatistics, writtenRows,
+						journal == null ? null : journal.getId(), segment);
+			} catch (SQLException e) {
+				for (DirtyStatistics playerDirtyStatistics : dirtyStatistics)
+					playerDirtyStatistics.restore();
+				throw e;
+			}
+		}
+		// Without dirty statistics, all journaled changes have already been
+		// written.
+		if (journal != null)
+			journal.releaseSegments(segment);
 
-		return fertiliseHashMap;
+		// Statistics of disconnected players are no longer needed once written.
+		removeWrittenPlayerStatistics();
 	}
 
-	public int getPlayerFertiliseAmount(Player player) {
+	/**
+	 * Run an event handler once the statistics of the player are loaded, or
+	 * straight away if they are not being loaded. Statistics are being loaded
+	 * just after the player has joined.
+	 */
+	public void runWhenLoaded(Player player, Runnable event) {
 
-		Integer amount = fertiliseHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "fertilising");
+		PlayerStatistics statistics = playerStatistics.get(player.getUniqueId());
+		if (statistics == null || !statistics.isLoading())
+			event.run();
 		else
-			return amount;
+			statistics.addPendingEvent(event);
 	}
 
-	public Map<String, Integer> getTameHashMap() {
+	/**
+	 * Check whether the statistics of a player are currently being loaded.
+	 */
+	public boolean isLoadingPlayerStatistics(Player player) {
 
-		return tameHashMap;
+		PlayerStatistics statistics = playerStatistics.get(player.getUniqueId());
+		return statistics != null && statistics.isLoading();
 	}
 
-	public int getPlayerTameAmount(Player player) {
+	/**
+	 * Return the statistics of all players that may need to be written to the
+	 * database.
+	 */
+	Collection<PlayerStatistics> getAllPlayerStatistics() {
 
-		Integer amount = tameHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "tames");
-		else
-			return amount;
+		return playerStatistics.values();
 	}
 
-	public Map<String, Integer> getBrewingHashMap() {
+	/**
+	 * Discard the statistics of players who have left and whose statistics have
+	 * all been written to the database.
+	 */
+	void removeWrittenPlayerStatistics() {
 
-		return brewingHashMap;
+		for (Entry<UUID, PlayerStatistics> entry : playerStatistics.entrySet())
+			if (entry.getValue().isEvicted() && !entry.getValue().isDirty())
+				playerStatistics.remove(entry.getKey(), entry.getValue());
 	}
 
-	public int getPlayerBrewingAmount(Player player) {
+	/**
+	 * Get a player's statistic for a normal category.
+	 */
+	public int getStatisticAmount(Player player, NormalAchievements category) {
 
-		Integer amount = brewingHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "brewing");
-		else
-			return amount;
+		PlayerStatistics statistics = getPlayerStatistics(player);
+		if (!statistics.hasStatistic(category))
+			statistics.initStatistic(category,
+					plugin.getStatisticsStore().getStatistic(statistics.getUUID(), category));
+		return statistics.getStatistic(category);
 	}
 
-	public Map<String, Integer> getFireworkHashMap() {
+	/**
+	 * Get a player's statistic for a sub-category of a multiple category.
+	 */
+	public int getStatisticAmount(Player player, MultipleAchievements category, String subcategory) {
 
-		return fireworkHashMap;
+		PlayerStatistics statistics = getPlayerStatistics(player);
+		if (!statistics.hasStatistic(category, subcategory))
+			statistics.initStatistic(category, subcategory,
+					plugin.getStatisticsStore().getStatistic(statistics.getUUID(), category, subcategory));
+		return statistics.getStatistic(category, subcategory);
 	}
 
-	public int getPlayerFireworkAmount(Player player) {
+	/**
+	 * Increase a player's statistic for a normal category and return the
+	 * achievement whose threshold has been reached, or null if none was
+	 * reached. The achievement index is only searched when the statistic
+	 * reaches the next threshold of the category.
+	 */
+	public Achievement incrementStatistic(Player player, NormalAchievements category, int amount) {
 
-		Integer amount = fireworkHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "fireworks");
-		else
-			return amount;
+		// Make sure the current value is known before incrementing it.
+		getStatisticAmount(player, category);
+		PlayerStatistics statistics = getPlayerStatistics(player);
+		StatisticsJournal journal = plugin.getStatisticsJournal();
+		if (journal == null)
+			return statistics.incrementStatistic(category, amount, plugin.getAchievementIndex());
+		synchronized (journal) {
+			journal.recordIncrease(player.getUniqueId(), category, amount);
+			return statistics.incrementStatistic(category, amount, plugin.getAchievementIndex());
+		}
 	}
 
-	public Map<String, Integer> getMusicDiscHashMap() {
-
-		return musicDiscHashMap;
+	/**
+	 * Increase a player's statistic for a sub-category of a multiple category
+	 * and return the achievement with the largest threshold reached, or null if
+	 * none was reached.
+	 */
+	public Achievement incrementStatistic(Player player, MultipleAchievements category, String subcategory,
+			int amount) {
+
+		// Make sure the current value is known before incrementing it.
+		getStatisticAmount(player, category, subcategory);
+		PlayerStatistics statistics = getPlayerStatistics(player);
+		StatisticsJournal journal = plugin.getStatisticsJournal();
+		if (journal == null)
+			return statistics.incrementStatistic(category, subcategory, amount, plugin.getAchievementIndex());
+		synchronized (journal) {
+			journal.recordIncrease(player.getUniqueId(), category, subcategory, amount);
+			return statistics.incrementStatistic(category, subcategory, amount, plugin.getAchievementIndex());
+		}
 	}
 
-	public int getPlayerMusicDiscAmount(Player player) {
+	/**
+	 * Increase a player's statistic for a normal category and award the
+	 * achievement reached, if any. Statistics may still be loading if the
+	 * player has just joined, the increase is then applied once they are
+	 * loaded.
+	 */
+	public void incrementStatisticAndAward(final Player player, final NormalAchievements category,
+			final int amount) {
 
-		Integer amount = musicDiscHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "musicdiscs");
-		else
-			return amount;
-	}
+		if (isLoadingPlayerStatistics(player)) {
+			runWhenLoaded(player, new Runnable() {
 
-	public Map<String, Integer> getEnderPearlHashMap() {
+				@Override
+				public void run() {
 
-		return enderPearlHashMap;
-	}
-
-	public int getPlayerEnderPearlAmount(Player player) {
+					incrementStatisticAndAward(player, category, amount);
+				}
+			});
+			return;
+		}
+		Achievement achievement = incrementStatistic(player, category, amount);
+		if (achievement != null)
+			awardAchievement(player, achievement);
+	}
+
+	/**
+	 * Increase a player's statistic for a sub-category of a multiple category
+	 * and award the achievements reached, if any. Statistics may still be
+	 * loading if the player has just joined, the increase is then applied once
+	 * they are loaded.
+	 */
+	public void incrementStatisticAndAward(final Player player, final MultipleAchievements category,
+			final String subcategory, final int amount) {
+
+		if (isLoadingPlayerStatistics(player)) {
+			runWhenLoaded(player, new Runnable() {
+
+				@Override
+				public void run() {
+
+					incrementStatisticAndAward(player, category, subcategory, amount);
+				}
+			});
+			return;
+		}
+		Achievement reachedAchievement = incrementStatistic(player, category, subcategory, amount);
+		if (reachedAchievement == null)
+			return;
+		if (amount == 1) {
+			awardAchievement(player, reachedAchievement);
+			return;
+		}
 
-		Integer amount = enderPearlHashMap.get(player.getUniqueId().toString());
-		if (amount == null)
-			return plugin.getDb().getNormalAchievementAmount(player, "enderpearls");
-		else
-			return amount;
+		Thresholds thresholds = plugin.getAchievementIndex().getThresholds(category, subcategory);
+		// Several thresholds may be reached at once, for instance by crafting several items.
+		int maxThreshold = reachedAchievement.getThreshold();
+		for (int i = 0; i < thresholds.size() && thresholds.get(i).getThreshold() <= maxThreshold; ++i) {
+			Achievement achievement = thresholds.get(i);
+			if (!plugin.getDb().hasPlayerAchievement(player, achievement.getName()))
+				awardAchievement(player, achievement);
+		}
 	}
 
-	public Map<String, Integer> getBlockPlaceHashMap() {
+	private void awardAchievement(Player player, Achievement achievement) {
 
-		return blockPlaceHashMap;
+		plugin.getAchievementDisplay().displayAchievement(player, achievement.getPath());
+		plugin.getDb().registerAchievement(player, achievement.getName(), achievement.getMessage());
+		plugin.getReward().giveReward(player, achievement.getReward());
 	}
 
-	public int getPlayerBlockPlaceAmount(Player player, String blockName) {
+	/**
+	 * Set a player's statistic for a normal category.
+	 */
+	public void setStatisticAmount(Player player, NormalAchievements category, int value) {
 
-		// Concatenate player name and block name to put in HashMap.
-		Integer amount = blockPlaceHashMap.get(player.getUniqueId().toString() + blockName);
-		if (amount == null)
-			return plugin.getDb().getPlaces(player, blockName);
-		else
-			return amount;
+		PlayerStatistics statistics = getPlayerStatistics(player);
+		StatisticsJournal journal = plugin.getStatisticsJournal();
+		if (journal == null) {
+			statistics.setStatistic(category, value);
+			return;
+		}
+		synchronized (journal) {
+			journal.recordValue(player.getUniqueId(), category, value);
+			statistics.setStatistic(category, value);
+		}
 	}
 
-	public Map<String, Integer> getBlockBreakHashMap() {
+	/**
+	 * Get a player's played time.
+	 */
+	public long getPlayerPlayedTime(Player player) {
 
-		return blockBreakHashMap;
+		PlayerStatistics statistics = getPlayerStatistics(player);
+		if (!statistics.hasPlayedTime())
+			statistics.updatePlayedTime(plugin.getStatisticsStore().getPlayedTime(statistics.getUUID()));
+		return statistics.getPlayedTime();
 	}
 
-	public int getPlayerBlockBreakAmount(Player player, String blockName) {
+	/**
+	 * Increase a player's played time by the given number of milliseconds. The
+	 * played time is written along with the other dirty statistics.
+	 */
+	public void addPlayedTime(Player player, long amount) {
 
-		// Concatenate player name and block name to put in HashMap.
-		Integer amount = blockBreakHashMap.get(player.getUniqueId().toString() + blockName);
-		if (amount == null)
-			return plugin.getDb().getBreaks(player, blockName);
-		else
-			return amount;
+		// Make sure the current value is known before incrementing it.
+		getPlayerPlayedTime(player);
+		PlayerStatistics statistics = getPlayerStatistics(player);
+		StatisticsJournal journal = plugin.getStatisticsJournal();
+		if (journal == null) {
+			statistics.addPlayedTime(amount);
+			return;
+		}
+		synchronized (journal) {
+			journal.recordPlayedTime(player.getUniqueId(), amount);
+			statistics.addPlayedTime(amount);
+		}
 	}
 
-	public Map<String, Integer> getKillHashMap() {
+	/**
+	 * Get a player's last connection date.
+	 */
+	public String getPlayerConnectionDate(Player player) {
 
-		return killHashMap;
+		PlayerStatistics statistics = playerStatistics.get(player.getUniqueId());
+		if (statistics != null && statistics.isLoaded())
+			return statistics.getConnectionDate();
+		return plugin.getStatisticsStore().getConnectionDate(player.getUniqueId().toString());
 	}
 
-	public int getPlayerKillAmount(Player player, String mobName) {
+	/**
+	 * Update player's number of connections and last connection date and
+	 * return number of connections.
+	 */
+	public int updateAndGetConnection(Player player, String date) {
 
-		// Concatenate player name and mob name to put in HashMap.
-		Integer amount = killHashMap.get(player.getUniqueId().toString() + mobName);
-		if (amount == null)
-			return plugin.getDb().getKills(player, mobName);
-		else
-			return amount;
-	}
+		PlayerStatistics statistics = playerStatistics.get(player.getUniqueId());
+		if (statistics == null || !statistics.isLoaded())
+			return plugin.getStatisticsStore().updateAndGetConnection(player.getUniqueId().toString(), date);
 
-	public Map<String, Integer> getCraftHashMap() {
-
-		return craftHashMap;
+		int connections = statistics.getConnections() + 1;
+		statistics.updateConnections(connections, date);
+		plugin.getStatisticsStore().registerConnection(player.getUniqueId().toString(), connections, date);
+		return connections;
 	}
 
-	public int getPlayerCraftAmount(Player player, String craftName) {
+	/**
+	 * Retrieve the statistics of a player, creating an empty record if none
+	 * exists.
+	 */
+	private PlayerStatistics getPlayerStatistics(Player player) {
 
-		// Concatenate player name and item name to put in HashMap.
-		Integer amount = craftHashMap.get(player.getUniqueId().toString() + craftName);
-		if (amount == null)
-			return plugin.getDb().getCrafts(player, craftName);
-		else
-			return amount;
+		UUID uuid = player.getUniqueId();
+		PlayerStatistics statistics = playerStatistics.get(uuid);
+		if (statistics == null) {
+			statistics = new PlayerStatistics(uuid.toString());
+			PlayerStatistics previous = playerStatistics.putIfAbsent(uuid, statistics);
+			if (previous != null)
+				statistics = previous;
+		}
+		return statistics;
 	}
-
 }
@@ -0,0 +1,46 @@
+package com.hm.achievement.db;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import com.hm.achievement.AdvancedAchievements;
+
+/**
+ * Embedded H2 database stored in the achievements.mv.db file of the plugin's
+ * folder. Unlike SQLite, several connections can write concurrently. H2 runs
+ * in MySQL compatibility mode, so the MySQL syntax is used.
+ */
+public class H2Dialect extends SQLDialect {
+
+	public H2Dialect(AdvancedAchievements plugin) {
+
+		super(plugin);
+	}
+
+	@Override
+	public String getName() {
+
+		return "H2";
+	}
+
+	@Override
+	public Connection createConnection() throws SQLException {
+
+		File dbfile = new File(plugin.getDataFolder(), "achievements");
+		return DriverManager.getConnection("jdbc:h2:" + dbfile.getAbsolutePath() + ";MODE=MySQL");
+	}
+
+	@Override
+	public String getDriverClass() {
+
+		return "org.h2.Driver";
+	}
+
+	@Override
+	public String getDatabaseFile() {
+
+		return "achievements.mv.db";
+	}
+}
@@ -0,0 +1,308 @@
+package com.hm.achievement.db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.hm.achievement.category.MultipleAchievements;
+import com.hm.achievement.category.NormalAchievements;
+import com.hm.achievement.db.PlayerStatistics.DirtyStatistics;
+
+/**
+ * Statistics and achievement store keeping everything in memory, used by tests
+ * and benchmarks to run the statistic and achievement logic without a
+ * database. Statistics are written as totals, as done by a single server, and
+ * all methods are synchronized on the store.
+ */
+public class InMemoryStore implements StatisticsStore, AchievementStore {
+
+	private final Map<String, StoredPlayer> players = new HashMap<String, StoredPlayer>();
+	// Descriptions are shared by all the players who received an achievement.
+	private final Map<String, String> descriptions = new HashMap<String, String>();
+	private final Map<String, Long> journalSegments = new HashMap<String, Long>();
+
+	@Override
+	public synchronized PlayerStatistics loadPlayerStatistics(String uuid) {
+
+		PlayerStatistics statistics = new PlayerStatistics(uuid);
+		StoredPlayer player = players.get(uuid);
+		if (player == null)
+			return statistics;
+		for (Entry<NormalAchievements, Integer> entry : player.normalStatistics.entrySet())
+			statistics.initStatistic(entry.getKey(), entry.getValue());
+		for (Entry<MultipleAchievements, Map<String, Integer>> category : player.multipleStatistics.entrySet())
+			for (Entry<String, Integer> entry : category.getValue().entrySet())
+				statistics.initStatistic(category.getKey(), entry.getKey(), entry.getValue());
+		if (player.playedTime != null)
+			statistics.updatePlayedTime(player.playedTime);
+		if (player.connectionDate != null)
+			statistics.updateConnections(player.connections, player.connectionDate);
+		return statistics;
+	}
+
+	@Override
+	public void writeStatistics(List<DirtyStatistics> dirtyStatistics, WrittenRows writtenRows) {
+
+		writeStatistics(dirtyStatistics, writtenRows, null, 0L);
+	}
+
+	@Override
+	public synchronized void writeStatistics(List<DirtyStatistics> dirtyStatistics, WrittenRows writtenRows,
+			String journal, long segment) {
+
+		for (DirtyStatistics statistics : dirtyStatistics) {
+			StoredPlayer player = getOrCreate(statistics.getUUID());
+			for (NormalAchievements category : NormalAchievements.values()) {
+				if (statistics.hasStatistic(category)) {
+					player.normalStatistics.put(category, statistics.getStatistic(category));
+					writtenRows.add(category.toDBName(), 1, 0L);
+				}
+			}
+			for (MultipleAchievements category : MultipleAchievements.values()) {
+				Map<String, Integer> categoryStatistics = statistics.getStatistics(category);
+				if (categoryStatistics.isEmpty())
+					continue;
+				player.getStatistics(category).putAll(categoryStatistics);
+				writtenRows.add(category.toDBName(), categoryStatistics.size(), 0L);
+			}
+			if (statistics.hasPlayedTime()) {
+				player.playedTime = statistics.getPlayedTime();
+				writtenRows.add("playedtime", 1, 0L);
+			}
+		}
+		if (journal != null)
+			journalSegments.put(journal, segment);
+	}
+
+	@Override
+	public synchronized long getJournalSegment(String journal) {
+
+		Long segment = journalSegments.get(journal);
+		return segment == null ? 0L : segment;
+	}
+
+	@Override
+	public synchronized int getStatistic(String uuid, NormalAchievements category) {
+
+		StoredPlayer player = players.get(uuid);
+		if (player == null || !player.normalStatistics.containsKey(category))
+			return 0;
+		return player.normalStatistics.get(category);
+	}
+
+	@Override
+	public synchronized int getStatistic(String uuid, MultipleAchievements category, String subcategory) {
+
+		StoredPlayer player = players.get(uuid);
+		if (player == null || !player.multipleStatistics.containsKey(category))
+			return 0;
+		Integer amount = player.multipleStatistics.get(category).get(subcategory);
+		return amount == null ? 0 : amount;
+	}
+
+	@Override
+	public synchronized long getPlayedTime(String uuid) {
+
+		StoredPlayer player = players.get(uuid);
+		return player == null || player.playedTime == null ? 0L : player.playedTime;
+	}
+
+	@Override
+	public synchronized int getConnections(String uuid) {
+
+		StoredPlayer player = players.get(uuid);
+		return player == null ? 0 : player.connections;
+	}
+
+	@Override
+	public synchronized String getConnectionDate(String uuid) {
+
+		StoredPlayer player = players.get(uuid);
+		return player == null ? null : player.connectionDate;
+	}
+
+	@Override
+	public synchronized int updateAndGetConnection(String uuid, String date) {
+
+		StoredPlayer player = getOrCreate(uuid);
+		++player.connections;
+		player.connectionDate = date;
+		return player.connections;
+	}
+
+	@Override
+	public synchronized void registerConnection(String uuid, int connections, String date) {
+
+		StoredPlayer player = getOrCreate(uuid);
+		player.connections = connections;
+		player.connectionDate = date;
+	}
+
+	@Override
+	public synchronized void writeAchievements(List<AchievementRecord> achievements) {
+
+		for (AchievementRecord achievement : achievements) {
+			getOrCreate(achievement.getUUID()).achievements.put(achievement.getName(), achievement.getDate());
+			descriptions.put(achievement.getName(), achievement.getDescription());
+		}
+	}
+
+	@Override
+	public synchronized boolean deletePlayerAchievement(String uuid, String name) {
+
+		StoredPlayer player = players.get(uuid);
+		return player != null && player.achievements.remove(name) != null;
+	}
+
+	@Override
+	public synchronized boolean hasPlayerAchievement(String uuid, String name) {
+
+		return getPlayerAchievementDate(uuid, name) != null;
+	}
+
+	@Override
+	public synchronized Set<String> getPlayerAchievementNames(String uuid) {
+
+		StoredPlayer player = players.get(uuid);
+		if (player == null)
+			return new HashSet<String>();
+		return new HashSet<String>(player.achievements.keySet());
+	}
+
+	@Override
+	public synchronized ArrayList<String> getPlayerAchievementsList(String uuid) {
+
+		ArrayList<String> achievementsList = new ArrayList<String>();
+		StoredPlayer player = players.get(uuid);
+		if (player == null)
+			return achievementsList;
+		for (Entry<String, String> achievement : player.achievements.entrySet()) {
+			achievementsList.add(achievement.getKey());
+			achievementsList.add(descriptions.get(achievement.getKey()));
+			achievementsList.add(achievement.getValue());
+		}
+		return achievementsList;
+	}
+
+	@Override
+	public synchronized String getPlayerAchievementDate(String uuid, String name) {
+
+		StoredPlayer player = players.get(uuid);
+		return player == null ? null : player.achievements.get(name);
+	}
+
+	@Override
+	public synchronized int getPlayerAchievementsAmount(String uuid) {
+
+		StoredPlayer player = players.get(uuid);
+		return player == null ? 0 : player.achievements.size();
+	}
+
+	@Override
+	public synchronized Map<String, Integer> getPlayersAchievementsAmounts() {
+
+		Map<String, Integer> amounts = new HashMap<String, Integer>();
+		for (Entry<String, StoredPlayer> player : players.entrySet())
+			if (!player.getValue().achievements.isEmpty())
+				amounts.put(player.getKey(), player.getValue().achievements.size());
+		return amounts;
+	}
+
+	@Override
+	public synchronized Map<String, Integer> getPlayersAchievementsAmounts(Collection<String> uuids) {
+
+		Map<String, Integer> amounts = new HashMap<String, Integer>();
+		for (String uuid : uuids)
+			amounts.put(uuid, getPlayerAchievementsAmount(uuid));
+		return amounts;
+	}
+
+	@Override
+	public synchronized int getPlayerRank(String uuid) {
+
+		int achievementsAmount = getPlayerAchievementsAmount(uuid);
+		int rank = 1;
+		for (StoredPlayer player : players.values())
+			if (player.achievements.size() > achievementsAmount)
+				++rank;
+		return rank;
+	}
+
+	@Override
+	public synchronized ArrayList<String> getTopList(int listLength) {
+
+		List<Entry<String, Integer>> amounts = new ArrayList<Entry<String, Integer>>(
+				getPlayersAchievementsAmounts().entrySet());
+		Collections.sort(amounts, new Comparator<Entry<String, Integer>>() {
+
+			@Override
+			public int compare(Entry<String, Integer> first, Entry<String, Integer> second) {
+
+				return second.getValue().compareTo(first.getValue());
+			}
+		});
+		ArrayList<String> topList = new ArrayList<String>();
+		for (Entry<String, Integer> amount : amounts.subList(0, Math.min(listLength, amounts.size()))) {
+			topList.add(amount.getKey());
+			topList.add(Integer.toString(amount.getValue()));
+		}
+		return topList;
+	}
+
+	@Override
+	public synchronized int getTotalPlayers() {
+
+		return getPlayersAchievementsAmounts().size();
+	}
+
+	private StoredPlayer getOrCreate(String uuid) {
+
+		StoredPlayer player = players.get(uuid);
+		if (player == null) {
+			player = new StoredPlayer();
+			players.put(uuid, player);
+		}
+		return player;
+	}
+
+	/**
+	 * Statistics and achievements of a player, as they would be stored in the
+	 * database tables.
+	 */
+	private static class StoredPlayer {
+
+		private final Map<NormalAchievements, Integer> normalStatistics;
+		private final Map<MultipleAchievements, Map<String, Integer>> multipleStatistics;
+		private Long playedTime;
+		private int connections;
+		private String connectionDate;
+		// Achievement names and dates of reception, in order of reception.
+		private final Map<String, String> achievements;
+
+		private StoredPlayer() {
+
+			normalStatistics = new EnumMap<NormalAchievements, Integer>(NormalAchievements.class);
+			multipleStatistics = new EnumMap<MultipleAchievements, Map<String, Integer>>(MultipleAchievements.class);
+			achievements = new LinkedHashMap<String, String>();
+		}
+
+		private Map<String, Integer> getStatistics(MultipleAchievements category) {
+
+			Map<String, Integer> categoryStatistics = multipleStatistics.get(category);
+			if (categoryStatistics == null) {
+				categoryStatistics = new HashMap<String, Integer>();
+				multipleStatistics.put(category, categoryStatistics);
+			}
+			return categoryStatistics;
+		}
+	}
+}
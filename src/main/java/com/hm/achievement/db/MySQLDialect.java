@@ -0,0 +1,39 @@
+package com.hm.achievement.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import com.hm.achievement.AdvancedAchievements;
+
+/**
+ * MySQL database configured in the MYSQL section of the configuration file.
+ * The JDBC driver is provided by the server.
+ */
+public class MySQLDialect extends SQLDialect {
+
+	private final String mysqlDatabase;
+	private final String mysqlUser;
+	private final String mysqlPassword;
+
+	public MySQLDialect(AdvancedAchievements plugin) {
+
+		super(plugin);
+		mysqlDatabase = plugin.getPluginConfig().getString("MYSQL.Database", "jdbc:mysql://localhost:3306/minecraft");
+		mysqlUser = plugin.getPluginConfig().getString("MYSQL.User", "root");
+		mysqlPassword = plugin.getPluginConfig().getString("MYSQL.Password", "root");
+	}
+
+	@Override
+	public String getName() {
+
+		return "MySQL";
+	}
+
+	@Override
+	public Connection createConnection() throws SQLException {
+
+		return DriverManager
+				.getConnection(mysqlDatabase + "?autoReconnect=true&user=" + mysqlUser + "&password=" + mysqlPassword);
+	}
+}
@@ -0,0 +1,604 @@
+package com.hm.achievement.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.hm.achievement.AchievementIndex;
+import com.hm.achievement.AchievementIndex.Achievement;
+import com.hm.achievement.AchievementIndex.Thresholds;
+import com.hm.achievement.category.MultipleAchievements;
+import com.hm.achievement.category.NormalAchievements;
+
+/**
+ * Statistics of a single player. Normal statistics are stored as primitive
+ * counters indexed by category ordinal, multiple statistics in a map per
+ * category keyed by sub-category. Changed statistics are flagged as dirty until
+ * they are taken by a pooled requests sender, so incrementing a statistic does
+ * not allocate any objects once its sub-category is known.
+ *
+ * Statistics are complete once loaded from the database; until then, or if
+ * loading failed, only the statistics individually retrieved from the
+ * database are known. The next achievement threshold of each statistic is
+ * cached, so that incrementing a statistic only requires a comparison unless
+ * a threshold is reached.
+ *
+ * The value of each statistic last read from or written to the database is
+ * kept alongside its local value, so that the increase since then can be
+ * written instead of the total when several servers share the database.
+ * Values read from the database are merged by adding their increase since the
+ * previous read or write to the local value, which keeps the local changes not
+ * yet written. Played time is handled in the same way, as a counter of
+ * milliseconds. All methods are synchronized, as statistics are written to
+ * the database by an asynchronous task.
+ */
+public class PlayerStatistics {
+
+	private static final int NORMAL_CATEGORIES = NormalAchievements.values().length;
+
+	private final String uuid;
+	private final int[] normalStatistics;
+	// Values of normal statistics known to be in the database.
+	private final int[] writtenNormalStatistics;
+	// Bit masks indexed by NormalAchievements ordinals.
+	private long knownNormalStatistics;
+	private long dirtyNormalStatistics;
+	// Zero if unknown, Integer.MAX_VALUE if no threshold is left.
+	private final int[] nextNormalThresholds;
+	// Index from which the next thresholds were retrieved.
+	private AchievementIndex thresholdsIndex;
+	private final Map<MultipleAchievements, Map<String, SubcategoryStatistic>> multipleStatistics;
+	// Number of dirty sub-categories.
+	private int dirtyMultipleStatistics;
+	// Time at which the first statistic was flagged as dirty since the previous
+	// write.
+	private long dirtySince;
+	private int connections;
+	private String connectionDate;
+	private long playedTime;
+	// Played time known to be in the database.
+	private long writtenPlayedTime;
+	private boolean knownPlayedTime;
+	private boolean dirtyPlayedTime;
+
+	private boolean loaded;
+	private boolean loading;
+	// Set once the player has disconnected; the statistics are discarded once
+	// all dirty statistics have been written.
+	private boolean evicted;
+	// Events received while loading, only accessed on the main server thread.
+	private List<Runnable> pendingEvents;
+
+	public PlayerStatistics(String uuid) {
+
+		this.uuid = uuid;
+		normalStatistics = new int[NORMAL_CATEGORIES];
+		writtenNormalStatistics = new int[NORMAL_CATEGORIES];
+		nextNormalThresholds = new int[NORMAL_CATEGORIES];
+		multipleStatistics = new EnumMap<MultipleAchievements, Map<String, SubcategoryStatistic>>(
+				MultipleAchievements.class);
+		for (MultipleAchievements category : MultipleAchievements.values())
+			multipleStatistics.put(category, new HashMap<String, SubcategoryStatistic>());
+		pendingEvents = new ArrayList<Runnable>();
+	}
+
+	public String getUUID() {
+
+		return uuid;
+	}
+
+	/**
+	 * Check whether a normal statistic can be read without querying the
+	 * database.
+	 */
+	public synchronized boolean hasStatistic(NormalAchievements category) {
+
+		return loaded || (knownNormalStatistics & 1L << category.ordinal()) != 0;
+	}
+
+	/**
+	 * Check whether a multiple statistic can be read without querying the
+	 * database.
+	 */
+	public synchronized boolean hasStatistic(MultipleAchievements category, String subcategory) {
+
+		return loaded || multipleStatistics.get(category).containsKey(subcategory);
+	}
+
+	public synchronized int getStatistic(NormalAchievements category) {
+
+		return normalStatistics[category.ordinal()];
+	}
+
+	public synchronized int getStatistic(MultipleAchievements category, String subcategory) {
+
+		SubcategoryStatistic statistic = multipleStatistics.get(category).get(subcategory);
+		return statistic == null ? 0 : statistic.value;
+	}
+
+	/**
+	 * Merge a normal statistic retrieved from the database. Values older than
+	 * the last known database value are ignored.
+	 */
+	public synchronized void initStatistic(NormalAchievements category, int value) {
+
+		int index = category.ordinal();
+		knownNormalStatistics |= 1L << index;
+		if (value > writtenNormalStatistics[index]) {
+			normalStatistics[index] += value - writtenNormalStatistics[index];
+			writtenNormalStatistics[index] = value;
+		}
+	}
+
+	/**
+	 * Merge a multiple statistic retrieved from the database. Values older than
+	 * the last known database value are ignored.
+	 */
+	public synchronized void initStatistic(MultipleAchievements category, String subcategory, int value) {
+
+		SubcategoryStatistic statistic = getOrCreate(category, subcategory);
+		if (value > statistic.written) {
+			statistic.value += value - statistic.written;
+			statistic.written = value;
+		}
+	}
+
+	/**
+	 * Increase a normal statistic, flag it as dirty and return the achievement
+	 * with the largest threshold reached by the increase, or null if none was
+	 * reached.
+	 */
+	public synchronized Achievement incrementStatistic(NormalAchievements category, int amount,
+			AchievementIndex achievementIndex) {
+
+		checkThresholdsIndex(achievementIndex);
+		int index = category.ordinal();
+		int value = normalStatistics[index] + amount;
+		normalStatistics[index] = value;
+		markNormalStatisticDirty(index);
+		if (value < nextNormalThresholds[index])
+			return null;
+
+		Thresholds thresholds = achievementIndex.getThresholds(category);
+		nextNormalThresholds[index] = thresholds.getNextThreshold(value);
+		return thresholds.getReachedAchievement(value - amount, value);
+	}
+
+	/**
+	 * Increase a multiple statistic, flag it as dirty and return the
+	 * achievement with the largest threshold reached by the increase, or null
+	 * if none was reached.
+	 */
+	public synchronized Achievement incrementStatistic(MultipleAchievements category, String subcategory, int amount,
+			AchievementIndex achievementIndex) {
+
+		checkThresholdsIndex(achievementIndex);
+		SubcategoryStatistic statistic = getOrCreate(category, subcategory);
+		int value = statistic.value + amount;
+		statistic.value = value;
+		markMultipleStatisticDirty(statistic);
+		if (value < statistic.nextThreshold)
+			return null;
+
+		Thresholds thresholds = achievementIndex.getThresholds(category, subcategory);
+		statistic.nextThreshold = thresholds.getNextThreshold(value);
+		return thresholds.getReachedAchievement(value - amount, value);
+	}
+
+	/**
+	 * Set a normal statistic and flag it as dirty.
+	 */
+	public synchronized void setStatistic(NormalAchievements category, int value) {
+
+		int index = category.ordinal();
+		normalStatistics[index] = value;
+		markNormalStatisticDirty(index);
+	}
+
+	private void markNormalStatisticDirty(int index) {
+
+		if (!isDirty())
+			dirtySince = System.currentTimeMillis();
+		dirtyNormalStatistics |= 1L << index;
+	}
+
+	private void markMultipleStatisticDirty(SubcategoryStatistic statistic) {
+
+		if (statistic.dirty)
+			return;
+		if (!isDirty())
+			dirtySince = System.currentTimeMillis();
+		statistic.dirty = true;
+		++dirtyMultipleStatistics;
+	}
+
+	public synchronized int getConnections() {
+
+		return connections;
+	}
+
+	public synchronized String getConnectionDate() {
+
+		return connectionDate;
+	}
+
+	public synchronized void updateConnections(int connections, String connectionDate) {
+
+		if (connections >= this.connections) {
+			this.connections = connections;
+			this.connectionDate = connectionDate;
+		}
+	}
+
+	/**
+	 * Check whether the played time can be read without querying the database.
+	 */
+	public synchronized boolean hasPlayedTime() {
+
+		return loaded || knownPlayedTime;
+	}
+
+	public synchronized long getPlayedTime() {
+
+		return playedTime;
+	}
+
+	/**
+	 * Merge the played time retrieved from the database. Values older than the
+	 * last known database value are ignored.
+	 */
+	public synchronized void updatePlayedTime(long playedTime) {
+
+		knownPlayedTime = true;
+		if (playedTime > writtenPlayedTime) {
+			this.playedTime += playedTime - writtenPlayedTime;
+			writtenPlayedTime = playedTime;
+		}
+	}
+
+	/**
+	 * Increase the played time and flag it as dirty.
+	 */
+	public synchronized void addPlayedTime(long amount) {
+
+		playedTime += amount;
+		markPlayedTimeDirty();
+	}
+
+	private void markPlayedTimeDirty() {
+
+		if (!isDirty())
+			dirtySince = System.currentTimeMillis();
+		dirtyPlayedTime = true;
+	}
+
+	/**
+	 * Merge statistics loaded from the database into this object.
+	 */
+	public synchronized void merge(PlayerStatistics loadedStatistics) {
+
+		synchronized (loadedStatistics) {
+			for (NormalAchievements category : NormalAchievements.values())
+				initStatistic(category, loadedStatistics.normalStatistics[category.ordinal()]);
+			for (Entry<MultipleAchievements, Map<String, SubcategoryStatistic>> category : loadedStatistics.multipleStatistics
+					.entrySet())
+				for (Entry<String, SubcategoryStatistic> entry : category.getValue().entrySet())
+					initStatistic(category.getKey(), entry.getKey(), entry.getValue().value);
+			updateConnections(loadedStatistics.connections, loadedStatistics.connectionDate);
+			updatePlayedTime(loadedStatistics.playedTime);
+		}
+	}
+
+	/**
+	 * Take the statistics changed since the previous call and clear their
+	 * dirty flags. Returns null if no statistics have changed.
+	 */
+	public synchronized DirtyStatistics takeDirtyStatistics() {
+
+		if (!isDirty())
+			return null;
+
+		DirtyStatistics dirtyStatistics = new DirtyStatistics(this, dirtyNormalStatistics);
+		for (int i = 0; i < NORMAL_CATEGORIES; ++i) {
+			if ((dirtyNormalStatistics & 1L << i) != 0) {
+				dirtyStatistics.normalStatistics[i] = normalStatistics[i];
+				dirtyStatistics.normalIncreases[i] = normalStatistics[i] - writtenNormalStatistics[i];
+				writtenNormalStatistics[i] = normalStatistics[i];
+			}
+		}
+		dirtyNormalStatistics = 0L;
+
+		if (dirtyMultipleStatistics > 0) {
+			for (Entry<MultipleAchievements, Map<String, SubcategoryStatistic>> category : multipleStatistics
+					.entrySet()) {
+				for (Entry<String, SubcategoryStatistic> entry : category.getValue().entrySet()) {
+					SubcategoryStatistic statistic = entry.getValue();
+					if (statistic.dirty) {
+						dirtyStatistics.addMultipleStatistic(category.getKey(), entry.getKey(), statistic.value,
+								statistic.value - statistic.written);
+						statistic.written = statistic.value;
+						statistic.dirty = false;
+					}
+				}
+			}
+			dirtyMultipleStatistics = 0;
+		}
+
+		if (dirtyPlayedTime) {
+			dirtyStatistics.setPlayedTime(playedTime, playedTime - writtenPlayedTime);
+			writtenPlayedTime = playedTime;
+			dirtyPlayedTime = false;
+		}
+		return dirtyStatistics;
+	}
+
+	/**
+	 * Flag statistics as dirty again after they could not be written. Their
+	 * current values, or their increases since the last successful write, will
+	 * be written next time.
+	 */
+	synchronized void restoreDirtyStatistics(DirtyStatistics dirtyStatistics) {
+
+		for (int i = 0; i < NORMAL_CATEGORIES; ++i) {
+			if ((dirtyStatistics.normalMask & 1L << i) != 0) {
+				writtenNormalStatistics[i] -= dirtyStatistics.normalIncreases[i];
+				markNormalStatisticDirty(i);
+			}
+		}
+		for (Entry<MultipleAchievements, Map<String, Integer>> category : dirtyStatistics.multipleIncreases
+				.entrySet()) {
+			for (Entry<String, Integer> increase : category.getValue().entrySet()) {
+				SubcategoryStatistic statistic = getOrCreate(category.getKey(), increase.getKey());
+				statistic.written -= increase.getValue();
+				markMultipleStatisticDirty(statistic);
+			}
+		}
+		if (dirtyStatistics.playedTimeDirty) {
+			writtenPlayedTime -= dirtyStatistics.playedTimeIncrease;
+			markPlayedTimeDirty();
+		}
+	}
+
+	public synchronized boolean isDirty() {
+
+		return dirtyNormalStatistics != 0L || dirtyMultipleStatistics > 0 || dirtyPlayedTime;
+	}
+
+	/**
+	 * Return the number of dirty statistics.
+	 */
+	public synchronized int getDirtyCount() {
+
+		return Long.bitCount(dirtyNormalStatistics) + dirtyMultipleStatistics + (dirtyPlayedTime ? 1 : 0);
+	}
+
+	/**
+	 * Return the time at which the oldest dirty statistic was changed, or zero
+	 * if no statistics are dirty.
+	 */
+	public synchronized long getDirtySince() {
+
+		return isDirty() ? dirtySince : 0L;
+	}
+
+	public synchronized boolean isLoaded() {
+
+		return loaded;
+	}
+
+	public synchronized boolean isLoading() {
+
+		return loading;
+	}
+
+	public synchronized boolean isEvicted() {
+
+		return evicted;
+	}
+
+	synchronized void setEvicted(boolean evicted) {
+
+		this.evicted = evicted;
+	}
+
+	/**
+	 * Mark statistics as being loaded. Must be called on the main server
+	 * thread.
+	 */
+	void startLoading() {
+
+		synchronized (this) {
+			loaded = false;
+			loading = true;
+		}
+	}
+
+	/**
+	 * Mark statistics as loaded, or as not loaded if an error occurred, and
+	 * return the events received in the meantime. Must be called on the main
+	 * server thread.
+	 */
+	List<Runnable> completeLoading(boolean success) {
+
+		synchronized (this) {
+			loaded = success;
+			loading = false;
+		}
+		List<Runnable> events = pendingEvents;
+		pendingEvents = new ArrayList<Runnable>();
+		return events;
+	}
+
+	/**
+	 * Queue an event received while loading. Must be called on the main server
+	 * thread.
+	 */
+	void addPendingEvent(Runnable event) {
+
+		pendingEvents.add(event);
+	}
+
+	/**
+	 * Forget the cached next thresholds if the configuration has been reloaded
+	 * since they were retrieved.
+	 */
+	private void checkThresholdsIndex(AchievementIndex achievementIndex) {
+
+		if (achievementIndex == thresholdsIndex)
+			return;
+		Arrays.fill(nextNormalThresholds, 0);
+		for (Map<String, SubcategoryStatistic> categoryStatistics : multipleStatistics.values())
+			for (SubcategoryStatistic statistic : categoryStatistics.values())
+				statistic.nextThreshold = 0;
+		thresholdsIndex = achievementIndex;
+	}
+
+	private SubcategoryStatistic getOrCreate(MultipleAchievements category, String subcategory) {
+
+		Map<String, SubcategoryStatistic> categoryStatistics = multipleStatistics.get(category);
+		SubcategoryStatistic statistic = categoryStatistics.get(subcategory);
+		if (statistic == null) {
+			statistic = new SubcategoryStatistic();
+			categoryStatistics.put(subcategory, statistic);
+		}
+		return statistic;
+	}
+
+	/**
+	 * Mutable statistic of a block, entity or item.
+	 */
+	private static class SubcategoryStatistic {
+
+		private int value;
+		// Value known to be in the database.
+		private int written;
+		private int nextThreshold;
+		private boolean dirty;
+	}
+
+	/**
+	 * Snapshot of the statistics of a player that must be written to the
+	 * database.
+	 */
+	public static class DirtyStatistics {
+
+		private final PlayerStatistics playerStatistics;
+		private final long normalMask;
+		private final int[] normalStatistics;
+		// Increases since the previous write.
+		private final int[] normalIncreases;
+		private final Map<MultipleAchievements, Map<String, Integer>> multipleStatistics;
+		private final Map<MultipleAchievements, Map<String, Integer>> multipleIncreases;
+		private boolean playedTimeDirty;
+		private long playedTime;
+		private long playedTimeIncrease;
+
+		private DirtyStatistics(PlayerStatistics playerStatistics, long normalMask) {
+
+			this.playerStatistics = playerStatistics;
+			this.normalMask = normalMask;
+			normalStatistics = new int[NORMAL_CATEGORIES];
+			normalIncreases = new int[NORMAL_CATEGORIES];
+			multipleStatistics = new EnumMap<MultipleAchievements, Map<String, Integer>>(MultipleAchievements.class);
+			multipleIncreases = new EnumMap<MultipleAchievements, Map<String, Integer>>(MultipleAchievements.class);
+		}
+
+		private void addMultipleStatistic(MultipleAchievements category, String subcategory, int value,
+				int increase) {
+
+			Map<String, Integer> categoryStatistics = multipleStatistics.get(category);
+			Map<String, Integer> categoryIncreases = multipleIncreases.get(category);
+			if (categoryStatistics == null) {
+				categoryStatistics = new HashMap<String, Integer>();
+				multipleStatistics.put(category, categoryStatistics);
+				categoryIncreases = new HashMap<String, Integer>();
+				multipleIncreases.put(category, categoryIncreases);
+			}
+			categoryStatistics.put(subcategory, value);
+			categoryIncreases.put(subcategory, increase);
+		}
+
+		private void setPlayedTime(long playedTime, long increase) {
+
+			playedTimeDirty = true;
+			this.playedTime = playedTime;
+			playedTimeIncrease = increase;
+		}
+
+		public String getUUID() {
+
+			return playerStatistics.uuid;
+		}
+
+		public boolean hasPlayedTime() {
+
+			return playedTimeDirty;
+		}
+
+		public long getPlayedTime() {
+
+			return playedTime;
+		}
+
+		/**
+		 * Return the increase of the played time since the previous write.
+		 */
+		public long getPlayedTimeIncrease() {
+
+			return playedTimeIncrease;
+		}
+
+		public boolean hasStatistic(NormalAchievements category) {
+
+			return (normalMask & 1L << category.ordinal()) != 0;
+		}
+
+		public int getStatistic(NormalAchievements category) {
+
+			return normalStatistics[category.ordinal()];
+		}
+
+		/**
+		 * Return the increase of a normal statistic since the previous write.
+		 */
+		public int getIncrease(NormalAchievements category) {
+
+			return normalIncreases[category.ordinal()];
+		}
+
+		/**
+		 * Return the dirty sub-categories of a category and their values.
+		 */
+		public Map<String, Integer> getStatistics(MultipleAchievements category) {
+
+			Map<String, Integer> categoryStatistics = multipleStatistics.get(category);
+			if (categoryStatistics == null)
+				return new HashMap<String, Integer>();
+			return categoryStatistics;
+		}
+
+		/**
+		 * Return the dirty sub-categories of a category and the increases of
+		 * their values since the previous write.
+		 */
+		public Map<String, Integer> getIncreases(MultipleAchievements category) {
+
+			Map<String, Integer> categoryIncreases = multipleIncreases.get(category);
+			if (categoryIncreases == null)
+				return new HashMap<String, Integer>();
+			return categoryIncreases;
+		}
+
+		/**
+		 * Flag the statistics as dirty again after they could not be written.
+		 */
+		public void restore() {
+
+			playerStatistics.restoreDirtyStatistics(this);
+		}
+	}
+}
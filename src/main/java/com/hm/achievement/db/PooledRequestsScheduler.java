@@ -0,0 +1,205 @@
+package com.hm.achievement.db;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.hm.achievement.AdvancedAchievements;
+
+/**
+ * Decides when the asynchronous pooled requests sender writes the dirty
+ * statistics, instead of running it at a fixed interval. The dirty statistics
+ * are checked every second and written as soon as their number reaches the
+ * configured watermark or the oldest of them has been waiting for
+ * PooledRequestsTaskInterval seconds, whichever comes first.
+ *
+ * The time taken by each write is measured, and writes are spaced out when
+ * the database becomes slow or fails, up to the maximum age. Runs of the
+ * check task that start while a write is still in progress return straight
+ * away, so that two writes never overlap.
+ */
+public class PooledRequestsScheduler implements Runnable {
+
+	// Interval at which dirty statistics are checked.
+	public static final long CHECK_INTERVAL_TICKS = 20L;
+	// Writes are spaced out so that the database spends at most about a fifth
+	// of the time writing statistics.
+	private static final long LATENCY_BACKOFF_FACTOR = 4L;
+	// Weight of the latest write in the average latency.
+	private static final double LATENCY_SMOOTHING = 0.2;
+
+	private AdvancedAchievements plugin;
+	private final PooledRequestsSenderAsync sender;
+	private final int watermark;
+	private final long maxAgeMillis;
+	private final AtomicBoolean flushing;
+
+	// Written by the thread holding the flushing flag.
+	private long lastFlushEnd;
+	private volatile long backoffMillis;
+	private int consecutiveFailures;
+
+	// Metrics, written by the thread holding the flushing flag.
+	private volatile long flushCount;
+	private volatile long watermarkFlushCount;
+	private volatile long failedFlushCount;
+	private volatile double averageLatencyMillis;
+	private volatile long lastLatencyMillis;
+	private volatile long lastLagMillis;
+	private volatile long maxLagMillis;
+	private volatile int lastDirtyCount;
+	private volatile long currentLagMillis;
+
+	public PooledRequestsScheduler(AdvancedAchievements plugin, PooledRequestsSenderAsync sender) {
+
+		this.plugin = plugin;
+		this.sender = sender;
+		watermark = Math.max(1, plugin.getPluginConfig().getInt("PooledRequestsWatermark", 1000));
+		maxAgeMillis = Math.max(1, plugin.getPluginConfig().getInt("PooledRequestsTaskInterval", 60)) * 1000L;
+		flushing = new AtomicBoolean();
+	}
+
+	@Override
+	public void run() {
+
+		if (!flushing.compareAndSet(false, true))
+			return;
+		try {
+			DatabasePoolsManager pools = plugin.getPoolsManager();
+			int dirtyCount = 0;
+			long oldestDirtyTime = Long.MAX_VALUE;
+			boolean discardable = false;
+			for (PlayerStatistics statistics : pools.getAllPlayerStatistics()) {
+				long dirtySince = statistics.getDirtySince();
+				if (dirtySince != 0L) {
+					dirtyCount += statistics.getDirtyCount();
+					oldestDirtyTime = Math.min(oldestDirtyTime, dirtySince);
+				} else if (statistics.isEvicted()) {
+					discardable = true;
+				}
+			}
+			long now = System.currentTimeMillis();
+			long lag = dirtyCount == 0 ? 0L : now - oldestDirtyTime;
+			lastDirtyCount = dirtyCount;
+			currentLagMillis = lag;
+			boolean watermarkReached = dirtyCount >= watermark;
+			if ((!watermarkReached && lag < maxAgeMillis) || now - lastFlushEnd < backoffMillis) {
+				// Statistics of disconnected players are no longer needed once
+				// written, even if no write is due.
+				if (discardable)
+					pools.removeWrittenPlayerStatistics();
+				return;
+			}
+
+			long startTime = System.nanoTime();
+			boolean success = sender.sendRequests();
+			long latency = (System.nanoTime() - startTime) / 1000000L;
+			lastFlushEnd = System.currentTimeMillis();
+			recordFlush(success, latency, lag, watermarkReached);
+		} finally {
+			flushing.set(false);
+		}
+	}
+
+	private void recordFlush(boolean success, long latency, long lag, boolean watermarkReached) {
+
+		++flushCount;
+		if (watermarkReached)
+			++watermarkFlushCount;
+		lastLatencyMillis = latency;
+		averageLatencyMillis = flushCount == 1 ? latency
+				: averageLatencyMillis + LATENCY_SMOOTHING * (latency - averageLatencyMillis);
+		lastLagMillis = lag;
+		maxLagMillis = Math.max(maxLagMillis, lag);
+
+		if (success) {
+			consecutiveFailures = 0;
+			backoffMillis = (long) (averageLatencyMillis * LATENCY_BACKOFF_FACTOR);
+		} else {
+			++failedFlushCount;
+			++consecutiveFailures;
+			// Wait for 1, 2, 4... check intervals before trying again.
+			backoffMillis = CHECK_INTERVAL_TICKS * 50L << Math.min(consecutiveFailures - 1, 16);
+		}
+		backoffMillis = Math.min(backoffMillis, maxAgeMillis);
+	}
+
+	/**
+	 * Return the number of writes, including the failed ones.
+	 */
+	public long getFlushCount() {
+
+		return flushCount;
+	}
+
+	/**
+	 * Return the number of writes triggered by the dirty statistics watermark
+	 * rather than by their age.
+	 */
+	public long getWatermarkFlushCount() {
+
+		return watermarkFlushCount;
+	}
+
+	public long getFailedFlushCount() {
+
+		return failedFlushCount;
+	}
+
+	public long getLastLatencyMillis() {
+
+		return lastLatencyMillis;
+	}
+
+	public long getAverageLatencyMillis() {
+
+		return Math.round(averageLatencyMillis);
+	}
+
+	/**
+	 * Return the time the oldest statistic written by the last write had been
+	 * waiting for.
+	 */
+	public long getLastLagMillis() {
+
+		return lastLagMillis;
+	}
+
+	public long getMaxLagMillis() {
+
+		return maxLagMillis;
+	}
+
+	/**
+	 * Return the number of dirty statistics found by the last check.
+	 */
+	public int getDirtyCount() {
+
+		return lastDirtyCount;
+	}
+
+	/**
+	 * Return the time the oldest dirty statistic found by the last check had
+	 * been waiting for.
+	 */
+	public long getCurrentLagMillis() {
+
+		return currentLagMillis;
+	}
+
+	/**
+	 * Return the current minimum time between two writes.
+	 */
+	public long getBackoffMillis() {
+
+		return backoffMillis;
+	}
+
+	/**
+	 * Return a summary of the metrics, logged when the plugin is disabled.
+	 */
+	public String getStatistics() {
+
+		return "Pooled requests: " + flushCount + " writes (" + watermarkFlushCount + " reaching the watermark, "
+				+ failedFlushCount + " failed), average latency " + getAverageLatencyMillis() + "ms, maximum lag "
+				+ maxLagMillis + "ms.";
+	}
+}
@@ -0,0 +1,393 @@
+package com.hm.achievement.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of JDBC connections. Connections are checked out for a single
+ * use with getConnection() and returned to the pool by calling close() on the
+ * returned object, which wraps the physical connection. Idle connections are
+ * validated when borrowed if they have not been used recently.
+ */
+public class SQLConnectionPool {
+
+	// Idle connections used more recently than this are not validated again.
+	private static final long VALIDATION_BYPASS_MILLIS = 1000L;
+	// Connections above the minimum size are closed after being idle this long.
+	private static final long IDLE_TIMEOUT_MILLIS = 60000L;
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+	private final String name;
+	private final SQLDialect dialect;
+	private final int minSize;
+	private final int maxSize;
+	private final long borrowTimeoutMillis;
+
+	// One permit per connection that can be lent out.
+	private final Semaphore permits;
+	// Most recently returned connections are at the head of the deque.
+	private final LinkedBlockingDeque<PooledConnection> idleConnections;
+	private final AtomicInteger openConnections;
+	private final AtomicInteger activeConnections;
+	private volatile boolean closed;
+
+	// Metrics.
+	private final AtomicLong borrowCount;
+	private final AtomicLong totalWaitNanos;
+	private final AtomicLong maxWaitNanos;
+	private final AtomicLong timeoutCount;
+
+	public SQLConnectionPool(String name, SQLDialect dialect, int minSize, int maxSize, long borrowTimeoutMillis) {
+
+		this.name = name;
+		this.dialect = dialect;
+		this.maxSize = Math.max(1, maxSize);
+		this.minSize = Math.max(0, Math.min(minSize, this.maxSize));
+		this.borrowTimeoutMillis = borrowTimeoutMillis;
+		permits = new Semaphore(this.maxSize, true);
+		idleConnections = new LinkedBlockingDeque<PooledConnection>();
+		openConnections = new AtomicInteger();
+		activeConnections = new AtomicInteger();
+		borrowCount = new AtomicLong();
+		totalWaitNanos = new AtomicLong();
+		maxWaitNanos = new AtomicLong();
+		timeoutCount = new AtomicLong();
+	}
+
+	/**
+	 * Open the minimum number of connections of the pool.
+	 */
+	public void fill() throws SQLException {
+
+		while (openConnections.get() < minSize)
+			idleConnections.offerLast(openConnection());
+	}
+
+	/**
+	 * Borrow a connection from the pool, waiting if all connections are in use.
+	 * The connection must be closed once finished with, which returns it to the
+	 * pool.
+	 */
+	public Connection getConnection() throws SQLException {
+
+		if (closed)
+			throw new SQLException("The " + name + " connection pool is closed.");
+
+		long startTime = System.nanoTime();
+		try {
+			if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				timeoutCount.incrementAndGet();
+				throw new SQLException("Timed out after " + borrowTimeoutMillis + "ms while waiting for a "
+						+ name + " connection (" + activeConnections.get() + " active).");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a " + name + " connection.");
+		}
+		recordWait(System.nanoTime() - startTime);
+
+		try {
+			PooledConnection pooledConnection = idleConnections.pollFirst();
+			while (pooledConnection != null && !isValid(pooledConnection)) {
+				discard(pooledConnection);
+				pooledConnection = idleConnections.pollFirst();
+			}
+			if (pooledConnection == null)
+				pooledConnection = openConnection();
+
+			activeConnections.incrementAndGet();
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, new ConnectionHandler(pooledConnection));
+		} catch (SQLException e) {
+			permits.release();
+			throw e;
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Retrieve a prepared statement that is cached for the lifetime of the
+	 * underlying physical connection. The returned statement must not be
+	 * closed by the caller and must only be used while the connection is
+	 * borrowed.
+	 */
+	public static PreparedStatement prepareCachedStatement(Connection connection, String sql) throws SQLException {
+
+		if (!Proxy.isProxyClass(connection.getClass())
+				|| !(Proxy.getInvocationHandler(connection) instanceof ConnectionHandler))
+			throw new SQLException("Statements can only be cached on pooled connections.");
+
+		ConnectionHandler handler = (ConnectionHandler) Proxy.getInvocationHandler(connection);
+		if (handler.released)
+			throw new SQLException("Connection has already been returned to the pool.");
+
+		PooledConnection pooledConnection = handler.pooledConnection;
+		PreparedStatement prep = pooledConnection.statements.get(sql);
+		if (prep == null) {
+			prep = pooledConnection.physical.prepareStatement(sql);
+			pooledConnection.statements.put(sql, prep);
+		}
+		return prep;
+	}
+
+	/**
+	 * Close the pool and all its idle connections. Borrowed connections are
+	 * closed when they are returned.
+	 */
+	public void close() {
+
+		closed = true;
+		PooledConnection pooledConnection;
+		while ((pooledConnection = idleConnections.pollFirst()) != null)
+			discard(pooledConnection);
+	}
+
+	/**
+	 * Return a connection to the pool, or close it if it is no longer usable.
+	 */
+	private void release(PooledConnection pooledConnection) {
+
+		activeConnections.decrementAndGet();
+		try {
+			Connection physical = pooledConnection.physical;
+			// Do not leak a transaction left open by the borrower.
+			if (!physical.isClosed() && !physical.getAutoCommit()) {
+				physical.rollback();
+				physical.setAutoCommit(true);
+			}
+			// Rows of a failed batch would otherwise be executed again by the next borrower.
+			for (PreparedStatement prep : pooledConnection.statements.values())
+				prep.clearBatch();
+			if (closed || physical.isClosed()) {
+				discard(pooledConnection);
+			} else {
+				pooledConnection.lastUsed = System.currentTimeMillis();
+				idleConnections.offerFirst(pooledConnection);
+				trimIdleConnections();
+			}
+		} catch (SQLException e) {
+			discard(pooledConnection);
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Close the least recently used idle connection if the pool is above its
+	 * minimum size and the connection has not been used for a while.
+	 */
+	private void trimIdleConnections() {
+
+		PooledConnection oldest = idleConnections.peekLast();
+		if (oldest != null && openConnections.get() > minSize
+				&& System.currentTimeMillis() - oldest.lastUsed > IDLE_TIMEOUT_MILLIS
+				&& idleConnections.removeLastOccurrence(oldest))
+			discard(oldest);
+	}
+
+	private PooledConnection openConnection() throws SQLException {
+
+		PooledConnection pooledConnection = new PooledConnection(dialect.createConnection());
+		openConnections.incrementAndGet();
+		return pooledConnection;
+	}
+
+	private void discard(PooledConnection pooledConnection) {
+
+		openConnections.decrementAndGet();
+		try {
+			for (PreparedStatement prep : pooledConnection.statements.values())
+				prep.close();
+			pooledConnection.physical.close();
+		} catch (SQLException e) {
+			// Connection already unusable, nothing more to do.
+		}
+	}
+
+	/**
+	 * Check whether an idle connection can still be used.
+	 */
+	private boolean isValid(PooledConnection pooledConnection) {
+
+		if (System.currentTimeMillis() - pooledConnection.lastUsed < VALIDATION_BYPASS_MILLIS)
+			return true;
+
+		Connection physical = pooledConnection.physical;
+		try {
+			if (physical.isClosed())
+				return false;
+			try {
+				return physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+			} catch (AbstractMethodError e) {
+				// Old drivers without JDBC 4 support, fall back to a test query.
+			} catch (SQLException e) {
+				// Driver may not implement isValid, fall back to a test query.
+			}
+			Statement st = physical.createStatement();
+			st.execute("SELECT 1");
+			st.close();
+			return true;
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private void recordWait(long waitNanos) {
+
+		borrowCount.incrementAndGet();
+		totalWaitNanos.addAndGet(waitNanos);
+		long max = maxWaitNanos.get();
+		while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos))
+			max = maxWaitNanos.get();
+	}
+
+	public String getName() {
+
+		return name;
+	}
+
+	public int getMinSize() {
+
+		return minSize;
+	}
+
+	public int getMaxSize() {
+
+		return maxSize;
+	}
+
+	public int getActiveConnections() {
+
+		return activeConnections.get();
+	}
+
+	public int getIdleConnections() {
+
+		return idleConnections.size();
+	}
+
+	public int getOpenConnections() {
+
+		return openConnections.get();
+	}
+
+	/**
+	 * Return the number of threads currently waiting for a connection.
+	 */
+	public int getWaitingThreads() {
+
+		return permits.getQueueLength();
+	}
+
+	public long getBorrowCount() {
+
+		return borrowCount.get();
+	}
+
+	public long getTimeoutCount() {
+
+		return timeoutCount.get();
+	}
+
+	public double getAverageWaitMillis() {
+
+		long borrows = borrowCount.get();
+		if (borrows == 0)
+			return 0;
+		return totalWaitNanos.get() / 1000000.0 / borrows;
+	}
+
+	public double getMaxWaitMillis() {
+
+		return maxWaitNanos.get() / 1000000.0;
+	}
+
+	/**
+	 * Return a human readable summary of the pool's metrics.
+	 */
+	public String getStatistics() {
+
+		return String.format("%s pool: %d active, %d idle, %d/%d open, %d borrows, average wait %.2fms, "
+				+ "max wait %.2fms, %d timeouts", name, getActiveConnections(), getIdleConnections(),
+				getOpenConnections(), maxSize, getBorrowCount(), getAverageWaitMillis(), getMaxWaitMillis(),
+				getTimeoutCount());
+	}
+
+	/**
+	 * Physical connection and the statements cached on it.
+	 */
+	private static class PooledConnection {
+
+		private final Connection physical;
+		private final Map<String, PreparedStatement> statements;
+		private volatile long lastUsed;
+
+		private PooledConnection(Connection physical) {
+
+			this.physical = physical;
+			this.statements = new HashMap<String, PreparedStatement>();
+			this.lastUsed = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Delegates calls to the physical connection until close() is called, at
+	 * which point the connection is returned to the pool.
+	 */
+	private class ConnectionHandler implements InvocationHandler {
+
+		private final PooledConnection pooledConnection;
+		private volatile boolean released;
+
+		private ConnectionHandler(PooledConnection pooledConnection) {
+
+			this.pooledConnection = pooledConnection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+			String methodName = method.getName();
+			if ("close".equals(methodName)) {
+				synchronized (this) {
+					if (!released) {
+						released = true;
+						release(pooledConnection);
+					}
+				}
+				return null;
+			} else if ("isClosed".equals(methodName)) {
+				return released || pooledConnection.physical.isClosed();
+			} else if ("equals".equals(methodName)) {
+				return proxy == args[0];
+			} else if ("hashCode".equals(methodName)) {
+				return System.identityHashCode(proxy);
+			} else if ("toString".equals(methodName)) {
+				return "Pooled " + name + " connection: " + pooledConnection.physical;
+			} else if (released) {
+				throw new SQLException("Connection has already been returned to the pool.");
+			}
+
+			try {
+				return method.invoke(pooledConnection.physical, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
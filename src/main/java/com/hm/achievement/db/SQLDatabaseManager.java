@@ -1,64 +1,148 @@
 package com.hm.achievement.db;
 
-import java.io.File;
-import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.MultipleAchievements;
+import com.hm.achievement.category.NormalAchievements;
+import com.hm.achievement.db.PlayerStatistics.DirtyStatistics;
 
-public class SQLDatabaseManager {
+public class SQLDatabaseManager implements StatisticsStore, AchievementStore {
 
 	private AdvancedAchievements plugin;
-	private boolean sqliteDatabase;
-	private String mysqlDatabase;
-	private String mysqlUser;
-	private String mysqlPassword;
-
-	private Connection sqlConnection;
+	private SQLDialect dialect;
+	private int poolMinSize;
+	private int poolMaxSize;
+	// Normal statistics stored in a single table with one row per player
+	// instead of one table per category.
+	private boolean wideStatisticsTable;
+	// Increases of statistics written instead of their totals, so that
+	// several servers can share the database.
+	private boolean incrementalStatisticsWrites;
+
+	// Time to wait for a free connection before giving up on a request.
+	private static final long POOL_TIMEOUT_MILLIS = 10000L;
+
+	// Version 1: achievements keyed by player UUID and achievement name.
+	// Version 2: achievements keyed by integer player and achievement ids.
+	private static final int SCHEMA_VERSION = 2;
+
+	private static final String REGISTER_ACHIEVEMENT_QUERY = "REPLACE INTO `achievements` VALUES ("
+			+ "(SELECT id FROM `players` WHERE uuid = ?), (SELECT id FROM `achievement_names` WHERE name = ?), ?)";
+	// Descriptions are stored once per name, and follow changes of the
+	// configured messages. Rows are only written if the description differs.
+	private static final String UPDATE_DESCRIPTION_QUERY = "UPDATE `achievement_names` SET description = ? "
+			+ "WHERE name = ? AND (description IS NULL OR description <> ?)";
+	private static final String COUNT_PLAYER_ACHIEVEMENTS_QUERY = "SELECT COUNT(*) FROM `achievements` "
+			+ "WHERE player_id = (SELECT id FROM `players` WHERE uuid = ?)";
+	// Joins an achievements table aliased a with the players and names tables.
+	private static final String ACHIEVEMENTS_JOIN = "`achievements` a JOIN `players` p ON p.id = a.player_id "
+			+ "JOIN `achievement_names` n ON n.id = a.achievement_id";
+
+	private static final String WIDE_STATISTICS_TABLE = "statistics";
+	// Last journal segment of each server whose statistics have been written.
+	private static final String JOURNAL_SEGMENTS_TABLE = "journal_segments";
+	private static final long CONNECTION_WRITER_TIMEOUT_SECONDS = 10L;
+
+	// Separate lanes prevent reads from waiting behind long write batches.
+	// With SQLite without write-ahead logging, both refer to the same single
+	// connection pool.
+	private SQLConnectionPool readPool;
+	private SQLConnectionPool writePool;
+
+	// Queues achievement registrations when using asynchronous writes.
+	private AchievementWriter achievementWriter;
+	// Writes connections one after the other when using asynchronous writes,
+	// so that a player's latest number of connections is written last.
+	private ExecutorService connectionWriter;
+
+	// Achievements received by online players.
+	private AchievementCache achievementCache;
+
+	// Number of achievements received by each player.
+	private AchievementLeaderboard achievementLeaderboard;
 
 	public SQLDatabaseManager(AdvancedAchievements plugin) {
 
 		this.plugin = plugin;
+		achievementCache = new AchievementCache(plugin);
+		achievementLeaderboard = new AchievementLeaderboard(plugin);
 	}
 
 	/**
-	 * Initialise database system and plugin settings.
+	 * Load plugin settings and open the connections to the database.
 	 */
-	public void initialise() {
+	public void connect() {
 
 		// Load plugin settings.
 		configurationLoad();
 
 		// Check if JDBC library available.
 		try {
-			if (sqliteDatabase)
-				Class.forName("org.sqlite.JDBC");
+			if (dialect.getDriverClass() != null)
+				Class.forName(dialect.getDriverClass());
 		} catch (ClassNotFoundException e) {
-			plugin.getLogger()
-					.severe("You need the SQLite JBDC library. Please download it and put it in /lib folder.");
+			plugin.getLogger().severe("You need the " + dialect.getName()
+					+ " JBDC library. Please download it and put it in /lib folder.");
 			e.printStackTrace();
 			plugin.setSuccessfulLoad(false);
 		}
 
-		// Try to establish connection with database.
-		if (getSQLConnection() == null) {
+		if (dialect.isSingleConnection()) {
+			writePool = new SQLConnectionPool(dialect.getName(), dialect, 1, 1, POOL_TIMEOUT_MILLIS);
+			readPool = writePool;
+		} else if (dialect.isSingleWriter()) {
+			writePool = new SQLConnectionPool(dialect.getName() + " write", dialect, 1, 1, POOL_TIMEOUT_MILLIS);
+			readPool = new SQLConnectionPool(dialect.getName() + " read", dialect, 1, 1, POOL_TIMEOUT_MILLIS);
+		} else {
+			writePool = new SQLConnectionPool(dialect.getName() + " write", dialect, poolMinSize, poolMaxSize,
+					POOL_TIMEOUT_MILLIS);
+			readPool = new SQLConnectionPool(dialect.getName() + " read", dialect, poolMinSize, poolMaxSize,
+					POOL_TIMEOUT_MILLIS);
+		}
+
+		// Try to establish connections with database.
+		try {
+			writePool.fill();
+			readPool.fill();
+		} catch (SQLException e) {
+			plugin.getLogger().severe("Error while attempting to retrieve connection to database: " + e);
 			plugin.getLogger().severe("Could not establish SQL connection, disabling plugin.");
 			plugin.getLogger().severe("Please verify your settings in the configuration file.");
 			plugin.setOverrideDisable(true);
 			plugin.getServer().getPluginManager().disablePlugin(plugin);
-			return;
 		}
+	}
+
+	/**
+	 * Initialise database tables, update them from previous versions of the
+	 * plugin and start the asynchronous writes. The database must be connected.
+	 */
+	public void initialise() {
 
 		// Initialise database tables.
 		try {
@@ -71,8 +155,7 @@ public class SQLDatabaseManager {
 
 		// Check if using old database prior to version 2.4.1.
 		String type = "";
-		try {
-			Connection conn = getSQLConnection();
+		try (Connection conn = getReadConnection()) {
 			Statement st = conn.createStatement();
 			ResultSet rs = st.executeQuery("SELECT `blockid` FROM `breaks` LIMIT 1");
 			type = rs.getMetaData().getColumnTypeName(1);
@@ -92,6 +175,22 @@ public class SQLDatabaseManager {
 			updateOldDB("places");
 		}
 
+		if (plugin.isAsyncPooledRequestsSender()) {
+			achievementWriter = new AchievementWriter(plugin);
+			achievementWriter.start();
+			// Avoid using Bukkit API scheduler, as a reload/restart could kill
+			// the async task before write to database has occured.
+			connectionWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+
+					return new Thread(runnable, "AdvancedAchievements connection writer");
+				}
+			});
+		}
+
+		achievementLeaderboard.load();
 	}
 
 	/**
@@ -99,15 +198,11 @@ public class SQLDatabaseManager {
 	 */
 	private void configurationLoad() {
 
-		String dataHandler = plugin.getPluginConfig().getString("DatabaseType", "sqlite");
-		if (dataHandler.equalsIgnoreCase("mysql")) {
-			sqliteDatabase = false;
-			mysqlDatabase = plugin.getPluginConfig().getString("MYSQL.Database",
-					"jdbc:mysql://localhost:3306/minecraft");
-			mysqlUser = plugin.getPluginConfig().getString("MYSQL.User", "root");
-			mysqlPassword = plugin.getPluginConfig().getString("MYSQL.Password", "root");
-		} else
-			sqliteDatabase = true;
+		dialect = SQLDialect.forType(plugin, plugin.getPluginConfig().getString("DatabaseType", "sqlite"));
+		poolMinSize = plugin.getPluginConfig().getInt("MYSQL.PoolMinSize", 1);
+		poolMaxSize = plugin.getPluginConfig().getInt("MYSQL.PoolMaxSize", 4);
+		wideStatisticsTable = plugin.getPluginConfig().getBoolean("WideStatisticsTable", false);
+		incrementalStatisticsWrites = plugin.getPluginConfig().getBoolean("IncrementalStatisticsWrites", false);
 
 	}
 
@@ -117,10 +212,9 @@ public class SQLDatabaseManager {
 	 */
 	private void initialiseTables() throws SQLException {
 
-		Statement st = sqlConnection.createStatement();
+		Connection conn = getWriteConnection();
+		Statement st = conn.createStatement();
 
-		st.addBatch("CREATE TABLE IF NOT EXISTS `achievements` (" + "playername char(36)," + "achievement varchar(64),"
-				+ "description varchar(128)," + "date char(10)," + "PRIMARY KEY (`playername`, `achievement`)" + ")");
 		st.addBatch("CREATE TABLE IF NOT EXISTS `breaks` (" + "playername char(36)," + "blockid varchar(32),"
 				+ "breaks INT UNSIGNED," + "PRIMARY KEY(`playername`, `blockid`)" + ")");
 		st.addBatch("CREATE TABLE IF NOT EXISTS `places` (" + "playername char(36)," + "blockid varchar(32),"
@@ -191,10 +285,283 @@ public class SQLDatabaseManager {
 				+ "PRIMARY KEY (`playername`)" + ")");
 		st.addBatch("CREATE TABLE IF NOT EXISTS `enderpearls` (" + "playername char(36)," + "enderpearls INT UNSIGNED,"
 				+ "PRIMARY KEY (`playername`)" + ")");
+		st.addBatch("CREATE TABLE IF NOT EXISTS `" + JOURNAL_SEGMENTS_TABLE + "` (" + "journal char(36),"
+				+ "segment BIGINT," + "PRIMARY KEY (`journal`)" + ")");
+
+		try {
+			st.executeBatch();
+			st.close();
+			initialiseAchievementTables(conn);
+			initialiseStatisticsTable(conn);
+		} finally {
+			conn.close();
+		}
+
+	}
 
+	/**
+	 * Create the achievement tables, or migrate them from an older schema
+	 * version. Players and achievement names are stored once in their own
+	 * tables and referenced by integer ids; the primary key of the achievements
+	 * table starts with the player id, which covers per-player counts.
+	 */
+	private void initialiseAchievementTables(Connection conn) throws SQLException {
+
+		Statement st = conn.createStatement();
+		String autoIncrementId = dialect.getAutoIncrementId();
+		st.addBatch("CREATE TABLE IF NOT EXISTS `schema_version` (" + "version INT UNSIGNED" + ")");
+		st.addBatch("CREATE TABLE IF NOT EXISTS `players` (" + autoIncrementId + "uuid char(36) NOT NULL,"
+				+ "UNIQUE (`uuid`)" + ")");
+		st.addBatch("CREATE TABLE IF NOT EXISTS `achievement_names` (" + autoIncrementId + "name varchar(64) NOT NULL,"
+				+ "description varchar(128)," + "UNIQUE (`name`)" + ")");
 		st.executeBatch();
+
+		int version = 0;
+		ResultSet rs = st.executeQuery("SELECT MAX(version) FROM `schema_version`");
+		if (rs.next())
+			version = rs.getInt(1);
+		rs.close();
+
+		if (version < SCHEMA_VERSION) {
+			boolean oldTable = hasColumn(conn, "achievements", "playername");
+			// An interrupted migration leaves the renamed table behind.
+			boolean renamedTable = hasColumn(conn, "achievements_v1", "playername");
+			if (oldTable && !renamedTable) {
+				plugin.getLogger().warning("Updating achievements table, please wait...");
+				st.execute("ALTER TABLE `achievements` RENAME TO `achievements_v1`");
+				renamedTable = true;
+			}
+			if (renamedTable) {
+				// Any partially migrated table is discarded and filled again.
+				st.execute("DROP TABLE IF EXISTS `achievements`");
+				createAchievementsTable(st);
+				migrateAchievementsTable(conn);
+			} else
+				createAchievementsTable(st);
+			st.execute("INSERT INTO `schema_version` VALUES (" + SCHEMA_VERSION + ")");
+		}
 		st.close();
+	}
+
+	private void createAchievementsTable(Statement st) throws SQLException {
+
+		st.execute("CREATE TABLE IF NOT EXISTS `achievements` (" + "player_id INT UNSIGNED NOT NULL,"
+				+ "achievement_id INT UNSIGNED NOT NULL," + "date char(10),"
+				+ "PRIMARY KEY (`player_id`, `achievement_id`)" + ")");
+	}
 
+	/**
+	 * Copy the achievements stored with the version 1 layout into the new
+	 * tables in a single transaction, using set-based statements so that large
+	 * tables are migrated by the database engine itself. The description of an
+	 * achievement is now stored once per name.
+	 */
+	private void migrateAchievementsTable(Connection conn) throws SQLException {
+
+		long startTime = System.currentTimeMillis();
+		boolean autoCommit = conn.getAutoCommit();
+		conn.setAutoCommit(false);
+		try (Statement st = conn.createStatement()) {
+			st.execute(dialect.getInsertIgnore()
+					+ " INTO `players` (uuid) SELECT DISTINCT playername FROM `achievements_v1`");
+			st.execute(dialect.getInsertIgnore() + " INTO `achievement_names` (name, description) "
+					+ "SELECT achievement, MAX(description) FROM `achievements_v1` GROUP BY achievement");
+			int rows = st.executeUpdate("INSERT INTO `achievements` (player_id, achievement_id, date) "
+					+ "SELECT p.id, n.id, o.date FROM `achievements_v1` o "
+					+ "JOIN `players` p ON p.uuid = o.playername JOIN `achievement_names` n ON n.name = o.achievement");
+			st.execute("DROP TABLE `achievements_v1`");
+			conn.commit();
+			plugin.getLogger().info("Migrated " + rows + " achievements in "
+					+ (System.currentTimeMillis() - startTime) + "ms.");
+		} catch (SQLException e) {
+			conn.rollback();
+			throw e;
+		} finally {
+			conn.setAutoCommit(autoCommit);
+		}
+	}
+
+	/**
+	 * Create the single statistics table if it is enabled, and move the
+	 * statistics of the normal categories to the layout in use: rows left in
+	 * the per-category tables are merged into the single table, or the single
+	 * table is split back into the per-category tables and dropped.
+	 */
+	private void initialiseStatisticsTable(Connection conn) throws SQLException {
+
+		boolean wideTableExists = hasColumn(conn, WIDE_STATISTICS_TABLE, "playername");
+		if (wideStatisticsTable) {
+			if (!wideTableExists) {
+				// Null columns are statistics that have never been written.
+				StringBuilder query = new StringBuilder("CREATE TABLE `" + WIDE_STATISTICS_TABLE + "` (")
+						.append("playername char(36) NOT NULL,");
+				for (NormalAchievements category : NormalAchievements.values())
+					query.append(category.toDBName()).append(" INT UNSIGNED,");
+				query.append("PRIMARY KEY (`playername`)").append(")");
+				try (Statement st = conn.createStatement()) {
+					st.execute(query.toString());
+				}
+			}
+			moveToWideStatisticsTable(conn);
+		} else if (wideTableExists)
+			moveToCategoryTables(conn);
+	}
+
+	/**
+	 * Merge the rows of the per-category tables into the single statistics
+	 * table within one transaction, and empty the per-category tables.
+	 */
+	private void moveToWideStatisticsTable(Connection conn) throws SQLException {
+
+		boolean autoCommit = conn.getAutoCommit();
+		conn.setAutoCommit(false);
+		try (Statement st = conn.createStatement()) {
+			int movedTables = 0;
+			for (NormalAchievements category : NormalAchievements.values()) {
+				String table = category.toDBName();
+				ResultSet rs = st.executeQuery("SELECT 1 FROM `" + table + "` LIMIT 1");
+				boolean empty = !rs.next();
+				rs.close();
+				if (empty)
+					continue;
+				if (movedTables++ == 0)
+					plugin.getLogger().warning("Moving statistics to the " + WIDE_STATISTICS_TABLE
+							+ " table, please wait...");
+				st.execute(dialect.getInsertIgnore() + " INTO `" + WIDE_STATISTICS_TABLE
+						+ "` (playername) SELECT playername FROM `" + table + "`");
+				st.execute("UPDATE `" + WIDE_STATISTICS_TABLE + "` SET " + table + " = (SELECT t." + table + " FROM `"
+						+ table + "` t WHERE t.playername = `" + WIDE_STATISTICS_TABLE
+						+ "`.playername) WHERE playername IN (SELECT playername FROM `" + table + "`)");
+				st.execute("DELETE FROM `" + table + "`");
+			}
+			conn.commit();
+		} catch (SQLException e) {
+			conn.rollback();
+			throw e;
+		} finally {
+			conn.setAutoCommit(autoCommit);
+		}
+	}
+
+	/**
+	 * Copy the columns of the single statistics table back to the per-category
+	 * tables within one transaction, and drop the single table.
+	 */
+	private void moveToCategoryTables(Connection conn) throws SQLException {
+
+		plugin.getLogger().warning("Moving statistics from the " + WIDE_STATISTICS_TABLE
+				+ " table to one table per category, please wait...");
+		boolean autoCommit = conn.getAutoCommit();
+		conn.setAutoCommit(false);
+		try (Statement st = conn.createStatement()) {
+			for (NormalAchievements category : NormalAchievements.values()) {
+				String column = category.toDBName();
+				st.execute("REPLACE INTO `" + column + "` SELECT playername, " + column + " FROM `"
+						+ WIDE_STATISTICS_TABLE + "` WHERE " + column + " IS NOT NULL");
+			}
+			conn.commit();
+		} catch (SQLException e) {
+			conn.rollback();
+			throw e;
+		} finally {
+			conn.setAutoCommit(autoCommit);
+		}
+		// Copying again is harmless if the table could not be dropped.
+		try (Statement st = conn.createStatement()) {
+			st.execute("DROP TABLE `" + WIDE_STATISTICS_TABLE + "`");
+		}
+	}
+
+	/**
+	 * Return the table storing the statistic of a normal category. The column
+	 * has the same name in both layouts.
+	 */
+	private String getNormalStatisticTable(String column) {
+
+		return wideStatisticsTable ? WIDE_STATISTICS_TABLE : column;
+	}
+
+	/**
+	 * Write the statistic of a normal category of a player in the single
+	 * statistics table, leaving the other columns unchanged.
+	 */
+	private void writeWideStatistic(Connection conn, String uuid, String column, int value) throws SQLException {
+
+		PreparedStatement prep = conn.prepareStatement(
+				dialect.getInsertIgnore() + " INTO `" + WIDE_STATISTICS_TABLE + "` (playername) VALUES (?)");
+		prep.setString(1, uuid);
+		prep.execute();
+		prep.close();
+		prep = conn.prepareStatement(
+				"UPDATE `" + WIDE_STATISTICS_TABLE + "` SET " + column + " = ? WHERE playername = ?");
+		prep.setInt(1, value);
+		prep.setString(2, uuid);
+		prep.execute();
+		prep.close();
+	}
+
+	/**
+	 * Check whether a table exists and has a given column.
+	 */
+	private boolean hasColumn(Connection conn, String table, String column) {
+
+		try (Statement st = conn.createStatement()) {
+			st.executeQuery("SELECT " + column + " FROM `" + table + "` LIMIT 1").close();
+			return true;
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Add an achievement registration to the batches of prepared statements
+	 * cached on a connection. The player and the achievement name are added to
+	 * their tables if they are not yet known, and the description of the name
+	 * is updated if it has changed. The batches must then be executed with
+	 * executeAchievementBatches.
+	 */
+	private void addAchievementBatch(Connection conn, String uuid, String achievement, String desc, String date)
+			throws SQLException {
+
+		PreparedStatement prep = SQLConnectionPool.prepareCachedStatement(conn, getInsertPlayerQuery());
+		prep.setString(1, uuid);
+		prep.addBatch();
+		prep = SQLConnectionPool.prepareCachedStatement(conn, getInsertAchievementNameQuery());
+		prep.setString(1, achievement);
+		prep.setString(2, desc);
+		prep.addBatch();
+		prep = SQLConnectionPool.prepareCachedStatement(conn, UPDATE_DESCRIPTION_QUERY);
+		prep.setString(1, desc);
+		prep.setString(2, achievement);
+		prep.setString(3, desc);
+		prep.addBatch();
+		prep = SQLConnectionPool.prepareCachedStatement(conn, REGISTER_ACHIEVEMENT_QUERY);
+		prep.setString(1, uuid);
+		prep.setString(2, achievement);
+		prep.setString(3, date);
+		prep.addBatch();
+	}
+
+	/**
+	 * Execute the batches filled by addAchievementBatch, in the order required
+	 * by the id lookups.
+	 */
+	private void executeAchievementBatches(Connection conn) throws SQLException {
+
+		SQLConnectionPool.prepareCachedStatement(conn, getInsertPlayerQuery()).executeBatch();
+		SQLConnectionPool.prepareCachedStatement(conn, getInsertAchievementNameQuery()).executeBatch();
+		SQLConnectionPool.prepareCachedStatement(conn, UPDATE_DESCRIPTION_QUERY).executeBatch();
+		SQLConnectionPool.prepareCachedStatement(conn, REGISTER_ACHIEVEMENT_QUERY).executeBatch();
+	}
+
+	private String getInsertPlayerQuery() {
+
+		return dialect.getInsertIgnore() + " INTO `players` (uuid) VALUES (?)";
+	}
+
+	private String getInsertAchievementNameQuery() {
+
+		return dialect.getInsertIgnore() + " INTO `achievement_names` (name, description) VALUES (?,?)";
 	}
 
 	/**
@@ -205,8 +572,7 @@ public class SQLDatabaseManager {
 	@SuppressWarnings("deprecation")
 	private void updateOldDB(String tableName) {
 
-		try {
-			Connection conn = getSQLConnection();
+		try (Connection conn = getWriteConnection()) {
 			Statement st = conn.createStatement();
 			ResultSet rs = st.executeQuery("SELECT * FROM `" + tableName + "`");
 			ArrayList<String> uuids = new ArrayList<String>();
@@ -256,174 +622,540 @@ public class SQLDatabaseManager {
 	}
 
 	/**
-	 * Retrieve SQL connection to MySQL or SQLite database.
+	 * Borrow a connection for read requests. The connection must be closed once
+	 * finished with, which returns it to the pool.
 	 */
-	public Connection getSQLConnection() {
+	public Connection getReadConnection() throws SQLException {
 
-		// Check if Connection was not previously closed.
-		try {
-			if (sqlConnection == null || sqlConnection.isClosed()) {
+		return readPool.getConnection();
+	}
 
-				if (!sqliteDatabase) {
-					sqlConnection = createMySQLConnection();
-				} else {
+	/**
+	 * Borrow a connection for write requests. The connection must be closed
+	 * once finished with, which returns it to the pool.
+	 */
+	public Connection getWriteConnection() throws SQLException {
 
-					sqlConnection = createSQLiteConnection();
-				}
-			}
-		} catch (SQLException e) {
-			plugin.getLogger().severe("Error while attempting to retrieve connection to database: " + e);
-			e.printStackTrace();
-			plugin.setSuccessfulLoad(false);
-		}
+		return writePool.getConnection();
+	}
+
+	public SQLDialect getDialect() {
+
+		return dialect;
+	}
+
+	public SQLConnectionPool getReadPool() {
+
+		return readPool;
+	}
+
+	public SQLConnectionPool getWritePool() {
+
+		return writePool;
+	}
+
+	public AchievementCache getAchievementCache() {
+
+		return achievementCache;
+	}
 
-		return sqlConnection;
+	public AchievementLeaderboard getAchievementLeaderboard() {
+
+		return achievementLeaderboard;
+	}
+
+	public AchievementWriter getAchievementWriter() {
+
+		return achievementWriter;
 	}
 
 	/**
-	 * Create a new Connection object to SQLite database.
+	 * Check whether writes from several threads can run in parallel, rather
+	 * than waiting for a single connection.
 	 */
-	private Connection createSQLiteConnection() throws SQLException {
+	public boolean isParallelWriting() {
 
-		File dbfile = new File(plugin.getDataFolder(), "achievements.db");
-		if (!dbfile.exists()) {
-			try {
-				dbfile.createNewFile();
-			} catch (IOException e) {
-				plugin.getLogger().severe("Error while creating database file.");
-				e.printStackTrace();
-				plugin.setSuccessfulLoad(false);
-			}
-		}
-		return DriverManager.getConnection("jdbc:sqlite:" + dbfile);
+		return !dialect.isSingleConnection() && !dialect.isSingleWriter();
 	}
 
 	/**
-	 * Create a new Connection object to MySQL database.
+	 * Write remaining queued achievements and stop the achievement writer.
+	 * Achievements submitted from now on are written straight away.
 	 */
-	private Connection createMySQLConnection() throws SQLException {
+	public void shutdownAchievementWriter() {
 
-		return DriverManager
-				.getConnection(mysqlDatabase + "?autoReconnect=true&user=" + mysqlUser + "&password=" + mysqlPassword);
+		AchievementWriter writer = achievementWriter;
+		if (writer == null)
+			return;
+		achievementWriter = null;
+		writer.shutdown();
+		plugin.getLogger().info("Achievement writer: " + writer.getWrittenCount() + " achievements written in "
+				+ writer.getBatchCount() + " batches, " + writer.getBackpressureCount()
+				+ " submissions found the queue full.");
 	}
 
 	/**
-	 * Get number of player's kills for a specific mob.
+	 * Write remaining queued connections and stop the connection writer.
+	 * Connections registered from now on are written straight away.
 	 */
-	public int getKills(Player player, String mobname) {
+	private void shutdownConnectionWriter() {
 
+		ExecutorService writer = connectionWriter;
+		if (writer == null)
+			return;
+		connectionWriter = null;
+		writer.shutdown();
 		try {
-			Connection conn = getSQLConnection();
-			Statement st = conn.createStatement();
-			ResultSet rs = st.executeQuery("SELECT kills FROM `kills` WHERE playername = '" + player.getUniqueId()
-					+ "' AND mobname = '" + mobname + "'");
-			int entityKills = 0;
-			while (rs.next()) {
-				entityKills = rs.getInt("kills");
-			}
+			if (!writer.awaitTermination(CONNECTION_WRITER_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+				plugin.getLogger().warning("Connections could not all be written before the timeout.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
 
-			st.close();
-			rs.close();
+	/**
+	 * Write remaining queued achievements and close connection pools;
+	 * connections still borrowed are closed when returned.
+	 */
+	public void shutdown() {
 
-			return entityKills;
-		} catch (SQLException e) {
-			plugin.getLogger().severe("SQL error while retrieving kill stats: " + e);
-			return 0;
+		shutdownAchievementWriter();
+		shutdownConnectionWriter();
+		if (writePool == null)
+			return;
+		plugin.getLogger().info(writePool.getStatistics());
+		writePool.close();
+		if (readPool != writePool) {
+			plugin.getLogger().info(readPool.getStatistics());
+			readPool.close();
 		}
 	}
 
 	/**
-	 * Get number of player's places for a specific block.
+	 * Make sure the database file contains all committed changes before it is
+	 * backed up.
 	 */
-	public int getPlaces(Player player, String block) {
+	public void checkpoint() {
 
-		try {
-			Connection conn = getSQLConnection();
-			int blockBreaks = 0;
-			Statement st = conn.createStatement();
-			ResultSet rs = st.executeQuery("SELECT places FROM `places` WHERE playername = '" + player.getUniqueId()
-					+ "' AND blockid = '" + block + "'");
-			while (rs.next()) {
-				blockBreaks = rs.getInt("places");
-			}
+		try (Connection conn = getWriteConnection()) {
+			dialect.checkpoint(conn);
+		} catch (SQLException e) {
+			plugin.getLogger().severe("SQL error while checkpointing database: " + e);
+		}
+	}
 
-			st.close();
+	/**
+	 * Get a player's statistic for a sub-category of a multiple category.
+	 */
+	@Override
+	public int getStatistic(String uuid, MultipleAchievements category, String subcategory) {
+
+		try (Connection conn = getReadConnection()) {
+			PreparedStatement prep = conn.prepareStatement("SELECT " + category.toDBName() + " FROM `"
+					+ category.toDBName() + "` WHERE playername = ? AND " + category.toSubcategoryDBName() + " = ?");
+			prep.setString(1, uuid);
+			prep.setString(2, subcategory);
+			ResultSet rs = prep.executeQuery();
+			int amount = 0;
+			if (rs.next())
+				amount = rs.getInt(1);
 			rs.close();
+			prep.close();
 
-			return blockBreaks;
+			return amount;
 		} catch (SQLException e) {
-			plugin.getLogger().severe("SQL error while retrieving block place stats: " + e);
+			plugin.getLogger().severe("SQL error while retrieving " + category.toDBName() + " stats: " + e);
 			return 0;
 		}
 	}
 
 	/**
-	 * Get number of player's breaks for a specific block.
+	 * Load all the statistics of a player with a few multi-table queries, or
+	 * return null if an error occurred.
 	 */
-	public int getBreaks(Player player, String block) {
-
-		try {
-			Connection conn = getSQLConnection();
-			int blockBreaks = 0;
-			Statement st = conn.createStatement();
-			ResultSet rs = st.executeQuery("SELECT breaks FROM `breaks` WHERE playername = '" + player.getUniqueId()
-					+ "' AND blockid = '" + block + "'");
+	@Override
+	public PlayerStatistics loadPlayerStatistics(String uuid) {
+
+		PlayerStatistics statistics = new PlayerStatistics(uuid);
+		try (Connection conn = getReadConnection()) {
+			// Played time is stored in the same way as normal statistics, but
+			// is a long value.
+			StringBuilder query = new StringBuilder(
+					"SELECT 'playedtime', playedtime FROM `playedtime` WHERE playername = ?");
+			int parameters = 1;
+			if (!wideStatisticsTable) {
+				for (NormalAchievements category : NormalAchievements.values()) {
+					String table = category.toDBName();
+					query.append(" UNION ALL SELECT '").append(table).append("', ").append(table).append(" FROM `")
+							.append(table).append("` WHERE playername = ?");
+					++parameters;
+				}
+			}
+			PreparedStatement prep = conn.prepareStatement(query.toString());
+			for (int i = 1; i <= parameters; ++i)
+				prep.setString(i, uuid);
+			ResultSet rs = prep.executeQuery();
 			while (rs.next()) {
-				blockBreaks = rs.getInt("breaks");
+				NormalAchievements category = NormalAchievements.fromDBName(rs.getString(1));
+				if (category == null)
+					statistics.updatePlayedTime(rs.getLong(2));
+				else
+					statistics.initStatistic(category, rs.getInt(2));
+			}
+			rs.close();
+			prep.close();
+
+			if (wideStatisticsTable) {
+				prep = conn.prepareStatement("SELECT * FROM `" + WIDE_STATISTICS_TABLE + "` WHERE playername = ?");
+				prep.setString(1, uuid);
+				rs = prep.executeQuery();
+				if (rs.next()) {
+					for (NormalAchievements category : NormalAchievements.values()) {
+						int amount = rs.getInt(category.toDBName());
+						if (!rs.wasNull())
+							statistics.initStatistic(category, amount);
+					}
+				}
+				rs.close();
+				prep.close();
 			}
 
-			st.close();
+			query = new StringBuilder();
+			for (MultipleAchievements category : MultipleAchievements.values()) {
+				if (query.length() > 0)
+					query.append(" UNION ALL ");
+				query.append("SELECT '").append(category.toDBName()).append("', ")
+						.append(category.toSubcategoryDBName()).append(", ").append(category.toDBName())
+						.append(" FROM `").append(category.toDBName()).append("` WHERE playername = ?");
+			}
+			prep = conn.prepareStatement(query.toString());
+			for (int i = 1; i <= MultipleAchievements.values().length; ++i)
+				prep.setString(i, uuid);
+			rs = prep.executeQuery();
+			while (rs.next())
+				statistics.initStatistic(MultipleAchievements.fromDBName(rs.getString(1)), rs.getString(2),
+						rs.getInt(3));
+			rs.close();
+			prep.close();
+
+			prep = conn.prepareStatement("SELECT connections, date FROM `connections` WHERE playername = ?");
+			prep.setString(1, uuid);
+			rs = prep.executeQuery();
+			if (rs.next())
+				statistics.updateConnections(rs.getInt(1), rs.getString(2));
 			rs.close();
+			prep.close();
 
-			return blockBreaks;
+			return statistics;
 		} catch (SQLException e) {
-			plugin.getLogger().severe("SQL error while retrieving block break stats: " + e);
-			return 0;
+			plugin.getLogger().severe("SQL error while loading player statistics: " + e);
 		}
+		return null;
 	}
 
 	/**
-	 * Increment and return value of a specific craft achievement statistic.
+	 * Write changed player statistics within a single transaction. Rows of a
+	 * given table are batched with a prepared statement cached on the
+	 * connection. The number of rows written per table and the time taken to
+	 * execute its batches are added to writtenRows.
+	 *
+	 * When writing increases, rows are first inserted with a zero value if
+	 * they do not exist, and then updated by adding the increases; the same
+	 * statements are used for all database engines.
 	 */
-	public int getCrafts(Player player, String item) {
+	@Override
+	public void writeStatistics(List<DirtyStatistics> dirtyStatistics, WrittenRows writtenRows)
+			throws SQLException {
 
-		try {
-			Connection conn = getSQLConnection();
-			int itemCrafts = 0;
-			Statement st = conn.createStatement();
-			ResultSet rs = st.executeQuery("SELECT crafts FROM `crafts` WHERE playername = '" + player.getUniqueId()
-					+ "' AND item = '" + item + "'");
-			while (rs.next()) {
-				itemCrafts = rs.getInt("crafts");
+		writeStatistics(dirtyStatistics, writtenRows, null, 0L);
+	}
+
+	/**
+	 * Write changed player statistics and record, in the same transaction, the
+	 * last segment of the given journal that they cover. Segments up to that
+	 * one are then never replayed, even if they could not be deleted.
+	 */
+	@Override
+	public void writeStatistics(List<DirtyStatistics> dirtyStatistics, WrittenRows writtenRows,
+			String journal, long segment) throws SQLException {
+
+		try (Connection conn = getWriteConnection()) {
+			boolean autoCommit = conn.getAutoCommit();
+			// Prevent from doing any commits before entire transaction is
+			// ready.
+			conn.setAutoCommit(false);
+			try {
+				if (wideStatisticsTable)
+					writeWideStatistics(conn, dirtyStatistics, writtenRows);
+				else
+					writeCategoryStatistics(conn, dirtyStatistics, writtenRows);
+				writeMultipleStatistics(conn, dirtyStatistics, writtenRows);
+				writePlayedTime(conn, dirtyStatistics, writtenRows);
+				if (journal != null) {
+					PreparedStatement prep = SQLConnectionPool.prepareCachedStatement(conn, dialect
+							.getUpsert(JOURNAL_SEGMENTS_TABLE, new String[] { "journal" }, new String[] { "segment" }));
+					prep.setString(1, journal);
+					prep.setLong(2, segment);
+					prep.execute();
+				}
+				conn.commit();
+			} catch (SQLException e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(autoCommit);
 			}
-			st.close();
+		}
+	}
+
+	/**
+	 * Return the last segment of a journal whose statistics have been written,
+	 * or zero if none have been.
+	 */
+	@Override
+	public long getJournalSegment(String journal) throws SQLException {
+
+		try (Connection conn = getReadConnection()) {
+			PreparedStatement prep = conn
+					.prepareStatement("SELECT segment FROM `" + JOURNAL_SEGMENTS_TABLE + "` WHERE journal = ?");
+			prep.setString(1, journal);
+			ResultSet rs = prep.executeQuery();
+			long segment = rs.next() ? rs.getLong(1) : 0L;
 			rs.close();
+			prep.close();
+			return segment;
+		}
+	}
 
-			return itemCrafts;
-		} catch (SQLException e) {
-			plugin.getLogger().severe("SQL error while handling craft event: " + e);
-			return 0;
+	/**
+	 * Add the changed statistics of the normal categories to one batch per
+	 * category table.
+	 */
+	private void writeCategoryStatistics(Connection conn, List<DirtyStatistics> dirtyStatistics,
+			WrittenRows writtenRows) throws SQLException {
+
+		for (NormalAchievements category : NormalAchievements.values()) {
+			String table = category.toDBName();
+			PreparedStatement insert = null;
+			PreparedStatement prep;
+			if (incrementalStatisticsWrites) {
+				insert = SQLConnectionPool.prepareCachedStatement(conn,
+						dialect.getInsertIgnore() + " INTO `" + table + "` VALUES (?,0)");
+				prep = SQLConnectionPool.prepareCachedStatement(conn, "UPDATE `" + table + "` SET " + table + " = "
+						+ getUpdateExpression(table, category.isCounter()) + " WHERE playername = ?");
+			} else
+				prep = SQLConnectionPool.prepareCachedStatement(conn,
+						dialect.getUpsert(table, new String[] { "playername" }, new String[] { table }));
+			int rows = 0;
+			for (DirtyStatistics statistics : dirtyStatistics) {
+				if (!statistics.hasStatistic(category))
+					continue;
+				if (insert == null) {
+					prep.setString(1, statistics.getUUID());
+					prep.setInt(2, statistics.getStatistic(category));
+				} else {
+					insert.setString(1, statistics.getUUID());
+					insert.addBatch();
+					prep.setInt(1, getWrittenValue(statistics, category));
+					prep.setString(2, statistics.getUUID());
+				}
+				prep.addBatch();
+				++rows;
+			}
+			if (rows > 0) {
+				long startTime = System.nanoTime();
+				if (insert != null)
+					insert.executeBatch();
+				prep.executeBatch();
+				writtenRows.add(table, rows, System.nanoTime() - startTime);
+			}
 		}
+	}
 
+	/**
+	 * Add the changed statistics of the multiple categories to one batch per
+	 * category table.
+	 */
+	private void writeMultipleStatistics(Connection conn, List<DirtyStatistics> dirtyStatistics,
+			WrittenRows writtenRows) throws SQLException {
+
+		for (MultipleAchievements category : MultipleAchievements.values()) {
+			String table = category.toDBName();
+			String subcategoryColumn = category.toSubcategoryDBName();
+			PreparedStatement insert = null;
+			PreparedStatement prep;
+			if (incrementalStatisticsWrites) {
+				insert = SQLConnectionPool.prepareCachedStatement(conn,
+						dialect.getInsertIgnore() + " INTO `" + table + "` VALUES (?,?,0)");
+				prep = SQLConnectionPool.prepareCachedStatement(conn, "UPDATE `" + table + "` SET " + table + " = "
+						+ getUpdateExpression(table, true) + " WHERE playername = ? AND " + subcategoryColumn + " = ?");
+			} else
+				prep = SQLConnectionPool.prepareCachedStatement(conn, dialect.getUpsert(table,
+						new String[] { "playername", subcategoryColumn }, new String[] { table }));
+			int rows = 0;
+			for (DirtyStatistics statistics : dirtyStatistics) {
+				Map<String, Integer> increases = statistics.getIncreases(category);
+				for (Entry<String, Integer> entry : statistics.getStatistics(category).entrySet()) {
+					if (insert == null) {
+						prep.setString(1, statistics.getUUID());
+						prep.setString(2, entry.getKey());
+						prep.setInt(3, entry.getValue());
+					} else {
+						insert.setString(1, statistics.getUUID());
+						insert.setString(2, entry.getKey());
+						insert.addBatch();
+						prep.setInt(1, increases.get(entry.getKey()));
+						prep.setString(2, statistics.getUUID());
+						prep.setString(3, entry.getKey());
+					}
+					prep.addBatch();
+					++rows;
+				}
+			}
+			if (rows > 0) {
+				long startTime = System.nanoTime();
+				if (insert != null)
+					insert.executeBatch();
+				prep.executeBatch();
+				writtenRows.add(table, rows, System.nanoTime() - startTime);
+			}
+		}
 	}
 
 	/**
-	 * Get the list of achievements of a player.
+	 * Add the changed played times to a batch on the playedtime table.
 	 */
-	public ArrayList<String> getPlayerAchievementsList(Player player) {
+	private void writePlayedTime(Connection conn, List<DirtyStatistics> dirtyStatistics,
+			WrittenRows writtenRows) throws SQLException {
+
+		PreparedStatement insert = null;
+		PreparedStatement prep;
+		if (incrementalStatisticsWrites) {
+			insert = SQLConnectionPool.prepareCachedStatement(conn,
+					dialect.getInsertIgnore() + " INTO `playedtime` VALUES (?,0)");
+			prep = SQLConnectionPool.prepareCachedStatement(conn, "UPDATE `playedtime` SET playedtime = "
+					+ getUpdateExpression("playedtime", true) + " WHERE playername = ?");
+		} else
+			prep = SQLConnectionPool.prepareCachedStatement(conn,
+					dialect.getUpsert("playedtime", new String[] { "playername" }, new String[] { "playedtime" }));
+		int rows = 0;
+		for (DirtyStatistics statistics : dirtyStatistics) {
+			if (!statistics.hasPlayedTime())
+				continue;
+			if (insert == null) {
+				prep.setString(1, statistics.getUUID());
+				prep.setLong(2, statistics.getPlayedTime());
+			} else {
+				insert.setString(1, statistics.getUUID());
+				insert.addBatch();
+				prep.setLong(1, statistics.getPlayedTimeIncrease());
+				prep.setString(2, statistics.getUUID());
+			}
+			prep.addBatch();
+			++rows;
+		}
+		if (rows > 0) {
+			long startTime = System.nanoTime();
+			if (insert != null)
+				insert.executeBatch();
+			prep.executeBatch();
+			writtenRows.add("playedtime", rows, System.nanoTime() - startTime);
+		}
+	}
 
-		try {
-			Connection conn = getSQLConnection();
-			Statement st = conn.createStatement();
-			ResultSet rs = st
-					.executeQuery("SELECT * FROM `achievements` WHERE playername = '" + player.getUniqueId() + "'");
+	/**
+	 * Return the expression of an UPDATE statement setting a statistic column
+	 * to its written value: the value itself, or when writing increases, the
+	 * sum of the column and the increase for counters and the largest of both
+	 * otherwise.
+	 */
+	private String getUpdateExpression(String column, boolean counter) {
+
+		if (!incrementalStatisticsWrites)
+			return "?";
+		if (counter)
+			return column + " + ?";
+		return dialect.getGreatest() + "(" + column + ", ?)";
+	}
+
+	/**
+	 * Return the value of a normal statistic matching getUpdateExpression.
+	 */
+	private int getWrittenValue(DirtyStatistics statistics, NormalAchievements category) {
+
+		if (incrementalStatisticsWrites && category.isCounter())
+			return statistics.getIncrease(category);
+		return statistics.getStatistic(category);
+	}
+
+	/**
+	 * Write the changed statistics of the normal categories to the single
+	 * statistics table, with one row per player. Statistics that have not
+	 * changed are passed as null and keep their current value; columns that
+	 * have never been written are null.
+	 */
+	private void writeWideStatistics(Connection conn, List<DirtyStatistics> dirtyStatistics,
+			WrittenRows writtenRows) throws SQLException {
+
+		NormalAchievements[] categories = NormalAchievements.values();
+		StringBuilder query = new StringBuilder("UPDATE `" + WIDE_STATISTICS_TABLE + "` SET ");
+		for (int i = 0; i < categories.length; ++i) {
+			String column = categories[i].toDBName();
+			if (i > 0)
+				query.append(", ");
+			query.append(column).append(" = COALESCE(")
+					.append(getUpdateExpression("COALESCE(" + column + ", 0)", categories[i].isCounter()))
+					.append(", ").append(column).append(")");
+		}
+		query.append(" WHERE playername = ?");
+
+		PreparedStatement insert = SQLConnectionPool.prepareCachedStatement(conn,
+				dialect.getInsertIgnore() + " INTO `" + WIDE_STATISTICS_TABLE + "` (playername) VALUES (?)");
+		PreparedStatement update = SQLConnectionPool.prepareCachedStatement(conn, query.toString());
+		int rows = 0;
+		for (DirtyStatistics statistics : dirtyStatistics) {
+			boolean changed = false;
+			for (int i = 0; i < categories.length; ++i) {
+				if (statistics.hasStatistic(categories[i])) {
+					update.setInt(i + 1, getWrittenValue(statistics, categories[i]));
+					changed = true;
+				} else
+					update.setNull(i + 1, Types.INTEGER);
+			}
+			if (!changed)
+				continue;
+			update.setString(categories.length + 1, statistics.getUUID());
+			update.addBatch();
+			insert.setString(1, statistics.getUUID());
+			insert.addBatch();
+			++rows;
+		}
+		if (rows > 0) {
+			long startTime = System.nanoTime();
+			insert.executeBatch();
+			update.executeBatch();
+			writtenRows.add(WIDE_STATISTICS_TABLE, rows, System.nanoTime() - startTime);
+		}
+	}
+
+	/**
+	 * Get the list of achievements of a player.
+	 */
+	@Override
+	public ArrayList<String> getPlayerAchievementsList(String uuid) {
+
+		try (Connection conn = getReadConnection()) {
+			PreparedStatement prep = conn.prepareStatement(
+					"SELECT n.name, n.description, a.date FROM " + ACHIEVEMENTS_JOIN + " WHERE p.uuid = ?");
+			prep.setString(1, uuid);
+			ResultSet rs = prep.executeQuery();
 			ArrayList<String> achievementsList = new ArrayList<String>();
 			while (rs.next()) {
+				achievementsList.add(rs.getString(1));
 				achievementsList.add(rs.getString(2));
 				achievementsList.add(rs.getString(3));
-				achievementsList.add(rs.getString(4));
 			}
-			st.close();
+			prep.close();
 			rs.close();
 
 			return achievementsList;
@@ -434,21 +1166,47 @@ public class SQLDatabaseManager {
 	}
 
 	/**
-	 * Get the date of reception of a specific achievement.
+	 * Get the names of the achievements received by a player, or null if an
+	 * error occurred.
 	 */
-	public String getPlayerAchievementDate(Player player, String name) {
+	@Override
+	public Set<String> getPlayerAchievementNames(String uuid) {
+
+		try (Connection conn = getReadConnection()) {
+			PreparedStatement prep = conn
+					.prepareStatement("SELECT n.name FROM " + ACHIEVEMENTS_JOIN + " WHERE p.uuid = ?");
+			prep.setString(1, uuid);
+			ResultSet rs = prep.executeQuery();
+			Set<String> achievementNames = new HashSet<String>();
+			while (rs.next())
+				achievementNames.add(rs.getString(1));
+			rs.close();
+			prep.close();
 
-		name = name.replace("'", "''");
-		try {
-			Connection conn = getSQLConnection();
-			Statement st = conn.createStatement();
-			ResultSet rs = st.executeQuery("SELECT date FROM `achievements` WHERE playername = '" + player.getUniqueId()
-					+ "' AND achievement = '" + name + "'");
+			return achievementNames;
+		} catch (SQLException e) {
+			plugin.getLogger().severe("SQL error while retrieving achievements: " + e);
+		}
+		return null;
+	}
+
+	/**
+	 * Get the date of reception of a specific achievement.
+	 */
+	@Override
+	public String getPlayerAchievementDate(String uuid, String name) {
+
+		try (Connection conn = getReadConnection()) {
+			PreparedStatement prep = conn.prepareStatement(
+					"SELECT a.date FROM " + ACHIEVEMENTS_JOIN + " WHERE p.uuid = ? AND n.name = ?");
+			prep.setString(1, uuid);
+			prep.setString(2, name);
+			ResultSet rs = prep.executeQuery();
 			String achievementDate = null;
 			if (rs.next()) {
 				achievementDate = rs.getString(1);
 			}
-			st.close();
+			prep.close();
 			rs.close();
 
 			return achievementDate;
@@ -459,21 +1217,26 @@ public class SQLDatabaseManager {
 	}
 
 	/**
-	 * Get the number of achievements received by a player.
+	 * Get the number of achievements received by a player. The database is only
+	 * queried if the leaderboard is not loaded.
 	 */
-	public int getPlayerAchievementsAmount(Player player) {
+	@Override
+	public int getPlayerAchievementsAmount(String uuid) {
 
-		try {
-			Connection conn = getSQLConnection();
-			Statement st = conn.createStatement();
-			ResultSet rs = st.executeQuery(
-					"SELECT COUNT(*) FROM `achievements` WHERE playername = '" + player.getUniqueId() + "'");
+		Integer rankedAmount = achievementLeaderboard.getAchievementsAmount(uuid);
+		if (rankedAmount != null)
+			return rankedAmount;
+
+		try (Connection conn = getReadConnection()) {
+			PreparedStatement prep = conn.prepareStatement(COUNT_PLAYER_ACHIEVEMENTS_QUERY);
+			prep.setString(1, uuid);
+			ResultSet rs = prep.executeQuery();
 			int achievementsAmount = 0;
 			if (rs.next()) {
 				achievementsAmount = rs.getInt(1);
 			}
 
-			st.close();
+			prep.close();
 			rs.close();
 
 			return achievementsAmount;
@@ -484,21 +1247,74 @@ public class SQLDatabaseManager {
 
 	}
 
+	/**
+	 * Get the number of achievements received by each player who has received
+	 * at least one, or null if an error occurred.
+	 */
+	@Override
+	public Map<String, Integer> getPlayersAchievementsAmounts() {
+
+		try (Connection conn = getReadConnection()) {
+			Statement st = conn.createStatement();
+			ResultSet rs = st.executeQuery("SELECT p.uuid, c.number FROM (SELECT player_id, COUNT(*) number "
+					+ "FROM `achievements` GROUP BY player_id) c JOIN `players` p ON p.id = c.player_id");
+			Map<String, Integer> achievementsAmounts = new HashMap<String, Integer>();
+			while (rs.next())
+				achievementsAmounts.put(rs.getString(1), rs.getInt(2));
+			st.close();
+			rs.close();
+
+			return achievementsAmounts;
+		} catch (SQLException e) {
+			plugin.getLogger().severe("SQL error while counting achievements of players: " + e);
+		}
+		return null;
+	}
+
+	/**
+	 * Get the number of achievements received by each of the given players,
+	 * including those who have none, or null if an error occurred.
+	 */
+	@Override
+	public Map<String, Integer> getPlayersAchievementsAmounts(Collection<String> uuids) {
+
+		try (Connection conn = getReadConnection()) {
+			PreparedStatement prep = conn.prepareStatement(COUNT_PLAYER_ACHIEVEMENTS_QUERY);
+			Map<String, Integer> achievementsAmounts = new HashMap<String, Integer>();
+			for (String uuid : uuids) {
+				prep.setString(1, uuid);
+				ResultSet rs = prep.executeQuery();
+				achievementsAmounts.put(uuid, rs.next() ? rs.getInt(1) : 0);
+				rs.close();
+			}
+			prep.close();
+
+			return achievementsAmounts;
+		} catch (SQLException e) {
+			plugin.getLogger().severe("SQL error while counting achievements of players: " + e);
+		}
+		return null;
+	}
+
 	/**
 	 * Get the list of players with the most achievements.
 	 */
+	@Override
 	public ArrayList<String> getTopList(int listLength) {
 
-		try {
-			Connection conn = getSQLConnection();
+		ArrayList<String> rankedTopList = achievementLeaderboard.getTopList(listLength);
+		if (rankedTopList != null)
+			return rankedTopList;
+
+		try (Connection conn = getReadConnection()) {
 			Statement st = conn.createStatement();
-			ResultSet rs = st.executeQuery(
-					"SELECT playername 'player', COUNT(*) FROM `achievements` GROUP BY playername ORDER BY COUNT(*) DESC LIMIT "
-							+ listLength);
+			ResultSet rs = st.executeQuery("SELECT p.uuid, c.number FROM (SELECT player_id, COUNT(*) number "
+					+ "FROM `achievements` GROUP BY player_id ORDER BY number DESC LIMIT " + listLength
+					+ ") c JOIN `players` p ON p.id = c.player_id ORDER BY c.number DESC");
 			ArrayList<String> topList = new ArrayList<String>();
 			while (rs.next()) {
-				topList.add(rs.getString("player"));
-				topList.add("" + rs.getInt("COUNT(*)"));
+				topList.add(rs.getString(1));
+				topList.add("" + rs.getInt(2));
 			}
 			st.close();
 			rs.close();
@@ -514,15 +1330,19 @@ public class SQLDatabaseManager {
 	/**
 	 * Get number of players who have received at least one achievement.
 	 */
+	@Override
 	public int getTotalPlayers() {
 
-		try {
-			Connection conn = getSQLConnection();
+		Integer rankedPlayers = achievementLeaderboard.getTotalPlayers();
+		if (rankedPlayers != null)
+			return rankedPlayers;
+
+		try (Connection conn = getReadConnection()) {
 			Statement st = conn.createStatement();
-			ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM (SELECT DISTINCT playername  FROM `achievements`)");
+			ResultSet rs = st.executeQuery("SELECT COUNT(DISTINCT player_id) FROM `achievements`");
 			int players = 0;
 			while (rs.next()) {
-				players = rs.getInt("COUNT(*)");
+				players = rs.getInt(1);
 			}
 			st.close();
 			rs.close();
@@ -536,27 +1356,34 @@ public class SQLDatabaseManager {
 	}
 
 	/**
-	 * Get the rank of a player given his number of achievements.
+	 * Get the rank of a player given their number of achievements.
 	 */
-	public int getPlayerRank(Player player) {
+	@Override
+	public int getPlayerRank(String uuid) {
 
-		try {
-			Connection conn = getSQLConnection();
-			Statement st = conn.createStatement();
-			ResultSet rs = st.executeQuery(
-					"SELECT COUNT(*) FROM `achievements` WHERE playername = '" + player.getUniqueId() + "'");
+		Integer rankedRank = achievementLeaderboard.getRank(uuid);
+		if (rankedRank != null)
+			return rankedRank;
+
+		try (Connection conn = getReadConnection()) {
+			PreparedStatement prep = conn.prepareStatement(COUNT_PLAYER_ACHIEVEMENTS_QUERY);
+			prep.setString(1, uuid);
+			ResultSet rs = prep.executeQuery();
 			int achievementsAmount = 0;
 			if (rs.next()) {
 				achievementsAmount = rs.getInt(1);
 			}
-			rs = st.executeQuery(
-					"SELECT COUNT(*) FROM (SELECT COUNT(*) `number` FROM `achievements` GROUP BY playername) WHERE `number` >"
-							+ achievementsAmount);
+			rs.close();
+			prep.close();
+			prep = conn.prepareStatement("SELECT COUNT(*) FROM (SELECT COUNT(*) number FROM `achievements` "
+					+ "GROUP BY player_id) c WHERE c.number > ?");
+			prep.setInt(1, achievementsAmount);
+			rs = prep.executeQuery();
 			int rank = 0;
 			while (rs.next()) {
-				rank = rs.getInt("COUNT(*)") + 1;
+				rank = rs.getInt(1) + 1;
 			}
-			st.close();
+			prep.close();
 			rs.close();
 
 			return rank;
@@ -570,22 +1397,16 @@ public class SQLDatabaseManager {
 	/**
 	 * Register a new achievement for a player.
 	 */
-	public void registerAchievement(Player player, final String achievement, final String desc) {
-
-		final String name = player.getUniqueId().toString();
-
-		if (plugin.isAsyncPooledRequestsSender())
-			new Thread() { // Avoid using Bukkit API scheduler, as a
-							// reload/restart could kill the async task before
-							// write to database has occured.
-
-				@Override
-				public void run() {
+	public void registerAchievement(Player player, String achievement, String desc) {
 
-					registerAchievementToDB(achievement, desc, name);
-				}
+		String name = player.getUniqueId().toString();
+		// Achievements received again replace the previous ones in the database.
+		if (!Boolean.TRUE.equals(achievementCache.hasAchievement(name, achievement)))
+			achievementLeaderboard.add(name);
+		achievementCache.add(name, achievement);
 
-			}.start();
+		if (achievementWriter != null)
+			achievementWriter.submit(name, achievement, desc, new SimpleDateFormat("dd/MM/yyyy").format(new Date()));
 		else
 			registerAchievementToDB(achievement, desc, name);
 
@@ -597,34 +1418,67 @@ public class SQLDatabaseManager {
 	private void registerAchievementToDB(String achievement, String desc, String name) {
 
 		try {
-			Connection conn = getSQLConnection();
-			Statement st = conn.createStatement();
-			SimpleDateFormat format = new SimpleDateFormat("dd/MM/yyyy");
-			achievement = achievement.replace("'", "''");
-			desc = desc.replace("'", "''");
-			st.execute("REPLACE INTO `achievements` VALUES ('" + name + "','" + achievement + "','" + desc + "','"
-					+ format.format(new Date()) + "')");
-			st.close();
-
+			String date = new SimpleDateFormat("dd/MM/yyyy").format(new Date());
+			writeAchievements(Collections.singletonList(new AchievementRecord(name, achievement, desc, date)));
 		} catch (SQLException e) {
 			plugin.getLogger().severe("SQL error while registering achievement: " + e);
 		}
 	}
 
+	/**
+	 * Write received achievements within a single transaction.
+	 */
+	@Override
+	public void writeAchievements(List<AchievementRecord> achievements) throws SQLException {
+
+		try (Connection conn = getWriteConnection()) {
+			boolean autoCommit = conn.getAutoCommit();
+			// Prevent from doing any commits before entire transaction is
+			// ready.
+			conn.setAutoCommit(false);
+			try {
+				for (AchievementRecord achievement : achievements)
+					addAchievementBatch(conn, achievement.getUUID(), achievement.getName(),
+							achievement.getDescription(), achievement.getDate());
+				executeAchievementBatches(conn);
+				conn.commit();
+			} catch (SQLException e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(autoCommit);
+			}
+		}
+	}
+
 	/**
 	 * Check whether player has received a specific achievement.
 	 */
 	public boolean hasPlayerAchievement(Player player, String name) {
 
-		try {
+		return hasPlayerAchievement(player.getUniqueId().toString(), name);
+	}
+
+	/**
+	 * Check whether player has received a specific achievement. The database is
+	 * only queried if the player's achievements are not cached.
+	 */
+	@Override
+	public boolean hasPlayerAchievement(String uuid, String name) {
+
+		Boolean cachedResult = achievementCache.hasAchievement(uuid, name);
+		if (cachedResult != null)
+			return cachedResult;
+
+		try (Connection conn = getReadConnection()) {
 			boolean result = false;
-			Connection conn = getSQLConnection();
-			Statement st = conn.createStatement();
-			name = name.replace("'", "''");
-			if (st.executeQuery("SELECT achievement FROM `achievements` WHERE playername = '" + player.getUniqueId()
-					+ "' AND achievement = '" + name + "'").next())
+			PreparedStatement prep = conn
+					.prepareStatement("SELECT a.date FROM " + ACHIEVEMENTS_JOIN + " WHERE p.uuid = ? AND n.name = ?");
+			prep.setString(1, uuid);
+			prep.setString(2, name);
+			if (prep.executeQuery().next())
 				result = true;
-			st.close();
+			prep.close();
 
 			return result;
 		} catch (SQLException e) {
@@ -635,44 +1489,62 @@ public class SQLDatabaseManager {
 	}
 
 	/**
-	 * Check whether player has received a specific achievement.
+	 * Delete a specific achievement of a player.
 	 */
 	public void deletePlayerAchievement(Player player, String name) {
 
-		try {
-			Connection conn = getSQLConnection();
-			Statement st = conn.createStatement();
-			name = name.replace("'", "''");
-			st.execute("DELETE FROM `achievements` WHERE playername = '" + player.getUniqueId()
-					+ "' AND achievement = '" + name + "'");
-			st.close();
+		deletePlayerAchievement(player.getUniqueId().toString(), name);
+	}
 
+	/**
+	 * Delete a specific achievement of a player. Returns true if it was stored.
+	 */
+	@Override
+	public boolean deletePlayerAchievement(String uuid, String name) {
+
+		achievementCache.remove(uuid, name);
+		try (Connection conn = getWriteConnection()) {
+			PreparedStatement prep = conn.prepareStatement(
+					"DELETE FROM `achievements` WHERE player_id = (SELECT id FROM `players` WHERE uuid = ?) "
+							+ "AND achievement_id = (SELECT id FROM `achievement_names` WHERE name = ?)");
+			prep.setString(1, uuid);
+			prep.setString(2, name);
+			// The cache cannot tell whether the achievement existed if the
+			// player's achievements are still loading, the database can.
+			boolean deleted = prep.executeUpdate() > 0;
+			if (deleted)
+				achievementLeaderboard.remove(uuid);
+			prep.close();
+
+			return deleted;
 		} catch (SQLException e) {
 			plugin.getLogger().severe("SQL error while deleting achievement: " + e);
 		}
+		return false;
 
 	}
 
 	/**
-	 * Get the amount of a normal achievement statistic.
+	 * Get a player's statistic for a normal category.
 	 */
-	public int getNormalAchievementAmount(Player player, String table) {
-
-		try {
-			Connection conn = getSQLConnection();
-			Statement st = conn.createStatement();
-			ResultSet rs = st.executeQuery(
-					"SELECT " + table + " FROM `" + table + "` WHERE playername = '" + player.getUniqueId() + "'");
+	@Override
+	public int getStatistic(String uuid, NormalAchievements category) {
+
+		String column = category.toDBName();
+		try (Connection conn = getReadConnection()) {
+			PreparedStatement prep = conn.prepareStatement(
+					"SELECT " + column + " FROM `" + getNormalStatisticTable(column) + "` WHERE playername = ?");
+			prep.setString(1, uuid);
+			ResultSet rs = prep.executeQuery();
 			int amount = 0;
-			while (rs.next()) {
-				amount = rs.getInt(table);
-			}
-
+			if (rs.next())
+				amount = rs.getInt(1);
 			rs.close();
+			prep.close();
 
 			return amount;
 		} catch (SQLException e) {
-			plugin.getLogger().severe("SQL error while retrieving " + table + " stats: " + e);
+			plugin.getLogger().severe("SQL error while retrieving " + column + " stats: " + e);
 			return 0;
 		}
 	}
@@ -680,99 +1552,70 @@ public class SQLDatabaseManager {
 	/**
 	 * Return player's number of connections.
 	 */
-	public int getConnectionsAmount(Player player) {
-
-		final String name = player.getUniqueId().toString();
-		try {
-			Connection conn = getSQLConnection();
-			Statement st = conn.createStatement();
-			ResultSet rs = st.executeQuery("SELECT connections FROM `connections` WHERE playername = '" + name + "'");
+	@Override
+	public int getConnections(String uuid) {
+
+		try (Connection conn = getReadConnection()) {
+			PreparedStatement prep = conn
+					.prepareStatement("SELECT connections FROM `connections` WHERE playername = ?");
+			prep.setString(1, uuid);
+			ResultSet rs = prep.executeQuery();
 			int connections = 0;
-			while (rs.next()) {
-				connections = rs.getInt("connections");
-			}
-			st.close();
+			if (rs.next())
+				connections = rs.getInt(1);
 			rs.close();
+			prep.close();
 
 			return connections;
 		} catch (SQLException e) {
 			plugin.getLogger().severe("SQL error while retrieving connection statistics: " + e);
 			return 0;
 		}
-
 	}
 
 	/**
 	 * Get a player's last connection date.
 	 */
-	public String getPlayerConnectionDate(Player player) {
-
-		String date = null;
-		try {
-			Connection conn = getSQLConnection();
-			Statement st = conn.createStatement();
-			ResultSet rs = st
-					.executeQuery("SELECT date FROM `connections` WHERE playername = '" + player.getUniqueId() + "'");
-			while (rs.next())
-				date = rs.getString("date");
-			st.close();
+	@Override
+	public String getConnectionDate(String uuid) {
+
+		try (Connection conn = getReadConnection()) {
+			PreparedStatement prep = conn.prepareStatement("SELECT date FROM `connections` WHERE playername = ?");
+			prep.setString(1, uuid);
+			ResultSet rs = prep.executeQuery();
+			String date = null;
+			if (rs.next())
+				date = rs.getString(1);
 			rs.close();
+			prep.close();
 
 			return date;
-
 		} catch (SQLException e) {
 			plugin.getLogger().severe("SQL error while retrieving connection date stats: " + e);
 			return null;
 		}
-
-		catch (NullPointerException e) {
-			return null;
-		}
-
 	}
 
 	/**
 	 * Update player's number of connections and last connection date and return number of connections.
 	 */
-	public int updateAndGetConnection(Player player, final String date) {
+	@Override
+	public int updateAndGetConnection(String name, String date) {
 
-		final String name = player.getUniqueId().toString();
-		try {
-			Connection conn = getSQLConnection();
+		try (Connection conn = getWriteConnection()) {
 			Statement st = conn.createStatement();
 			ResultSet rs = st.executeQuery("SELECT connections FROM `connections` WHERE playername = '" + name + "'");
 			int prev = 0;
 			while (rs.next()) {
 				prev = rs.getInt("connections");
 			}
-			final int newConnections = prev + 1;
-			if (!plugin.isAsyncPooledRequestsSender())
-				st.execute(
-						"REPLACE INTO `connections` VALUES ('" + name + "', " + newConnections + ", '" + date + "')");
-			else {
-				new Thread() { // Avoid using Bukkit API scheduler, as a
-					// reload/restart could kill the async task before
-					// write to database has occured.
-
-					@Override
-					public void run() {
-
-						Connection conn = getSQLConnection();
-						Statement st;
-						try {
-							st = conn.createStatement();
-							st.execute("REPLACE INTO `connections` VALUES ('" + name + "', " + newConnections + ", '"
-									+ date + "')");
-							st.close();
-						} catch (SQLException e) {
-							plugin.getLogger().severe("SQL error while handling connection event on async task: " + e);
-						}
-					}
-				}.start();
-			}
-			st.close();
+			int newConnections = prev + 1;
 			rs.close();
+			st.close();
 
+			// Written on the connection already held, borrowing a second one could
+			// wait for the whole timeout if the pool only has one.
+			registerConnectionToDB(conn, name, newConnections, date);
 			return newConnections;
 		} catch (SQLException e) {
 			plugin.getLogger().severe("SQL error while handling connection event: " + e);
@@ -781,13 +1624,64 @@ public class SQLDatabaseManager {
 
 	}
 
+	/**
+	 * Write player's number of connections and last connection date.
+	 */
+	@Override
+	public void registerConnection(final String name, final int connections, final String date) {
+
+		ExecutorService writer = connectionWriter;
+		if (writer == null) {
+			registerConnectionToDB(name, connections, date);
+			return;
+		}
+		try {
+			writer.execute(new Runnable() {
+
+				@Override
+				public void run() {
+
+					registerConnectionToDB(name, connections, date);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// The writer is being shut down.
+			registerConnectionToDB(name, connections, date);
+		}
+	}
+
+	private void registerConnectionToDB(String name, int connections, String date) {
+
+		try (Connection conn = getWriteConnection()) {
+			registerConnectionToDB(conn, name, connections, date);
+		} catch (SQLException e) {
+			plugin.getLogger().severe("SQL error while handling connection event: " + e);
+		}
+	}
+
+	private void registerConnectionToDB(Connection conn, String name, int connections, String date)
+			throws SQLException {
+
+		Statement st = conn.createStatement();
+		st.execute("REPLACE INTO `connections` VALUES ('" + name + "', " + connections + ", '" + date + "')");
+		st.close();
+	}
+
+	/**
+	 * Return player's playtime.
+	 */
+	@Override
+	public long getPlayedTime(String uuid) {
+
+		return updateAndGetPlaytime(uuid, 0L);
+	}
+
 	/**
 	 * Update and return player's playtime.
 	 */
 	public long updateAndGetPlaytime(String name, long time) {
 
-		try {
-			Connection conn = getSQLConnection();
+		try (Connection conn = time == 0 ? getReadConnection() : getWriteConnection()) {
 			Statement st = conn.createStatement();
 			long newPlayedTime = 0;
 			if (time == 0) {
@@ -815,17 +1709,18 @@ public class SQLDatabaseManager {
 	 */
 	public int updateAndGetDistance(String name, int distance, String type) {
 
-		try {
-			Connection conn = getSQLConnection();
+		try (Connection conn = distance == 0 ? getReadConnection() : getWriteConnection()) {
 			Statement st = conn.createStatement();
 			int newDistance = 0;
 			if (distance == 0) {
-				ResultSet rs = st
-						.executeQuery("SELECT " + type + " FROM `" + type + "` WHERE playername = '" + name + "'");
+				ResultSet rs = st.executeQuery("SELECT " + type + " FROM `" + getNormalStatisticTable(type)
+						+ "` WHERE playername = '" + name + "'");
 				while (rs.next()) {
 					newDistance = rs.getInt(type);
 				}
 				rs.close();
+			} else if (wideStatisticsTable) {
+				writeWideStatistic(conn, name, type, distance);
 			} else {
 				st.execute("REPLACE INTO `" + type + "` VALUES ('" + name + "', " + distance + ")");
 			}
@@ -0,0 +1,152 @@
+package com.hm.achievement.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import com.hm.achievement.AdvancedAchievements;
+
+/**
+ * Database engine used to store the plugin's data, selected with the
+ * DatabaseType parameter of the configuration file. Each engine provides its
+ * connections and the SQL syntax that differs from one engine to another; the
+ * defaults follow the MySQL syntax.
+ */
+public abstract class SQLDialect {
+
+	protected final AdvancedAchievements plugin;
+
+	protected SQLDialect(AdvancedAchievements plugin) {
+
+		this.plugin = plugin;
+	}
+
+	/**
+	 * Return the dialect corresponding to a DatabaseType parameter. Unknown
+	 * types default to SQLite.
+	 */
+	public static SQLDialect forType(AdvancedAchievements plugin, String type) {
+
+		if ("mysql".equalsIgnoreCase(type))
+			return new MySQLDialect(plugin);
+		if ("h2".equalsIgnoreCase(type))
+			return new H2Dialect(plugin);
+		return new SQLiteDialect(plugin);
+	}
+
+	/**
+	 * Return the name of the database engine displayed to users.
+	 */
+	public abstract String getName();
+
+	/**
+	 * Create a new connection to the database.
+	 */
+	public abstract Connection createConnection() throws SQLException;
+
+	/**
+	 * Return the JDBC driver class that must be loaded before connecting, or
+	 * null if the driver is provided by the server.
+	 */
+	public String getDriverClass() {
+
+		return null;
+	}
+
+	/**
+	 * Return the name of the database file in the plugin's folder, or null if
+	 * the data is not stored in a single file.
+	 */
+	public String getDatabaseFile() {
+
+		return null;
+	}
+
+	/**
+	 * Check whether the engine only supports a single connection at a time.
+	 */
+	public boolean isSingleConnection() {
+
+		return false;
+	}
+
+	/**
+	 * Check whether the engine only supports a single writing connection,
+	 * alongside a separate reading connection.
+	 */
+	public boolean isSingleWriter() {
+
+		return false;
+	}
+
+	/**
+	 * Copy pending changes into the database file, so that the file can be
+	 * backed up on its own.
+	 */
+	public void checkpoint(Connection conn) throws SQLException {
+
+		// Changes are directly written to the database by default.
+	}
+
+	/**
+	 * Return the column definitions of an auto-incremented integer primary key
+	 * named id, followed by a comma.
+	 */
+	public String getAutoIncrementId() {
+
+		return "id INT UNSIGNED NOT NULL AUTO_INCREMENT," + "PRIMARY KEY (`id`),";
+	}
+
+	/**
+	 * Return the statement prefix inserting rows unless they violate a unique
+	 * constraint.
+	 */
+	public String getInsertIgnore() {
+
+		return "INSERT IGNORE";
+	}
+
+	/**
+	 * Return the function returning the largest of its arguments.
+	 */
+	public String getGreatest() {
+
+		return "GREATEST";
+	}
+
+	/**
+	 * Return a statement inserting a row, or updating the value columns of the
+	 * row that has the same primary key. Parameters are the key columns
+	 * followed by the value columns.
+	 */
+	public String getUpsert(String table, String[] keyColumns, String[] valueColumns) {
+
+		StringBuilder upsert = new StringBuilder(getInsert("INSERT", table, keyColumns, valueColumns))
+				.append(" ON DUPLICATE KEY UPDATE ");
+		for (int i = 0; i < valueColumns.length; ++i) {
+			if (i > 0)
+				upsert.append(", ");
+			upsert.append(valueColumns[i]).append(" = VALUES(").append(valueColumns[i]).append(")");
+		}
+		return upsert.toString();
+	}
+
+	/**
+	 * Return an insert statement starting with the given keyword and setting
+	 * all the given columns.
+	 */
+	protected String getInsert(String insert, String table, String[] keyColumns, String[] valueColumns) {
+
+		StringBuilder columns = new StringBuilder();
+		StringBuilder parameters = new StringBuilder();
+		for (String column : keyColumns) {
+			columns.append(column).append(", ");
+			parameters.append("?,");
+		}
+		for (String column : valueColumns) {
+			columns.append(column).append(", ");
+			parameters.append("?,");
+		}
+		return insert + " INTO `" + table + "` (" + columns.substring(0, columns.length() - 2) + ") VALUES ("
+				+ parameters.substring(0, parameters.length() - 1) + ")";
+	}
+}
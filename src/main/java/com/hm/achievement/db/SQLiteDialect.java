@@ -0,0 +1,148 @@
+package com.hm.achievement.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import com.hm.achievement.AdvancedAchievements;
+
+/**
+ * SQLite database stored in the achievements.db file of the plugin's folder.
+ *
+ * With write-ahead logging, changes are appended to a separate log file and
+ * readers keep working on the last committed state, so a dedicated writing
+ * connection and a dedicated reading connection are used: lookups never wait
+ * for pooled requests or achievements being written. Without it, a single
+ * connection is shared by readers and writers.
+ */
+public class SQLiteDialect extends SQLDialect {
+
+	private static final String DATABASE_FILE = "achievements.db";
+	// Page cache of each connection in kibibytes.
+	private static final int CACHE_SIZE_KIB = 8192;
+	// Maximum number of bytes of the database file mapped in memory.
+	private static final long MMAP_SIZE = 64L * 1024 * 1024;
+	// Time to wait for a lock held by another connection, for instance while
+	// the log is checkpointed.
+	private static final int BUSY_TIMEOUT_MILLIS = 10000;
+
+	private final boolean writeAheadLogging;
+
+	public SQLiteDialect(AdvancedAchievements plugin) {
+
+		super(plugin);
+		writeAheadLogging = plugin.getPluginConfig().getBoolean("SQLiteWriteAheadLogging", true);
+	}
+
+	@Override
+	public String getName() {
+
+		return "SQLite";
+	}
+
+	@Override
+	public Connection createConnection() throws SQLException {
+
+		File dbfile = new File(plugin.getDataFolder(), DATABASE_FILE);
+		if (!dbfile.exists()) {
+			try {
+				dbfile.createNewFile();
+			} catch (IOException e) {
+				plugin.getLogger().severe("Error while creating database file.");
+				e.printStackTrace();
+				plugin.setSuccessfulLoad(false);
+			}
+		}
+		Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbfile);
+		if (writeAheadLogging) {
+			try (Statement st = conn.createStatement()) {
+				st.execute("PRAGMA journal_mode=WAL");
+				// Only the log is synced on commits; a power loss may lose the
+				// latest transactions but does not corrupt the database.
+				st.execute("PRAGMA synchronous=NORMAL");
+				st.execute("PRAGMA cache_size=-" + CACHE_SIZE_KIB);
+				st.execute("PRAGMA mmap_size=" + MMAP_SIZE);
+				st.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MILLIS);
+			} catch (SQLException e) {
+				conn.close();
+				throw e;
+			}
+		}
+		return conn;
+	}
+
+	@Override
+	public String getDriverClass() {
+
+		return "org.sqlite.JDBC";
+	}
+
+	@Override
+	public String getDatabaseFile() {
+
+		return DATABASE_FILE;
+	}
+
+	/**
+	 * Without write-ahead logging, readers and the single writer lock each
+	 * other out: one connection is handed out to one thread at a time.
+	 */
+	@Override
+	public boolean isSingleConnection() {
+
+		return !writeAheadLogging;
+	}
+
+	/**
+	 * SQLite only supports a single writer.
+	 */
+	@Override
+	public boolean isSingleWriter() {
+
+		return true;
+	}
+
+	/**
+	 * Move the content of the log into the database file and truncate the log.
+	 */
+	@Override
+	public void checkpoint(Connection conn) throws SQLException {
+
+		if (!writeAheadLogging)
+			return;
+		try (Statement st = conn.createStatement()) {
+			st.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+		}
+	}
+
+	@Override
+	public String getAutoIncrementId() {
+
+		return "id INTEGER PRIMARY KEY,";
+	}
+
+	@Override
+	public String getGreatest() {
+
+		return "MAX";
+	}
+
+	@Override
+	public String getInsertIgnore() {
+
+		return "INSERT OR IGNORE";
+	}
+
+	/**
+	 * The row is replaced as a whole, which is equivalent as all the columns
+	 * are given.
+	 */
+	@Override
+	public String getUpsert(String table, String[] keyColumns, String[] valueColumns) {
+
+		return getInsert("INSERT OR REPLACE", table, keyColumns, valueColumns);
+	}
+}
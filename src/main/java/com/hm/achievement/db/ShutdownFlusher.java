@@ -0,0 +1,169 @@
+package com.hm.achievement.db;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.db.PlayerStatistics.DirtyStatistics;
+import com.hm.achievement.runnable.AchievePlayTimeRunnable;
+
+/**
+ * Writes the data kept in memory when the plugin is disabled. The played time
+ * of the players online is added to the pooled statistics, which are then
+ * taken on the main server thread and written, along with the achievements
+ * queued for the achievement writer, by one thread per group of tables;
+ * groups are written in parallel unless the database only supports a single
+ * writer.
+ *
+ * The main thread waits for the writes for at most ShutdownTimeout
+ * milliseconds. The data of writes that fail or are still running by then is
+ * spilled to the statistics journal and written when the plugin is next
+ * enabled; a journal is opened for that purpose if journaling is disabled.
+ * Writes still running are left to finish in the background, and the segment
+ * they record makes sure their statistics are not replayed twice.
+ */
+public class ShutdownFlusher {
+
+	private AdvancedAchievements plugin;
+	private final long timeoutMillis;
+
+	private StatisticsJournal journal;
+	// Journal opened at shutdown when journaling is disabled.
+	private boolean recoveryJournal;
+
+	public ShutdownFlusher(AdvancedAchievements plugin) {
+
+		this.plugin = plugin;
+		timeoutMillis = Math.max(0, plugin.getPluginConfig().getInt("ShutdownTimeout", 10000));
+		journal = plugin.getStatisticsJournal();
+	}
+
+	/**
+	 * Write all the data kept in memory and close the journal. Must be called on
+	 * the main server thread, once the tasks changing statistics are cancelled.
+	 */
+	public void flush() {
+
+		long startTime = System.currentTimeMillis();
+		long deadline = startTime + timeoutMillis;
+		final SQLDatabaseManager db = plugin.getDb();
+		final DatabasePoolsManager pools = plugin.getPoolsManager();
+
+		// Add the time played since the last run of the played time task.
+		AchievePlayTimeRunnable playTimeRunnable = plugin.getAchievePlayTimeRunnable();
+		if (playTimeRunnable != null)
+			for (Player player : Bukkit.getOnlinePlayers())
+				playTimeRunnable.checkpointPlayedTime(player);
+
+		final List<DirtyStatistics> dirtyStatistics = new ArrayList<DirtyStatistics>();
+		long takenSegment = pools.takeDirtyStatistics(journal, dirtyStatistics);
+		if (journal == null && !dirtyStatistics.isEmpty() && openRecoveryJournal())
+			takenSegment = journal.startSegment();
+		final long segment = takenSegment;
+		final StatisticsJournal statisticsJournal = journal;
+
+		ExecutorService executor = Executors.newFixedThreadPool(db.isParallelWriting() ? 2 : 1, new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+
+				Thread thread = new Thread(runnable, "AdvancedAchievements shutdown writer");
+				// Writes still running after the timeout must not keep the server up.
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		Future<?> statisticsFuture = executor.submit(new Callable<Void>() {
+
+			@Override
+			public Void call() throws SQLException {
+
+				pools.writeDirtyStatistics(dirtyStatistics, new WrittenRows(), statisticsJournal,
+						segment);
+				return null;
+			}
+		});
+		final AchievementWriter writer = db.getAchievementWriter();
+		Future<?> achievementsFuture = executor.submit(new Callable<Void>() {
+
+			@Override
+			public Void call() {
+
+				db.shutdownAchievementWriter();
+				return null;
+			}
+		});
+		executor.shutdown();
+
+		boolean statisticsWritten = await(statisticsFuture, deadline, "statistics");
+		boolean achievementsWritten = await(achievementsFuture, deadline, "achievements");
+		executor.shutdownNow();
+
+		if (!statisticsWritten && !dirtyStatistics.isEmpty()) {
+			// Journaled statistics are already in the journal.
+			if (recoveryJournal)
+				journal.spillStatistics(segment, dirtyStatistics);
+			logSpill(dirtyStatistics.size() + " players' statistics");
+		}
+		if (!achievementsWritten && writer != null && writer.hasPendingAchievements()) {
+			if (journal == null)
+				openRecoveryJournal();
+			if (recoveryJournal)
+				writer.spillPendingAchievements(journal);
+			logSpill("achievements");
+		}
+		if (journal != null)
+			journal.close();
+		plugin.getLogger()
+				.info("Finished writing remaining data in " + (System.currentTimeMillis() - startTime) + "ms.");
+	}
+
+	/**
+	 * Wait for a write until the deadline. Returns false if it failed or is
+	 * still running.
+	 */
+	private boolean await(Future<?> future, long deadline, String group) {
+
+		try {
+			future.get(Math.max(0L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+			return true;
+		} catch (TimeoutException e) {
+			plugin.getLogger().warning("Writing remaining " + group + " took longer than ShutdownTimeout.");
+		} catch (ExecutionException e) {
+			plugin.getLogger().severe("Error while writing remaining " + group + " to database: " + e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return false;
+	}
+
+	private boolean openRecoveryJournal() {
+
+		StatisticsJournal recovery = new StatisticsJournal(plugin);
+		if (!recovery.openForRecovery())
+			return false;
+		journal = recovery;
+		recoveryJournal = true;
+		return true;
+	}
+
+	private void logSpill(String data) {
+
+		if (journal != null)
+			plugin.getLogger().warning("Remaining " + data + " will be written from the journal after the next start.");
+		else
+			plugin.getLogger().severe("Remaining " + data + " could not be written and will not be saved.");
+	}
+}
@@ -0,0 +1,778 @@
+package com.hm.achievement.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.MultipleAchievements;
+import com.hm.achievement.category.NormalAchievements;
+import com.hm.achievement.db.PlayerStatistics.DirtyStatistics;
+
+/**
+ * Append-only journal of the changes kept in memory and not yet written to the
+ * database, stored in the journal folder of the plugin and replayed when the
+ * plugin is enabled after the server was killed. Records are appended to
+ * in-memory buffers and written and synced to disk by a dedicated thread at
+ * the configured interval, so at most the changes of one interval can be lost.
+ *
+ * Increases of pooled statistics, distances and played time included, are
+ * appended to numbered segments as fixed-size binary records, so that
+ * journaling a change does not allocate any objects. Records refer to their
+ * category and sub-category by a key, defined by a separate record the first
+ * time it is used in a segment. Each
+ * write of the pooled statistics starts a new segment and records, in the
+ * same transaction as the statistics, the last segment it covers; segments
+ * up to that one are then deleted, and are never replayed if the server is
+ * killed before they are. Achievements are appended to a separate file,
+ * cleared once the achievement writer has nothing left to write; replaying
+ * them replaces the same rows, so they are never duplicated.
+ *
+ * Changes that cannot be written within the shutdown timeout are spilled to
+ * the journal as well, even if journaling is disabled during the run.
+ */
+public class StatisticsJournal implements Runnable {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String ID_FILE = "journal.id";
+	private static final String SEGMENT_PREFIX = "statistics-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final String ACHIEVEMENTS_FILE = "achievements.log";
+	private static final int BUFFER_SIZE = 64 * 1024;
+	// The buffer being filled and one being written are enough in most cases.
+	private static final int MAX_FREE_BUFFERS = 2;
+
+	// Statistics record types.
+	private static final byte NORMAL_INCREASE = 'N';
+	private static final byte NORMAL_VALUE = 'V';
+	private static final byte MULTIPLE_INCREASE = 'M';
+	private static final byte PLAYED_TIME_INCREASE = 'T';
+	private static final byte KEY = 'K';
+	// Type, key, most and least significant bits of the player's UUID, amount.
+	private static final int STATISTIC_RECORD_SIZE = 1 + 4 + 8 + 8 + 8;
+	// Achievement record type.
+	private static final String ACHIEVEMENT = "A";
+
+	private AdvancedAchievements plugin;
+	private final File directory;
+	private final long syncIntervalMillis;
+	private final Thread syncThread;
+	private volatile boolean running;
+	private String id;
+
+	// Records not yet written to disk, guarded by this.
+	private long segment;
+	private SegmentRecords statisticsRecords;
+	// Keys are never reused within a run, so that records spilled to a previous
+	// segment do not clash with the keys it already defines.
+	private int nextKey = 1;
+	// Records of previous segments, by segment.
+	private final TreeMap<Long, ByteBuffer> previousSegments;
+	// Statistics buffers already written or released, reused so that appending
+	// records does not allocate once the buffers have grown large enough.
+	private final ArrayDeque<ByteBuffer> freeBuffers;
+	private ByteBuffer achievementsBuffer;
+	private boolean achievementsCleared;
+
+	// Files, guarded by ioLock.
+	private final Object ioLock = new Object();
+	private FileChannel segmentChannel;
+	private long segmentChannelNumber;
+	private FileChannel achievementsChannel;
+	private long releasedSegment;
+
+	public StatisticsJournal(AdvancedAchievements plugin) {
+
+		this(plugin, new File(plugin.getDataFolder(), "journal"),
+				plugin.getPluginConfig().getInt("JournalSyncInterval", 1000));
+	}
+
+	/**
+	 * Create a journal stored in the given folder. Used directly by benchmarks.
+	 */
+	StatisticsJournal(AdvancedAchievements plugin, File directory, long syncIntervalMillis) {
+
+		this.plugin = plugin;
+		this.directory = directory;
+		this.syncIntervalMillis = Math.max(50L, syncIntervalMillis);
+		previousSegments = new TreeMap<Long, ByteBuffer>();
+		freeBuffers = new ArrayDeque<ByteBuffer>();
+		statisticsRecords = new SegmentRecords();
+		achievementsBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+		syncThread = new Thread(this, "AdvancedAchievements journal");
+	}
+
+	/**
+	 * Replay the journal left by the previous run and start journaling. Must be
+	 * called before any players are loaded. Returns false if the journal could
+	 * not be replayed, in which case its files are left untouched for the next
+	 * run and the journal must not be used.
+	 */
+	public boolean open() {
+
+		if (!replay())
+			return false;
+
+		running = true;
+		syncThread.start();
+		return true;
+	}
+
+	/**
+	 * Replay the journal left by the previous run, for instance when records
+	 * were spilled at shutdown. Returns false if the journal could not be
+	 * replayed.
+	 */
+	public boolean replay() {
+
+		try {
+			readId();
+			long writtenSegment = plugin.getStatisticsStore().getJournalSegment(id);
+			replayStatistics(writtenSegment);
+			replayAchievements();
+			return true;
+		} catch (IOException | SQLException e) {
+			plugin.getLogger().severe("Error while replaying the statistics journal, it is disabled until the next "
+					+ "restart: " + e);
+			return false;
+		}
+	}
+
+	/**
+	 * Prepare the journal to receive records spilled at shutdown, when changes
+	 * were not journaled during the run. Returns false if it cannot be used,
+	 * including when segments of a previous run have not been replayed: the
+	 * segment recorded by a write would cause them to be skipped.
+	 */
+	public boolean openForRecovery() {
+
+		try {
+			readId();
+		} catch (IOException e) {
+			plugin.getLogger().severe("Error while opening the statistics journal: " + e);
+			return false;
+		}
+		if (!getSegmentFiles().isEmpty())
+			return false;
+		segment = getFirstSegment(0L);
+		return true;
+	}
+
+	/**
+	 * Check whether a previous run left a journal.
+	 */
+	public boolean exists() {
+
+		return directory.isDirectory();
+	}
+
+	public String getId() {
+
+		return id;
+	}
+
+	private void readId() throws IOException {
+
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("could not create " + directory);
+		File idFile = new File(directory, ID_FILE);
+		if (idFile.exists()) {
+			id = new String(Files.readAllBytes(idFile.toPath()), UTF_8).trim();
+		} else {
+			id = UUID.randomUUID().toString();
+			Files.write(idFile.toPath(), id.getBytes(UTF_8));
+		}
+	}
+
+	/**
+	 * Return the first segment of a run. Segments are numbered from the current
+	 * time, so that they follow the segments of previous runs even when these
+	 * have been deleted.
+	 */
+	private static long getFirstSegment(long lastSegment) {
+
+		return Math.max(System.currentTimeMillis(), lastSegment + 1);
+	}
+
+	/**
+	 * Append the increase of a normal statistic.
+	 */
+	public synchronized void recordIncrease(UUID uuid, NormalAchievements category, int amount) {
+
+		statisticsRecords.append(NORMAL_INCREASE, category, uuid, amount);
+	}
+
+	/**
+	 * Append the new value of a normal statistic that is not a counter.
+	 */
+	public synchronized void recordValue(UUID uuid, NormalAchievements category, int value) {
+
+		statisticsRecords.append(NORMAL_VALUE, category, uuid, value);
+	}
+
+	/**
+	 * Append the increase of a multiple statistic.
+	 */
+	public synchronized void recordIncrease(UUID uuid, MultipleAchievements category, String subcategory,
+			int amount) {
+
+		statisticsRecords.append(category, subcategory, uuid, amount);
+	}
+
+	/**
+	 * Append the increase of a player's played time, in milliseconds.
+	 */
+	public synchronized void recordPlayedTime(UUID uuid, long amount) {
+
+		statisticsRecords.append(PLAYED_TIME_INCREASE, 0, uuid, amount);
+	}
+
+	/**
+	 * Append an achievement queued for the achievement writer.
+	 */
+	public void recordAchievement(String uuid, String achievement, String desc, String date) {
+
+		byte[] record = (ACHIEVEMENT + '\t' + uuid + '\t' + escape(achievement) + '\t' + escape(desc) + '\t'
+				+ escape(date) + '\n').getBytes(UTF_8);
+		synchronized (this) {
+			achievementsBuffer = append(achievementsBuffer, record);
+		}
+	}
+
+	/**
+	 * Start a new segment and return the number of the previous one. Must be
+	 * called while no statistics are changed, just before taking the dirty
+	 * statistics, so that these cover exactly the records of the segments up to
+	 * the previous one.
+	 */
+	synchronized long startSegment() {
+
+		if (statisticsRecords.hasRecords())
+			previousSegments.put(segment, statisticsRecords.takeBuffer());
+		statisticsRecords.clearKeys();
+		return segment++;
+	}
+
+	/**
+	 * Delete the segments up to the given one, whose statistics have all been
+	 * written to the database.
+	 */
+	void releaseSegments(long lastSegment) {
+
+		synchronized (this) {
+			Map<Long, ByteBuffer> releasedSegments = previousSegments.headMap(lastSegment, true);
+			for (ByteBuffer buffer : releasedSegments.values())
+				recycle(buffer);
+			releasedSegments.clear();
+		}
+		synchronized (ioLock) {
+			releasedSegment = Math.max(releasedSegment, lastSegment);
+			if (segmentChannel != null && segmentChannelNumber <= lastSegment)
+				closeSegmentChannel();
+			for (Entry<Long, File> segmentFile : getSegmentFiles().entrySet()) {
+				if (segmentFile.getKey() <= lastSegment && !segmentFile.getValue().delete())
+					plugin.getLogger().warning("Could not delete journal file " + segmentFile.getValue() + ".");
+			}
+		}
+	}
+
+	/**
+	 * Clear the achievements unless the achievement writer still has some left
+	 * to write. Achievements queued from now on are appended again.
+	 */
+	void clearAchievements(AchievementWriter writer) {
+
+		synchronized (this) {
+			if (writer.hasPendingAchievements())
+				return;
+			achievementsBuffer.clear();
+			achievementsCleared = true;
+		}
+	}
+
+	@Override
+	public void run() {
+
+		while (running) {
+			try {
+				Thread.sleep(syncIntervalMillis);
+			} catch (InterruptedException e) {
+				// Stopped by close.
+			}
+			sync();
+		}
+	}
+
+	/**
+	 * Append the changes of statistics taken for a write that did not complete,
+	 * to the segment covered by the write. If the write eventually commits, the
+	 * segment is not replayed.
+	 */
+	synchronized void spillStatistics(long spilledSegment, List<DirtyStatistics> dirtyStatistics) {
+
+		SegmentRecords records = new SegmentRecords();
+		for (DirtyStatistics statistics : dirtyStatistics) {
+			UUID uuid = UUID.fromString(statistics.getUUID());
+			for (NormalAchievements category : NormalAchievements.values()) {
+				if (!statistics.hasStatistic(category))
+					continue;
+				if (category.isCounter())
+					records.append(NORMAL_INCREASE, category, uuid, statistics.getIncrease(category));
+				else
+					records.append(NORMAL_VALUE, category, uuid, statistics.getStatistic(category));
+			}
+			for (MultipleAchievements category : MultipleAchievements.values()) {
+				for (Entry<String, Integer> increase : statistics.getIncreases(category).entrySet())
+					records.append(category, increase.getKey(), uuid, increase.getValue());
+			}
+			if (statistics.hasPlayedTime())
+				records.append(PLAYED_TIME_INCREASE, 0, uuid, statistics.getPlayedTimeIncrease());
+		}
+		ByteBuffer buffer = records.takeBuffer();
+		ByteBuffer segmentBuffer = previousSegments.get(spilledSegment);
+		if (segmentBuffer != null) {
+			buffer.flip();
+			buffer = append(segmentBuffer, toArray(buffer));
+		}
+		previousSegments.put(spilledSegment, buffer);
+	}
+
+	/**
+	 * Write all records to disk and stop the journal. The records whose changes
+	 * have been written to the database are already cleared; the others are
+	 * kept for the next run.
+	 */
+	public void close() {
+
+		running = false;
+		syncThread.interrupt();
+		try {
+			syncThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		sync();
+		synchronized (ioLock) {
+			closeSegmentChannel();
+			if (achievementsChannel != null) {
+				try {
+					achievementsChannel.close();
+				} catch (IOException e) {
+					// Closing anyway.
+				}
+				achievementsChannel = null;
+			}
+		}
+	}
+
+	/**
+	 * Write the buffered records to their files and sync them to disk.
+	 */
+	private void sync() {
+
+		Map<Long, ByteBuffer> segments;
+		long currentSegment;
+		ByteBuffer achievements;
+		boolean truncateAchievements;
+		synchronized (this) {
+			segments = new TreeMap<Long, ByteBuffer>(previousSegments);
+			previousSegments.clear();
+			currentSegment = segment;
+			if (statisticsRecords.hasRecords())
+				segments.put(currentSegment, statisticsRecords.takeBuffer());
+			achievements = achievementsBuffer;
+			achievementsBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+			truncateAchievements = achievementsCleared;
+			achievementsCleared = false;
+		}
+
+		synchronized (ioLock) {
+			try {
+				for (Entry<Long, ByteBuffer> entry : segments.entrySet()) {
+					// Segments released in the meantime are not needed anymore.
+					if (entry.getKey() <= releasedSegment)
+						continue;
+					if (segmentChannel == null || segmentChannelNumber != entry.getKey()) {
+						closeSegmentChannel();
+						segmentChannel = openChannel(getSegmentFile(entry.getKey()));
+						segmentChannelNumber = entry.getKey();
+					}
+					write(segmentChannel, entry.getValue());
+					segmentChannel.force(false);
+				}
+
+				if (achievementsChannel == null)
+					achievementsChannel = openChannel(new File(directory, ACHIEVEMENTS_FILE));
+				if (truncateAchievements)
+					achievementsChannel.truncate(0L);
+				if (achievements.position() > 0 || truncateAchievements) {
+					write(achievementsChannel, achievements);
+					achievementsChannel.force(false);
+				}
+			} catch (IOException e) {
+				plugin.getLogger().severe("Error while writing the statistics journal: " + e);
+			}
+		}
+		synchronized (this) {
+			for (ByteBuffer buffer : segments.values())
+				recycle(buffer);
+		}
+	}
+
+	/**
+	 * Keep a statistics buffer whose records are no longer needed for reuse.
+	 * Must be called while holding the lock of the journal.
+	 */
+	private void recycle(ByteBuffer buffer) {
+
+		if (freeBuffers.size() < MAX_FREE_BUFFERS) {
+			buffer.clear();
+			freeBuffers.push(buffer);
+		}
+	}
+
+	/**
+	 * Write the statistics of the segments not yet covered by the database, by
+	 * adding their increases to the values in the database.
+	 */
+	private void replayStatistics(long writtenSegment) throws IOException, SQLException {
+
+		Map<String, PlayerStatistics> statistics = new HashMap<String, PlayerStatistics>();
+		long lastSegment = writtenSegment;
+		for (Entry<Long, File> segmentFile : getSegmentFiles().entrySet()) {
+			lastSegment = Math.max(lastSegment, segmentFile.getKey());
+			if (segmentFile.getKey() > writtenSegment)
+				replaySegment(segmentFile.getValue(), statistics);
+		}
+
+		List<DirtyStatistics> dirtyStatistics = new ArrayList<DirtyStatistics>();
+		for (PlayerStatistics playerStatistics : statistics.values()) {
+			DirtyStatistics playerDirtyStatistics = playerStatistics.takeDirtyStatistics();
+			if (playerDirtyStatistics != null)
+				dirtyStatistics.add(playerDirtyStatistics);
+		}
+		if (!dirtyStatistics.isEmpty()) {
+			plugin.getStatisticsStore().writeStatistics(dirtyStatistics, new WrittenRows(), id,
+					lastSegment);
+			plugin.getLogger().info("Replayed journaled statistics of " + dirtyStatistics.size() + " players.");
+		}
+		segment = getFirstSegment(lastSegment);
+		releaseSegments(lastSegment);
+	}
+
+	/**
+	 * Apply the complete records of a segment file to the statistics of the
+	 * players, loading them when first needed; a last record cut short by a
+	 * crash is ignored.
+	 */
+	private void replaySegment(File segmentFile, Map<String, PlayerStatistics> statistics)
+			throws IOException, SQLException {
+
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segmentFile.toPath()));
+		// Categories and sub-categories by key.
+		Map<Integer, String[]> keys = new HashMap<Integer, String[]>();
+		while (buffer.hasRemaining()) {
+			byte type = buffer.get();
+			if (type == KEY) {
+				if (buffer.remaining() < 4)
+					return;
+				int key = buffer.getInt();
+				String category = readString(buffer);
+				String subcategory = category == null ? null : readString(buffer);
+				if (subcategory == null)
+					return;
+				keys.put(key, new String[] { category, subcategory });
+			} else if (type == NORMAL_INCREASE || type == NORMAL_VALUE || type == MULTIPLE_INCREASE
+					|| type == PLAYED_TIME_INCREASE) {
+				if (buffer.remaining() < STATISTIC_RECORD_SIZE - 1)
+					return;
+				String[] key = keys.get(buffer.getInt());
+				String uuid = new UUID(buffer.getLong(), buffer.getLong()).toString();
+				long amount = buffer.getLong();
+				PlayerStatistics playerStatistics = statistics.get(uuid);
+				if (playerStatistics == null) {
+					playerStatistics = plugin.getStatisticsStore().loadPlayerStatistics(uuid);
+					if (playerStatistics == null)
+						throw new SQLException("could not load statistics of player " + uuid);
+					statistics.put(uuid, playerStatistics);
+				}
+				replayStatistic(playerStatistics, type, key, amount);
+			} else {
+				plugin.getLogger().warning("Ignoring the end of journal file " + segmentFile + ", which is corrupted.");
+				return;
+			}
+		}
+	}
+
+	private void replayStatistic(PlayerStatistics statistics, byte type, String[] key, long amount) {
+
+		try {
+			if (type == PLAYED_TIME_INCREASE) {
+				statistics.addPlayedTime(amount);
+				return;
+			} else if (type == NORMAL_INCREASE && key != null) {
+				statistics.incrementStatistic(NormalAchievements.fromDBName(key[0]), (int) amount,
+						plugin.getAchievementIndex());
+				return;
+			} else if (type == NORMAL_VALUE && key != null) {
+				statistics.setStatistic(NormalAchievements.fromDBName(key[0]), (int) amount);
+				return;
+			} else if (type == MULTIPLE_INCREASE && key != null) {
+				statistics.incrementStatistic(MultipleAchievements.fromDBName(key[0]), key[1], (int) amount,
+						plugin.getAchievementIndex());
+				return;
+			}
+		} catch (RuntimeException e) {
+			// Reported below.
+		}
+		plugin.getLogger().warning("Ignoring invalid journal record of player " + statistics.getUUID() + ".");
+	}
+
+	/**
+	 * Register the journaled achievements again.
+	 */
+	private void replayAchievements() throws IOException, SQLException {
+
+		File achievementsFile = new File(directory, ACHIEVEMENTS_FILE);
+		List<String[]> records = readRecords(achievementsFile);
+		if (records.isEmpty()) {
+			Files.deleteIfExists(achievementsFile.toPath());
+			return;
+		}
+		List<AchievementRecord> achievements = new ArrayList<AchievementRecord>();
+		for (String[] record : records)
+			if (ACHIEVEMENT.equals(record[0]) && record.length == 5)
+				achievements.add(new AchievementRecord(record[1], record[2], record[3], record[4]));
+		if (!achievements.isEmpty()) {
+			plugin.getAchievementStore().writeAchievements(achievements);
+			plugin.getLogger().info("Replayed " + achievements.size() + " journaled achievements.");
+		}
+		Files.deleteIfExists(achievementsFile.toPath());
+	}
+
+	/**
+	 * Read a string written by SegmentRecords, or return null if it was cut
+	 * short.
+	 */
+	private static String readString(ByteBuffer buffer) {
+
+		if (buffer.remaining() < 2)
+			return null;
+		int length = buffer.getShort() & 0xFFFF;
+		if (buffer.remaining() < length)
+			return null;
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	/**
+	 * Read the complete text records of a file; a last record cut short by a
+	 * crash is ignored.
+	 */
+	private List<String[]> readRecords(File file) throws IOException {
+
+		List<String[]> records = new ArrayList<String[]>();
+		if (!file.exists())
+			return records;
+		String content = new String(Files.readAllBytes(file.toPath()), UTF_8);
+		int start = 0;
+		int end;
+		while ((end = content.indexOf('\n', start)) >= 0) {
+			if (end > start)
+				records.add(content.substring(start, end).split("\t", -1));
+			start = end + 1;
+		}
+		return records;
+	}
+
+	private TreeMap<Long, File> getSegmentFiles() {
+
+		TreeMap<Long, File> segmentFiles = new TreeMap<Long, File>();
+		File[] files = directory.listFiles();
+		if (files == null)
+			return segmentFiles;
+		for (File file : files) {
+			String name = file.getName();
+			if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+				try {
+					segmentFiles.put(Long.parseLong(
+							name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+				} catch (NumberFormatException e) {
+					// Not a segment.
+				}
+			}
+		}
+		return segmentFiles;
+	}
+
+	private File getSegmentFile(long segmentNumber) {
+
+		return new File(directory, SEGMENT_PREFIX + segmentNumber + SEGMENT_SUFFIX);
+	}
+
+	private void closeSegmentChannel() {
+
+		if (segmentChannel == null)
+			return;
+		try {
+			segmentChannel.close();
+		} catch (IOException e) {
+			// Closing anyway.
+		}
+		segmentChannel = null;
+	}
+
+	private static FileChannel openChannel(File file) throws IOException {
+
+		return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+	}
+
+	private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	/**
+	 * Append bytes to a buffer, replacing it with a larger one if needed.
+	 */
+	private static ByteBuffer append(ByteBuffer buffer, byte[] bytes) {
+
+		buffer = ensureRemaining(buffer, bytes.length);
+		buffer.put(bytes);
+		return buffer;
+	}
+
+	/**
+	 * Return a buffer with the content of the given one and room for at least
+	 * the given number of bytes.
+	 */
+	private static ByteBuffer ensureRemaining(ByteBuffer buffer, int length) {
+
+		if (buffer.remaining() >= length)
+			return buffer;
+		ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+		buffer.flip();
+		larger.put(buffer);
+		return larger;
+	}
+
+	private static byte[] toArray(ByteBuffer buffer) {
+
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	private static String escape(String field) {
+
+		return field == null ? "" : field.replace('\t', ' ').replace('\n', ' ');
+	}
+
+	/**
+	 * Statistics records of a segment not yet written to disk, along with the
+	 * keys already defined in the segment. Guarded by the journal.
+	 */
+	private final class SegmentRecords {
+
+		private ByteBuffer buffer;
+		// Zero if the category has no key in the segment yet.
+		private final int[] normalKeys;
+		private final Map<MultipleAchievements, Map<String, Integer>> multipleKeys;
+
+		private SegmentRecords() {
+
+			buffer = allocateBuffer();
+			normalKeys = new int[NormalAchievements.values().length];
+			multipleKeys = new EnumMap<MultipleAchievements, Map<String, Integer>>(MultipleAchievements.class);
+			for (MultipleAchievements category : MultipleAchievements.values())
+				multipleKeys.put(category, new HashMap<String, Integer>());
+		}
+
+		private void append(byte type, NormalAchievements category, UUID uuid, long amount) {
+
+			int key = normalKeys[category.ordinal()];
+			if (key == 0) {
+				key = nextKey++;
+				normalKeys[category.ordinal()] = key;
+				defineKey(key, category.toDBName(), "");
+			}
+			append(type, key, uuid, amount);
+		}
+
+		private void append(MultipleAchievements category, String subcategory, UUID uuid, long amount) {
+
+			Map<String, Integer> keys = multipleKeys.get(category);
+			Integer key = keys.get(subcategory);
+			if (key == null) {
+				key = nextKey++;
+				keys.put(subcategory, key);
+				defineKey(key, category.toDBName(), subcategory);
+			}
+			append(MULTIPLE_INCREASE, key, uuid, amount);
+		}
+
+		private void append(byte type, int key, UUID uuid, long amount) {
+
+			buffer = ensureRemaining(buffer, STATISTIC_RECORD_SIZE);
+			buffer.put(type).putInt(key).putLong(uuid.getMostSignificantBits())
+					.putLong(uuid.getLeastSignificantBits()).putLong(amount);
+		}
+
+		private void defineKey(int key, String category, String subcategory) {
+
+			byte[] categoryBytes = category.getBytes(UTF_8);
+			byte[] subcategoryBytes = subcategory.getBytes(UTF_8);
+			buffer = ensureRemaining(buffer, 1 + 4 + 2 + categoryBytes.length + 2 + subcategoryBytes.length);
+			buffer.put(KEY).putInt(key).putShort((short) categoryBytes.length).put(categoryBytes)
+					.putShort((short) subcategoryBytes.length).put(subcategoryBytes);
+		}
+
+		private boolean hasRecords() {
+
+			return buffer.position() > 0;
+		}
+
+		/**
+		 * Return the records appended so far and continue with an empty buffer.
+		 * The keys remain defined, as the records are written to the same
+		 * segment.
+		 */
+		private ByteBuffer takeBuffer() {
+
+			ByteBuffer records = buffer;
+			buffer = allocateBuffer();
+			return records;
+		}
+
+		private ByteBuffer allocateBuffer() {
+
+			return freeBuffers.isEmpty() ? ByteBuffer.allocate(BUFFER_SIZE) : freeBuffers.pop();
+		}
+
+		private void clearKeys() {
+
+			Arrays.fill(normalKeys, 0);
+			for (Map<String, Integer> keys : multipleKeys.values())
+				keys.clear();
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package com.hm.achievement.db;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import com.hm.achievement.category.MultipleAchievements;
+import com.hm.achievement.category.NormalAchievements;
+import com.hm.achievement.db.PlayerStatistics.DirtyStatistics;
+
+/**
+ * Storage of the statistics of the players, keyed by player UUID. Read
+ * methods report storage errors themselves and return the documented
+ * default; write methods throw so that callers can keep the statistics dirty
+ * and try again. Implementations must be thread-safe, as statistics are
+ * loaded and written from asynchronous tasks.
+ */
+public interface StatisticsStore {
+
+	/**
+	 * Load all the statistics of a player, or return null if an error occurred.
+	 */
+	PlayerStatistics loadPlayerStatistics(String uuid);
+
+	/**
+	 * Write changed player statistics atomically. The number of rows written
+	 * per table and the time taken to write them are added to writtenRows.
+	 */
+	void writeStatistics(List<DirtyStatistics> dirtyStatistics, WrittenRows writtenRows)
+			throws SQLException;
+
+	/**
+	 * Write changed player statistics and record, atomically, the last segment
+	 * of the given journal that they cover.
+	 */
+	void writeStatistics(List<DirtyStatistics> dirtyStatistics, WrittenRows writtenRows, String journal,
+			long segment) throws SQLException;
+
+	/**
+	 * Return the last segment of a journal whose statistics have been written,
+	 * or zero if none have been.
+	 */
+	long getJournalSegment(String journal) throws SQLException;
+
+	/**
+	 * Return a player's statistic for a normal category, or zero if none is
+	 * stored.
+	 */
+	int getStatistic(String uuid, NormalAchievements category);
+
+	/**
+	 * Return a player's statistic for a sub-category of a multiple category, or
+	 * zero if none is stored.
+	 */
+	int getStatistic(String uuid, MultipleAchievements category, String subcategory);
+
+	/**
+	 * Return a player's played time in milliseconds, or zero if none is stored.
+	 */
+	long getPlayedTime(String uuid);
+
+	/**
+	 * Return a player's number of connections, or zero if none is stored.
+	 */
+	int getConnections(String uuid);
+
+	/**
+	 * Return a player's last connection date, or null if none is stored.
+	 */
+	String getConnectionDate(String uuid);
+
+	/**
+	 * Increase a player's number of connections, set the last connection date
+	 * and return the new number of connections.
+	 */
+	int updateAndGetConnection(String uuid, String date);
+
+	/**
+	 * Write a player's number of connections and last connection date. The
+	 * write may complete asynchronously.
+	 */
+	void registerConnection(String uuid, int connections, String date);
+}
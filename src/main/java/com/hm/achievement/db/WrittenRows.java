@@ -0,0 +1,52 @@
+package com.hm.achievement.db;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Number of rows written to each table by a write of the pooled statistics,
+ * along with the time taken to execute the batches of the table. Tables are
+ * kept in the order in which they were written.
+ */
+public class WrittenRows {
+
+	private final Map<String, Integer> rows = new LinkedHashMap<String, Integer>();
+	private final Map<String, Long> nanos = new LinkedHashMap<String, Long>();
+
+	/**
+	 * Add rows written to a table in the given number of nanoseconds.
+	 */
+	public void add(String table, int tableRows, long tableNanos) {
+
+		Integer previousRows = rows.get(table);
+		rows.put(table, previousRows == null ? tableRows : previousRows + tableRows);
+		Long previousNanos = nanos.get(table);
+		nanos.put(table, previousNanos == null ? tableNanos : previousNanos + tableNanos);
+	}
+
+	public Set<String> getTables() {
+
+		return rows.keySet();
+	}
+
+	public int getRows(String table) {
+
+		Integer tableRows = rows.get(table);
+		return tableRows == null ? 0 : tableRows;
+	}
+
+	public long getNanos(String table) {
+
+		Long tableNanos = nanos.get(table);
+		return tableNanos == null ? 0L : tableNanos;
+	}
+
+	public int getTotalRows() {
+
+		int totalRows = 0;
+		for (int tableRows : rows.values())
+			totalRows += tableRows;
+		return totalRows;
+	}
+}
@@ -0,0 +1,37 @@
+package com.hm.achievement.handoff;
+
+import java.io.IOException;
+
+/**
+ * Channel through which the servers sharing a database exchange handoff
+ * messages. Messages are single lines of text published to every other
+ * server.
+ */
+public interface HandoffTransport {
+
+	/**
+	 * Start delivering the messages published by other servers to the given
+	 * receiver.
+	 */
+	void start(MessageReceiver receiver) throws IOException;
+
+	/**
+	 * Publish a message to the other servers. Does not wait for the message to
+	 * be delivered.
+	 */
+	void publish(String message);
+
+	/**
+	 * Stop receiving messages, after trying to send those already published.
+	 */
+	void close();
+
+	/**
+	 * Receiver of the messages published by other servers, called on a thread
+	 * of the transport.
+	 */
+	interface MessageReceiver {
+
+		void receive(String message);
+	}
+}
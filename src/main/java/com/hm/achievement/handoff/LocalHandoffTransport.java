@@ -0,0 +1,41 @@
+package com.hm.achievement.handoff;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Transport delivering messages to the other local transports started in the
+ * same process, which allows several plugin instances to exercise the handoff
+ * protocol without any network. Messages are delivered on the publishing
+ * thread.
+ */
+public class LocalHandoffTransport implements HandoffTransport {
+
+	private static final List<LocalHandoffTransport> TRANSPORTS = new CopyOnWriteArrayList<LocalHandoffTransport>();
+
+	private volatile MessageReceiver receiver;
+
+	@Override
+	public void start(MessageReceiver receiver) {
+
+		this.receiver = receiver;
+		TRANSPORTS.add(this);
+	}
+
+	@Override
+	public void publish(String message) {
+
+		for (LocalHandoffTransport transport : TRANSPORTS) {
+			MessageReceiver transportReceiver = transport.receiver;
+			if (transport != this && transportReceiver != null)
+				transportReceiver.receive(message);
+		}
+	}
+
+	@Override
+	public void close() {
+
+		TRANSPORTS.remove(this);
+		receiver = null;
+	}
+}
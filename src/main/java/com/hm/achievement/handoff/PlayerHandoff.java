@@ -0,0 +1,221 @@
+package com.hm.achievement.handoff;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.db.AchievementWriter;
+import com.hm.achievement.handoff.HandoffTransport.MessageReceiver;
+import com.hm.achievement.utils.YamlManager;
+
+/**
+ * Hands players over between servers sharing the same database, for instance
+ * behind a proxy. When a player joins, the other servers are told which
+ * server now holds the player; when a player leaves, the player's changed
+ * statistics and pending achievements are written and the other servers are
+ * told that the player has been released. A server on which the player joins
+ * while another server still holds the player waits for the release, or for
+ * the configured timeout, before loading the player's data, so that it does
+ * not read values that are about to be overwritten.
+ *
+ * Messages are lines made of the sending server's identifier, the message
+ * type and the player's UUID. Handoff is disabled unless a transport is
+ * configured.
+ */
+public class PlayerHandoff implements MessageReceiver {
+
+	private static final String JOIN = "JOIN";
+	private static final String RELEASE = "RELEASE";
+	// Interval at which the achievement writer is checked while releasing.
+	private static final long PENDING_CHECK_MILLIS = 50L;
+
+	private AdvancedAchievements plugin;
+	private final String serverId;
+	private final long timeout;
+	private HandoffTransport transport;
+
+	// Server holding each player that has joined another server and has not
+	// been released yet.
+	private final Map<String, String> remotePlayers;
+	// Tasks waiting for the release of a player.
+	private final Map<String, List<Runnable>> waitingTasks;
+
+	public PlayerHandoff(AdvancedAchievements plugin) {
+
+		this.plugin = plugin;
+		serverId = UUID.randomUUID().toString();
+		remotePlayers = new HashMap<String, String>();
+		waitingTasks = new HashMap<String, List<Runnable>>();
+
+		YamlManager config = plugin.getPluginConfig();
+		timeout = Math.max(0, config.getInt("Handoff.Timeout", 3000));
+		String transportType = config.getString("Handoff.Transport", "none");
+		String secret = config.getString("Handoff.Secret", "");
+		if ("socket".equalsIgnoreCase(transportType) && secret.isEmpty()) {
+			// Anyone able to reach the port could otherwise hold or release
+			// players.
+			plugin.getLogger()
+					.severe("Handoff.Secret must be set to use the socket transport, player handoff is disabled.");
+		} else if ("socket".equalsIgnoreCase(transportType)) {
+			List<String> peers = new ArrayList<String>();
+			for (Object peer : config.getList("Handoff.Peers", Collections.emptyList()))
+				peers.add(String.valueOf(peer));
+			transport = new SocketHandoffTransport(plugin.getLogger(),
+					config.getString("Handoff.BindAddress", "127.0.0.1"), config.getInt("Handoff.Port", 25590),
+					peers, secret);
+		} else if ("local".equalsIgnoreCase(transportType)) {
+			transport = new LocalHandoffTransport();
+		}
+	}
+
+	/**
+	 * Start receiving messages from the other servers. Handoff is disabled if
+	 * the transport cannot be started.
+	 */
+	public void start() {
+
+		if (transport == null)
+			return;
+		try {
+			transport.start(this);
+		} catch (IOException e) {
+			plugin.getLogger().severe("Error while starting player handoff, players will not wait for other servers: "
+					+ e);
+			transport = null;
+		}
+	}
+
+	/**
+	 * Tell the other servers that a player has joined this server.
+	 */
+	public void announceJoin(Player player) {
+
+		if (transport != null)
+			transport.publish(serverId + ' ' + JOIN + ' ' + player.getUniqueId());
+	}
+
+	/**
+	 * Run a task in an asynchronous task once the player has been released by
+	 * the server previously holding the player, or straight away if no other
+	 * server holds the player.
+	 */
+	public void runAsyncWhenReleased(final String uuid, Runnable task) {
+
+		if (transport != null) {
+			synchronized (this) {
+				if (remotePlayers.containsKey(uuid)) {
+					List<Runnable> tasks = waitingTasks.get(uuid);
+					if (tasks == null) {
+						tasks = new ArrayList<Runnable>();
+						waitingTasks.put(uuid, tasks);
+						Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, new Runnable() {
+
+							@Override
+							public void run() {
+
+								List<Runnable> expiredTasks;
+								synchronized (PlayerHandoff.this) {
+									expiredTasks = waitingTasks.remove(uuid);
+									remotePlayers.remove(uuid);
+								}
+								if (expiredTasks != null) {
+									plugin.getLogger().warning("Player " + uuid
+											+ " was not released by the previous server in time, loading data anyway.");
+									for (Runnable expiredTask : expiredTasks)
+										expiredTask.run();
+								}
+							}
+						}, timeout / 50);
+					}
+					tasks.add(task);
+					return;
+				}
+			}
+		}
+		Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+	}
+
+	/**
+	 * Write the data of a player who has left this server and tell the other
+	 * servers once it is visible in the database.
+	 */
+	public void release(Player player) {
+
+		if (transport == null)
+			return;
+		final String uuid = player.getUniqueId().toString();
+		if (plugin.isAsyncPooledRequestsSender()) {
+			Bukkit.getScheduler().runTaskAsynchronously(plugin, new Runnable() {
+
+				@Override
+				public void run() {
+
+					writeAndRelease(uuid);
+				}
+			});
+		} else {
+			writeAndRelease(uuid);
+		}
+	}
+
+	private void writeAndRelease(String uuid) {
+
+		plugin.getPoolsManager().writePlayerStatistics(uuid);
+		AchievementWriter writer = plugin.getDb().getAchievementWriter();
+		long deadline = System.currentTimeMillis() + timeout;
+		while (writer != null && writer.hasPendingAchievements(uuid) && System.currentTimeMillis() < deadline) {
+			try {
+				Thread.sleep(PENDING_CHECK_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		transport.publish(serverId + ' ' + RELEASE + ' ' + uuid);
+	}
+
+	@Override
+	public void receive(String message) {
+
+		String[] parts = message.split(" ");
+		if (parts.length != 3 || serverId.equals(parts[0]))
+			return;
+		String sender = parts[0];
+		String uuid = parts[2];
+		List<Runnable> releasedTasks = null;
+		synchronized (this) {
+			if (JOIN.equals(parts[1])) {
+				remotePlayers.put(uuid, sender);
+			} else if (RELEASE.equals(parts[1]) && sender.equals(remotePlayers.get(uuid))) {
+				// Releases from a server the player has already left for another
+				// one are outdated.
+				remotePlayers.remove(uuid);
+				releasedTasks = waitingTasks.remove(uuid);
+			}
+		}
+		if (releasedTasks != null && plugin.isEnabled())
+			for (Runnable task : releasedTasks)
+				Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+	}
+
+	/**
+	 * Release all the players still online and stop receiving messages. Must
+	 * be called once all the data has been written.
+	 */
+	public void shutdown() {
+
+		if (transport == null)
+			return;
+		for (Player player : Bukkit.getOnlinePlayers())
+			transport.publish(serverId + ' ' + RELEASE + ' ' + player.getUniqueId());
+		transport.close();
+	}
+}
@@ -0,0 +1,272 @@
+package com.hm.achievement.handoff;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Transport sending messages as lines of text over plain TCP connections.
+ * Each server listens on a port and opens one connection to each of its
+ * peers, re-established when it fails; messages that cannot be sent are
+ * dropped, in which case the receiving server stops waiting after its
+ * timeout. Lines start with a shared secret, which must not be empty;
+ * connections sending a line with a different secret are closed.
+ *
+ * Incoming connections are read by a bounded pool of threads. Connections
+ * accepted while all the threads are reading are closed straight away.
+ */
+public class SocketHandoffTransport implements HandoffTransport {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+	private static final int MAX_QUEUED_MESSAGES = 10000;
+	// Time given to the sender thread to send the last messages when closing.
+	private static final long CLOSE_TIMEOUT_MILLIS = 2000L;
+	// Queued to stop the sender thread.
+	private static final String END_OF_MESSAGES = "";
+	// Minimum number of reader threads, whatever the number of peers.
+	private static final int MIN_READERS = 4;
+	private static final long READER_KEEP_ALIVE_SECONDS = 60L;
+
+	private final Logger logger;
+	private final InetSocketAddress bindAddress;
+	private final List<InetSocketAddress> peers;
+	private final String secret;
+	private final LinkedBlockingQueue<String> outgoingMessages;
+	private final Set<Socket> incomingSockets;
+	private final Socket[] peerSockets;
+	private final Writer[] peerWriters;
+
+	private ServerSocket serverSocket;
+	private ExecutorService readers;
+	private Thread senderThread;
+	private volatile boolean closed;
+
+	public SocketHandoffTransport(Logger logger, String bindAddress, int port, List<String> peers, String secret) {
+
+		if (secret == null || secret.isEmpty())
+			throw new IllegalArgumentException("The socket handoff transport requires a secret.");
+		this.logger = logger;
+		this.bindAddress = new InetSocketAddress(bindAddress, port);
+		this.peers = new ArrayList<InetSocketAddress>();
+		for (String peer : peers) {
+			int separator = peer.lastIndexOf(':');
+			try {
+				this.peers.add(InetSocketAddress.createUnresolved(peer.substring(0, separator),
+						Integer.parseInt(peer.substring(separator + 1))));
+			} catch (RuntimeException e) {
+				logger.warning("Invalid handoff peer \"" + peer + "\". Please specify it as host:port.");
+			}
+		}
+		this.secret = secret;
+		outgoingMessages = new LinkedBlockingQueue<String>(MAX_QUEUED_MESSAGES);
+		incomingSockets = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+		peerSockets = new Socket[this.peers.size()];
+		peerWriters = new Writer[this.peers.size()];
+	}
+
+	@Override
+	public void start(final MessageReceiver receiver) throws IOException {
+
+		// Each peer keeps one connection open; twice as many threads leave room
+		// for reconnections before the previous connection is found closed.
+		readers = new ThreadPoolExecutor(0, Math.max(MIN_READERS, 2 * peers.size()), READER_KEEP_ALIVE_SECONDS,
+				TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+
+					@Override
+					public Thread newThread(Runnable runnable) {
+
+						Thread thread = new Thread(runnable, "AdvancedAchievements handoff reader");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		serverSocket = new ServerSocket();
+		serverSocket.bind(bindAddress);
+
+		Thread acceptThread = new Thread("AdvancedAchievements handoff listener") {
+
+			@Override
+			public void run() {
+
+				while (!closed) {
+					try {
+						Socket socket = serverSocket.accept();
+						incomingSockets.add(socket);
+						startReader(socket, receiver);
+					} catch (IOException e) {
+						if (!closed)
+							logger.warning("Error while accepting handoff connection: " + e);
+					}
+				}
+			}
+		};
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+
+		senderThread = new Thread("AdvancedAchievements handoff sender") {
+
+			@Override
+			public void run() {
+
+				try {
+					String message;
+					while ((message = outgoingMessages.take()) != END_OF_MESSAGES)
+						send(message);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				for (int i = 0; i < peerSockets.length; ++i)
+					closePeer(i);
+			}
+		};
+		senderThread.setDaemon(true);
+		senderThread.start();
+	}
+
+	@Override
+	public void publish(String message) {
+
+		if (!closed && !outgoingMessages.offer(message))
+			logger.warning("Handoff message queue is full, message dropped.");
+	}
+
+	@Override
+	public void close() {
+
+		closed = true;
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			// Closing anyway.
+		}
+		for (Socket socket : incomingSockets) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Closing anyway.
+			}
+		}
+		readers.shutdownNow();
+		outgoingMessages.offer(END_OF_MESSAGES);
+		try {
+			senderThread.join(CLOSE_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Read the lines sent by a peer in one of the reader threads, or close the
+	 * connection if they are all busy.
+	 */
+	private void startReader(final Socket socket, final MessageReceiver receiver) {
+
+		try {
+			readers.execute(new Runnable() {
+
+				@Override
+				public void run() {
+
+					read(socket, receiver);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			if (!closed)
+				logger.warning("Too many handoff connections, closing connection from "
+						+ socket.getRemoteSocketAddress() + ".");
+			closeIncoming(socket);
+		}
+	}
+
+	/**
+	 * Read the lines sent by a peer until the connection is closed or a line
+	 * does not start with the secret.
+	 */
+	private void read(Socket socket, MessageReceiver receiver) {
+
+		String prefix = secret + ' ';
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.startsWith(prefix)) {
+					logger.warning("Invalid handoff secret received from " + socket.getRemoteSocketAddress()
+							+ ", closing connection.");
+					break;
+				}
+				receiver.receive(line.substring(prefix.length()));
+			}
+		} catch (IOException e) {
+			// Connection closed by the peer or when closing the transport.
+		} finally {
+			closeIncoming(socket);
+		}
+	}
+
+	private void closeIncoming(Socket socket) {
+
+		incomingSockets.remove(socket);
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// Closing anyway.
+		}
+	}
+
+	/**
+	 * Send a message to every peer, connecting to the peers that are not
+	 * connected. Only called by the sender thread.
+	 */
+	private void send(String message) {
+
+		for (int i = 0; i < peerSockets.length; ++i) {
+			try {
+				if (peerSockets[i] == null) {
+					InetSocketAddress peer = peers.get(i);
+					Socket socket = new Socket();
+					socket.connect(new InetSocketAddress(peer.getHostString(), peer.getPort()),
+							CONNECT_TIMEOUT_MILLIS);
+					peerSockets[i] = socket;
+					peerWriters[i] = new OutputStreamWriter(socket.getOutputStream(), UTF_8);
+				}
+				peerWriters[i].write(secret + ' ' + message + '\n');
+				peerWriters[i].flush();
+			} catch (IOException e) {
+				logger.warning("Could not send handoff message to " + peers.get(i) + ": " + e);
+				closePeer(i);
+			}
+		}
+	}
+
+	private void closePeer(int index) {
+
+		if (peerSockets[index] == null)
+			return;
+		try {
+			peerSockets[index].close();
+		} catch (IOException e) {
+			// Reconnecting anyway.
+		}
+		peerSockets[index] = null;
+		peerWriters[index] = null;
+	}
+}
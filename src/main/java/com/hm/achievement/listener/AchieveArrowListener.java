@@ -8,6 +8,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityShootBowEvent;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.NormalAchievements;
 
 public class AchieveArrowListener implements Listener {
 
@@ -30,17 +31,6 @@ public class AchieveArrowListener implements Listener {
 				|| plugin.isInExludedWorld(player))
 			return;
 
-		int arrows = plugin.getPoolsManager().getPlayerArrowAmount(player) + 1;
-
-		plugin.getPoolsManager().getArrowHashMap().put(player.getUniqueId().toString(), arrows);
-
-		String configAchievement = "Arrows." + arrows;
-		if (plugin.getReward().checkAchievement(configAchievement)) {
-
-			plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-			plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-					plugin.getPluginConfig().getString(configAchievement + ".Message"));
-			plugin.getReward().checkConfig(player, configAchievement);
-		}
+		plugin.getPoolsManager().incrementStatisticAndAward(player, NormalAchievements.ARROWS, 1);
 	}
 }
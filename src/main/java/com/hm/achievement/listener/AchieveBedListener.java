@@ -8,6 +8,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerBedEnterEvent;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.NormalAchievements;
 
 public class AchieveBedListener implements Listener {
 
@@ -28,18 +29,6 @@ public class AchieveBedListener implements Listener {
 				|| plugin.isInExludedWorld(player))
 			return;
 
-		int beds = plugin.getPoolsManager().getPlayerBedAmount(player) + 1;
-
-		plugin.getPoolsManager().getBedHashMap().put(player.getUniqueId().toString(), beds);
-
-		String configAchievement = "Beds." + beds;
-		if (plugin.getReward().checkAchievement(configAchievement)) {
-
-			plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-			plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-					plugin.getPluginConfig().getString(configAchievement + ".Message"));
-			plugin.getReward().checkConfig(player, configAchievement);
-		}
+		plugin.getPoolsManager().incrementStatisticAndAward(player, NormalAchievements.BEDS, 1);
 	}
-
 }
@@ -8,7 +8,10 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
 
+import com.hm.achievement.AchievementIndex;
+import com.hm.achievement.AchievementIndex.Thresholds;
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.MultipleAchievements;
 
 public class AchieveBlockBreakListener implements Listener {
 
@@ -27,30 +30,17 @@ public class AchieveBlockBreakListener implements Listener {
 		if (plugin.isRestrictCreative() && player.getGameMode() == GameMode.CREATIVE || plugin.isInExludedWorld(player))
 			return;
 		Block block = event.getBlock();
-		String blockName = block.getType().name().toLowerCase();
-		if (player.hasPermission("achievement.count.breaks." + blockName + ":" + block.getData())
-				&& plugin.getPluginConfig().isConfigurationSection("Breaks." + blockName + ":" + block.getData()))
-			blockName += ":" + block.getData();
-		else {
-			if (!player.hasPermission("achievement.count.breaks." + blockName))
-				return;
-			if (!plugin.getPluginConfig().isConfigurationSection("Breaks." + blockName))
+		// Sub-categories are looked up by material and data value, the one with
+		// the data value taking precedence.
+		AchievementIndex index = plugin.getAchievementIndex();
+		Thresholds thresholds = index.getThresholds(MultipleAchievements.BREAKS, block.getType(), block.getData());
+		if (!plugin.getPermissionCache().hasPermission(player, thresholds)) {
+			thresholds = index.getThresholds(MultipleAchievements.BREAKS, block.getType());
+			if (!plugin.getPermissionCache().hasPermission(player, thresholds))
 				return;
 		}
+		String blockName = thresholds.getSubcategory();
 
-		int breaks = plugin.getPoolsManager().getPlayerBlockBreakAmount(player, blockName) + 1;
-
-		plugin.getPoolsManager().getBlockBreakHashMap().put(player.getUniqueId().toString() + blockName, breaks);
-
-		String configAchievement = "Breaks." + blockName + '.' + breaks;
-		if (plugin.getReward().checkAchievement(configAchievement)) {
-
-			plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-			plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-					plugin.getPluginConfig().getString(configAchievement + ".Message"));
-			plugin.getReward().checkConfig(player, configAchievement);
-
-		}
+		plugin.getPoolsManager().incrementStatisticAndAward(player, MultipleAchievements.BREAKS, blockName, 1);
 	}
-
 }
@@ -6,6 +6,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
@@ -37,6 +38,18 @@ public class AchieveConnectionListener implements Listener {
 	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
 	public void onPlayerJoin(PlayerJoinEvent event) {
 
+		// Load player's achievements in the cache and start loading the other
+		// statistics, once released by the server previously holding the player.
+		plugin.getPlayerHandoff().announceJoin(event.getPlayer());
+		plugin.getDb().getAchievementCache().load(event.getPlayer().getUniqueId().toString());
+		plugin.getPoolsManager().loadPlayerStatistics(event.getPlayer());
+
+		// Spread the player's periodic tasks over the ticks of their period.
+		if (plugin.getPlayedTimeScheduler() != null)
+			plugin.getPlayedTimeScheduler().addPlayer(event.getPlayer());
+		if (plugin.getDistanceScheduler() != null)
+			plugin.getDistanceScheduler().addPlayer(event.getPlayer());
+
 		// Check if OP to display new version message if needed.
 		if (plugin.getUpdateChecker() != null && plugin.getUpdateChecker().isUpdateNeeded()
 				&& event.getPlayer().hasPermission("achievement.update")) {
@@ -52,10 +65,18 @@ public class AchieveConnectionListener implements Listener {
 		// If player doesn't have permissions, no need to store data.
 		if (plugin.getAchievePlayTimeRunnable() != null
 				&& event.getPlayer().hasPermission("achievement.count.playedtime")) {
-			plugin.getConnectionListener().getJoinTime().put(event.getPlayer().getUniqueId().toString(),
-					System.currentTimeMillis());
-			plugin.getConnectionListener().getPlayTime().put(event.getPlayer().getUniqueId().toString(),
-					plugin.getDb().updateAndGetPlaytime(event.getPlayer().getUniqueId().toString(), 0L));
+			final Player player = event.getPlayer();
+			final long joinTime = System.currentTimeMillis();
+			plugin.getPoolsManager().runWhenLoaded(player, new Runnable() {
+
+				@Override
+				public void run() {
+
+					plugin.getConnectionListener().getJoinTime().put(player.getUniqueId().toString(), joinTime);
+					plugin.getConnectionListener().getPlayTime().put(player.getUniqueId().toString(),
+							plugin.getPoolsManager().getPlayerPlayedTime(player));
+				}
+			});
 		}
 
 		// Schedule delayed task to check if player has a new Connections
@@ -9,6 +9,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerItemConsumeEvent;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.NormalAchievements;
 
 public class AchieveConsumeListener implements Listener {
 
@@ -26,29 +27,17 @@ public class AchieveConsumeListener implements Listener {
 		if (plugin.isRestrictCreative() && player.getGameMode() == GameMode.CREATIVE || plugin.isInExludedWorld(player))
 			return;
 
-		String configAchievement;
+		NormalAchievements category;
 
 		if (event.getItem().getType() == Material.POTION && !plugin.getDisabledCategorySet().contains("ConsumedPotions")
 				&& player.hasPermission("achievement.count.consumedpotions")) {
-			int consumedPotions = plugin.getPoolsManager().getPlayerConsumedPotionAmount(player) + 1;
-
-			plugin.getPoolsManager().getConsumedPotionsHashMap().put(player.getUniqueId().toString(), consumedPotions);
-			configAchievement = "ConsumedPotions." + consumedPotions;
+			category = NormalAchievements.CONSUMEDPOTIONS;
 		} else if (player.hasPermission("achievement.count.eatenitems")
 				&& !plugin.getDisabledCategorySet().contains("EatenItems")) {
-			int eatenItems = plugin.getPoolsManager().getPlayerEatenItemAmount(player) + 1;
-
-			plugin.getPoolsManager().getEatenItemsHashMap().put(player.getUniqueId().toString(), eatenItems);
-			configAchievement = "EatenItems." + eatenItems;
+			category = NormalAchievements.EATENITEMS;
 		} else
 			return;
 
-		if (plugin.getReward().checkAchievement(configAchievement)) {
-
-			plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-			plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-					plugin.getPluginConfig().getString(configAchievement + ".Message"));
-			plugin.getReward().checkConfig(player, configAchievement);
-		}
+		plugin.getPoolsManager().incrementStatisticAndAward(player, category, 1);
 	}
 }
@@ -10,7 +10,10 @@ import org.bukkit.event.inventory.CraftItemEvent;
 import org.bukkit.event.inventory.InventoryAction;
 import org.bukkit.inventory.ItemStack;
 
+import com.hm.achievement.AchievementIndex;
+import com.hm.achievement.AchievementIndex.Thresholds;
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.MultipleAchievements;
 
 public class AchieveCraftListener implements Listener {
 
@@ -33,18 +36,16 @@ public class AchieveCraftListener implements Listener {
 			return;
 
 		ItemStack item = event.getRecipe().getResult();
-		String craftName = item.getType().name().toLowerCase();
-		if (player.hasPermission("achievement.count.crafts." + craftName + ":" + item.getDurability())
-				&& plugin.getPluginConfig().isConfigurationSection("Crafts." + craftName + ":" + item.getDurability()))
-			craftName += ":" + item.getDurability();
-		else {
-			if (!player.hasPermission("achievement.count.crafts." + craftName))
-				return;
-			if (!plugin.getPluginConfig().isConfigurationSection("Crafts." + craftName))
+		AchievementIndex index = plugin.getAchievementIndex();
+		Thresholds thresholds = index.getThresholds(MultipleAchievements.CRAFTS, item.getType(), item.getDurability());
+		if (!plugin.getPermissionCache().hasPermission(player, thresholds)) {
+			thresholds = index.getThresholds(MultipleAchievements.CRAFTS, item.getType());
+			if (!plugin.getPermissionCache().hasPermission(player, thresholds))
 				return;
 		}
+		String craftName = thresholds.getSubcategory();
 
-		int amount = item.getAmount();
+		int craftedStacks = 1;
 		if (event.isShiftClick()) {
 			int max = event.getInventory().getMaxStackSize();
 			ItemStack[] matrix = event.getInventory().getMatrix();
@@ -55,27 +56,10 @@ public class AchieveCraftListener implements Listener {
 						max = tmp;
 				}
 			}
-			amount *= max;
+			craftedStacks = max;
 		}
+		int amount = item.getAmount() * craftedStacks;
 
-		int times = plugin.getPoolsManager().getPlayerCraftAmount(player, craftName) + amount;
-
-		plugin.getPoolsManager().getCraftHashMap().put(player.getUniqueId().toString() + craftName, times);
-
-		String configAchievement;
-		for (String threshold : plugin.getPluginConfig().getConfigurationSection("Crafts." + craftName).getKeys(false))
-			if (times >= Integer.parseInt(threshold) && !plugin.getDb().hasPlayerAchievement(player,
-					plugin.getPluginConfig().getString("Crafts." + craftName + '.' + threshold + '.' + "Name"))) {
-				configAchievement = "Crafts." + craftName + '.' + threshold;
-				if (plugin.getReward().checkAchievement(configAchievement)) {
-
-					plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-					plugin.getDb().registerAchievement(player,
-							plugin.getPluginConfig().getString(configAchievement + ".Name"),
-							plugin.getPluginConfig().getString(configAchievement + ".Message"));
-					plugin.getReward().checkConfig(player, configAchievement);
-
-				}
-			}
+		plugin.getPoolsManager().incrementStatisticAndAward(player, MultipleAchievements.CRAFTS, craftName, amount);
 	}
 }
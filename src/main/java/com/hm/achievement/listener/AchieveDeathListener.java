@@ -7,6 +7,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.entity.PlayerDeathEvent;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.NormalAchievements;
 
 public class AchieveDeathListener implements Listener {
 
@@ -29,17 +30,6 @@ public class AchieveDeathListener implements Listener {
 				|| plugin.getDisabledCategorySet().contains("Deaths"))
 			return;
 
-		int deaths = plugin.getPoolsManager().getPlayerDeathAmount(player) + 1;
-
-		plugin.getPoolsManager().getDeathHashMap().put(player.getUniqueId().toString(), deaths);
-
-		String configAchievement = "Deaths." + deaths;
-		if (plugin.getReward().checkAchievement(configAchievement)) {
-
-			plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-			plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-					plugin.getPluginConfig().getString(configAchievement + ".Message"));
-			plugin.getReward().checkConfig(player, configAchievement);
-		}
+		plugin.getPoolsManager().incrementStatisticAndAward(player, NormalAchievements.DEATHS, 1);
 	}
 }
@@ -8,6 +8,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerDropItemEvent;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.NormalAchievements;
 
 public class AchieveDropListener implements Listener {
 
@@ -27,18 +28,6 @@ public class AchieveDropListener implements Listener {
 				|| plugin.isInExludedWorld(player))
 			return;
 
-		int drops = plugin.getPoolsManager().getPlayerDropAmount(player) + 1;
-
-		plugin.getPoolsManager().getDropHashMap().put(player.getUniqueId().toString(), drops);
-
-		String configAchievement = "ItemDrops." + drops;
-		if (plugin.getReward().checkAchievement(configAchievement)) {
-
-			plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-			plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-					plugin.getPluginConfig().getString(configAchievement + ".Message"));
-
-			plugin.getReward().checkConfig(player, configAchievement);
-		}
+		plugin.getPoolsManager().incrementStatisticAndAward(player, NormalAchievements.DROPS, 1);
 	}
 }
@@ -8,6 +8,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.enchantment.EnchantItemEvent;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.NormalAchievements;
 
 public class AchieveEnchantListener implements Listener {
 
@@ -27,18 +28,6 @@ public class AchieveEnchantListener implements Listener {
 				|| plugin.isInExludedWorld(player))
 			return;
 
-		int enchantments = plugin.getPoolsManager().getPlayerEnchantmentAmount(player) + 1;
-
-		plugin.getPoolsManager().getEnchantmentHashMap().put(player.getUniqueId().toString(), enchantments);
-		
-		String configAchievement = "Enchantments." + enchantments;
-		if (plugin.getReward().checkAchievement(configAchievement)) {
-
-			plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-			plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-					plugin.getPluginConfig().getString(configAchievement + ".Message"));
-
-			plugin.getReward().checkConfig(player, configAchievement);
-		}
+		plugin.getPoolsManager().incrementStatisticAndAward(player, NormalAchievements.ENCHANTMENTS, 1);
 	}
 }
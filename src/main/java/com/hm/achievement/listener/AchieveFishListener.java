@@ -8,6 +8,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerFishEvent;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.NormalAchievements;
 
 public class AchieveFishListener implements Listener {
 
@@ -29,19 +30,6 @@ public class AchieveFishListener implements Listener {
 				|| plugin.isInExludedWorld(player))
 			return;
 
-		int fish = plugin.getPoolsManager().getPlayerFishAmount(player) + 1;
-
-		plugin.getPoolsManager().getFishHashMap().put(player.getUniqueId().toString(), fish);
-		
-		String configAchievement = "Fish." + fish;
-		if (plugin.getReward().checkAchievement(configAchievement)) {
-
-			plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-			plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-					plugin.getPluginConfig().getString(configAchievement + ".Message"));
-
-			plugin.getReward().checkConfig(player, configAchievement);
-
-		}
+		plugin.getPoolsManager().incrementStatisticAndAward(player, NormalAchievements.FISH, 1);
 	}
 }
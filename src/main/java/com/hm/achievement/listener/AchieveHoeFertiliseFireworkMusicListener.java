@@ -11,6 +11,7 @@ import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.inventory.ItemStack;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.NormalAchievements;
 import com.hm.achievement.particle.ReflectionUtils.PackageType;
 
 public class AchieveHoeFertiliseFireworkMusicListener implements Listener {
@@ -38,7 +39,7 @@ public class AchieveHoeFertiliseFireworkMusicListener implements Listener {
 		if (plugin.isRestrictCreative() && player.getGameMode() == GameMode.CREATIVE || plugin.isInExludedWorld(player))
 			return;
 
-		String configAchievement;
+		NormalAchievements category;
 		if (player.hasPermission("achievement.count.hoeplowings")
 				&& !plugin.getDisabledCategorySet().contains("HoePlowings")
 				&& (event.getItem().getType() == Material.DIAMOND_HOE || event.getItem().getType() == Material.IRON_HOE
@@ -47,12 +48,7 @@ public class AchieveHoeFertiliseFireworkMusicListener implements Listener {
 						|| event.getItem().getType() == Material.GOLD_HOE)
 				&& (event.getClickedBlock().getType() == Material.GRASS
 						|| event.getClickedBlock().getType() == Material.DIRT)) {
-			int plowings = plugin.getPoolsManager().getPlayerHoePlowingAmount(player) + 1;
-
-			plugin.getPoolsManager().getHoePlowingHashMap().put(player.getUniqueId().toString(), plowings);
-
-			configAchievement = "HoePlowings." + plowings;
-
+			category = NormalAchievements.HOEPLOWING;
 		} else if (player.hasPermission("achievement.count.fertilising")
 				&& !plugin.getDisabledCategorySet().contains("Fertilising")
 				&& event.getItem().isSimilar(new ItemStack(Material.INK_SACK, 1, (short) 15))
@@ -69,40 +65,19 @@ public class AchieveHoeFertiliseFireworkMusicListener implements Listener {
 						|| event.getClickedBlock().getType() == Material.COCOA
 						|| event.getClickedBlock().getType() == Material.LONG_GRASS
 						|| (version >= 9 && event.getClickedBlock().getType() == Material.BEETROOT_BLOCK))) {
-			int fertilising = plugin.getPoolsManager().getPlayerFertiliseAmount(player) + 1;
-
-			plugin.getPoolsManager().getFertiliseHashMap().put(player.getUniqueId().toString(), fertilising);
-
-			configAchievement = "Fertilising." + fertilising;
-
+			category = NormalAchievements.FERTILISING;
 		} else if (player.hasPermission("achievement.count.fireworks")
 				&& !plugin.getDisabledCategorySet().contains("Fireworks")
 				&& event.getItem().getType() == Material.FIREWORK) {
-			int fireworks = plugin.getPoolsManager().getPlayerFireworkAmount(player) + 1;
-
-			plugin.getPoolsManager().getFireworkHashMap().put(player.getUniqueId().toString(), fireworks);
-
-			configAchievement = "Fireworks." + fireworks;
-
+			category = NormalAchievements.FIREWORKS;
 		} else if (player.hasPermission("achievement.count.musicdiscs")
 				&& !plugin.getDisabledCategorySet().contains("MusicDiscs")
 				&& event.getItem().getType().name().contains("RECORD")
 				&& event.getClickedBlock().getType() == Material.JUKEBOX) {
-			int musicDiscs = plugin.getPoolsManager().getPlayerMusicDiscAmount(player) + 1;
-
-			plugin.getPoolsManager().getMusicDiscHashMap().put(player.getUniqueId().toString(), musicDiscs);
-
-			configAchievement = "MusicDiscs." + musicDiscs;
-
+			category = NormalAchievements.MUSICDISCS;
 		} else
 			return;
 
-		if (plugin.getReward().checkAchievement(configAchievement)) {
-
-			plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-			plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-					plugin.getPluginConfig().getString(configAchievement + ".Message"));
-			plugin.getReward().checkConfig(player, configAchievement);
-		}
+		plugin.getPoolsManager().incrementStatisticAndAward(player, category, 1);
 	}
 }
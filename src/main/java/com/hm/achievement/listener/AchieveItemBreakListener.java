@@ -7,6 +7,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerItemBreakEvent;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.NormalAchievements;
 
 public class AchieveItemBreakListener implements Listener {
 
@@ -24,18 +25,6 @@ public class AchieveItemBreakListener implements Listener {
 		if (!player.hasPermission("achievement.count.itembreaks") || plugin.isInExludedWorld(player))
 			return;
 
-		int itemBreaks = plugin.getPoolsManager().getPlayerItemBreakAmount(player) + 1;
-
-		plugin.getPoolsManager().getItemBreakHashMap().put(player.getUniqueId().toString(), itemBreaks);
-		
-		String configAchievement = "ItemBreaks." + itemBreaks;
-		if (plugin.getReward().checkAchievement(configAchievement)) {
-
-			plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-			plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-					plugin.getPluginConfig().getString(configAchievement + ".Message"));
-
-			plugin.getReward().checkConfig(player, configAchievement);
-		}
+		plugin.getPoolsManager().incrementStatisticAndAward(player, NormalAchievements.ITEMBREAKS, 1);
 	}
 }
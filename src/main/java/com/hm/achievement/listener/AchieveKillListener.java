@@ -10,7 +10,9 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDeathEvent;
 
+import com.hm.achievement.AchievementIndex.Thresholds;
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.MultipleAchievements;
 
 public class AchieveKillListener implements Listener {
 
@@ -37,34 +39,15 @@ public class AchieveKillListener implements Listener {
 			return;
 		}
 
-		String mobName = null;
-		if (entity instanceof Player) {
-			mobName = "player";
-		} else {
-			mobName = entity.getType().name().toLowerCase();
-			if (entity instanceof Creeper) {
-				Creeper c = (Creeper) entity;
-				if (c.isPowered()) {
-					mobName = "poweredcreeper";
-				}
-			}
-		}
-		if (!plugin.getPluginConfig().isConfigurationSection("Kills." + mobName)
-				|| !player.hasPermission("achievement.count.kills." + mobName))
+		Thresholds thresholds;
+		if (entity instanceof Creeper && ((Creeper) entity).isPowered())
+			thresholds = plugin.getAchievementIndex().getThresholds(MultipleAchievements.KILLS, "poweredcreeper");
+		else
+			thresholds = plugin.getAchievementIndex().getKillThresholds(entity.getType());
+		if (!plugin.getPermissionCache().hasPermission(player, thresholds))
 			return;
+		String mobName = thresholds.getSubcategory();
 
-		int kills = plugin.getPoolsManager().getPlayerKillAmount(player, mobName) + 1;
-
-		plugin.getPoolsManager().getKillHashMap().put(player.getUniqueId().toString() + mobName, kills);
-
-		String configAchievement = "Kills." + mobName + '.' + kills;
-		if (plugin.getReward().checkAchievement(configAchievement)) {
-
-			plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-			plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-					plugin.getPluginConfig().getString(configAchievement + ".Message"));
-
-			plugin.getReward().checkConfig(player, configAchievement);
-		}
+		plugin.getPoolsManager().incrementStatisticAndAward(player, MultipleAchievements.KILLS, mobName, 1);
 	}
 }
@@ -8,6 +8,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerBucketFillEvent;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.NormalAchievements;
 
 public class AchieveMilkListener implements Listener {
 
@@ -27,18 +28,6 @@ public class AchieveMilkListener implements Listener {
 		if (!player.hasPermission("achievement.count.milk") || plugin.isInExludedWorld(player))
 			return;
 
-		int milks = plugin.getPoolsManager().getPlayerMilkAmount(player) + 1;
-
-		plugin.getPoolsManager().getMilkHashMap().put(player.getUniqueId().toString(), milks);
-
-		String configAchievement = "Milk." + milks;
-		if (plugin.getReward().checkAchievement(configAchievement)) {
-
-			plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-			plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-					plugin.getPluginConfig().getString(configAchievement + ".Message"));
-
-			plugin.getReward().checkConfig(player, configAchievement);
-		}
+		plugin.getPoolsManager().incrementStatisticAndAward(player, NormalAchievements.MILKS, 1);
 	}
 }
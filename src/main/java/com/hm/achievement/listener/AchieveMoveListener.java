@@ -0,0 +1,44 @@
+package com.hm.achievement.listener;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.vehicle.VehicleMoveEvent;
+
+import com.hm.achievement.AdvancedAchievements;
+
+/**
+ * Reports the movements of players and of the vehicles they ride to the
+ * distance runnable, when distances are tracked with events rather than by
+ * polling player locations.
+ */
+public class AchieveMoveListener implements Listener {
+
+	private AdvancedAchievements plugin;
+
+	public AchieveMoveListener(AdvancedAchievements plugin) {
+
+		this.plugin = plugin;
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onPlayerMove(PlayerMoveEvent event) {
+
+		// Movements in vehicles are reported by vehicle move events.
+		Player player = event.getPlayer();
+		if (!player.isInsideVehicle())
+			plugin.getAchieveDistanceRunnable().recordMovement(player, event.getTo());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onVehicleMove(VehicleMoveEvent event) {
+
+		Entity passenger = event.getVehicle().getPassenger();
+		if (passenger instanceof Player)
+			plugin.getAchieveDistanceRunnable().recordMovement((Player) passenger, event.getTo());
+	}
+
+}
@@ -8,6 +8,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerShearEntityEvent;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.NormalAchievements;
 
 public class AchieveShearListener implements Listener {
 
@@ -27,18 +28,6 @@ public class AchieveShearListener implements Listener {
 				|| plugin.isInExludedWorld(player))
 			return;
 
-		int shears = plugin.getPoolsManager().getPlayerShearAmount(player) + 1;
-
-		plugin.getPoolsManager().getShearHashMap().put(player.getUniqueId().toString(), shears);
-
-		String configAchievement = "Shear." + shears;
-		if (plugin.getReward().checkAchievement(configAchievement)) {
-
-			plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-			plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-					plugin.getPluginConfig().getString(configAchievement + ".Message"));
-
-			plugin.getReward().checkConfig(player, configAchievement);
-		}
+		plugin.getPoolsManager().incrementStatisticAndAward(player, NormalAchievements.SHEARS, 1);
 	}
 }
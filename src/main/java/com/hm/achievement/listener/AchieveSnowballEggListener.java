@@ -10,6 +10,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.entity.ProjectileLaunchEvent;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.NormalAchievements;
 
 public class AchieveSnowballEggListener implements Listener {
 
@@ -30,30 +31,16 @@ public class AchieveSnowballEggListener implements Listener {
 		if (plugin.isRestrictCreative() && player.getGameMode() == GameMode.CREATIVE || plugin.isInExludedWorld(player))
 			return;
 
-		String configAchievement;
+		NormalAchievements category;
 		if (player.hasPermission("achievement.count.snowballs")
 				&& !plugin.getDisabledCategorySet().contains("Snowballs") && event.getEntity() instanceof Snowball) {
-			int snowballs = plugin.getPoolsManager().getPlayerSnowballAmount(player) + 1;
-
-			plugin.getPoolsManager().getSnowballHashMap().put(player.getUniqueId().toString(), snowballs);
-
-			configAchievement = "Snowballs." + snowballs;
+			category = NormalAchievements.SNOWBALLS;
 		} else if (player.hasPermission("achievement.count.eggs")
 				&& !plugin.getDisabledCategorySet().contains("Eggs")) {
-			int eggs = plugin.getPoolsManager().getPlayerEggAmount(player) + 1;
-
-			plugin.getPoolsManager().getEggHashMap().put(player.getUniqueId().toString(), eggs);
-
-			configAchievement = "Eggs." + eggs;
+			category = NormalAchievements.EGGS;
 		} else
 			return;
-		if (plugin.getReward().checkAchievement(configAchievement)) {
-
-			plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-			plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-					plugin.getPluginConfig().getString(configAchievement + ".Message"));
 
-			plugin.getReward().checkConfig(player, configAchievement);
-		}
+		plugin.getPoolsManager().incrementStatisticAndAward(player, category, 1);
 	}
 }
@@ -8,6 +8,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityTameEvent;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.NormalAchievements;
 
 public class AchieveTameListener implements Listener {
 
@@ -29,18 +30,6 @@ public class AchieveTameListener implements Listener {
 				|| plugin.isInExludedWorld(player))
 			return;
 
-		int tames = plugin.getPoolsManager().getPlayerTameAmount(player) + 1;
-
-		plugin.getPoolsManager().getTameHashMap().put(player.getUniqueId().toString(), tames);
-
-		String configAchievement = "Taming." + tames;
-		if (plugin.getReward().checkAchievement(configAchievement)) {
-
-			plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-			plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-					plugin.getPluginConfig().getString(configAchievement + ".Message"));
-
-			plugin.getReward().checkConfig(player, configAchievement);
-		}
+		plugin.getPoolsManager().incrementStatisticAndAward(player, NormalAchievements.TAMES, 1);
 	}
 }
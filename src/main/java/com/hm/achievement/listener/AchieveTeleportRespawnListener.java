@@ -9,6 +9,7 @@ import org.bukkit.event.player.PlayerRespawnEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.NormalAchievements;
 
 public class AchieveTeleportRespawnListener implements Listener {
 
@@ -24,7 +25,7 @@ public class AchieveTeleportRespawnListener implements Listener {
 		
 		// Update location of player if he respawns after dying.
 		if (plugin.getAchieveDistanceRunnable() != null)
-			plugin.getAchieveDistanceRunnable().getPlayerLocations().put(event.getPlayer(), event.getRespawnLocation());
+			plugin.getAchieveDistanceRunnable().resetLocation(event.getPlayer(), event.getRespawnLocation());
 	}
 
 	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -41,7 +42,7 @@ public class AchieveTeleportRespawnListener implements Listener {
 
 		// Update location of player if he teleports somewhere else.
 		if (plugin.getAchieveDistanceRunnable() != null)
-			plugin.getAchieveDistanceRunnable().getPlayerLocations().put(event.getPlayer(), event.getTo());
+			plugin.getAchieveDistanceRunnable().resetLocation(event.getPlayer(), event.getTo());
 
 		if (event.getCause() != PlayerTeleportEvent.TeleportCause.ENDER_PEARL)
 			return;
@@ -52,19 +53,6 @@ public class AchieveTeleportRespawnListener implements Listener {
 				|| plugin.isInExludedWorld(player) || plugin.getDisabledCategorySet().contains("EnderPearls"))
 			return;
 
-		int enderpearls = plugin.getPoolsManager().getPlayerEnderPearlAmount(player) + 1;
-
-		plugin.getPoolsManager().getEnderPearlHashMap().put(player.getUniqueId().toString(), enderpearls);
-
-		String configAchievement = "EnderPearls." + enderpearls;
-		if (plugin.getReward().checkAchievement(configAchievement)) {
-
-			plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-			plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-					plugin.getPluginConfig().getString(configAchievement + ".Message"));
-			plugin.getReward().checkConfig(player, configAchievement);
-		}
-
+		plugin.getPoolsManager().incrementStatisticAndAward(player, NormalAchievements.ENDERPEARLS, 1);
 	}
-
 }
@@ -10,6 +10,7 @@ import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryType;
 
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.category.NormalAchievements;
 
 public class AchieveTradeAnvilBrewListener implements Listener {
 
@@ -32,41 +33,22 @@ public class AchieveTradeAnvilBrewListener implements Listener {
 				|| event.isShiftClick() && player.getInventory().firstEmpty() < 0)
 			return;
 
-		String configAchievement;
+		NormalAchievements category;
 
 		if (player.hasPermission("achievement.count.trades") && !plugin.getDisabledCategorySet().contains("Trades")
 				&& event.getRawSlot() == 2 && event.getInventory().getType() == InventoryType.MERCHANT) {
-			int trades = plugin.getPoolsManager().getPlayerTradeAmount(player) + 1;
-
-			plugin.getPoolsManager().getTradeHashMap().put(player.getUniqueId().toString(), trades);
-			configAchievement = "Trades." + trades;
-
+			category = NormalAchievements.TRADES;
 		} else if (player.hasPermission("achievement.count.anvilsused")
 				&& !plugin.getDisabledCategorySet().contains("AnvilsUsed") && event.getRawSlot() == 2
 				&& event.getInventory().getType() == InventoryType.ANVIL) {
-			int anvils = plugin.getPoolsManager().getPlayerAnvilAmount(player) + 1;
-
-			plugin.getPoolsManager().getAnvilHashMap().put(player.getUniqueId().toString(), anvils);
-			configAchievement = "AnvilsUsed." + anvils;
-
+			category = NormalAchievements.ANVILS;
 		} else if (player.hasPermission("achievement.count.brewing")
 				&& !plugin.getDisabledCategorySet().contains("Brewing")
 				&& event.getInventory().getType() == InventoryType.BREWING) {
-			int brewings = plugin.getPoolsManager().getPlayerBrewingAmount(player) + 1;
-
-			plugin.getPoolsManager().getBrewingHashMap().put(player.getUniqueId().toString(), brewings);
-			configAchievement = "Brewing." + brewings;
-
+			category = NormalAchievements.BREWING;
 		} else
 			return;
 
-		if (plugin.getReward().checkAchievement(configAchievement)) {
-
-			plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-			plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-					plugin.getPluginConfig().getString(configAchievement + ".Message"));
-
-			plugin.getReward().checkConfig(player, configAchievement);
-		}
+		plugin.getPoolsManager().incrementStatisticAndAward(player, category, 1);
 	}
 }
@@ -1,7 +1,5 @@
 package com.hm.achievement.listener;
 
-import java.util.HashSet;
-
 import org.bukkit.GameMode;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -9,80 +7,65 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerLevelChangeEvent;
 
+import com.hm.achievement.AchievementIndex.Thresholds;
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.AwardedThresholds;
+import com.hm.achievement.category.NormalAchievements;
+import com.hm.achievement.runnable.ThresholdEvaluator;
 
 public class AchieveXPListener implements Listener {
 
 	private AdvancedAchievements plugin;
 
-	// Lists of achievements extracted from configuration.
-	private int[] achievementsMaxLevel;
-
-	// Sets corresponding to whether a player has obtained a specific
-	// level achievement.
-	// Used as pseudo-caching system to reduce load on database.
-	private HashSet<?>[] playerAchievements;
+	private final ThresholdEvaluator thresholdEvaluator;
 
 	public AchieveXPListener(AdvancedAchievements plugin) {
 
 		this.plugin = plugin;
-
-		extractAchievementsFromConfig(plugin);
-
-	}
-
-	public void extractAchievementsFromConfig(AdvancedAchievements plugin) {
-
-		achievementsMaxLevel = new int[plugin.getPluginConfig().getConfigurationSection("MaxLevel").getKeys(false)
-				.size()];
-		int i = 0;
-		for (String level : plugin.getPluginConfig().getConfigurationSection("MaxLevel").getKeys(false)) {
-			achievementsMaxLevel[i] = Integer.parseInt(level);
-			i++;
-		}
-
-		playerAchievements = new HashSet<?>[achievementsMaxLevel.length];
-		for (i = 0; i < playerAchievements.length; ++i)
-			playerAchievements[i] = new HashSet<Player>();
+		thresholdEvaluator = new ThresholdEvaluator(plugin);
 	}
 
-	@SuppressWarnings("unchecked")
 	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
 	public void onPlayerExpChange(PlayerLevelChangeEvent event) {
 
-		Player player = event.getPlayer();
+		final Player player = event.getPlayer();
 
 		if (!player.hasPermission("achievement.count.maxlevel")
 				|| plugin.isRestrictCreative() && player.getGameMode() == GameMode.CREATIVE
 				|| plugin.isInExludedWorld(player))
 			return;
 
-		int levels = plugin.getPoolsManager().getPlayerXPAmount(player);
+		final int newLevel = event.getNewLevel();
 
-		if (event.getNewLevel() > levels)
-			plugin.getPoolsManager().getXpHashMap().put(player.getUniqueId().toString(), event.getNewLevel());
-		else
-			return;
+		plugin.getPoolsManager().runWhenLoaded(player, new Runnable() {
+
+			@Override
+			public void run() {
 
-		for (int i = 0; i < achievementsMaxLevel.length; i++) {
-			if (event.getNewLevel() >= achievementsMaxLevel[i] && !playerAchievements[i].contains(player)) {
-				if (!plugin.getDb().hasPlayerAchievement(player,
-						plugin.getPluginConfig().getString("MaxLevel." + achievementsMaxLevel[i] + ".Name"))) {
-					plugin.getAchievementDisplay().displayAchievement(player, "MaxLevel." + achievementsMaxLevel[i]);
-					plugin.getDb().registerAchievement(player,
-							plugin.getPluginConfig().getString("MaxLevel." + achievementsMaxLevel[i] + ".Name"),
-							plugin.getPluginConfig().getString("MaxLevel." + achievementsMaxLevel[i] + ".Message"));
-					plugin.getReward().checkConfig(player, "MaxLevel." + achievementsMaxLevel[i]);
-				}
-
-				((HashSet<Player>) playerAchievements[i]).add(player);
+				updateMaxLevel(player, newLevel);
 			}
-		}
+		});
 	}
 
-	public HashSet<?>[] getPlayerAchievements() {
+	private void updateMaxLevel(Player player, int newLevel) {
 
-		return playerAchievements;
-	}
+		int levels = plugin.getPoolsManager().getStatisticAmount(player, NormalAchievements.LEVELS);
+
+		if (newLevel > levels)
+			plugin.getPoolsManager().setStatisticAmount(player, NormalAchievements.LEVELS, newLevel);
+		else
+			return;
 
+		Thresholds thresholds = plugin.getAchievementIndex().getThresholds(NormalAchievements.LEVELS);
+		AwardedThresholds awardedThresholds = plugin.getAwardedThresholds();
+		// Levels are awarded once reached; higher thresholds cannot be.
+		for (int i = 0; i < thresholds.size() && newLevel >= thresholds.get(i).getThreshold(); i++) {
+			if (!awardedThresholds.isReached(player, AwardedThresholds.MAX_LEVEL, i)) {
+				// Whether the player has already received the achievement is
+				// checked off the main thread.
+				thresholdEvaluator.add(player, thresholds.get(i));
+				awardedThresholds.setReached(player, AwardedThresholds.MAX_LEVEL, i);
+			}
+		}
+	}
 }
@@ -4,6 +4,8 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 
 import org.bukkit.entity.Player;
+
+import com.hm.achievement.AchievementIndex.Achievement;
 import com.hm.achievement.AdvancedAchievements;
 
 public class AchieveConnectionRunnable implements Runnable {
@@ -25,22 +27,28 @@ public class AchieveConnectionRunnable implements Runnable {
 			return;
 		if (!player.hasPermission("achievement.count.connections"))
 			return;
-		Date now = new Date();
-		SimpleDateFormat format = new SimpleDateFormat("dd/MM/yyyy");
 
-		if (!format.format(now).equals(plugin.getDb().getPlayerConnectionDate(player))) {
+		plugin.getPoolsManager().runWhenLoaded(player, new Runnable() {
 
-			int connections = plugin.getDb().updateAndGetConnection(player, format.format(now));
-			String configAchievement = "Connections." + connections;
-			if (plugin.getReward().checkAchievement(configAchievement)) {
+			@Override
+			public void run() {
 
-				plugin.getAchievementDisplay().displayAchievement(player, configAchievement);
-				plugin.getDb().registerAchievement(player, plugin.getPluginConfig().getString(configAchievement + ".Name"),
-						plugin.getPluginConfig().getString(configAchievement + ".Message"));
-				plugin.getReward().checkConfig(player, configAchievement);
-			}
-		}
+				Date now = new Date();
+				SimpleDateFormat format = new SimpleDateFormat("dd/MM/yyyy");
+
+				if (!format.format(now).equals(plugin.getPoolsManager().getPlayerConnectionDate(player))) {
 
+					int connections = plugin.getPoolsManager().updateAndGetConnection(player, format.format(now));
+					Achievement achievement = plugin.getAchievementIndex().getConnectionAchievement(connections);
+					if (achievement != null) {
+
+						plugin.getAchievementDisplay().displayAchievement(player, achievement.getPath());
+						plugin.getDb().registerAchievement(player, achievement.getName(), achievement.getMessage());
+						plugin.getReward().giveReward(player, achievement.getReward());
+					}
+				}
+			}
+		});
 	}
 
 }
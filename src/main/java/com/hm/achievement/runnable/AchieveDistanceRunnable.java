@@ -1,56 +1,56 @@
 package com.hm.achievement.runnable;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
 
 import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Boat;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Horse;
 import org.bukkit.entity.Minecart;
 import org.bukkit.entity.Pig;
 import org.bukkit.entity.Player;
 import org.bukkit.util.NumberConversions;
 
+import com.hm.achievement.AchievementIndex.Thresholds;
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.AwardedThresholds;
+import com.hm.achievement.category.NormalAchievements;
 import com.hm.achievement.particle.ReflectionUtils.PackageType;
+import com.hm.achievement.runnable.ShardedPlayerScheduler.PlayerTask;
 
-public class AchieveDistanceRunnable implements Runnable {
+public class AchieveDistanceRunnable implements Runnable, PlayerTask {
+
+	// Distance categories of accumulated movements.
+	private static final int FOOT = AwardedThresholds.DISTANCE_FOOT;
+	private static final int PIG = AwardedThresholds.DISTANCE_PIG;
+	private static final int HORSE = AwardedThresholds.DISTANCE_HORSE;
+	private static final int MINECART = AwardedThresholds.DISTANCE_MINECART;
+	private static final int BOAT = AwardedThresholds.DISTANCE_BOAT;
+	private static final int GLIDING = AwardedThresholds.DISTANCE_GLIDING;
+	private static final int MOVEMENT_CATEGORIES = 6;
 
 	private AdvancedAchievements plugin;
 
 	boolean ignoreVerticalDistance;
 
-	// Lists of achievement amounts (=thresholds) extracted from configuration.
-	private int[] achievementsFoot;
-	private int[] achievementsPig;
-	private int[] achievementsHorse;
-	private int[] achievementsMinecart;
-	private int[] achievementsBoat;
-	private int[] achievementsGliding;
-
-	// Sets corresponding to whether a player has obtained a specific
-	// distance achievement.
-	// Used as pseudo-caching system to reduce load on database.
-	private HashSet<?>[] playerAchievementsFoot;
-	private HashSet<?>[] playerAchievementsHorse;
-	private HashSet<?>[] playerAchievementsPig;
-	private HashSet<?>[] playerAchievementsMinecart;
-	private HashSet<?>[] playerAchievementsBoat;
-	private HashSet<?>[] playerAchievementsGliding;
-
-	// HashMaps containing distance statistics for each player.
-	private Map<String, Integer> distancesFoot;
-	private Map<String, Integer> distancesHorse;
-	private Map<String, Integer> distancesPig;
-	private Map<String, Integer> distancesBoat;
-	private Map<String, Integer> distancesMinecart;
-	private Map<String, Integer> distancesGliding;
 	private HashMap<Player, Location> playerLocations;
 
+	// Movements reported by move events since they were last counted, when
+	// distances are tracked with events rather than by polling locations.
+	private final boolean eventTracking;
+	private final Map<Player, PlayerMovement> playerMovements;
+	private final Set<Player> movedPlayers;
+
+	private final ThresholdEvaluator thresholdEvaluator;
+
 	// Minecraft version to deal with gliding.
 	private Integer version;
 
@@ -63,120 +63,55 @@ public class AchieveDistanceRunnable implements Runnable {
 		// versions change in the future.
 		version =  Integer.parseInt(PackageType.getServerVersion().split("_")[1]);
 
-		if (plugin.isAsyncPooledRequestsSender()) {
-			distancesFoot = new ConcurrentHashMap<String, Integer>();
-			distancesHorse = new ConcurrentHashMap<String, Integer>();
-			distancesPig = new ConcurrentHashMap<String, Integer>();
-			distancesBoat = new ConcurrentHashMap<String, Integer>();
-			distancesMinecart = new ConcurrentHashMap<String, Integer>();
-			distancesGliding = new ConcurrentHashMap<String, Integer>();
-		} else {
-			distancesFoot = new HashMap<String, Integer>();
-			distancesHorse = new HashMap<String, Integer>();
-			distancesPig = new HashMap<String, Integer>();
-			distancesBoat = new HashMap<String, Integer>();
-			distancesMinecart = new HashMap<String, Integer>();
-			distancesGliding = new HashMap<String, Integer>();
-		}
 		playerLocations = new HashMap<Player, Location>();
+		eventTracking = "events".equalsIgnoreCase(plugin.getPluginConfig().getString("DistanceTracking", "polling"));
+		playerMovements = new HashMap<Player, PlayerMovement>();
+		movedPlayers = new HashSet<Player>();
+		thresholdEvaluator = new ThresholdEvaluator(plugin);
 
 		extractAchievementsFromConfig(plugin);
 
 	}
 
 	/**
-	 * Load list of achievements from configuration.
+	 * Load the distance parameters from configuration. The thresholds are read
+	 * from the achievement index.
 	 */
 	public void extractAchievementsFromConfig(AdvancedAchievements plugin) {
-		
-		ignoreVerticalDistance = plugin.getPluginConfig().getBoolean("IgnoreVerticalDistance", false);
-
-		achievementsFoot = new int[plugin.getPluginConfig().getConfigurationSection("DistanceFoot").getKeys(false)
-				.size()];
-		int i = 0;
-		for (String distance : plugin.getPluginConfig().getConfigurationSection("DistanceFoot").getKeys(false)) {
-			achievementsFoot[i] = Integer.parseInt(distance);
-			i++;
-		}
-		achievementsPig = new int[plugin.getPluginConfig().getConfigurationSection("DistancePig").getKeys(false)
-				.size()];
-		i = 0;
-		for (String distance : plugin.getPluginConfig().getConfigurationSection("DistancePig").getKeys(false)) {
-			achievementsPig[i] = Integer.parseInt(distance);
-			i++;
-		}
-		achievementsHorse = new int[plugin.getPluginConfig().getConfigurationSection("DistanceHorse").getKeys(false)
-				.size()];
-		i = 0;
-		for (String distance : plugin.getPluginConfig().getConfigurationSection("DistanceHorse").getKeys(false)) {
-			achievementsHorse[i] = Integer.parseInt(distance);
-			i++;
-		}
-		achievementsMinecart = new int[plugin.getPluginConfig().getConfigurationSection("DistanceMinecart")
-				.getKeys(false).size()];
-		i = 0;
-		for (String distance : plugin.getPluginConfig().getConfigurationSection("DistanceMinecart").getKeys(false)) {
-			achievementsMinecart[i] = Integer.parseInt(distance);
-			i++;
-		}
-		achievementsBoat = new int[plugin.getPluginConfig().getConfigurationSection("DistanceBoat").getKeys(false)
-				.size()];
-		i = 0;
-		for (String distance : plugin.getPluginConfig().getConfigurationSection("DistanceBoat").getKeys(false)) {
-			achievementsBoat[i] = Integer.parseInt(distance);
-			i++;
-		}
-		achievementsGliding = new int[plugin.getPluginConfig().getConfigurationSection("DistanceGliding").getKeys(false)
-				.size()];
-		i = 0;
-		for (String distance : plugin.getPluginConfig().getConfigurationSection("DistanceGliding").getKeys(false)) {
-			achievementsGliding[i] = Integer.parseInt(distance);
-			i++;
-		}
-
-		playerAchievementsFoot = new HashSet<?>[achievementsFoot.length];
-		for (i = 0; i < playerAchievementsFoot.length; ++i)
-			playerAchievementsFoot[i] = new HashSet<Player>();
-
-		playerAchievementsHorse = new HashSet<?>[achievementsHorse.length];
-		for (i = 0; i < playerAchievementsHorse.length; ++i)
-			playerAchievementsHorse[i] = new HashSet<Player>();
-
-		playerAchievementsPig = new HashSet<?>[achievementsPig.length];
-		for (i = 0; i < playerAchievementsPig.length; ++i)
-			playerAchievementsPig[i] = new HashSet<Player>();
-
-		playerAchievementsBoat = new HashSet<?>[achievementsBoat.length];
-		for (i = 0; i < playerAchievementsBoat.length; ++i)
-			playerAchievementsBoat[i] = new HashSet<Player>();
-
-		playerAchievementsMinecart = new HashSet<?>[achievementsMinecart.length];
-		for (i = 0; i < playerAchievementsMinecart.length; ++i)
-			playerAchievementsMinecart[i] = new HashSet<Player>();
 
-		playerAchievementsGliding = new HashSet<?>[achievementsGliding.length];
-		for (i = 0; i < playerAchievementsGliding.length; ++i)
-			playerAchievementsGliding[i] = new HashSet<Player>();
+		ignoreVerticalDistance = plugin.getPluginConfig().getBoolean("IgnoreVerticalDistance", false);
 	}
 
 	@Override
 	public void run() {
 
+		if (eventTracking) {
+			countMovements();
+			return;
+		}
+
 		for (Player player : Bukkit.getServer().getOnlinePlayers()) {
 			refreshDistance(player);
 		}
 
 	}
 
-	@SuppressWarnings("unchecked")
+	@Override
+	public void processPlayer(Player player) {
+
+		if (!eventTracking)
+			refreshDistance(player);
+		else if (movedPlayers.contains(player) && countMovement(player))
+			movedPlayers.remove(player);
+	}
+
 	/**
-	 * Update distances and store them into server's memory until player
-	 * disconnects.
+	 * Add the distance travelled by a player since the last run to the
+	 * player's pooled statistics.
 	 */
 	public void refreshDistance(Player player) {
 
 		Location previousLocation = playerLocations.get(player);
-		String uuid = player.getUniqueId().toString();
 
 		// If player location not found, add it in table.
 		// If player has changed world, ignore previous location; evaluating
@@ -191,6 +126,11 @@ public class AchieveDistanceRunnable implements Runnable {
 		if (plugin.isRestrictCreative() && player.getGameMode() == GameMode.CREATIVE || plugin.isInExludedWorld(player))
 			return;
 
+		// Statistics may still be loading if the player has just joined, the
+		// distance is then counted from the previous location during a later run.
+		if (plugin.getPoolsManager().isLoadingPlayerStatistics(player))
+			return;
+
 		// Distance difference since last runnable; ignore the vertical axis or not.
 		int difference;
 		if (ignoreVerticalDistance)
@@ -203,184 +143,214 @@ public class AchieveDistanceRunnable implements Runnable {
 		if (difference == 0)
 			return;
 
-		if (player.isInsideVehicle()) {
-			if (player.getVehicle() instanceof Horse && player.hasPermission("achievement.count.distancehorse")
-					&& !plugin.getDisabledCategorySet().contains("DistanceHorse")) {
-
-				Integer distance = distancesHorse.get(uuid);
-
-				if (distance == null) {
-					distancesHorse.put(uuid, plugin.getDb().updateAndGetDistance(uuid, 0, "distancehorse"));
-					return;
-				}
-
-				distance += difference;
-				distancesHorse.put(uuid, distance);
+		addDistance(player, getMovementCategory(player), difference);
 
-				for (int i = 0; i < achievementsHorse.length; i++) {
-					if (distance > achievementsHorse[i] && !playerAchievementsHorse[i].contains(player)) {
-						if (!plugin.getDb().hasPlayerAchievement(player,
-								plugin.getPluginConfig().getString("DistanceHorse." + achievementsHorse[i] + ".Name")))
-							awardDistanceAchievement(player, achievementsHorse[i], "DistanceHorse.");
-
-						((HashSet<Player>) playerAchievementsHorse[i]).add(player);
-					}
-				}
-			} else if (player.getVehicle() instanceof Pig && player.hasPermission("achievement.count.distancepig")
-					&& !plugin.getDisabledCategorySet().contains("DistancePig")) {
-
-				Integer distance = distancesPig.get(uuid);
-
-				if (distance == null) {
-					distancesPig.put(uuid, plugin.getDb().updateAndGetDistance(uuid, 0, "distancepig"));
-					return;
-				}
-
-				distance += difference;
-				distancesPig.put(uuid, distance);
-
-				for (int i = 0; i < achievementsPig.length; i++) {
-					if (distance > achievementsPig[i] && !playerAchievementsPig[i].contains(player)) {
-						if (!plugin.getDb().hasPlayerAchievement(player,
-								plugin.getPluginConfig().getString("DistancePig." + achievementsPig[i] + ".Name")))
-							awardDistanceAchievement(player, achievementsPig[i], "DistancePig.");
-
-						((HashSet<Player>) playerAchievementsPig[i]).add(player);
-					}
-				}
-			} else if (player.getVehicle() instanceof Minecart
-					&& player.hasPermission("achievement.count.distanceminecart")
-					&& !plugin.getDisabledCategorySet().contains("DistanceMinecart")) {
-
-				Integer distance = distancesMinecart.get(uuid);
-
-				if (distance == null) {
-					distancesMinecart.put(uuid, plugin.getDb().updateAndGetDistance(uuid, 0, "distanceminecart"));
-					return;
-				}
-
-				distance += difference;
-				distancesMinecart.put(uuid, distance);
-
-				for (int i = 0; i < achievementsMinecart.length; i++) {
-					if (distance > achievementsMinecart[i] && !playerAchievementsMinecart[i].contains(player)) {
-						if (!plugin.getDb().hasPlayerAchievement(player, plugin.getPluginConfig()
-								.getString("DistanceMinecart." + achievementsMinecart[i] + ".Name")))
-							awardDistanceAchievement(player, achievementsMinecart[i], "DistanceMinecart.");
-
-						((HashSet<Player>) playerAchievementsMinecart[i]).add(player);
-					}
-				}
-			} else if (player.getVehicle() instanceof Boat && player.hasPermission("achievement.count.distanceboat")
-					&& !plugin.getDisabledCategorySet().contains("DistanceBoat")) {
-
-				Integer distance = distancesBoat.get(uuid);
-
-				if (distance == null) {
-					distancesBoat.put(uuid, plugin.getDb().updateAndGetDistance(uuid, 0, "distanceboat"));
-					return;
-				}
-
-				distance += difference;
-				distancesBoat.put(uuid, distance);
-
-				for (int i = 0; i < achievementsBoat.length; i++) {
-					if (distance > achievementsBoat[i] && !playerAchievementsBoat[i].contains(player)) {
-						if (!plugin.getDb().hasPlayerAchievement(player,
-								plugin.getPluginConfig().getString("DistanceBoat." + achievementsBoat[i] + ".Name")))
-							awardDistanceAchievement(player, achievementsBoat[i], "DistanceBoat.");
-
-						((HashSet<Player>) playerAchievementsBoat[i]).add(player);
-					}
-				}
-			}
-		} else if (player.hasPermission("achievement.count.distancefoot") && !player.isFlying()
-				&& (version < 9 || !player.isGliding()) && !plugin.getDisabledCategorySet().contains("DistanceFoot")) {
-
-			Integer distance = distancesFoot.get(uuid);
-
-			if (distance == null) {
-				distancesFoot.put(uuid, plugin.getDb().updateAndGetDistance(uuid, 0, "distancefoot"));
-				return;
-			}
-
-			distance += difference;
-			distancesFoot.put(uuid, distance);
-
-			for (int i = 0; i < achievementsFoot.length; i++) {
-				if (distance > achievementsFoot[i] && !playerAchievementsFoot[i].contains(player)) {
-					if (!plugin.getDb().hasPlayerAchievement(player,
-							plugin.getPluginConfig().getString("DistanceFoot." + achievementsFoot[i] + ".Name")))
-						awardDistanceAchievement(player, achievementsFoot[i], "DistanceFoot.");
-
-					((HashSet<Player>) playerAchievementsFoot[i]).add(player);
-				}
-			}
-		} else if (player.hasPermission("achievement.count.distancegliding") && version >= 9 && player.isGliding()
-				&& !plugin.getDisabledCategorySet().contains("DistanceGliding")) {
+		// Update player's location.
+		playerLocations.put(player, player.getLocation());
 
-			Integer distance = distancesGliding.get(uuid);
+	}
 
-			if (distance == null) {
-				distancesGliding.put(uuid, plugin.getDb().updateAndGetDistance(uuid, 0, "distancegliding"));
-				return;
-			}
+	/**
+	 * Accumulate the movement of a player, or of the vehicle the player is in,
+	 * reported by a move event. Movements within the block in which the player
+	 * was last counted are ignored until the player leaves it, so that most
+	 * events only compare a few integers.
+	 */
+	public void recordMovement(Player player, Location to) {
 
-			distance += difference;
-			distancesGliding.put(uuid, distance);
+		PlayerMovement movement = playerMovements.get(player);
+		if (movement == null) {
+			movement = new PlayerMovement();
+			movement.moveTo(to);
+			playerMovements.put(player, movement);
+			return;
+		}
 
-			for (int i = 0; i < achievementsGliding.length; i++) {
-				if (distance > achievementsGliding[i] && !playerAchievementsGliding[i].contains(player)) {
-					if (!plugin.getDb().hasPlayerAchievement(player,
-							plugin.getPluginConfig().getString("DistanceGliding." + achievementsGliding[i] + ".Name")))
-						awardDistanceAchievement(player, achievementsGliding[i], "DistanceGliding.");
+		World world = to.getWorld();
+		if (to.getBlockX() == movement.blockX && to.getBlockY() == movement.blockY
+				&& to.getBlockZ() == movement.blockZ && world == movement.world)
+			return;
 
-					((HashSet<Player>) playerAchievementsGliding[i]).add(player);
-				}
+		// Movements across worlds are not counted.
+		if (world == movement.world) {
+			double dx = to.getX() - movement.x;
+			double dy = ignoreVerticalDistance ? 0.0 : to.getY() - movement.y;
+			double dz = to.getZ() - movement.z;
+			int category = getMovementCategory(player);
+			if (category >= 0) {
+				movement.distances[category] += Math.sqrt(dx * dx + dy * dy + dz * dz);
+				movedPlayers.add(player);
 			}
 		}
-		// Update player's location.
-		playerLocations.put(player, player.getLocation());
-
+		movement.moveTo(to);
 	}
 
-	private void awardDistanceAchievement(Player player, int achievementDistance, String type) {
+	/**
+	 * Set the location from which the next distance of a player is counted,
+	 * for instance after a teleportation.
+	 */
+	public void resetLocation(Player player, Location location) {
 
-		plugin.getAchievementDisplay().displayAchievement(player, type + achievementDistance);
-		plugin.getDb().registerAchievement(player,
-				plugin.getPluginConfig().getString(type + achievementDistance + ".Name"),
-				plugin.getPluginConfig().getString(type + achievementDistance + ".Message"));
-		plugin.getReward().checkConfig(player, type + achievementDistance);
+		if (!eventTracking) {
+			playerLocations.put(player, location);
+			return;
+		}
+		PlayerMovement movement = playerMovements.get(player);
+		if (movement == null) {
+			movement = new PlayerMovement();
+			playerMovements.put(player, movement);
+		}
+		movement.moveTo(location);
 	}
 
-	public Map<String, Integer> getAchievementDistancesFoot() {
+	/**
+	 * Stop tracking a player who leaves the server. The distances already
+	 * counted are written along with the player's other statistics.
+	 */
+	public void removePlayer(Player player) {
 
-		return distancesFoot;
+		playerLocations.remove(player);
+		movedPlayers.remove(player);
+		playerMovements.remove(player);
 	}
 
-	public Map<String, Integer> getAchievementDistancesHorse() {
+	/**
+	 * Count the movements of the players who moved since the last run.
+	 */
+	private void countMovements() {
 
-		return distancesHorse;
+		Iterator<Player> iterator = movedPlayers.iterator();
+		while (iterator.hasNext()) {
+			if (countMovement(iterator.next()))
+				iterator.remove();
+		}
 	}
 
-	public Map<String, Integer> getAchievementDistancesPig() {
+	/**
+	 * Add the whole blocks accumulated by a player to the player's distances,
+	 * keeping fractions of blocks for later runs. Returns false if some of the
+	 * movements must be counted again during a later run.
+	 */
+	private boolean countMovement(Player player) {
+
+		PlayerMovement movement = playerMovements.get(player);
+		if (movement == null)
+			return true;
+
+		// Movements in restricted creative mode or in a blocked world are not
+		// counted.
+		if (plugin.isRestrictCreative() && player.getGameMode() == GameMode.CREATIVE
+				|| plugin.isInExludedWorld(player)) {
+			Arrays.fill(movement.distances, 0.0);
+			return true;
+		}
 
-		return distancesPig;
+		// Statistics may still be loading if the player has just joined, the
+		// movements are then counted during a later run.
+		if (plugin.getPoolsManager().isLoadingPlayerStatistics(player))
+			return false;
+
+		for (int category = 0; category < MOVEMENT_CATEGORIES; ++category) {
+			int difference = (int) movement.distances[category];
+			if (difference == 0)
+				continue;
+			addDistance(player, category, difference);
+			movement.distances[category] -= difference;
+		}
+		return true;
 	}
 
-	public Map<String, Integer> getAchievementDistancesMinecart() {
+	/**
+	 * Return the distance category matching the way a player currently moves,
+	 * or -1 if the movement is not counted.
+	 */
+	private int getMovementCategory(Player player) {
 
-		return distancesMinecart;
+		if (player.isInsideVehicle()) {
+			Entity vehicle = player.getVehicle();
+			if (vehicle instanceof Horse)
+				return HORSE;
+			if (vehicle instanceof Pig)
+				return PIG;
+			if (vehicle instanceof Minecart)
+				return MINECART;
+			if (vehicle instanceof Boat)
+				return BOAT;
+			return -1;
+		}
+		if (version >= 9 && player.isGliding())
+			return GLIDING;
+		if (!player.isFlying())
+			return FOOT;
+		return -1;
 	}
 
-	public Map<String, Integer> getAchievementDistancesBoat() {
+	/**
+	 * Add a distance travelled by a player to a category, if the player may
+	 * receive its achievements, and award the achievements reached.
+	 */
+	private void addDistance(Player player, int category, int difference) {
 
-		return distancesBoat;
+		switch (category) {
+			case FOOT:
+				if (!player.hasPermission("achievement.count.distancefoot")
+						|| plugin.getDisabledCategorySet().contains("DistanceFoot"))
+					return;
+				addDistance(player, difference, NormalAchievements.DISTANCEFOOT, category);
+				return;
+			case PIG:
+				if (!player.hasPermission("achievement.count.distancepig")
+						|| plugin.getDisabledCategorySet().contains("DistancePig"))
+					return;
+				addDistance(player, difference, NormalAchievements.DISTANCEPIG, category);
+				return;
+			case HORSE:
+				if (!player.hasPermission("achievement.count.distancehorse")
+						|| plugin.getDisabledCategorySet().contains("DistanceHorse"))
+					return;
+				addDistance(player, difference, NormalAchievements.DISTANCEHORSE, category);
+				return;
+			case MINECART:
+				if (!player.hasPermission("achievement.count.distanceminecart")
+						|| plugin.getDisabledCategorySet().contains("DistanceMinecart"))
+					return;
+				addDistance(player, difference, NormalAchievements.DISTANCEMINECART, category);
+				return;
+			case BOAT:
+				if (!player.hasPermission("achievement.count.distanceboat")
+						|| plugin.getDisabledCategorySet().contains("DistanceBoat"))
+					return;
+				addDistance(player, difference, NormalAchievements.DISTANCEBOAT, category);
+				return;
+			case GLIDING:
+				if (!player.hasPermission("achievement.count.distancegliding")
+						|| plugin.getDisabledCategorySet().contains("DistanceGliding"))
+					return;
+				addDistance(player, difference, NormalAchievements.DISTANCEGLIDING, category);
+				return;
+			default:
+				return;
+		}
 	}
 
-	public Map<String, Integer> getAchievementDistancesGliding() {
-
-		return distancesGliding;
+	private void addDistance(Player player, int difference, NormalAchievements statistic, int category) {
+
+		// Distance achievements are awarded once their thresholds are exceeded
+		// rather than reached, the achievement returned by the pools is ignored.
+		plugin.getPoolsManager().incrementStatistic(player, statistic, difference);
+		int distance = plugin.getPoolsManager().getStatisticAmount(player, statistic);
+
+		Thresholds thresholds = plugin.getAchievementIndex().getThresholds(statistic);
+		AwardedThresholds awardedThresholds = plugin.getAwardedThresholds();
+		// Thresholds are sorted, the loop stops at the first one not exceeded.
+		for (int i = 0; i < thresholds.size() && distance > thresholds.get(i).getThreshold(); i++) {
+			if (!awardedThresholds.isReached(player, category, i)) {
+				// Whether the player has already received the achievement is
+				// checked off the main thread.
+				thresholdEvaluator.add(player, thresholds.get(i));
+				awardedThresholds.setReached(player, category, i);
+			}
+		}
 	}
 
 	public HashMap<Player, Location> getPlayerLocations() {
@@ -388,34 +358,40 @@ public class AchieveDistanceRunnable implements Runnable {
 		return playerLocations;
 	}
 
-	public HashSet<?>[] getPlayerAchievementsFoot() {
-
-		return playerAchievementsFoot;
-	}
-
-	public HashSet<?>[] getPlayerAchievementsHorse() {
-
-		return playerAchievementsHorse;
-	}
-
-	public HashSet<?>[] getPlayerAchievementsPig() {
-
-		return playerAchievementsPig;
-	}
-
-	public HashSet<?>[] getPlayerAchievementsMinecart() {
-
-		return playerAchievementsMinecart;
-	}
-
-	public HashSet<?>[] getPlayerAchievementsBoat() {
+	/**
+	 * Check whether distances are tracked with move events rather than by
+	 * polling the locations of the players.
+	 */
+	public boolean isEventTracking() {
 
-		return playerAchievementsBoat;
+		return eventTracking;
 	}
 
-	public HashSet<?>[] getPlayerAchievementsGliding() {
-
-		return playerAchievementsGliding;
+	/**
+	 * Position from which the next movement of a player is counted, and the
+	 * distances accumulated in each category that have not been counted yet.
+	 */
+	private static final class PlayerMovement {
+
+		private final double[] distances = new double[MOVEMENT_CATEGORIES];
+		private World world;
+		private double x;
+		private double y;
+		private double z;
+		private int blockX;
+		private int blockY;
+		private int blockZ;
+
+		private void moveTo(Location location) {
+
+			world = location.getWorld();
+			x = location.getX();
+			y = location.getY();
+			z = location.getZ();
+			blockX = location.getBlockX();
+			blockY = location.getBlockY();
+			blockZ = location.getBlockZ();
+		}
 	}
 
 }
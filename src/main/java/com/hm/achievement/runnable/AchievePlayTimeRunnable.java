@@ -1,46 +1,23 @@
 package com.hm.achievement.runnable;
 
-import java.util.HashSet;
-
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
+import com.hm.achievement.AchievementIndex.Thresholds;
 import com.hm.achievement.AdvancedAchievements;
+import com.hm.achievement.AwardedThresholds;
+import com.hm.achievement.runnable.ShardedPlayerScheduler.PlayerTask;
 
-public class AchievePlayTimeRunnable implements Runnable {
+public class AchievePlayTimeRunnable implements Runnable, PlayerTask {
 
 	private AdvancedAchievements plugin;
-	// List of achievements extracted from configuration.
-	private int[] achievementPlayTimes;
-	// Set corresponding to whether a player has obtained a specific
-	// play time achievement.
-	// Used as pseudo-caching system to reduce load on database.
-	private HashSet<?>[] playerAchievements;
+
+	private final ThresholdEvaluator thresholdEvaluator;
 
 	public AchievePlayTimeRunnable(AdvancedAchievements plugin) {
 
 		this.plugin = plugin;
-
-		extractAchievementsFromConfig(plugin);
-
-	}
-
-	/**
-	 * Load list of achievements from configuration.
-	 */
-	public void extractAchievementsFromConfig(AdvancedAchievements plugin) {
-
-		achievementPlayTimes = new int[plugin.getPluginConfig().getConfigurationSection("PlayedTime").getKeys(false).size()];
-		int i = 0;
-		for (String playedTime : plugin.getPluginConfig().getConfigurationSection("PlayedTime").getKeys(false)) {
-			achievementPlayTimes[i] = Integer.valueOf(playedTime);
-			i++;
-		}
-
-		playerAchievements = new HashSet<?>[achievementPlayTimes.length];
-		for (i = 0; i < playerAchievements.length; ++i)
-			playerAchievements[i] = new HashSet<Player>();
-
+		thresholdEvaluator = new ThresholdEvaluator(plugin);
 	}
 
 	@Override
@@ -51,19 +28,27 @@ public class AchievePlayTimeRunnable implements Runnable {
 		}
 	}
 
+	@Override
+	public void processPlayer(Player player) {
+
+		registerTimes(player);
+	}
+
 	/**
-	 * Update play times and store them into server's memory until player
-	 * disconnects.
+	 * Update play times, adding them to the pooled statistics at each run.
 	 * 
 	 * @param player
 	 */
-	@SuppressWarnings("unchecked")
 	public void registerTimes(Player player) {
 
 		// Do not register any times if player does not have permission.
 		if (!player.hasPermission("achievement.count.playedtime"))
 			return;
 
+		// Times are registered once the statistics of the player are loaded.
+		if (plugin.getPoolsManager().isLoadingPlayerStatistics(player))
+			return;
+
 		String uuid = player.getUniqueId().toString();
 
 		// Extra check in case server was reloaded and players did not
@@ -71,32 +56,43 @@ public class AchievePlayTimeRunnable implements Runnable {
 		// must be rewritten.
 		if (!plugin.getConnectionListener().getJoinTime().containsKey(uuid)) {
 			plugin.getConnectionListener().getJoinTime().put(uuid, System.currentTimeMillis());
-			plugin.getConnectionListener().getPlayTime().put(uuid, plugin.getDb().updateAndGetPlaytime(uuid, 0L));
+			plugin.getConnectionListener().getPlayTime().put(uuid,
+					plugin.getPoolsManager().getPlayerPlayedTime(player));
 		} else {
-			for (int i = 0; i < achievementPlayTimes.length; i++) {
-				if (System.currentTimeMillis() - plugin.getConnectionListener().getJoinTime().get(uuid)
-						+ plugin.getConnectionListener().getPlayTime().get(uuid) > achievementPlayTimes[i] * 3600000L
-						&& !playerAchievements[i].contains(player)) {
-					if (!plugin.getDb().hasPlayerAchievement(player,
-							plugin.getPluginConfig().getString("PlayedTime." + achievementPlayTimes[i] + ".Name"))) {
-
-						plugin.getAchievementDisplay().displayAchievement(player,
-								"PlayedTime." + achievementPlayTimes[i]);
-						plugin.getDb().registerAchievement(player,
-								plugin.getPluginConfig().getString("PlayedTime." + achievementPlayTimes[i] + ".Name"),
-								plugin.getPluginConfig().getString("PlayedTime." + achievementPlayTimes[i] + ".Message"));
-						plugin.getReward().checkConfig(player, "PlayedTime." + achievementPlayTimes[i]);
-
-					}
-					((HashSet<Player>) playerAchievements[i]).add(player);
+			long playedTime = checkpointPlayedTime(player);
+			Thresholds thresholds = plugin.getAchievementIndex().getPlayedTimeThresholds();
+			AwardedThresholds awardedThresholds = plugin.getAwardedThresholds();
+			// Thresholds are in hours and sorted, no later one can be exceeded.
+			for (int i = 0; i < thresholds.size() && playedTime > thresholds.get(i).getThreshold() * 3600000L; i++) {
+				if (!awardedThresholds.isReached(player, AwardedThresholds.PLAYED_TIME, i)) {
+					// Whether the player has already received the achievement is
+					// checked off the main thread.
+					thresholdEvaluator.add(player, thresholds.get(i));
+					awardedThresholds.setReached(player, AwardedThresholds.PLAYED_TIME, i);
 				}
 			}
 		}
 	}
 
-	public HashSet<?>[] getPlayerAchievements() {
+	/**
+	 * Add the time played since the previous checkpoint to the pooled
+	 * statistics, so that it is written along with them, and return the total
+	 * played time. Returns zero if the player's join time is not known.
+	 */
+	public long checkpointPlayedTime(Player player) {
 
-		return playerAchievements;
+		String uuid = player.getUniqueId().toString();
+		Long joinTime = plugin.getConnectionListener().getJoinTime().get(uuid);
+		Long playTime = plugin.getConnectionListener().getPlayTime().get(uuid);
+		if (joinTime == null || playTime == null)
+			return 0L;
+		long now = System.currentTimeMillis();
+		long elapsed = now - joinTime;
+		plugin.getConnectionListener().getJoinTime().put(uuid, now);
+		plugin.getConnectionListener().getPlayTime().put(uuid, playTime + elapsed);
+		if (elapsed > 0)
+			plugin.getPoolsManager().addPlayedTime(player, elapsed);
+		return playTime + elapsed;
 	}
 
 }
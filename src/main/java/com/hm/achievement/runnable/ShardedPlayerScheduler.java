@@ -0,0 +1,175 @@
+package com.hm.achievement.runnable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+/**
+ * Runs a task for every online player once per period, spreading the players
+ * over the ticks of the period rather than processing all of them in the same
+ * tick. Players are split into one bucket per tick of the period, each player
+ * being added to the smallest bucket when joining and removed when leaving,
+ * and the scheduler, run every tick, only processes the players of the current
+ * bucket. The tasks compute distances and played times from the
+ * values stored when the player was last processed, so spreading the players
+ * does not change the results.
+ *
+ * The time spent in each tick is measured and summarised when the plugin is
+ * disabled.
+ */
+public class ShardedPlayerScheduler implements Runnable {
+
+	/**
+	 * Task run by the scheduler for each player.
+	 */
+	public interface PlayerTask {
+
+		void processPlayer(Player player);
+	}
+
+	private final String name;
+	private final PlayerTask task;
+	private final int shards;
+	// Players of each bucket and bucket of each player, only used on the main
+	// server thread.
+	private final List<List<Player>> buckets;
+	private final Map<UUID, Integer> playerShards;
+	private int currentShard;
+
+	// Metrics, written on the main server thread.
+	private volatile long tickCount;
+	private volatile long processedCount;
+	private volatile long totalNanos;
+	private volatile long lastNanos;
+	private volatile long maxNanos;
+	private volatile int lastProcessedCount;
+
+	public ShardedPlayerScheduler(String name, PlayerTask task, int periodTicks) {
+
+		this.name = name;
+		this.task = task;
+		shards = Math.max(1, periodTicks);
+		buckets = new ArrayList<List<Player>>(shards);
+		for (int i = 0; i < shards; ++i)
+			buckets.add(new ArrayList<Player>());
+		playerShards = new HashMap<UUID, Integer>();
+		// Players already online when the plugin is enabled.
+		for (Player player : Bukkit.getServer().getOnlinePlayers())
+			addPlayer(player);
+	}
+
+	@Override
+	public void run() {
+
+		long startTime = System.nanoTime();
+		List<Player> bucket = buckets.get(currentShard);
+		int processed = 0;
+		// Iterated backwards, so that a player leaving while being processed,
+		// for instance kicked by a reward command, does not make the
+		// scheduler skip the next player of the bucket.
+		for (int i = bucket.size() - 1; i >= 0; --i) {
+			if (i < bucket.size()) {
+				task.processPlayer(bucket.get(i));
+				++processed;
+			}
+		}
+		currentShard = (currentShard + 1) % shards;
+
+		long cost = System.nanoTime() - startTime;
+		++tickCount;
+		processedCount += processed;
+		totalNanos += cost;
+		lastNanos = cost;
+		maxNanos = Math.max(maxNanos, cost);
+		lastProcessedCount = processed;
+	}
+
+	/**
+	 * Add a player who has joined to the bucket with the fewest players.
+	 */
+	public void addPlayer(Player player) {
+
+		removePlayer(player);
+		int shard = 0;
+		for (int i = 1; i < shards; ++i)
+			if (buckets.get(i).size() < buckets.get(shard).size())
+				shard = i;
+		buckets.get(shard).add(player);
+		playerShards.put(player.getUniqueId(), shard);
+	}
+
+	/**
+	 * Remove a player who has left from their bucket.
+	 */
+	public void removePlayer(Player player) {
+
+		Integer shard = playerShards.remove(player.getUniqueId());
+		if (shard == null)
+			return;
+		List<Player> bucket = buckets.get(shard);
+		for (int i = 0; i < bucket.size(); ++i) {
+			if (bucket.get(i).getUniqueId().equals(player.getUniqueId())) {
+				bucket.remove(i);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Return the bucket of a player, between 0 and the number of ticks in the
+	 * period, or -1 if the player is not scheduled.
+	 */
+	public int getShard(Player player) {
+
+		Integer shard = playerShards.get(player.getUniqueId());
+		return shard == null ? -1 : shard;
+	}
+
+	public int getShards() {
+
+		return shards;
+	}
+
+	public long getTickCount() {
+
+		return tickCount;
+	}
+
+	/**
+	 * Return the number of players processed in the last tick.
+	 */
+	public int getLastProcessedCount() {
+
+		return lastProcessedCount;
+	}
+
+	public long getLastCostMicros() {
+
+		return lastNanos / 1000L;
+	}
+
+	public long getAverageCostMicros() {
+
+		return tickCount == 0 ? 0L : totalNanos / tickCount / 1000L;
+	}
+
+	public long getMaxCostMicros() {
+
+		return maxNanos / 1000L;
+	}
+
+	/**
+	 * Return a summary of the metrics, logged when the plugin is disabled.
+	 */
+	public String getStatistics() {
+
+		return name + ": " + processedCount + " players processed over " + tickCount + " ticks in " + shards
+				+ " buckets, average cost " + getAverageCostMicros() + "us per tick, maximum cost "
+				+ getMaxCostMicros() + "us.";
+	}
+}
@@ -0,0 +1,129 @@
+package com.hm.achievement.runnable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import com.hm.achievement.AchievementIndex.Achievement;
+import com.hm.achievement.AdvancedAchievements;
+
+/**
+ * Awards the distance, played time and max level achievements reached by
+ * players without looking up their achievements on the main server thread.
+ * The achievements come from the achievement index, so reporting one only
+ * records the player's UUID and the achievement. The thresholds reached
+ * during a tick are collected into an immutable batch, which is checked in an
+ * asynchronous task against the players' cached achievements, falling back to
+ * database queries for players whose achievements are not cached. The
+ * achievements the players have not received yet are then awarded on the
+ * main thread.
+ *
+ * Callers must only report each threshold once per player session, as the
+ * achievement may not be registered yet when the next tick is run.
+ */
+public class ThresholdEvaluator {
+
+	private AdvancedAchievements plugin;
+	private final Runnable submitTask;
+
+	// Thresholds reached since the last batch, accessed on the main server
+	// thread only.
+	private List<ReachedThreshold> pendingThresholds;
+
+	public ThresholdEvaluator(AdvancedAchievements plugin) {
+
+		this.plugin = plugin;
+		pendingThresholds = new ArrayList<ReachedThreshold>();
+		submitTask = new Runnable() {
+
+			@Override
+			public void run() {
+
+				submit();
+			}
+		};
+	}
+
+	/**
+	 * Report an achievement whose threshold has been reached by a player. The
+	 * achievement is awarded during a later tick if the player has not
+	 * received it yet. Must be called on the main server thread.
+	 */
+	public void add(Player player, Achievement achievement) {
+
+		// The batch is sent once all the thresholds of the tick are collected.
+		if (pendingThresholds.isEmpty())
+			Bukkit.getScheduler().runTask(plugin, submitTask);
+		pendingThresholds.add(new ReachedThreshold(player, player.getUniqueId().toString(), achievement));
+	}
+
+	private void submit() {
+
+		if (pendingThresholds.isEmpty() || !plugin.isEnabled())
+			return;
+		final List<ReachedThreshold> batch = Collections.unmodifiableList(pendingThresholds);
+		pendingThresholds = new ArrayList<ReachedThreshold>();
+		Bukkit.getScheduler().runTaskAsynchronously(plugin, new Runnable() {
+
+			@Override
+			public void run() {
+
+				evaluate(batch);
+			}
+		});
+	}
+
+	/**
+	 * Keep the thresholds of a batch whose achievements have not been received
+	 * and award them on the main server thread. Runs in an asynchronous task.
+	 */
+	private void evaluate(List<ReachedThreshold> batch) {
+
+		final List<ReachedThreshold> awards = new ArrayList<ReachedThreshold>();
+		for (ReachedThreshold threshold : batch) {
+			if (!plugin.getAchievementStore().hasPlayerAchievement(threshold.uuid, threshold.achievement.getName()))
+				awards.add(threshold);
+		}
+		if (awards.isEmpty() || !plugin.isEnabled())
+			return;
+
+		Bukkit.getScheduler().runTask(plugin, new Runnable() {
+
+			@Override
+			public void run() {
+
+				for (ReachedThreshold threshold : awards) {
+					// The threshold is reported again if the player reconnects.
+					if (!threshold.player.isOnline())
+						continue;
+					Achievement achievement = threshold.achievement;
+					plugin.getAchievementDisplay().displayAchievement(threshold.player, achievement.getPath());
+					plugin.getDb().registerAchievement(threshold.player, achievement.getName(),
+							achievement.getMessage());
+					plugin.getReward().giveReward(threshold.player, achievement.getReward());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Achievement reached by a player. The UUID is taken on the main thread,
+	 * so that the asynchronous task does not call into the player.
+	 */
+	private static final class ReachedThreshold {
+
+		private final Player player;
+		private final String uuid;
+		private final Achievement achievement;
+
+		private ReachedThreshold(Player player, String uuid, Achievement achievement) {
+
+			this.player = player;
+			this.uuid = uuid;
+			this.achievement = achievement;
+		}
+	}
+}
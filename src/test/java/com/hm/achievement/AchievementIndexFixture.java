@@ -0,0 +1,36 @@
+package com.hm.achievement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.hm.achievement.AchievementIndex.Achievement;
+import com.hm.achievement.AchievementIndex.Reward;
+
+/**
+ * Builds achievement indexes without reading a configuration file, for tests
+ * and benchmarks.
+ */
+public class AchievementIndexFixture {
+
+	/**
+	 * Build an index from thresholds given by category path, for instance
+	 * Breaks.stone. The names and messages of the achievements are their paths
+	 * and they have no rewards.
+	 */
+	public static AchievementIndex create(Map<String, int[]> thresholds) {
+
+		Map<String, List<Achievement>> achievements = new HashMap<String, List<Achievement>>();
+		for (Entry<String, int[]> entry : thresholds.entrySet()) {
+			List<Achievement> categoryAchievements = new ArrayList<Achievement>();
+			for (int threshold : entry.getValue()) {
+				String path = entry.getKey() + '.' + threshold;
+				categoryAchievements.add(new Achievement(path, threshold, path, path, Reward.NONE));
+			}
+			achievements.put(entry.getKey(), categoryAchievements);
+		}
+		return new AchievementIndex(achievements);
+	}
+}
@@ -0,0 +1,294 @@
+package com.hm.achievement.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Measures the achievement queries on a table of about 5 million achievements,
+ * with the version 1 layout keyed by player UUID and achievement name, and
+ * with the version 2 layout keyed by integer ids, along with the migration
+ * from one to the other. The statements are those of SQLDatabaseManager for
+ * each version. The database is given by a JDBC URL whose driver must be on
+ * the class path, for instance:
+ *
+ * java -cp sqlite-jdbc.jar:target/test-classes com.hm.achievement.db.AchievementsSchemaBenchmark
+ * jdbc:sqlite:benchmark.db
+ *
+ * The achievement tables of that database are dropped and filled again.
+ */
+public class AchievementsSchemaBenchmark {
+
+	// Players have between 1 and 200 achievements, 100.5 on average.
+	private static final int PLAYERS = 50000;
+	private static final int MAX_ACHIEVEMENTS_PER_PLAYER = 200;
+	private static final int ACHIEVEMENT_NAMES = 250;
+	private static final int INSERT_BATCH_SIZE = 10000;
+	// Same size as the transactions of the achievement writer.
+	private static final int REGISTRATION_BATCH_SIZE = 500;
+	private static final int REGISTRATIONS = 10000;
+	private static final int LOOKUPS = 1000;
+	private static final int AGGREGATE_ROUNDS = 5;
+	private static final String DATE = "18/10/2016";
+
+	private static String[] uuids;
+	private static boolean sqlite;
+
+	public static void main(String[] args) throws SQLException {
+
+		String url = args.length > 0 ? args[0] : "jdbc:sqlite:achievements-benchmark.db";
+		sqlite = url.startsWith("jdbc:sqlite:");
+		Random random = new Random(42L);
+		uuids = new String[PLAYERS];
+		for (int i = 0; i < PLAYERS; ++i)
+			uuids[i] = new UUID(random.nextLong(), random.nextLong()).toString();
+
+		try (Connection conn = DriverManager.getConnection(url)) {
+			try (Statement st = conn.createStatement()) {
+				for (String table : new String[] { "achievements", "achievements_v1", "players", "achievement_names" })
+					st.execute("DROP TABLE IF EXISTS `" + table + "`");
+				st.execute("CREATE TABLE `achievements` (playername char(36), achievement varchar(64), "
+						+ "description varchar(128), date char(10), PRIMARY KEY (`playername`, `achievement`))");
+			}
+			long start = System.nanoTime();
+			int rows = fillVersion1(conn);
+			System.out.println("Inserted " + rows + " achievements with the version 1 layout in "
+					+ (System.nanoTime() - start) / 1000000L + " ms.");
+
+			System.out.println("Version 1 layout, milliseconds per query:");
+			measureQueries(conn, "SELECT COUNT(*) FROM `achievements` WHERE playername = ?",
+					"SELECT date FROM `achievements` WHERE playername = ? AND achievement = ?",
+					"SELECT COUNT(*) FROM (SELECT COUNT(*) number FROM `achievements` GROUP BY playername) c "
+							+ "WHERE c.number > ?",
+					"SELECT playername, COUNT(*) FROM `achievements` GROUP BY playername "
+							+ "ORDER BY COUNT(*) DESC LIMIT 10",
+					"SELECT COUNT(*) FROM (SELECT DISTINCT playername FROM `achievements`) c");
+			measureRegistrations(conn, false);
+
+			start = System.nanoTime();
+			migrate(conn);
+			System.out.println(
+					"Migrated to the version 2 layout in " + (System.nanoTime() - start) / 1000000L + " ms.");
+
+			System.out.println("Version 2 layout, milliseconds per query:");
+			measureQueries(conn,
+					"SELECT COUNT(*) FROM `achievements` WHERE player_id = (SELECT id FROM `players` WHERE uuid = ?)",
+					"SELECT a.date FROM `achievements` a JOIN `players` p ON p.id = a.player_id "
+							+ "JOIN `achievement_names` n ON n.id = a.achievement_id WHERE p.uuid = ? AND n.name = ?",
+					"SELECT COUNT(*) FROM (SELECT COUNT(*) number FROM `achievements` GROUP BY player_id) c "
+							+ "WHERE c.number > ?",
+					"SELECT p.uuid, c.number FROM (SELECT player_id, COUNT(*) number FROM `achievements` "
+							+ "GROUP BY player_id ORDER BY number DESC LIMIT 10) c "
+							+ "JOIN `players` p ON p.id = c.player_id ORDER BY c.number DESC",
+					"SELECT COUNT(DISTINCT player_id) FROM `achievements`");
+			measureRegistrations(conn, true);
+		}
+	}
+
+	private static int getAchievementsAmount(int player) {
+
+		return 1 + player % MAX_ACHIEVEMENTS_PER_PLAYER;
+	}
+
+	private static String getAchievementName(int player, int achievement) {
+
+		return "achievement" + (player + achievement) % ACHIEVEMENT_NAMES;
+	}
+
+	private static int fillVersion1(Connection conn) throws SQLException {
+
+		conn.setAutoCommit(false);
+		int rows = 0;
+		try (PreparedStatement prep = conn.prepareStatement("INSERT INTO `achievements` VALUES (?,?,?,?)")) {
+			for (int player = 0; player < PLAYERS; ++player) {
+				for (int achievement = 0; achievement < getAchievementsAmount(player); ++achievement) {
+					String name = getAchievementName(player, achievement);
+					prep.setString(1, uuids[player]);
+					prep.setString(2, name);
+					prep.setString(3, "Description of " + name);
+					prep.setString(4, DATE);
+					prep.addBatch();
+					if (++rows % INSERT_BATCH_SIZE == 0)
+						prep.executeBatch();
+				}
+			}
+			prep.executeBatch();
+		}
+		conn.commit();
+		conn.setAutoCommit(true);
+		return rows;
+	}
+
+	/**
+	 * Migrate the achievements table with the statements of
+	 * SQLDatabaseManager.migrateAchievementsTable.
+	 */
+	private static void migrate(Connection conn) throws SQLException {
+
+		String autoIncrementId = sqlite ? "id INTEGER PRIMARY KEY,"
+				: "id INT UNSIGNED NOT NULL AUTO_INCREMENT, PRIMARY KEY (`id`),";
+		String insertIgnore = sqlite ? "INSERT OR IGNORE" : "INSERT IGNORE";
+		try (Statement st = conn.createStatement()) {
+			st.execute("CREATE TABLE `players` (" + autoIncrementId + "uuid char(36) NOT NULL, UNIQUE (`uuid`))");
+			st.execute("CREATE TABLE `achievement_names` (" + autoIncrementId + "name varchar(64) NOT NULL, "
+					+ "description varchar(128), UNIQUE (`name`))");
+			st.execute("ALTER TABLE `achievements` RENAME TO `achievements_v1`");
+			st.execute("CREATE TABLE `achievements` (player_id INT UNSIGNED NOT NULL, achievement_id INT UNSIGNED "
+					+ "NOT NULL, date char(10), PRIMARY KEY (`player_id`, `achievement_id`))");
+			conn.setAutoCommit(false);
+			st.execute(insertIgnore + " INTO `players` (uuid) SELECT DISTINCT playername FROM `achievements_v1`");
+			st.execute(insertIgnore + " INTO `achievement_names` (name, description) "
+					+ "SELECT achievement, MAX(description) FROM `achievements_v1` GROUP BY achievement");
+			st.executeUpdate("INSERT INTO `achievements` (player_id, achievement_id, date) "
+					+ "SELECT p.id, n.id, o.date FROM `achievements_v1` o "
+					+ "JOIN `players` p ON p.uuid = o.playername JOIN `achievement_names` n ON n.name = o.achievement");
+			st.execute("DROP TABLE `achievements_v1`");
+			conn.commit();
+			conn.setAutoCommit(true);
+		}
+	}
+
+	/**
+	 * Print the cost of the per-player queries, averaged over several players,
+	 * and the median cost of the aggregate queries.
+	 */
+	private static void measureQueries(Connection conn, String countQuery, String hasQuery, String rankQuery,
+			String topQuery, String totalQuery) throws SQLException {
+
+		Random random = new Random(7L);
+		try (PreparedStatement count = conn.prepareStatement(countQuery);
+				PreparedStatement has = conn.prepareStatement(hasQuery)) {
+			long countTime = 0L;
+			long hasTime = 0L;
+			for (int i = 0; i < LOOKUPS; ++i) {
+				int player = random.nextInt(PLAYERS);
+				long start = System.nanoTime();
+				count.setString(1, uuids[player]);
+				consume(count.executeQuery());
+				countTime += System.nanoTime() - start;
+				start = System.nanoTime();
+				has.setString(1, uuids[player]);
+				has.setString(2, getAchievementName(player, 0));
+				consume(has.executeQuery());
+				hasTime += System.nanoTime() - start;
+			}
+			print("achievements of a player", countTime / (double) LOOKUPS);
+			print("achievement check", hasTime / (double) LOOKUPS);
+		}
+
+		double[] rankTimes = new double[AGGREGATE_ROUNDS];
+		double[] topTimes = new double[AGGREGATE_ROUNDS];
+		double[] totalTimes = new double[AGGREGATE_ROUNDS];
+		try (PreparedStatement rank = conn.prepareStatement(rankQuery);
+				PreparedStatement top = conn.prepareStatement(topQuery);
+				PreparedStatement total = conn.prepareStatement(totalQuery)) {
+			for (int round = 0; round < AGGREGATE_ROUNDS; ++round) {
+				long start = System.nanoTime();
+				rank.setInt(1, random.nextInt(MAX_ACHIEVEMENTS_PER_PLAYER));
+				consume(rank.executeQuery());
+				rankTimes[round] = System.nanoTime() - start;
+				start = System.nanoTime();
+				consume(top.executeQuery());
+				topTimes[round] = System.nanoTime() - start;
+				start = System.nanoTime();
+				consume(total.executeQuery());
+				totalTimes[round] = System.nanoTime() - start;
+			}
+		}
+		print("rank", median(rankTimes));
+		print("top 10", median(topTimes));
+		print("ranked players", median(totalTimes));
+	}
+
+	/**
+	 * Print the cost of registering achievements of existing players in
+	 * transactions the size of those of the achievement writer, using the
+	 * statements of SQLDatabaseManager.addAchievementBatch for the version 2
+	 * layout.
+	 */
+	private static void measureRegistrations(Connection conn, boolean version2) throws SQLException {
+
+		String insertIgnore = sqlite ? "INSERT OR IGNORE" : "INSERT IGNORE";
+		Random random = new Random(11L);
+		conn.setAutoCommit(false);
+		long start = System.nanoTime();
+		if (version2) {
+			try (PreparedStatement player = conn.prepareStatement(insertIgnore + " INTO `players` (uuid) VALUES (?)");
+					PreparedStatement name = conn.prepareStatement(
+							insertIgnore + " INTO `achievement_names` (name, description) VALUES (?,?)");
+					PreparedStatement description = conn.prepareStatement("UPDATE `achievement_names` "
+							+ "SET description = ? WHERE name = ? AND (description IS NULL OR description <> ?)");
+					PreparedStatement achievement = conn.prepareStatement("REPLACE INTO `achievements` VALUES ("
+							+ "(SELECT id FROM `players` WHERE uuid = ?), "
+							+ "(SELECT id FROM `achievement_names` WHERE name = ?), ?)")) {
+				for (int i = 1; i <= REGISTRATIONS; ++i) {
+					String uuid = uuids[random.nextInt(PLAYERS)];
+					String achievementName = "achievement" + random.nextInt(ACHIEVEMENT_NAMES);
+					player.setString(1, uuid);
+					player.addBatch();
+					name.setString(1, achievementName);
+					name.setString(2, "Description of " + achievementName);
+					name.addBatch();
+					description.setString(1, "Description of " + achievementName);
+					description.setString(2, achievementName);
+					description.setString(3, "Description of " + achievementName);
+					description.addBatch();
+					achievement.setString(1, uuid);
+					achievement.setString(2, achievementName);
+					achievement.setString(3, DATE);
+					achievement.addBatch();
+					if (i % REGISTRATION_BATCH_SIZE == 0) {
+						player.executeBatch();
+						name.executeBatch();
+						description.executeBatch();
+						achievement.executeBatch();
+						conn.commit();
+					}
+				}
+			}
+		} else {
+			try (PreparedStatement achievement = conn
+					.prepareStatement("REPLACE INTO `achievements` VALUES (?,?,?,?)")) {
+				for (int i = 1; i <= REGISTRATIONS; ++i) {
+					String achievementName = "achievement" + random.nextInt(ACHIEVEMENT_NAMES);
+					achievement.setString(1, uuids[random.nextInt(PLAYERS)]);
+					achievement.setString(2, achievementName);
+					achievement.setString(3, "Description of " + achievementName);
+					achievement.setString(4, DATE);
+					achievement.addBatch();
+					if (i % REGISTRATION_BATCH_SIZE == 0) {
+						achievement.executeBatch();
+						conn.commit();
+					}
+				}
+			}
+		}
+		conn.setAutoCommit(true);
+		print("registration", (System.nanoTime() - start) / (double) REGISTRATIONS);
+	}
+
+	private static void consume(ResultSet rs) throws SQLException {
+
+		while (rs.next())
+			rs.getString(1);
+		rs.close();
+	}
+
+	private static double median(double[] times) {
+
+		double[] sortedTimes = times.clone();
+		Arrays.sort(sortedTimes);
+		return sortedTimes[sortedTimes.length / 2];
+	}
+
+	private static void print(String query, double nanoseconds) {
+
+		System.out.println(String.format("  %-26s %10.3f", query, nanoseconds / 1000000.0));
+	}
+}
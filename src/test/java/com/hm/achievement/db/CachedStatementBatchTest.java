@@ -0,0 +1,140 @@
+package com.hm.achievement.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Checks that the rows batched on a cached statement during a flush that
+ * failed are not executed again by the next flush on the same connection. The
+ * connection and statements are fakes recording the batched rows, so no
+ * database is needed:
+ *
+ * java -cp target/test-classes:target/classes com.hm.achievement.db.CachedStatementBatchTest
+ */
+public class CachedStatementBatchTest {
+
+	private static final String UPDATE_QUERY = "UPDATE `breaks` SET breaks = breaks + ? WHERE playername = ?";
+
+	private static boolean failBatches;
+	private static int executedRows;
+
+	public static void main(String[] args) throws SQLException {
+
+		SQLConnectionPool pool = new SQLConnectionPool("Test", new FakeDialect(), 1, 1, 1000L);
+
+		failBatches = true;
+		try {
+			flush(pool, 5);
+			throw new AssertionError("The first flush should have failed.");
+		} catch (BatchUpdateException e) {
+			// Expected, the transaction was rolled back.
+		}
+
+		failBatches = false;
+		flush(pool, 3);
+		if (executedRows != 1)
+			throw new AssertionError("Expected 1 row executed by the second flush, got " + executedRows + ".");
+		pool.close();
+		System.out.println("Rows of the failed flush were not executed again.");
+	}
+
+	/**
+	 * Write an increment in a transaction, the same way as the statistics
+	 * flushes of SQLDatabaseManager.
+	 */
+	private static void flush(SQLConnectionPool pool, int amount) throws SQLException {
+
+		try (Connection conn = pool.getConnection()) {
+			conn.setAutoCommit(false);
+			try {
+				PreparedStatement prep = SQLConnectionPool.prepareCachedStatement(conn, UPDATE_QUERY);
+				prep.setInt(1, amount);
+				prep.setString(2, "player");
+				prep.addBatch();
+				prep.executeBatch();
+				conn.commit();
+			} catch (SQLException e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+		}
+	}
+
+	private static class FakeDialect extends SQLDialect {
+
+		private FakeDialect() {
+
+			super(null);
+		}
+
+		@Override
+		public String getName() {
+
+			return "Fake";
+		}
+
+		@Override
+		public Connection createConnection() {
+
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, new FakeConnection());
+		}
+	}
+
+	private static class FakeConnection implements InvocationHandler {
+
+		private boolean autoCommit = true;
+		private boolean closed;
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+
+			String methodName = method.getName();
+			if ("prepareStatement".equals(methodName))
+				return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+						new Class<?>[] { PreparedStatement.class }, new FakeStatement());
+			else if ("getAutoCommit".equals(methodName))
+				return autoCommit;
+			else if ("setAutoCommit".equals(methodName))
+				autoCommit = (Boolean) args[0];
+			else if ("isClosed".equals(methodName))
+				return closed;
+			else if ("isValid".equals(methodName))
+				return !closed;
+			else if ("close".equals(methodName))
+				closed = true;
+			return null;
+		}
+	}
+
+	private static class FakeStatement implements InvocationHandler {
+
+		private int batchedRows;
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+
+			String methodName = method.getName();
+			if ("addBatch".equals(methodName)) {
+				++batchedRows;
+			} else if ("clearBatch".equals(methodName)) {
+				batchedRows = 0;
+			} else if ("executeBatch".equals(methodName)) {
+				if (failBatches)
+					throw new BatchUpdateException("Simulated failure.", new int[0]);
+				int[] counts = new int[batchedRows];
+				executedRows += batchedRows;
+				batchedRows = 0;
+				return counts;
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,353 @@
+package com.hm.achievement.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Material;
+
+import com.hm.achievement.AchievementIndex;
+import com.hm.achievement.AchievementIndex.Thresholds;
+import com.hm.achievement.AchievementIndexFixture;
+import com.hm.achievement.category.MultipleAchievements;
+import com.hm.achievement.category.NormalAchievements;
+import com.hm.achievement.db.PlayerStatistics.DirtyStatistics;
+
+/**
+ * Measures the per-event cost of increasing a statistic and checking whether
+ * an achievement is reached, before and after the per-player records with
+ * cached next thresholds.
+ *
+ * The previous path is reproduced without Bukkit: keys made of the player's
+ * UUID and the sub-category, boxed counters in string-keyed maps, and
+ * configuration paths built and looked up in a tree of sections for each
+ * event, as done by MemorySection. The records are loaded from and written
+ * back to an in-memory store at the end of each round, as the pooled requests
+ * sender does with the database. Permission checks are left out of both
+ * paths. The per-player records are also measured with the statistics
+ * journal enabled, each round then covering a journal segment; syncing the
+ * journal to disk is done by a separate thread and is left out. Run with the
+ * plugin and test classes on the class path, for instance:
+ *
+ * java -cp target/classes:target/test-classes com.hm.achievement.db.IncrementStatisticBenchmark
+ */
+public class IncrementStatisticBenchmark {
+
+	private static final int PLAYERS = 100;
+	private static final int EVENTS = 2000000;
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int ROUNDS = 10;
+	private static final String[] BLOCKS = { "stone", "dirt", "cobblestone", "log" };
+	private static final Material[] MATERIALS = { Material.STONE, Material.DIRT, Material.COBBLESTONE, Material.LOG };
+	private static final int[] BREAK_THRESHOLDS = { 100, 1000, 10000, 100000 };
+	private static final int[] ARROW_THRESHOLDS = { 10, 100, 1000, 10000 };
+
+	// Sum of the achievements reached, so that the work is not optimised away.
+	private static long reached;
+
+	public static void main(String[] args) throws IOException {
+
+		UUID[] players = new UUID[PLAYERS];
+		for (int i = 0; i < PLAYERS; ++i)
+			players[i] = UUID.randomUUID();
+
+		Map<String, int[]> thresholds = new HashMap<String, int[]>();
+		for (String block : BLOCKS)
+			thresholds.put("Breaks." + block, BREAK_THRESHOLDS);
+		thresholds.put("Arrows", ARROW_THRESHOLDS);
+		AchievementIndex index = AchievementIndexFixture.create(thresholds);
+
+		Map<String, Object> config = new HashMap<String, Object>();
+		Map<String, Object> breaks = new HashMap<String, Object>();
+		for (String block : BLOCKS)
+			breaks.put(block, createSection(BREAK_THRESHOLDS, "Breaks." + block));
+		config.put("Breaks", breaks);
+		config.put("Arrows", createSection(ARROW_THRESHOLDS, "Arrows"));
+
+		System.out.println("Per-event cost in nanoseconds and allocated bytes, median of " + ROUNDS + " rounds of "
+				+ EVENTS + " events over " + PLAYERS + " players:");
+		System.out.println("Breaks, string-keyed pools:    " + measure(new StringKeyedBreaks(players, config)));
+		InMemoryStore store = new InMemoryStore();
+		System.out.println("Breaks, per-player records:    " + measure(new RecordBreaks(players, index, store, null)));
+		File directory = Files.createTempDirectory("journal").toFile();
+		StatisticsJournal journal = new StatisticsJournal(null, directory, 1000L);
+		System.out.println(
+				"Breaks, journaled records:     " + measure(new RecordBreaks(players, index, store, journal)));
+		System.out.println("Arrows, string-keyed pools:    " + measure(new StringKeyedArrows(players, config)));
+		System.out.println("Arrows, per-player records:    " + measure(new RecordArrows(players, index, store, null)));
+		System.out.println(
+				"Arrows, journaled records:     " + measure(new RecordArrows(players, index, store, journal)));
+		directory.delete();
+		System.out.println("(" + reached + " achievements reached)");
+	}
+
+	private static Map<String, Object> createSection(int[] values, String path) {
+
+		Map<String, Object> section = new HashMap<String, Object>();
+		for (int threshold : values) {
+			Map<String, Object> achievement = new HashMap<String, Object>();
+			achievement.put("Name", path + '.' + threshold);
+			achievement.put("Message", path + '.' + threshold);
+			section.put(Integer.toString(threshold), achievement);
+		}
+		return section;
+	}
+
+	/**
+	 * Run the events of a path over several rounds and return the median cost
+	 * of an event, along with the bytes it allocates if the JVM measures them.
+	 */
+	private static String measure(Events events) {
+
+		for (int round = 0; round < WARMUP_ROUNDS; ++round)
+			events.run(EVENTS);
+		double[] costs = new double[ROUNDS];
+		double[] allocations = new double[ROUNDS];
+		for (int round = 0; round < ROUNDS; ++round) {
+			long allocated = getAllocatedBytes();
+			long start = System.nanoTime();
+			events.run(EVENTS);
+			costs[round] = (System.nanoTime() - start) / (double) EVENTS;
+			allocations[round] = (getAllocatedBytes() - allocated) / (double) EVENTS;
+		}
+		Arrays.sort(costs);
+		Arrays.sort(allocations);
+		return String.format("%6.1f ns, %6.1f bytes", costs[ROUNDS / 2], allocations[ROUNDS / 2]);
+	}
+
+	private static long getAllocatedBytes() {
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return 0L;
+	}
+
+	/**
+	 * Look a path up in a tree of sections, one level per dot.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Object get(Map<String, Object> root, String path) {
+
+		Object current = root;
+		int start = 0;
+		int end;
+		while ((end = path.indexOf('.', start)) >= 0) {
+			current = ((Map<String, Object>) current).get(path.substring(start, end));
+			if (!(current instanceof Map))
+				return null;
+			start = end + 1;
+		}
+		return ((Map<String, Object>) current).get(path.substring(start));
+	}
+
+	/**
+	 * Load the statistics of the players from a store.
+	 */
+	private static Map<UUID, PlayerStatistics> loadStatistics(UUID[] players, StatisticsStore store) {
+
+		Map<UUID, PlayerStatistics> statistics = new HashMap<UUID, PlayerStatistics>();
+		for (UUID player : players)
+			statistics.put(player, store.loadPlayerStatistics(player.toString()));
+		return statistics;
+	}
+
+	/**
+	 * Write the changed statistics of the players to a store, along with the
+	 * journal segment they cover if a journal is given.
+	 */
+	private static void writeStatistics(Map<UUID, PlayerStatistics> statistics, StatisticsStore store,
+			StatisticsJournal journal) {
+
+		List<DirtyStatistics> dirtyStatistics = new ArrayList<DirtyStatistics>();
+		long segment = 0L;
+		if (journal != null) {
+			synchronized (journal) {
+				segment = journal.startSegment();
+				takeDirtyStatistics(statistics, dirtyStatistics);
+			}
+		} else {
+			takeDirtyStatistics(statistics, dirtyStatistics);
+		}
+		try {
+			if (journal == null) {
+				store.writeStatistics(dirtyStatistics, new WrittenRows());
+			} else {
+				store.writeStatistics(dirtyStatistics, new WrittenRows(), "benchmark", segment);
+				journal.releaseSegments(segment);
+			}
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void takeDirtyStatistics(Map<UUID, PlayerStatistics> statistics,
+			List<DirtyStatistics> dirtyStatistics) {
+
+		for (PlayerStatistics playerStatistics : statistics.values()) {
+			DirtyStatistics playerDirtyStatistics = playerStatistics.takeDirtyStatistics();
+			if (playerDirtyStatistics != null)
+				dirtyStatistics.add(playerDirtyStatistics);
+		}
+	}
+
+	private interface Events {
+
+		void run(int count);
+	}
+
+	private static final class StringKeyedBreaks implements Events {
+
+		private final UUID[] players;
+		private final Map<String, Object> config;
+		private final Map<String, Integer> blockBreaks = new HashMap<String, Integer>();
+
+		private StringKeyedBreaks(UUID[] players, Map<String, Object> config) {
+
+			this.players = players;
+			this.config = config;
+		}
+
+		@Override
+		public void run(int count) {
+
+			for (int i = 0; i < count; ++i) {
+				UUID player = players[i % PLAYERS];
+				String blockName = BLOCKS[i % BLOCKS.length];
+				// Permission and section checks of the block with its data value.
+				String permission = "achievement.count.breaks." + blockName + ":" + 0;
+				if (permission.isEmpty() || get(config, "Breaks." + blockName) == null)
+					continue;
+				Integer amount = blockBreaks.get(player.toString() + blockName);
+				int breaks = (amount == null ? 0 : amount) + 1;
+				blockBreaks.put(player.toString() + blockName, breaks);
+				String configAchievement = "Breaks." + blockName + '.' + breaks;
+				if (get(config, configAchievement + ".Message") != null)
+					++reached;
+			}
+		}
+	}
+
+	private static final class StringKeyedArrows implements Events {
+
+		private final UUID[] players;
+		private final Map<String, Object> config;
+		private final Map<String, Integer> arrows = new HashMap<String, Integer>();
+
+		private StringKeyedArrows(UUID[] players, Map<String, Object> config) {
+
+			this.players = players;
+			this.config = config;
+		}
+
+		@Override
+		public void run(int count) {
+
+			for (int i = 0; i < count; ++i) {
+				UUID player = players[i % PLAYERS];
+				Integer amount = arrows.get(player.toString());
+				int arrowsShot = (amount == null ? 0 : amount) + 1;
+				arrows.put(player.toString(), arrowsShot);
+				String configAchievement = "Arrows." + arrowsShot;
+				if (get(config, configAchievement + ".Message") != null)
+					++reached;
+			}
+		}
+	}
+
+	private static final class RecordBreaks implements Events {
+
+		private final UUID[] players;
+		private final AchievementIndex index;
+		private final StatisticsStore store;
+		private final StatisticsJournal journal;
+		private final Map<UUID, PlayerStatistics> statistics;
+
+		private RecordBreaks(UUID[] players, AchievementIndex index, StatisticsStore store,
+				StatisticsJournal journal) {
+
+			this.players = players;
+			this.index = index;
+			this.store = store;
+			this.journal = journal;
+			statistics = loadStatistics(players, store);
+		}
+
+		@Override
+		public void run(int count) {
+
+			for (int i = 0; i < count; ++i) {
+				UUID player = players[i % PLAYERS];
+				PlayerStatistics playerStatistics = statistics.get(player);
+				// Sub-category lookups of the block with and without its data value.
+				Material material = MATERIALS[i % MATERIALS.length];
+				Thresholds thresholds = index.getThresholds(MultipleAchievements.BREAKS, material, 0);
+				if (thresholds.getId() < 0)
+					thresholds = index.getThresholds(MultipleAchievements.BREAKS, material);
+				if (thresholds.getId() < 0)
+					continue;
+				if (journal == null) {
+					if (playerStatistics.incrementStatistic(MultipleAchievements.BREAKS, thresholds.getSubcategory(),
+							1, index) != null)
+						++reached;
+					continue;
+				}
+				synchronized (journal) {
+					journal.recordIncrease(player, MultipleAchievements.BREAKS, thresholds.getSubcategory(), 1);
+					if (playerStatistics.incrementStatistic(MultipleAchievements.BREAKS, thresholds.getSubcategory(),
+							1, index) != null)
+						++reached;
+				}
+			}
+			writeStatistics(statistics, store, journal);
+		}
+	}
+
+	private static final class RecordArrows implements Events {
+
+		private final UUID[] players;
+		private final AchievementIndex index;
+		private final StatisticsStore store;
+		private final StatisticsJournal journal;
+		private final Map<UUID, PlayerStatistics> statistics;
+
+		private RecordArrows(UUID[] players, AchievementIndex index, StatisticsStore store,
+				StatisticsJournal journal) {
+
+			this.players = players;
+			this.index = index;
+			this.store = store;
+			this.journal = journal;
+			statistics = loadStatistics(players, store);
+		}
+
+		@Override
+		public void run(int count) {
+
+			for (int i = 0; i < count; ++i) {
+				UUID player = players[i % PLAYERS];
+				PlayerStatistics playerStatistics = statistics.get(player);
+				if (journal == null) {
+					if (playerStatistics.incrementStatistic(NormalAchievements.ARROWS, 1, index) != null)
+						++reached;
+					continue;
+				}
+				synchronized (journal) {
+					journal.recordIncrease(player, NormalAchievements.ARROWS, 1);
+					if (playerStatistics.incrementStatistic(NormalAchievements.ARROWS, 1, index) != null)
+						++reached;
+				}
+			}
+			writeStatistics(statistics, store, journal);
+		}
+	}
+}